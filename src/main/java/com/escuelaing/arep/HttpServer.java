@@ -1,39 +1,144 @@
 package com.escuelaing.arep;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.URLDecoder;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+
+import com.escuelaing.arep.annotations.CrossOrigin;
+import com.escuelaing.arep.annotations.Filter;
+import com.escuelaing.arep.annotations.WebSocketEndpoint;
+import com.escuelaing.arep.capture.TrafficCapture;
 import com.escuelaing.arep.config.ServerConfig;
+import com.escuelaing.arep.config.SocketSettings;
+import com.escuelaing.arep.config.TlsSettings;
+import com.escuelaing.arep.framework.BatchDispatcher;
+import com.escuelaing.arep.framework.BufferPool;
+import com.escuelaing.arep.framework.ConcurrencyLimiter;
+import com.escuelaing.arep.framework.CorsPolicy;
+import com.escuelaing.arep.framework.Counters;
+import com.escuelaing.arep.framework.EventBroadcaster;
+import com.escuelaing.arep.framework.FilterRegistry;
+import com.escuelaing.arep.framework.JsonWriter;
+import com.escuelaing.arep.framework.RateLimiter;
+import com.escuelaing.arep.framework.ResponseCompressor;
+import com.escuelaing.arep.framework.RouteFilter;
 import com.escuelaing.arep.framework.RouteInfo;
+import com.escuelaing.arep.framework.StaticFileCache;
+import com.escuelaing.arep.framework.StaticManifest;
+import com.escuelaing.arep.http.HttpHeadReader;
+import com.escuelaing.arep.http.MultipartParser;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+import com.escuelaing.arep.http2.Http2Connection;
+import com.escuelaing.arep.proxy.ProxyRoute;
+import com.escuelaing.arep.proxy.ReverseProxy;
 import com.escuelaing.arep.utils.ClassScanner;
+import com.escuelaing.arep.websocket.WebSocketHandler;
+import com.escuelaing.arep.websocket.WebSocketSession;
 /**
- * HTTP Server secuencial con soporte de archivos estáticos y rutas anotadas
+ * HTTP Server con soporte de archivos estáticos y rutas anotadas
  * vía un mini IoC (@RestController + @GetMapping + @RequestParam).
+ * Por defecto atiende secuencialmente; opcionalmente usa varios acceptors
+ * (SO_REUSEPORT), un pool de workers o hilos virtuales por conexión.
+ * Las conexiones HTTP/2 en claro (h2c) y las WebSocket se atienden en su propio hilo virtual.
  */
 public class HttpServer {
 
-    private static boolean running = true;
+    private static volatile boolean running = true;
     private static String WEB_ROOT = ServerConfig.STATIC_FILES_DIR;
     private static final Logger LOGGER = Logger.getLogger(HttpServer.class.getName());
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+    // Orígenes permitidos y preflights CORS; las cabeceras fijas se serializan una sola vez
+    private static final CorsPolicy cors = CorsPolicy.fromConfig();
+    private static final byte[] CORS_HEADERS = cors.defaultHeaders().entrySet().stream()
+            .map(h -> h.getKey() + ": " + h.getValue() + "\r\n").collect(Collectors.joining())
+            .getBytes(StandardCharsets.US_ASCII);
+    // Cabecera de los streams SSE: sin Content-Length, la conexión queda abierta
+    private static final byte[] EVENT_STREAM_HEAD = ("HTTP/1.1 200 OK\r\n"
+            + "Content-Type: text/event-stream; charset=UTF-8\r\n"
+            + "Cache-Control: no-cache\r\n"
+            + "Connection: keep-alive\r\n"
+            + "X-Accel-Buffering: no\r\n"
+            + new String(CORS_HEADERS, StandardCharsets.US_ASCII)
+            + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    // Archivos pedidos por su nombre con huella de contenido
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age="
+            + ServerConfig.getStaticImmutableMaxAgeSeconds() + ", immutable";
+    // Respuestas hasta este tamaño se envían con la cabecera en un solo write
+    private static final int INLINE_BODY_LIMIT = 16 * 1024;
+    // Las mismas cabeceras CORS para HTTP/2, con nombres en minúscula
+    private static final Map<String, String> H2_DEFAULT_HEADERS = cors.defaultHeaders().entrySet().stream()
+            .collect(Collectors.toUnmodifiableMap(h -> h.getKey().toLowerCase(), Map.Entry::getValue));
+    // Métodos anunciados en los preflight según las rutas registradas en cada path
+    private static final String GET_METHODS = "GET, HEAD, OPTIONS";
+    private static final String POST_METHODS = "POST, OPTIONS";
+    private static final String ALL_METHODS = "GET, HEAD, POST, OPTIONS";
 
-    private static final Map<String, byte[]> fileCache = new HashMap<>();
     // Rutas descubiertas por reflexión para GET
     private static final Map<String, RouteInfo> routes = new HashMap<>();
     // Rutas descubiertas por reflexión para POST
     private static final Map<String, RouteInfo> postRoutes = new HashMap<>();
+    // Políticas CORS de las rutas con @CrossOrigin
+    private static final Map<String, CorsPolicy> routeCors = new HashMap<>();
+    // Endpoints WebSocket (@WebSocketEndpoint) por ruta
+    private static final Map<String, WebSocketHandler> webSocketEndpoints = new HashMap<>();
+    // Contadores compartidos, inyectables en controladores
+    private static final Counters counters = new Counters();
+    // Opciones de socket y timeouts aplicados a cada listener y conexión
+    private static SocketSettings socketSettings = SocketSettings.fromConfig();
+    // Timeout por defecto de los handlers asíncronos y los hilos que escriben sus respuestas
+    private static long asyncTimeoutMillis = ServerConfig.getAsyncTimeoutMillis();
+    private static final ExecutorService asyncCompletions = Executors.newVirtualThreadPerTaskExecutor();
+    // Buffers reutilizables para leer cabeceras y escribir respuestas
+    private static final BufferPool bufferPool = BufferPool.shared();
+    // Límite de peticiones por cliente y por ruta (deshabilitado si no hay configuración)
+    private static RateLimiter rateLimiter = createRateLimiter();
+    // Endpoint batch: sub-peticiones despachadas en paralelo contra la tabla de rutas ("" lo deshabilita)
+    private static final String batchPath = ServerConfig.getBatchPath();
+    private final BatchDispatcher batch = new BatchDispatcher(this::dispatchRoute, ServerConfig.getBatchMaxItems(),
+            ServerConfig.getBatchTimeoutMillis(), (client, path) -> rateLimiter.tryAcquire(client, path));
+    // Compresión al vuelo (gzip/deflate) de las respuestas de rutas
+    private static final ResponseCompressor compressor = ResponseCompressor.shared();
+
+    // Archivos estáticos (classpath o directorio observado), con ETag y variante gzip
+    private StaticFileCache staticFiles;
+    // Prefijos reenviados a servidores upstream (sin rutas si no hay configuración)
+    private ReverseProxy proxy = new ReverseProxy(List.of(), bufferPool);
+    // Muestreo de peticiones hacia el log de tráfico (desactivado sin CAPTURE_FILE)
+    private TrafficCapture capture = TrafficCapture.disabled();
+    // Listeners abiertos por esta instancia (uno por acceptor)
+    private final List<ServerSocket> listeners = new CopyOnWriteArrayList<>();
 
     public static void main(String[] args) throws IOException {
         if (args.length > 0) {
@@ -49,9 +154,12 @@ public class HttpServer {
      * The server will:
      * <ul>
      *   <li>Load all controllers annotated for route handling.</li>
-     *   <li>Bind to the port specified in {@link ServerConfig}.</li>
+     *   <li>Bind to the port specified in {@link ServerConfig}, applying the {@link SocketSettings} backlog and options.</li>
+     *   <li>If a keystore is configured ({@link TlsSettings}), also listen for HTTPS on its own acceptor thread.</li>
      *   <li>Log server startup information, including registered routes and web root directory.</li>
-     *   <li>Accept and handle incoming client requests in a loop while the server is running.</li>
+     *   <li>Accept and handle incoming client requests while the server is running, on one or more
+     *       acceptor threads (each listener bound to the same port with SO_REUSEPORT), serving
+     *       connections inline or on per-acceptor workers.</li>
      *   <li>Gracefully handle IO exceptions during client request processing and server startup.</li>
      *   <li>Stop the server and log shutdown information when finished.</li>
      * </ul>
@@ -61,9 +169,33 @@ public class HttpServer {
     public void start() throws IOException {
         // Cargar controladores anotados
         loadControllers();
+        staticFiles = createStaticFiles();
+        proxy = ReverseProxy.fromConfig();
+        capture = TrafficCapture.fromConfig();
+        rateLimiter = createRateLimiter();
+        String countersFile = ServerConfig.getCountersFile();
+        if (countersFile != null && !countersFile.isBlank()) {
+            counters.persistTo(Path.of(countersFile), ServerConfig.getCountersFlushMillis());
+        }
 
-        try (ServerSocket serverSocket = new ServerSocket(ServerConfig.getPort())) {
+        socketSettings = SocketSettings.fromConfig();
+        asyncTimeoutMillis = ServerConfig.getAsyncTimeoutMillis();
+        int acceptors = Math.max(1, ServerConfig.getAcceptors());
+        if (acceptors > 1 && !reusePortSupported()) {
+            LOGGER.log(Level.WARNING, "SO_REUSEPORT no disponible, se usa un solo acceptor");
+            acceptors = 1;
+        }
+        // Con varios acceptors cada listener comparte el puerto vía SO_REUSEPORT y el kernel reparte las conexiones
+        SocketSettings listenerSettings = acceptors > 1 ? socketSettings.withReusePort(true) : socketSettings;
+        try {
+            for (int i = 0; i < acceptors; i++) {
+                ServerSocket serverSocket = new ServerSocket();
+                listeners.add(serverSocket);
+                listenerSettings.bind(serverSocket, ServerConfig.getPort());
+            }
+            SSLServerSocket tlsListener = openTlsListener();
             LOGGER.log(Level.INFO, "HTTP Server started on port {0}", ServerConfig.getPort());
+            LOGGER.log(Level.INFO, "Acceptors: {0}, workers: {1}", new Object[]{acceptors, describeWorkers()});
             LOGGER.log(Level.INFO, "Serving files from: {0}", WEB_ROOT);
             if (!routes.isEmpty()) {
                 LOGGER.info("Rutas GET registradas por anotación:");
@@ -71,6 +203,17 @@ public class HttpServer {
                     LOGGER.log(Level.INFO, "  GET {0}", p);
                 }
             }
+            for (String p : webSocketEndpoints.keySet()) {
+                LOGGER.log(Level.INFO, "  WebSocket {0}", p);
+            }
+            for (ProxyRoute r : proxy.getRoutes()) {
+                LOGGER.log(Level.INFO, "  Proxy {0} -> {1} ({2})", new Object[]{r.getPrefix(),
+                        r.getUpstreams().stream().map(u -> u.address()).collect(Collectors.joining(", ")), r.getBalancer()});
+            }
+            if (capture.isEnabled()) {
+                LOGGER.log(Level.INFO, "Capturando tráfico en {0} (muestreo {1})",
+                        new Object[]{ServerConfig.getCaptureFile(), ServerConfig.getCaptureSampleRate()});
+            }
             if (!postRoutes.isEmpty()) {
                 LOGGER.info("Rutas POST registradas por anotación:");
                 for (String p : postRoutes.keySet()) {
@@ -79,22 +222,157 @@ public class HttpServer {
             }
             LOGGER.log(Level.INFO, "Open http://localhost:{0} en su navegador", ServerConfig.getPort());
 
-            while (running) {
-                try (Socket clientSocket = serverSocket.accept()) {
-                    handleRequest(clientSocket);
-                } catch (IOException e) {
-                    LOGGER.log(Level.SEVERE, "Error handling client request: {0}", e.getMessage());
-                }
+            for (int i = 1; i < acceptors; i++) {
+                ServerSocket serverSocket = listeners.get(i);
+                Thread acceptor = new Thread(() -> acceptLoop(serverSocket), "acceptor-" + i);
+                acceptor.setDaemon(true);
+                acceptor.start();
+            }
+            if (tlsListener != null) {
+                Thread acceptor = new Thread(() -> acceptLoop(tlsListener), "tls-acceptor");
+                acceptor.setDaemon(true);
+                acceptor.start();
             }
+            acceptLoop(listeners.get(0));
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Could not start server on port: {0}", ServerConfig.getPort());
             LOGGER.log(Level.SEVERE, "Error: {0}", e.getMessage());
         } finally {
+            closeListeners();
+            staticFiles.close();
+            proxy.close();
+            capture.close();
             LOGGER.log(Level.INFO, "Server stopped.");
+            counters.close();
             stop();
         }
     }
 
+    /**
+     * Accepts connections on one listener until the server stops. Each acceptor owns its
+     * worker executor; with no workers configured the connection is served on the acceptor
+     * thread itself (sequential mode).
+     *
+     * @param serverSocket the listener owned by this acceptor
+     */
+    private void acceptLoop(ServerSocket serverSocket) {
+        ExecutorService workers = createWorkers(Thread.currentThread().getName());
+        try {
+            while (running) {
+                Socket clientSocket;
+                try {
+                    clientSocket = serverSocket.accept();
+                } catch (IOException e) {
+                    if (!running || serverSocket.isClosed()) {
+                        break;
+                    }
+                    LOGGER.log(Level.SEVERE, "Error accepting connection: {0}", e.getMessage());
+                    continue;
+                }
+                if (workers == null) {
+                    serve(clientSocket);
+                } else {
+                    try {
+                        workers.execute(() -> serve(clientSocket));
+                    } catch (RejectedExecutionException e) {
+                        closeQuietly(clientSocket);
+                    }
+                }
+            }
+        } finally {
+            if (workers != null) {
+                workers.shutdown();
+            }
+            // El primer acceptor que termina cierra todos los listeners para desbloquear a los demás
+            closeListeners();
+        }
+    }
+
+    /**
+     * Serves a single connection and closes it, unless it was handed over to another
+     * protocol handler (HTTP/2), which then owns the socket.
+     *
+     * @param clientSocket the accepted connection
+     */
+    private void serve(Socket clientSocket) {
+        boolean handedOver = false;
+        try {
+            socketSettings.applyTo(clientSocket);
+            handedOver = handleRequest(clientSocket);
+        } catch (SocketTimeoutException e) {
+            LOGGER.log(Level.FINE, "Conexión cerrada por timeout: {0}", e.getMessage());
+        } catch (SSLException e) {
+            LOGGER.log(Level.FINE, "Handshake TLS fallido: {0}", e.getMessage());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error handling client request: {0}", e.getMessage());
+        } finally {
+            if (!handedOver) {
+                closeQuietly(clientSocket);
+            }
+        }
+    }
+
+    /**
+     * Opens the HTTPS listener when a keystore is configured. The TLS handshake runs lazily on
+     * the first read, so it happens on the worker serving the connection, not on the acceptor.
+     *
+     * @return the bound listener, or null if HTTPS is disabled
+     * @throws IOException if the keystore cannot be loaded or the port cannot be bound
+     */
+    private SSLServerSocket openTlsListener() throws IOException {
+        TlsSettings tls = TlsSettings.fromConfig();
+        if (tls == null) {
+            return null;
+        }
+        SSLServerSocket serverSocket = tls.newServerSocket(tls.createContext());
+        listeners.add(serverSocket);
+        socketSettings.bind(serverSocket, tls.port());
+        LOGGER.log(Level.INFO, "HTTPS on port {0} ({1}, ALPN {2})",
+                new Object[]{tls.port(), String.join("/", serverSocket.getSSLParameters().getProtocols()),
+                        tls.applicationProtocols()});
+        return serverSocket;
+    }
+
+    private ExecutorService createWorkers(String acceptorName) {
+        if (ServerConfig.isVirtualThreads()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(acceptorName + "-vworker-", 0).factory());
+        }
+        int size = ServerConfig.getWorkerThreads();
+        if (size <= 0) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(size, Thread.ofPlatform().daemon().name(acceptorName + "-worker-", 0).factory());
+    }
+
+    private String describeWorkers() {
+        if (ServerConfig.isVirtualThreads()) {
+            return "virtual threads";
+        }
+        int size = ServerConfig.getWorkerThreads();
+        return size <= 0 ? "none (sequential)" : size + " per acceptor";
+    }
+
+    private static boolean reusePortSupported() {
+        try (ServerSocket probe = new ServerSocket()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void closeListeners() {
+        for (ServerSocket serverSocket : listeners) {
+            closeQuietly(serverSocket);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
     /**
      * Stops the HTTP server by setting the running flag to false.
      * This method should be called to gracefully shut down the server loop.
@@ -124,68 +402,570 @@ public class HttpServer {
      * This method reads the request line and headers, determines the request method and path,
      * and processes the request accordingly:
      * <ul>
-     *   <li>If the request matches a registered route (annotated with @GetMapping), it invokes the corresponding handler.</li>
-     *   <li>If the request is for the root path ("/") or a static file, it serves the appropriate file.</li>
+     *   <li>If the connection starts with the HTTP/2 preface or asks for {@code Upgrade: h2c}, it is
+     *       handed over to an {@link Http2Connection} on its own virtual thread.</li>
      *   <li>If the request is malformed, it sends a 400 Bad Request response.</li>
-     *   <li>If an error occurs during route invocation, it sends a 500 Internal Server Error response.</li>
+     *   <li>Bodies sent with {@code Transfer-Encoding} instead of {@code Content-Length} are not
+     *       decoded; the request is answered 411 Length Required.</li>
+     *   <li>{@code OPTIONS} requests (CORS preflights) are answered with the pre-serialized
+     *       {@link CorsPolicy#preflight(String, String)} bytes of the path.</li>
+     *   <li>{@code HEAD} requests are dispatched like {@code GET} and answered without the body.</li>
+     *   <li>{@code Upgrade: websocket} requests for a registered endpoint complete the handshake
+     *       and continue as a {@link WebSocketSession} on their own virtual thread.</li>
+     *   <li>Routes returning an {@link EventBroadcaster} keep the connection open as a
+     *       {@code text/event-stream} subscribed to it.</li>
+     *   <li>Routes returning a {@link CompletionStage} release this thread; the response is written
+     *       when the stage completes, or as 504 Gateway Timeout when the route timeout expires.</li>
+     *   <li>Otherwise the response built by {@link #dispatch(Request, String)} is sent.</li>
      * </ul>
      *
      * @param clientSocket the socket connected to the client making the request
+     * @return true if the connection was handed over and must not be closed by the caller
      * @throws IOException if an I/O error occurs while reading the request or writing the response
      */
-    private void handleRequest(Socket clientSocket) throws IOException {
-        BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-        OutputStream out = clientSocket.getOutputStream();
+    private boolean handleRequest(Socket clientSocket) throws IOException {
+        HttpHeadReader in = new HttpHeadReader(clientSocket.getInputStream(), clientSocket, bufferPool,
+                socketSettings.maxHeaderBytes(), socketSettings.idleTimeoutMillis(),
+                socketSettings.headerTimeoutMillis(), socketSettings.readTimeoutMillis());
+        try {
+            return handleRequest(clientSocket, in, clientSocket.getOutputStream());
+        } finally {
+            // El buffer de la cabecera vuelve al pool (no hace nada si ya se hizo detach)
+            in.release();
+        }
+    }
 
-        String requestLine = in.readLine();
+    private boolean handleRequest(Socket clientSocket, HttpHeadReader in, OutputStream out) throws IOException {
+
+        String requestLine;
+        try {
+            requestLine = in.readRequestLine();
+        } catch (HttpHeadReader.HeadTooLargeException e) {
+            writeResponse(out, errorResponse(414, "URI Too Long"));
+            return false;
+        }
         if (requestLine == null || requestLine.trim().isEmpty()) {
-            return;
+            return false;
         }
 
         LOGGER.log(Level.INFO, "Request: {0}", requestLine);
 
-        Map<String, String> headers = new HashMap<>();
-        String headerLine;
-        while ((headerLine = in.readLine()) != null && !headerLine.isEmpty()) {
-            String[] parts = headerLine.split(": ", 2);
-            if (parts.length == 2) {
-                headers.put(parts[0].toLowerCase(), parts[1]);
-            }
+        // HTTP/2 con conocimiento previo: el cliente empieza directamente con el prefacio
+        if (ServerConfig.isH2cEnabled() && requestLine.equals(Http2Connection.PREFACE_REQUEST_LINE)) {
+            Http2Connection h2 = newHttp2Connection(clientSocket, in, out, null);
+            Thread.ofVirtual().name("h2c-connection").start(h2::servePriorKnowledge);
+            return true;
         }
 
         String[] requestParts = requestLine.split(" ");
         if (requestParts.length < 3) {
-            sendErrorResponse(out, 400, "Bad Request");
-            return;
+            writeResponse(out, errorResponse(400, "Bad Request"));
+            return false;
         }
 
-        String method = requestParts[0];
-        String fullPath = requestParts[1];
-        String path = fullPath.contains("?") ? fullPath.substring(0, fullPath.indexOf("?")) : fullPath;
+        // 0) Rate limiting: solo con la línea de petición, antes de leer los headers
+        if (rateLimiter.isEnabled()) {
+            String target = requestParts[1];
+            int q = target.indexOf('?');
+            long waitNanos = rateLimiter.tryAcquire(clientSocket.getInetAddress().getHostAddress(),
+                    q >= 0 ? target.substring(0, q) : target);
+            if (waitNanos > 0) {
+                sendTooManyRequests(out, waitNanos);
+                return false;
+            }
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        try {
+            in.readHeaders(headers);
+        } catch (HttpHeadReader.HeadTooLargeException e) {
+            writeResponse(out, errorResponse(431, "Request Header Fields Too Large"));
+            return false;
+        } catch (HttpHeadReader.MalformedHeadException e) {
+            writeResponse(out, errorResponse(400, "Bad Request"));
+            return false;
+        }
+
+        String target = requestParts[1];
+        int query = target.indexOf('?');
+        ProxyRoute proxied = proxyRoute(query >= 0 ? target.substring(0, query) : target);
+        InputStream body = null;
+        long bodyLength = 0;
+        String contentLength = headers.get("content-length");
+        if (headers.containsKey("transfer-encoding")) {
+            // Los cuerpos chunked no se decodifican: tratarlos como vacíos perdería el payload sin avisar
+            writeResponse(out, contentLength != null ? errorResponse(400, "Bad Request")
+                    : errorResponse(411, "Length Required"));
+            return false;
+        }
+        if (contentLength != null) {
+            long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                length = -1;
+            }
+            if (length < 0) {
+                writeResponse(out, errorResponse(400, "Bad Request"));
+                return false;
+            }
+            // Los uploads multipart y los cuerpos reenviados al proxy se leen en streaming, con su propio límite
+            long maxLength = proxied != null ? ServerConfig.getProxyMaxBodyBytes()
+                    : MultipartParser.boundary(headers.get("content-type")) != null
+                    ? MultipartParser.shared().getMaxBytes() : socketSettings.maxBodyBytes();
+            if (length > maxLength) {
+                writeResponse(out, errorResponse(413, "Payload Too Large"));
+                return false;
+            }
+            if (length > 0) {
+                body = in.bodyStream(length);
+                bodyLength = length;
+            }
+        }
+        if (capture.sample()) {
+            // Copia cruda de la petición para reproducirla después con TrafficReplay
+            body = capture.record(in.head(), bodyLength, body, clientSocket instanceof SSLSocket);
+        }
+
+        Request request = new Request(requestParts[0], requestParts[1], headers, body);
+        if (proxied != null) {
+            // Todos los métodos, incluidos OPTIONS y HEAD, los responde el upstream
+            forwardToUpstream(proxied, request, clientSocket, out);
+            return false;
+        }
+        if ("OPTIONS".equals(request.getMethod())) {
+            out.write(corsPolicy(request.getPath()).preflight(allowedMethods(request.getPath()), headers.get("origin")));
+            out.flush();
+            return false;
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            // Mismas cabeceras que GET (incluido Content-Length), sin cuerpo
+            writeResponse(out, dispatch(request, clientSocket.getInetAddress().getHostAddress()), false);
+            return false;
+        }
+        if (WebSocketSession.isUpgradeRequest(headers)) {
+            return upgradeWebSocket(request, headers, clientSocket, in, out);
+        }
+        if (ServerConfig.isH2cEnabled() && Http2Connection.isUpgradeRequest(headers)) {
+            // La petición que pidió el upgrade se responde en el stream 1 de la conexión HTTP/2
+            Http2Connection h2 = newHttp2Connection(clientSocket, in, out, request);
+            String settings = headers.get("http2-settings");
+            Thread.ofVirtual().name("h2c-connection").start(() -> h2.serveUpgrade(request, settings));
+            return true;
+        }
+        RouteInfo route = findRoute(request);
+        if (route != null && route.isEventStream()) {
+            return openEventStream(route, request, clientSocket, out);
+        }
+        if (route != null && route.isAsync()) {
+            // El handler lee el cuerpo desde su future, después de que esta conexión suelte el buffer del pool
+            in.detach();
+            return dispatchAsync(route, request, clientSocket, out);
+        }
+        writeResponse(out, dispatch(request, clientSocket.getInetAddress().getHostAddress()));
+        return false;
+    }
+
+    /**
+     * Builds the response for a parsed request, independent of the protocol that carried it:
+     * <ul>
+     *   <li>If the request matches a registered route (annotated with @GetMapping or @PostMapping), it invokes
+     *       the handler, passing the {@link Request} and a {@link Response} whose status and headers are sent as-is.</li>
+     *   <li>If the request is for the root path ("/") or a static file, it serves the appropriate file.</li>
+     *   <li>If the route's bulkhead is full, it answers 503 Service Unavailable without invoking it.</li>
+     *   <li>If an error occurs during route invocation, it answers 500 Internal Server Error.</li>
+     *   <li>{@code OPTIONS} gets the path's CORS preflight answer; {@code HEAD} is routed like {@code GET}.</li>
+     *   <li>A {@code POST} to the batch path runs its sub-requests through {@link BatchDispatcher}, each
+     *       one passing the client's rate limits.</li>
+     *   <li>Paths under a proxied prefix are forwarded as-is by the {@link ReverseProxy}.</li>
+     * </ul>
+     * When the allowed origins are restricted, the response gets the per-request CORS headers.
+     * Route and batch answers are compressed by {@link ResponseCompressor} when the client accepts it.
+     *
+     * @param request the parsed request
+     * @param client  the client address, for the rate limits of batch sub-requests
+     * @return the response, with its body set
+     */
+    private Response dispatch(Request request, String client) {
+        ProxyRoute proxied = proxyRoute(request.getPath());
+        if (proxied != null) {
+            return forwardToUpstream(proxied, request);
+        }
+        if ("OPTIONS".equals(request.getMethod())) {
+            return corsPolicy(request.getPath()).preflightResponse(allowedMethods(request.getPath()),
+                    request.getHeader("origin"));
+        }
+        Response response = isBatch(request) ? batch.handle(request, client) : respond(request);
+        if (isDynamic(request)) {
+            compressor.compress(request.getHeader("accept-encoding"), response);
+        }
+        cors.apply(request.getHeader("origin"), response);
+        return response;
+    }
+
+    private Response respond(Request request) {
+        String path = request.getPath();
 
         // 1) Rutas anotadas (@GetMapping y @PostMapping)
-        if (("GET".equals(method) && routes.containsKey(path)) || 
-            ("POST".equals(method) && postRoutes.containsKey(path))) {
+        RouteInfo route = findRoute(request);
+        if (route != null) {
+            if (route.isEventStream()) {
+                // Los streams SSE solo se sirven sobre HTTP/1.1, donde la conexión pasa al suscriptor
+                return errorResponse(501, "Event streams require HTTP/1.1");
+            }
+            ConcurrencyLimiter bulkhead = route.getBulkhead();
+            if (bulkhead != null && !bulkhead.tryAcquire()) {
+                return overloaded(path);
+            }
+            Response response = routeResponse(path);
+            if (route.isAsync()) {
+                // HTTP/2 (cada stream en su propio hilo virtual) y HEAD esperan aquí a las rutas asíncronas
+                try {
+                    return withBody(response, invokeAsync(route, request, response).join());
+                } catch (CompletionException e) {
+                    return asyncFailure(path, e);
+                } finally {
+                    request.deleteParts();
+                }
+            }
+            long start = System.nanoTime();
             try {
-                Map<String, String> queryParams = parseQueryParams(fullPath);
-                RouteInfo route = "GET".equals(method) ? routes.get(path) : postRoutes.get(path);
-                String body = route.invoke(queryParams);
-                String ct = path.startsWith("/api/") ? "application/json; charset=UTF-8" : "text/plain; charset=UTF-8";
-                sendResponse(out, 200, ct, body.getBytes(StandardCharsets.UTF_8));
-                return;
+                return withBody(response, route.invoke(request, response));
             } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "Error invocando ruta {0}: {1}", new Object[]{path, e.getMessage()});
-                sendErrorResponse(out, 500, "Internal Server Error");
-                return;
+                return routeFailure(path, e);
+            } finally {
+                request.deleteParts();
+                if (bulkhead != null) {
+                    bulkhead.release(System.nanoTime() - start);
+                }
             }
         }
 
         // 2) Archivos estáticos
         if (path.equals("/") || path.isEmpty()) {
-            serveFile(out, "/index.html");
-        } else {
-            serveFile(out, path);
+            return serveFile(request, "/index.html");
         }
+        return serveFile(request, path);
+    }
+
+    /**
+     * Completes a WebSocket handshake and hands the connection to a {@link WebSocketSession}
+     * for the endpoint registered on the request path.
+     *
+     * @param request      the upgrade request
+     * @param headers      the request headers, with lower-case names
+     * @param clientSocket the connection, owned by the session once upgraded
+     * @param in           the head reader, detached so bytes sent after the handshake are kept
+     * @param out          the connection output stream
+     * @return true if the connection was upgraded, false if an error response was written
+     * @throws IOException if a response cannot be written
+     */
+    private boolean upgradeWebSocket(Request request, Map<String, String> headers, Socket clientSocket,
+                                     HttpHeadReader in, OutputStream out) throws IOException {
+        WebSocketHandler handler = webSocketEndpoints.get(request.getPath());
+        if (handler == null) {
+            writeResponse(out, errorResponse(404, "WebSocket Endpoint Not Found"));
+            return false;
+        }
+        byte[] handshake = "GET".equals(request.getMethod())
+                ? WebSocketSession.handshakeResponse(headers) : null;
+        if (handshake == null) {
+            writeResponse(out, errorResponse(400, "Bad WebSocket Handshake").header("Sec-WebSocket-Version", "13"));
+            return false;
+        }
+        out.write(handshake);
+        out.flush();
+        WebSocketSession session = new WebSocketSession(clientSocket, in.detach(), out, request.getPath(), handler,
+                ServerConfig.getWebSocketMaxMessageBytes(), ServerConfig.getWebSocketMaxPendingBytes(),
+                ServerConfig.getWebSocketIdleTimeoutMillis());
+        Thread.ofVirtual().name("websocket").start(session::serve);
+        return true;
+    }
+
+    /**
+     * Opens a Server-Sent Events stream: the handler returns the {@link EventBroadcaster} to
+     * subscribe to, the response head is written without a length and the connection is handed
+     * to the broadcaster, which writes events as they are published and closes it when the
+     * client goes away. No thread is held while the stream is idle.
+     *
+     * @param route        the event stream route
+     * @param request      the parsed request
+     * @param clientSocket the connection, owned by the broadcaster once subscribed
+     * @param out          the connection output stream
+     * @return true if the connection was subscribed, false if an error or a filter's response was written
+     * @throws IOException if the response head cannot be written
+     */
+    private boolean openEventStream(RouteInfo route, Request request, Socket clientSocket, OutputStream out)
+            throws IOException {
+        Response response = routeResponse(request.getPath());
+        Object value;
+        try {
+            value = route.invoke(request, response);
+        } catch (Exception e) {
+            writeResponse(out, routeFailure(request.getPath(), e));
+            return false;
+        } finally {
+            request.deleteParts();
+        }
+        if (!(value instanceof EventBroadcaster broadcaster)) {
+            // Un filtro respondió en lugar del handler
+            writeResponse(out, value != null ? withBody(response, value)
+                    : errorResponse(404, "Event Stream Not Found"));
+            return false;
+        }
+        out.write(EVENT_STREAM_HEAD);
+        out.flush();
+        broadcaster.subscribe(out, clientSocket);
+        return true;
+    }
+
+    /**
+     * Answers an HTTP/1.1 request for an asynchronous route without holding the connection
+     * thread: the handler's {@link CompletionStage} is bounded by the route timeout and, when it
+     * completes, the response is written and the socket closed on a virtual thread.
+     *
+     * @param route        the asynchronous route
+     * @param request      the parsed request
+     * @param clientSocket the connection, owned by the completion from now on
+     * @param out          the connection output stream
+     * @return true if the connection has been handed over, false if the route's bulkhead shed
+     *         the request and 503 was already written
+     * @throws IOException if the 503 response cannot be written
+     */
+    private boolean dispatchAsync(RouteInfo route, Request request, Socket clientSocket, OutputStream out)
+            throws IOException {
+        String path = request.getPath();
+        ConcurrencyLimiter bulkhead = route.getBulkhead();
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            writeResponse(out, overloaded(path));
+            return false;
+        }
+        Response response = routeResponse(path);
+        invokeAsync(route, request, response).whenCompleteAsync((value, error) -> {
+            try {
+                Response result;
+                try {
+                    result = error == null ? withBody(response, value) : asyncFailure(path, error);
+                    compressor.compress(request.getHeader("accept-encoding"), result);
+                } catch (RuntimeException e) {
+                    result = asyncFailure(path, e);
+                }
+                cors.apply(request.getHeader("origin"), result);
+                writeResponse(out, result);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "No se pudo enviar la respuesta asíncrona de {0}: {1}",
+                        new Object[]{path, e.getMessage()});
+            } finally {
+                request.deleteParts();
+                closeQuietly(clientSocket);
+            }
+        }, asyncCompletions);
+        return true;
+    }
+
+    /**
+     * Invokes an asynchronous handler, bounding its stage by the route timeout. A bulkhead
+     * permit taken by the caller is returned when the handler's own stage completes, not when
+     * the timeout answers 504, so handlers still running count against the bulkhead.
+     */
+    private CompletableFuture<Object> invokeAsync(RouteInfo route, Request request, Response response) {
+        long start = System.nanoTime();
+        ConcurrencyLimiter bulkhead = route.getBulkhead();
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        try {
+            Object invoked = route.invoke(request, response);
+            if (!(invoked instanceof CompletionStage<?> stage)) {
+                // null, o la respuesta anticipada de un filtro
+                release(bulkhead, start);
+                result.complete(invoked);
+            } else {
+                // Se copia el resultado para que el timeout no complete el future del controlador
+                stage.whenComplete((value, error) -> {
+                    release(bulkhead, start);
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            release(bulkhead, start);
+            result.completeExceptionally(e);
+        }
+        long timeout = route.getTimeoutMillis() > 0 ? route.getTimeoutMillis() : asyncTimeoutMillis;
+        // El timeout solo decide cuándo se escribe el 504
+        return result.orTimeout(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private static void release(ConcurrencyLimiter bulkhead, long start) {
+        if (bulkhead != null) {
+            bulkhead.release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Builds the 503 answer for a request shed by a route bulkhead.
+     *
+     * @param path the route path
+     * @return the error response, with {@code Retry-After}
+     */
+    private Response overloaded(String path) {
+        LOGGER.log(Level.FINE, "Ruta {0} saturada, petición descartada", path);
+        return errorResponse(503, "Service Unavailable").header("Retry-After", "1");
+    }
+
+    private Response asyncFailure(String path, Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException) {
+            LOGGER.log(Level.WARNING, "La ruta {0} excedió su timeout", path);
+            return errorResponse(504, "Gateway Timeout");
+        }
+        return routeFailure(path, cause);
+    }
+
+    /**
+     * Builds the answer for a failed route invocation: a multipart body the handler could not
+     * read gets the status of its {@link MultipartParser.MultipartException}, anything else 500.
+     *
+     * @param path  the route path
+     * @param error the failure, possibly wrapped by reflection
+     * @return the error response
+     */
+    private Response routeFailure(String path, Throwable error) {
+        Throwable cause = error instanceof InvocationTargetException && error.getCause() != null
+                ? error.getCause() : error;
+        if (cause instanceof MultipartParser.MultipartException multipart) {
+            LOGGER.log(Level.FINE, "Cuerpo multipart rechazado en {0}: {1}", new Object[]{path, cause.getMessage()});
+            return errorResponse(multipart.getStatus(), getStatusMessage(multipart.getStatus()));
+        }
+        LOGGER.log(Level.SEVERE, "Error invocando ruta {0}: {1}", new Object[]{path, cause.getMessage()});
+        return errorResponse(500, "Internal Server Error");
+    }
+
+    /**
+     * Finds the proxied route for a path. Annotated routes, WebSocket endpoints and the batch
+     * endpoint take precedence over a proxied prefix that covers them.
+     *
+     * @param path the request path, without query string
+     * @return the route, or null if the path is served locally
+     */
+    private ProxyRoute proxyRoute(String path) {
+        if (proxy.getRoutes().isEmpty() || routes.containsKey(path) || postRoutes.containsKey(path)
+                || webSocketEndpoints.containsKey(path) || path.equals(batchPath)) {
+            return null;
+        }
+        return proxy.match(path);
+    }
+
+    /**
+     * Forwards an HTTP/1.1 request, streaming the upstream answer to the client; if no upstream
+     * answered, the {@link ReverseProxy.ProxyException} status (400, 502 or 504) is written instead.
+     */
+    private void forwardToUpstream(ProxyRoute route, Request request, Socket clientSocket, OutputStream out)
+            throws IOException {
+        try {
+            proxy.forward(route, request, clientSocket.getInetAddress().getHostAddress(),
+                    clientSocket instanceof SSLSocket, out);
+        } catch (ReverseProxy.ProxyException e) {
+            LOGGER.log(Level.WARNING, "Proxy {0}: {1}", new Object[]{request.getPath(), e.getMessage()});
+            writeResponse(out, errorResponse(e.getStatus(), getStatusMessage(e.getStatus())));
+        }
+    }
+
+    /**
+     * Forwards a request from a protocol that needs a complete response (HTTP/2), buffering the
+     * upstream answer up to the body limit.
+     */
+    private Response forwardToUpstream(ProxyRoute route, Request request) {
+        try {
+            return proxy.forward(route, request, socketSettings.maxBodyBytes());
+        } catch (ReverseProxy.ProxyException e) {
+            LOGGER.log(Level.WARNING, "Proxy {0}: {1}", new Object[]{request.getPath(), e.getMessage()});
+            return errorResponse(e.getStatus(), getStatusMessage(e.getStatus()));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Proxy {0}: {1}", new Object[]{request.getPath(), e.getMessage()});
+            return errorResponse(502, "Bad Gateway");
+        }
+    }
+
+    // Los archivos estáticos ya traen su variante gzip precalculada
+    private boolean isDynamic(Request request) {
+        return findRoute(request) != null || isBatch(request);
+    }
+
+    private static boolean isBatch(Request request) {
+        return request.getPath().equals(batchPath) && "POST".equals(request.getMethod());
+    }
+
+    private RouteInfo findRoute(Request request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) ? routes.get(request.getPath())
+                : "POST".equals(method) ? postRoutes.get(request.getPath()) : null;
+    }
+
+    /**
+     * Answers a batch sub-request: only registered routes are reachable, static files and the
+     * batch endpoint itself are not.
+     */
+    private Response dispatchRoute(Request request) {
+        return findRoute(request) != null ? respond(request) : errorResponse(404, "Route Not Found");
+    }
+
+    private static CorsPolicy corsPolicy(String path) {
+        return routeCors.getOrDefault(path, cors);
+    }
+
+    private static String allowedMethods(String path) {
+        boolean post = postRoutes.containsKey(path) || path.equals(batchPath);
+        // Sin ruta GET el path puede ser un archivo estático, que se sirve por GET
+        return !post ? GET_METHODS : routes.containsKey(path) ? ALL_METHODS : POST_METHODS;
+    }
+
+    private static Response routeResponse(String path) {
+        return new Response().type(path.startsWith("/api/") ? JSON_CONTENT_TYPE : "text/plain; charset=UTF-8");
+    }
+
+    /**
+     * Sets the body from a handler result: Strings as UTF-8, byte arrays as-is and anything
+     * else (records, maps, collections) as JSON, serialized with this thread's writer and copied
+     * out so that later serializations on the thread cannot change the body.
+     */
+    private static Response withBody(Response response, Object result) {
+        if (result == null || result instanceof String) {
+            return response.body(result == null ? new byte[0] : ((String) result).getBytes(StandardCharsets.UTF_8));
+        }
+        if (result instanceof byte[] bytes) {
+            return response.body(bytes);
+        }
+        JsonWriter json = JsonWriter.forCurrentThread();
+        json.writeValue(result);
+        return response.type(JSON_CONTENT_TYPE).body(json.toByteArray());
+    }
+
+    /**
+     * Creates the HTTP/2 connection that takes over a socket. Each stream passes the same rate
+     * limits as an HTTP/1.1 request before being dispatched.
+     *
+     * @param admitted the HTTP/1.1 request that asked for the upgrade, already admitted by the
+     *                 rate limiter and answered on stream 1; null with prior knowledge
+     */
+    private Http2Connection newHttp2Connection(Socket clientSocket, HttpHeadReader in, OutputStream out,
+                                               Request admitted) {
+        String client = clientSocket.getInetAddress().getHostAddress();
+        Function<Request, Response> handler = request -> dispatch(request, client);
+        if (rateLimiter.isEnabled()) {
+            handler = request -> {
+                long waitNanos = request == admitted ? 0 : rateLimiter.tryAcquire(client, request.getPath());
+                return waitNanos > 0 ? tooManyRequests(waitNanos) : dispatch(request, client);
+            };
+        }
+        return new Http2Connection(clientSocket, in.detach(), out, handler, H2_DEFAULT_HEADERS,
+                ServerConfig.getH2MaxConcurrentStreams(), socketSettings.maxHeaderBytes(),
+                socketSettings.maxBodyBytes(), socketSettings.readTimeoutMillis());
     }
 
     /**
@@ -193,102 +973,177 @@ public class HttpServer {
      * For each controller class found, it creates an instance and inspects its methods for the
      * {@link com.escuelaing.arep.annotations.GetMapping} and {@link com.escuelaing.arep.annotations.PostMapping}
      * annotations. If present, the method's route path is extracted and mapped to a {@link RouteInfo} object
-     * containing the path, method, and instance.
+     * containing the path, method, and instance, plus the bulkhead configured for that path, if any.
+     * Classes annotated with {@link WebSocketEndpoint} are instantiated the same way and registered by path.
+     * Classes annotated with {@link Filter} are instantiated first, and each route gets the chain of
+     * filters matching its path, resolved here once.
      * Any exceptions during controller instantiation or registration are logged as warnings.
      */
     private void loadControllers() {
+        // Los bulkheads configurados por ruta prevalecen sobre @Bulkhead
+        Map<String, ConcurrencyLimiter.Limit> bulkheads = ConcurrencyLimiter.parseRouteLimits(
+                ServerConfig.getRouteBulkheads(), ServerConfig.getBulkheadMaxWaitMillis(),
+                ServerConfig.isBulkheadAdaptive());
+        FilterRegistry filters = loadFilters();
         List<Class<?>> controllers = ClassScanner.findRestControllers("com.escuelaing.arep.controllers");
         for (Class<?> controllerClass : controllers) {
             try {
-                Object instance = controllerClass.getDeclaredConstructor().newInstance();
+                Object instance = instantiate(controllerClass);
                 for (var method : controllerClass.getDeclaredMethods()) {
                     // Registrar rutas GET
                     if (method.isAnnotationPresent(com.escuelaing.arep.annotations.GetMapping.class)) {
                         String routePath = method.getAnnotation(com.escuelaing.arep.annotations.GetMapping.class).value();
-                        routes.put(routePath, new RouteInfo(routePath, method, instance));
+                        routes.put(routePath, new RouteInfo(routePath, method, instance, bulkheads.get(routePath),
+                                filters.chainFor(routePath)));
+                        registerCors(routePath, method);
                     }
                     // Registrar rutas POST
                     if (method.isAnnotationPresent(com.escuelaing.arep.annotations.PostMapping.class)) {
                         String routePath = method.getAnnotation(com.escuelaing.arep.annotations.PostMapping.class).value();
-                        postRoutes.put(routePath, new RouteInfo(routePath, method, instance));
+                        postRoutes.put(routePath, new RouteInfo(routePath, method, instance, bulkheads.get(routePath),
+                                filters.chainFor(routePath)));
+                        registerCors(routePath, method);
                     }
                 }
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "No se pudo registrar controlador {0}: {1}", new Object[]{controllerClass.getName(), e.getMessage()});
             }
         }
+        for (Class<?> endpointClass : ClassScanner.findAnnotatedClasses("com.escuelaing.arep.controllers", WebSocketEndpoint.class)) {
+            try {
+                if (!WebSocketHandler.class.isAssignableFrom(endpointClass)) {
+                    LOGGER.log(Level.WARNING, "{0} no implementa WebSocketHandler", endpointClass.getName());
+                    continue;
+                }
+                String routePath = endpointClass.getAnnotation(WebSocketEndpoint.class).value();
+                webSocketEndpoints.put(routePath, (WebSocketHandler) instantiate(endpointClass));
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "No se pudo registrar endpoint WebSocket {0}: {1}", new Object[]{endpointClass.getName(), e.getMessage()});
+            }
+        }
+    }
+
+    private FilterRegistry loadFilters() {
+        FilterRegistry filters = new FilterRegistry();
+        for (Class<?> filterClass : ClassScanner.findAnnotatedClasses("com.escuelaing.arep.controllers", Filter.class)) {
+            try {
+                if (!RouteFilter.class.isAssignableFrom(filterClass)) {
+                    LOGGER.log(Level.WARNING, "{0} no implementa RouteFilter", filterClass.getName());
+                    continue;
+                }
+                filters.register((RouteFilter) instantiate(filterClass));
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "No se pudo registrar filtro {0}: {1}", new Object[]{filterClass.getName(), e.getMessage()});
+            }
+        }
+        return filters;
+    }
+
+    private static void registerCors(String routePath, Method method) {
+        CrossOrigin crossOrigin = method.getAnnotation(CrossOrigin.class);
+        if (crossOrigin != null) {
+            routeCors.put(routePath, cors.with(crossOrigin));
+        }
     }
 
     /**
-     * Parses the query parameters from a given URL path.
-     * <p>
-     * This method extracts the query string from the provided {@code fullPath},
-     * splits it into key-value pairs, decodes each parameter using UTF-8 encoding,
-     * and stores them in a map. If decoding fails, the raw key and value are used.
-     * </p>
+     * Creates a controller instance, preferring a constructor that takes the shared
+     * {@link Counters} and falling back to the no-arg constructor.
      *
-     * @param fullPath the full URL path, potentially containing query parameters
-     * @return a map containing the decoded query parameter names and values
+     * @param controllerClass the controller class to instantiate
+     * @return the new controller instance
+     * @throws ReflectiveOperationException if no usable constructor exists or it fails
      */
-    private Map<String, String> parseQueryParams(String fullPath) {
-        Map<String, String> params = new HashMap<>();
-        if (fullPath.contains("?")) {
-            String queryString = fullPath.substring(fullPath.indexOf("?") + 1);
-            String[] pairs = queryString.split("&");
-            for (String pair : pairs) {
-                String[] keyValue = pair.split("=", 2);
-                if (keyValue.length == 2) {
-                    try {
-                        params.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
-                                   URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8));
-                    } catch (Exception e) {
-                        params.put(keyValue[0], keyValue[1]);
-                    }
-                }
-            }
+    private Object instantiate(Class<?> controllerClass) throws ReflectiveOperationException {
+        try {
+            return controllerClass.getDeclaredConstructor(Counters.class).newInstance(counters);
+        } catch (NoSuchMethodException e) {
+            return controllerClass.getDeclaredConstructor().newInstance();
         }
-        return params;
     }
 
     /**
-     * Serves a static file from the server's web root directory to the client via the provided OutputStream.
+     * Builds the response for a static file from the server's web root.
      * <p>
-     * This method sanitizes the requested path to prevent directory traversal attacks, checks if the file exists
-     * and is not a directory, and then attempts to read and cache the file's contents. If the file is found,
-     * it sends the file with the appropriate MIME type as an HTTP response. If the file is not found or an error
-     * occurs during reading, it sends an appropriate HTTP error response.
+     * The requested path is resolved with {@link StaticManifest#normalize(String)}, so paths that
+     * would leave the web root are rejected, then the file is looked up in the
+     * {@link StaticFileCache}. Found files carry their ETag; a matching
+     * {@code If-None-Match} gets 304 Not Modified, and clients accepting gzip get the
+     * pre-compressed variant when there is one. Files requested under their fingerprinted name
+     * ({@link StaticFileCache#getFingerprinted(String)}) are marked cacheable forever.
+     * Missing files answer 404 (or 500 if reading fails).
      * </p>
      *
-     * @param out  the OutputStream to write the HTTP response to
-     * @param path the requested file path relative to the web root
-     * @throws IOException if an I/O error occurs while serving the file
+     * @param request the request, for conditional and encoding headers
+     * @param path    the requested file path relative to the web root
+     * @return the response for the file
      */
-    private void serveFile(OutputStream out, String path) throws IOException {
-        path = path.replace("..", "").replace("//", "/");
-        if (path.startsWith("/")) {
-            path = path.substring(1);
-        }
-        String resourcePath = WEB_ROOT + "/" + path;
-        byte[] fileContent = fileCache.get(resourcePath);
-        if (fileContent == null) {
-            try (var is = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
-                if (is == null) {
-                    sendErrorResponse(out, 404, "File Not Found");
-                    return;
-                }
-                fileContent = is.readAllBytes();
-                if (fileContent.length < 1024 * 1024) {
-                    fileCache.put(resourcePath, fileContent);
-                }
+    private Response serveFile(Request request, String path) {
+        path = StaticManifest.normalize(path);
+        if (path == null) {
+            return errorResponse(404, "File Not Found");
+        }
+        StaticFileCache.Entry file;
+        boolean fingerprinted = false;
+        try {
+            file = staticFiles.get(path);
+            if (file == null) {
+                file = staticFiles.getFingerprinted(path);
+                fingerprinted = file != null;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error reading file: {0}", path);
+            return errorResponse(500, "Internal Server Error");
+        }
+        if (file == null) {
+            return errorResponse(404, "File Not Found");
+        }
+        Response response = new Response().type(file.contentType()).header("ETag", file.etag());
+        if (fingerprinted) {
+            // El nombre cambia con el contenido: el navegador no necesita revalidar nunca
+            response.header("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+        }
+        if (file.gzip() != null) {
+            response.header("Vary", "Accept-Encoding");
+        }
+        String ifNoneMatch = request.getHeader("if-none-match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(file.etag()) || ifNoneMatch.trim().equals("*"))) {
+            return response.status(304);
+        }
+        if (file.gzip() != null && ResponseCompressor.accepts(request.getHeader("accept-encoding"), "gzip")) {
+            response.header("Content-Encoding", "gzip").body(file.gzip());
+        } else {
+            response.body(file.content());
+        }
+        LOGGER.log(Level.INFO, "Served file: {0} ({1} bytes)", new Object[] { path, response.getBodyLength() });
+        return response;
+    }
+
+    private StaticFileCache createStaticFiles() {
+        Path root = Path.of(WEB_ROOT);
+        if (!Files.isDirectory(root)) {
+            return fingerprint(StaticFileCache.forClasspath(WEB_ROOT, getClass().getClassLoader(), this::getSimpleMimeType));
+        }
+        StaticFileCache cache = fingerprint(StaticFileCache.forDirectory(root, this::getSimpleMimeType));
+        if (ServerConfig.isStaticWatchEnabled()) {
+            try {
+                cache.startWatching();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "No se pudo observar {0}: {1}", new Object[]{root, e.getMessage()});
+            }
+        }
+        return cache;
+    }
+
+    private static StaticFileCache fingerprint(StaticFileCache cache) {
+        if (ServerConfig.isStaticFingerprintEnabled()) {
+            try {
+                cache.fingerprintAssets();
             } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Error reading file: {0}", resourcePath);
-                sendErrorResponse(out, 500, "Internal Server Error");
-                return;
+                LOGGER.log(Level.WARNING, "No se pudieron calcular las huellas de los archivos estáticos: {0}", e.getMessage());
             }
         }
-        String mimeType = getSimpleMimeType(path);
-        sendResponse(out, 200, mimeType, fileContent);
-        LOGGER.log(Level.INFO, "Served file: {0} ({1} bytes)", new Object[] { resourcePath, fileContent.length });
+        return cache;
     }
 
     /**
@@ -341,38 +1196,118 @@ public class HttpServer {
     }
 
     /**
-     * Sends an HTTP response to the client through the provided OutputStream.
+     * Writes a response as HTTP/1.1: its status, content type and any custom headers,
+     * followed by the body.
      *
-     * @param out         the OutputStream to write the response to
-     * @param statusCode  the HTTP status code to send (e.g., 200, 404)
-     * @param contentType the MIME type of the response content (e.g., "text/html")
-     * @param content     the response body as a byte array
+     * @param out      the OutputStream to write the response to
+     * @param response the response to send
      * @throws IOException if an I/O error occurs while writing the response
      */
-    private void sendResponse(OutputStream out, int statusCode, String contentType, byte[] content) throws IOException {
-        PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
-        writer.print("HTTP/1.1 " + statusCode + " " + getStatusMessage(statusCode) + "\r\n");
-        writer.print("Content-Type: " + contentType + "\r\n");
-        writer.print("Content-Length: " + content.length + "\r\n");
-        writer.print("Connection: close\r\n");
-        writer.print("Access-Control-Allow-Origin: *\r\n");
-        writer.print("Access-Control-Allow-Methods: GET, POST, OPTIONS\r\n");
-        writer.print("Access-Control-Allow-Headers: Content-Type\r\n");
-        writer.print("\r\n");
-        writer.flush();
-        out.write(content);
-        out.flush();
+    private void writeResponse(OutputStream out, Response response) throws IOException {
+        writeResponse(out, response, true);
+    }
+
+    /**
+     * Writes a response as HTTP/1.1, optionally without its body (answers to {@code HEAD}
+     * keep the {@code Content-Length} of the body they omit).
+     */
+    private void writeResponse(OutputStream out, Response response, boolean withBody) throws IOException {
+        writeResponse(out, response.getStatusCode(), response.getContentType(),
+                response.hasHeaders() ? response.getHeaders() : null, response.getBody(), response.getBodyLength(),
+                withBody);
+    }
+
+    private void writeResponse(OutputStream out, int statusCode, String contentType,
+                               Map<String, String> extraHeaders, byte[] content, int length, boolean withBody)
+            throws IOException {
+        // Cota superior del tamaño de la cabecera (3 bytes por carácter cubre cualquier UTF-8 del BMP)
+        int headSize = 96 + CORS_HEADERS.length + contentType.length() * 3;
+        if (extraHeaders != null) {
+            for (Map.Entry<String, String> h : extraHeaders.entrySet()) {
+                headSize += (h.getKey().length() + h.getValue().length()) * 3 + 4;
+            }
+        }
+        // Cuerpos pequeños se copian detrás de la cabecera para enviar todo en una sola escritura
+        boolean inline = withBody && headSize + length <= INLINE_BODY_LIMIT;
+        BufferPool.Buffer buffer = bufferPool.acquire(inline ? headSize + length : headSize);
+        try {
+            byte[] head = buffer.array();
+            int pos = putAscii(head, 0, "HTTP/1.1 ");
+            pos = putInt(head, pos, statusCode);
+            head[pos++] = ' ';
+            pos = putAscii(head, pos, getStatusMessage(statusCode));
+            pos = putAscii(head, pos, "\r\nContent-Type: ");
+            pos = putText(head, pos, contentType);
+            pos = putAscii(head, pos, "\r\nContent-Length: ");
+            pos = putInt(head, pos, length);
+            pos = putAscii(head, pos, "\r\nConnection: close\r\n");
+            System.arraycopy(CORS_HEADERS, 0, head, pos, CORS_HEADERS.length);
+            pos += CORS_HEADERS.length;
+            if (extraHeaders != null) {
+                for (Map.Entry<String, String> h : extraHeaders.entrySet()) {
+                    pos = putText(head, pos, h.getKey());
+                    head[pos++] = ':';
+                    head[pos++] = ' ';
+                    pos = putText(head, pos, h.getValue());
+                    head[pos++] = '\r';
+                    head[pos++] = '\n';
+                }
+            }
+            head[pos++] = '\r';
+            head[pos++] = '\n';
+            if (inline) {
+                System.arraycopy(content, 0, head, pos, length);
+                out.write(head, 0, pos + length);
+            } else {
+                out.write(head, 0, pos);
+                if (withBody) {
+                    out.write(content, 0, length);
+                }
+            }
+            out.flush();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static int putAscii(byte[] buf, int pos, String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            buf[pos++] = (byte) s.charAt(i);
+        }
+        return pos;
+    }
+
+    private static int putText(byte[] buf, int pos, String s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            if (s.charAt(i) >= 0x80) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(utf8, 0, buf, pos, utf8.length);
+                return pos + utf8.length;
+            }
+        }
+        return putAscii(buf, pos, s);
+    }
+
+    private static int putInt(byte[] buf, int pos, int value) {
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
     }
 
     /**
-     * Sends an HTTP error response to the client with a formatted HTML error page.
+     * Builds an HTTP error response with a formatted HTML error page.
      *
-     * @param out        the OutputStream to write the response to
      * @param statusCode the HTTP status code to send (e.g., 404, 500)
      * @param message    the error message to display in the response
-     * @throws IOException if an I/O error occurs while writing the response
+     * @return the error response
      */
-    private void sendErrorResponse(OutputStream out, int statusCode, String message) throws IOException {
+    private Response errorResponse(int statusCode, String message) {
         String errorHtml = String.format("""
                 <!DOCTYPE html>
                 <html>
@@ -394,7 +1329,37 @@ public class HttpServer {
                 </body>
                 </html>
                 """, statusCode, statusCode, message);
-        sendResponse(out, statusCode, "text/html", errorHtml.getBytes(StandardCharsets.UTF_8));
+        return new Response().status(statusCode).type("text/html").body(errorHtml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a 429 Too Many Requests response with a {@code Retry-After} header.
+     *
+     * @param out       the OutputStream to write the response to
+     * @param waitNanos the time until the client would be admitted again
+     * @throws IOException if an I/O error occurs while writing the response
+     */
+    private void sendTooManyRequests(OutputStream out, long waitNanos) throws IOException {
+        writeResponse(out, tooManyRequests(waitNanos));
+    }
+
+    private static Response tooManyRequests(long waitNanos) {
+        long retryAfter = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        return new Response().status(429).type("text/plain; charset=UTF-8")
+                .header("Retry-After", Long.toString(retryAfter))
+                .body("Too Many Requests".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds the rate limiter from {@link ServerConfig}; it is disabled when no limit is set.
+     *
+     * @return the configured rate limiter
+     */
+    private static RateLimiter createRateLimiter() {
+        double rps = ServerConfig.getRateLimitPerSecond();
+        RateLimiter.Limit perClient = rps > 0 ? new RateLimiter.Limit(rps, Math.max(1, ServerConfig.getRateLimitBurst())) : null;
+        return new RateLimiter(perClient, RateLimiter.parseRouteLimits(ServerConfig.getRouteRateLimits()),
+                ServerConfig.getRateLimitMaxClients(), ServerConfig.getRateLimitIdleMillis());
     }
 
     /**
@@ -406,9 +1371,20 @@ public class HttpServer {
     private String getStatusMessage(int statusCode) {
         return switch (statusCode) {
             case 200 -> "OK";
+            case 204 -> "No Content";
+            case 304 -> "Not Modified";
             case 400 -> "Bad Request";
             case 404 -> "Not Found";
+            case 411 -> "Length Required";
+            case 413 -> "Payload Too Large";
+            case 414 -> "URI Too Long";
+            case 429 -> "Too Many Requests";
+            case 431 -> "Request Header Fields Too Large";
             case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
             default -> "Unknown";
         };
     }
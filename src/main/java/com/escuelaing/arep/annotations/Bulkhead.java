@@ -0,0 +1,33 @@
+package com.escuelaing.arep.annotations;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits how many requests a handler serves at once. Up to {@code queue} extra requests wait
+ * at most {@code maxWaitMs} for a slot; anything beyond that is answered immediately with
+ * 503 Service Unavailable, so a slow route cannot take every worker thread.
+ * With {@code adaptive = true}, {@code maxConcurrent} is the upper bound of a limit that
+ * shrinks when the route's latency rises above its observed baseline.
+ *
+ * Usage example:
+ * <pre>
+ * {@literal @}GetMapping("/api/report")
+ * {@literal @}Bulkhead(maxConcurrent = 4, queue = 8)
+ * public String report() {
+ *     // handler code
+ * }
+ * </pre>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Bulkhead {
+    int maxConcurrent();
+    int queue() default 0;
+    long maxWaitMs() default 1000;
+    boolean adaptive() default false;
+}
@@ -0,0 +1,36 @@
+package com.escuelaing.arep.annotations;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Adjusts the CORS preflight answer of a route. The allowed origins are server-wide
+ * ({@code cors.origins}); this annotation sets which request headers the route accepts and how
+ * long browsers may cache the preflight. Unset values keep the server-wide defaults.
+ *
+ * Usage example:
+ * <pre>
+ * {@literal @}PostMapping("/api/orders")
+ * {@literal @}CrossOrigin(allowedHeaders = {"Content-Type", "Authorization"}, maxAge = 3600)
+ * public String create(Request request) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CrossOrigin {
+    /**
+     * @return the request headers allowed in cross-origin calls (empty for the server default)
+     */
+    String[] allowedHeaders() default {};
+
+    /**
+     * @return how long, in seconds, browsers may cache the preflight (negative for the server default)
+     */
+    long maxAge() default -1;
+}
@@ -0,0 +1,47 @@
+package com.escuelaing.arep.annotations;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to mark a class as a route filter, run around the handlers of the routes its
+ * patterns match. The class must implement {@link com.escuelaing.arep.framework.RouteFilter};
+ * filters are discovered and instantiated like {@link RestController} classes.
+ * <p>
+ * A pattern is an exact path ({@code /api/hello}), a prefix ending in {@code *}
+ * ({@code /api/*}) or {@code *} alone for every route. Filters with a lower {@code order}
+ * run first and their {@code after} step runs last.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * {@literal @}Filter(value = "/api/*", order = 10)
+ * public class AuthFilter implements RouteFilter {
+ *     {@literal @}Override
+ *     public Object before(Request request, Response response) {
+ *         if (request.getHeader("authorization") == null) {
+ *             response.status(401);
+ *             return Map.of("error", "unauthorized");
+ *         }
+ *         return null;
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Filter {
+    /**
+     * @return the route path patterns the filter applies to
+     */
+    String[] value() default {"*"};
+
+    /**
+     * @return the position in the chain, lower first
+     */
+    int order() default 0;
+}
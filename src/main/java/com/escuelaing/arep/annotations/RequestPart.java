@@ -0,0 +1,33 @@
+package com.escuelaing.arep.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to bind a method parameter to a part of a {@code multipart/form-data} request body.
+ * <p>
+ * The {@code value} element specifies the form field name. The parameter may be a
+ * {@link com.escuelaing.arep.http.Part} (uploaded files, possibly spooled to disk), a
+ * {@code String} (text fields, decoded as UTF-8) or a {@code byte[]}; it is null when the
+ * request has no such part.
+ * </p>
+ *
+ * Usage example:
+ * <pre>
+ * {@literal @}PostMapping("/api/upload")
+ * public Result upload({@literal @}RequestPart("file") Part file, {@literal @}RequestPart("title") String title) {
+ *     file.transferTo(uploads.resolve(file.getFilename()));
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface RequestPart {
+    String value();
+}
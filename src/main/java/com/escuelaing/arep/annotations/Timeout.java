@@ -0,0 +1,31 @@
+package com.escuelaing.arep.annotations;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets how long the server waits for an asynchronous handler (one returning a
+ * {@code CompletionStage}) before answering 504 Gateway Timeout.
+ * Without it the route uses the server-wide default ({@code server.asyncTimeoutMs}).
+ *
+ * Usage example:
+ * <pre>
+ * {@literal @}GetMapping("/report")
+ * {@literal @}Timeout(2000)
+ * public CompletableFuture&lt;Report&gt; report() {
+ *     return reportService.build();
+ * }
+ * </pre>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Timeout {
+    /**
+     * @return the timeout in milliseconds
+     */
+    long value();
+}
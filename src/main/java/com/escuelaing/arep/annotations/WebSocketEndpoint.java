@@ -0,0 +1,31 @@
+package com.escuelaing.arep.annotations;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to mark a class as a WebSocket endpoint.
+ * The {@code value} element specifies the path clients upgrade on; the class must implement
+ * {@link com.escuelaing.arep.websocket.WebSocketHandler}. Endpoints are discovered and
+ * instantiated like {@link RestController} classes.
+ *
+ * Usage example:
+ * <pre>
+ * {@literal @}WebSocketEndpoint("/ws/echo")
+ * public class EchoSocket implements WebSocketHandler {
+ *     {@literal @}Override
+ *     public void onText(WebSocketSession session, String message) throws IOException {
+ *         session.sendText(message);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface WebSocketEndpoint {
+    String value();
+}
@@ -0,0 +1,316 @@
+package com.escuelaing.arep.capture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.config.ServerConfig;
+
+/**
+ * Samples incoming requests into a {@link TrafficLog} so that production traffic can be replayed
+ * later with {@link TrafficReplay}.
+ * <p>
+ * The overhead is bounded in three ways: only a fraction of requests is sampled, sampled requests
+ * are skipped once the per-second byte budget is spent, and records are handed to a single writer
+ * thread through a bounded queue, dropping them when it is full. A request never waits for the
+ * disk; at most it waits for its own body (up to the body limit) to be read before the handler
+ * gets it from memory.
+ * </p>
+ * <p>
+ * Credentials never reach the log: the values of {@code Authorization}, {@code Proxy-Authorization}
+ * and {@code Cookie} are replaced with a fixed placeholder, keeping the header so that replayed
+ * requests still parse.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class TrafficCapture implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(TrafficCapture.class.getName());
+    private static final TrafficCapture DISABLED = new TrafficCapture();
+
+    /**
+     * Capture counters.
+     *
+     * @param captured requests written to the log
+     * @param skipped  sampled requests over the byte budget, or after the log reached its size limit
+     * @param dropped  requests lost because the writer queue was full
+     */
+    public record Stats(long captured, long skipped, long dropped) {
+    }
+
+    private record Capture(long offsetMicros, int flags, byte[] head, long bodyLength, byte[] body) {
+    }
+
+    private static final Capture STOP = new Capture(0, 0, new byte[0], 0, new byte[0]);
+    private static final Set<String> REDACTED = Set.of("authorization", "proxy-authorization", "cookie");
+    private static final byte[] PLACEHOLDER = " [redacted]".getBytes(StandardCharsets.US_ASCII);
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long maxBytesPerSecond;
+    private final int maxBodyBytes;
+    private final long maxFileBytes;
+    private final long startNanos;
+    private final BlockingQueue<Capture> queue;
+    private final TrafficLog.Writer writer;
+    private final Thread writerThread;
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean full;
+    private long windowStart;
+    private long windowBytes;
+
+    private TrafficCapture() {
+        this.enabled = false;
+        this.sampleRate = 0;
+        this.maxBytesPerSecond = 0;
+        this.maxBodyBytes = 0;
+        this.maxFileBytes = 0;
+        this.startNanos = 0;
+        this.queue = null;
+        this.writer = null;
+        this.writerThread = null;
+    }
+
+    /**
+     * Starts capturing into a log, opening a new session in it.
+     *
+     * @param file              the log, appended to if it exists
+     * @param sampleRate        the fraction of requests captured, between 0 and 1
+     * @param maxBytesPerSecond the byte budget per second
+     * @param maxBodyBytes      the largest body stored; longer ones keep only their length
+     * @param maxFileBytes      the log size at which capture stops
+     * @param queueCapacity     how many captures may wait for the writer
+     * @throws IOException if the log cannot be opened
+     */
+    public TrafficCapture(Path file, double sampleRate, long maxBytesPerSecond, int maxBodyBytes, long maxFileBytes,
+                          int queueCapacity) throws IOException {
+        this.enabled = true;
+        this.sampleRate = sampleRate;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxFileBytes = maxFileBytes;
+        this.startNanos = System.nanoTime();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new TrafficLog.Writer(file, TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()));
+        this.writerThread = Thread.ofPlatform().daemon().name("traffic-capture").start(this::drain);
+    }
+
+    /**
+     * Gets the capture that records nothing.
+     *
+     * @return the disabled capture
+     */
+    public static TrafficCapture disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Creates the capture described by the {@code CAPTURE_*} settings of {@link ServerConfig}.
+     * A log that cannot be opened is logged and capture stays off.
+     *
+     * @return the capture, disabled unless {@code CAPTURE_FILE} is set
+     */
+    public static TrafficCapture fromConfig() {
+        String file = ServerConfig.getCaptureFile();
+        if (file == null) {
+            return DISABLED;
+        }
+        try {
+            return new TrafficCapture(Path.of(file), ServerConfig.getCaptureSampleRate(),
+                    ServerConfig.getCaptureMaxBytesPerSecond(), ServerConfig.getCaptureMaxBodyBytes(),
+                    ServerConfig.getCaptureMaxFileBytes(), ServerConfig.getCaptureQueue());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudo abrir el log de captura {0}: {1}", new Object[]{file, e.getMessage()});
+            return DISABLED;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decides whether the current request is captured; cheap enough to call for every request.
+     *
+     * @return true if the request should be passed to {@link #record}
+     */
+    public boolean sample() {
+        return enabled && !full && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Records a sampled request. A body within the limit is read here and handed back from memory,
+     * so the handler sees exactly the bytes that were captured.
+     *
+     * @param head       the raw request line and headers
+     * @param bodyLength the declared body length, 0 if none
+     * @param body       the body stream
+     * @param secure     whether the request arrived over TLS
+     * @return the stream the handler should read the body from
+     * @throws IOException if reading the body fails
+     */
+    public InputStream record(byte[] head, long bodyLength, InputStream body, boolean secure) throws IOException {
+        long offsetMicros = (System.nanoTime() - startNanos) / 1000;
+        head = redact(head);
+        boolean keepBody = bodyLength <= maxBodyBytes;
+        if (!reserve(head.length + (keepBody ? bodyLength : 0))) {
+            skipped.incrementAndGet();
+            return body;
+        }
+        int flags = (secure ? TrafficLog.FLAG_TLS : 0) | (keepBody ? 0 : TrafficLog.FLAG_BODY_OMITTED);
+        byte[] stored = new byte[0];
+        InputStream replacement = body;
+        if (keepBody && bodyLength > 0) {
+            stored = body.readNBytes((int) bodyLength);
+            replacement = new ByteArrayInputStream(stored);
+        }
+        if (!queue.offer(new Capture(offsetMicros, flags, head, bodyLength, stored))) {
+            dropped.incrementAndGet();
+        }
+        return replacement;
+    }
+
+    /**
+     * Gets the capture counters.
+     *
+     * @return the counters
+     */
+    public Stats stats() {
+        return new Stats(captured.get(), skipped.get(), dropped.get());
+    }
+
+    /**
+     * Writes out the queued captures and closes the log. Waits at most a few seconds for the
+     * writer; if it already stopped on a write error, the remaining captures are discarded.
+     */
+    @Override
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Un writer muerto nunca vaciaría la cola: put(STOP) bloquearía para siempre
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!queue.offer(STOP, 50, TimeUnit.MILLISECONDS)) {
+                if (!writerThread.isAlive() || System.nanoTime() > deadline) {
+                    LOGGER.log(Level.WARNING, "Captura cerrada con {0} capturas sin escribir", queue.size());
+                    return;
+                }
+            }
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Replaces the values of credential headers in a raw request head.
+     *
+     * @param head the request line and headers
+     * @return the same array if it carries no credentials, otherwise a redacted copy
+     */
+    static byte[] redact(byte[] head) {
+        ByteArrayOutputStream redacted = null;
+        int copied = 0;
+        // La primera línea es la de petición
+        int start = indexOf(head, (byte) '\n', 0, head.length) + 1;
+        while (start > 0 && start < head.length) {
+            int end = indexOf(head, (byte) '\n', start, head.length);
+            if (end < 0) {
+                end = head.length;
+            }
+            int valueEnd = end > start && head[end - 1] == '\r' ? end - 1 : end;
+            int colon = indexOf(head, (byte) ':', start, valueEnd);
+            if (colon > start && REDACTED.contains(
+                    new String(head, start, colon - start, StandardCharsets.ISO_8859_1).trim().toLowerCase(Locale.ROOT))) {
+                if (redacted == null) {
+                    redacted = new ByteArrayOutputStream(head.length);
+                }
+                redacted.write(head, copied, colon + 1 - copied);
+                redacted.writeBytes(PLACEHOLDER);
+                copied = valueEnd;
+            }
+            start = end + 1;
+        }
+        if (redacted == null) {
+            return head;
+        }
+        redacted.write(head, copied, head.length - copied);
+        return redacted.toByteArray();
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Presupuesto de bytes por ventana de un segundo
+    private synchronized boolean reserve(long bytes) {
+        long now = System.nanoTime();
+        if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+            windowStart = now;
+            windowBytes = 0;
+        }
+        if (windowBytes + bytes > maxBytesPerSecond) {
+            return false;
+        }
+        windowBytes += bytes;
+        return true;
+    }
+
+    private void drain() {
+        try (writer) {
+            while (true) {
+                Capture capture = queue.take();
+                do {
+                    if (capture == STOP) {
+                        writer.flush();
+                        return;
+                    }
+                    write(capture);
+                } while ((capture = queue.poll()) != null);
+                // Se escribe a disco solo cuando la cola se vacía
+                writer.flush();
+            }
+        } catch (IOException e) {
+            full = true;
+            LOGGER.log(Level.WARNING, "Captura de tráfico detenida: {0}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Capture capture) throws IOException {
+        if (full) {
+            skipped.incrementAndGet();
+            return;
+        }
+        writer.append(capture.offsetMicros(), capture.flags(), capture.head(), capture.bodyLength(),
+                capture.body(), capture.body().length);
+        captured.incrementAndGet();
+        if (writer.size() >= maxFileBytes) {
+            full = true;
+            LOGGER.log(Level.INFO, "El log de captura alcanzó su tamaño máximo ({0} bytes)", maxFileBytes);
+        }
+    }
+}
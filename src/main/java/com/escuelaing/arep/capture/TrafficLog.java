@@ -0,0 +1,262 @@
+package com.escuelaing.arep.capture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The append-only binary format of captured traffic.
+ * <p>
+ * A log starts with the magic bytes {@code HCAP} and a version byte, followed by records:
+ * </p>
+ * <ul>
+ *   <li>{@code SESSION}: tag, then the session start as 8 bytes of epoch microseconds. Each
+ *       server run appending to the log opens a session; request offsets restart from it.</li>
+ *   <li>{@code REQUEST}: tag, then as unsigned varints the offset from the session start in
+ *       microseconds, the flags, the head length, the head bytes, the declared body length, the
+ *       stored body length and the stored body bytes.</li>
+ * </ul>
+ * <p>
+ * Varints keep a typical record a few bytes longer than the raw request. When a body was too
+ * large to keep, only its declared length is stored ({@link #FLAG_BODY_OMITTED}) and replay
+ * sends filler bytes of that length.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class TrafficLog {
+
+    private static final byte[] MAGIC = {'H', 'C', 'A', 'P', 1};
+    private static final int TAG_SESSION = 1;
+    private static final int TAG_REQUEST = 2;
+
+    /** The request arrived over TLS. */
+    public static final int FLAG_TLS = 1;
+    /** The body exceeded the capture limit and was not stored. */
+    public static final int FLAG_BODY_OMITTED = 2;
+
+    private TrafficLog() {
+    }
+
+    /**
+     * One captured request.
+     *
+     * @param sessionStartMicros the epoch microseconds its session started at
+     * @param offsetMicros       when it arrived, relative to the session start
+     * @param flags              {@link #FLAG_TLS}, {@link #FLAG_BODY_OMITTED}
+     * @param head               the raw request line and headers, ending with the blank line
+     * @param bodyLength         the declared body length
+     * @param body               the stored body, empty if omitted
+     */
+    public record Entry(long sessionStartMicros, long offsetMicros, int flags, byte[] head, long bodyLength,
+                        byte[] body) {
+
+        /**
+         * Indicates whether the body was too large to store.
+         *
+         * @return true if only its length is known
+         */
+        public boolean bodyOmitted() {
+            return (flags & FLAG_BODY_OMITTED) != 0;
+        }
+    }
+
+    /**
+     * Appends records to a log file, writing the magic bytes if the file is new.
+     */
+    public static final class Writer implements Closeable {
+        private final OutputStream out;
+        private long written;
+
+        /**
+         * Opens a log for appending and starts a session.
+         *
+         * @param file               the log file, created if absent
+         * @param sessionStartMicros the session start, in epoch microseconds
+         * @throws IOException if the file cannot be opened or is not a traffic log
+         */
+        public Writer(Path file, long sessionStartMicros) throws IOException {
+            boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+            if (!fresh) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    if (!Arrays.equals(in.readNBytes(MAGIC.length), MAGIC)) {
+                        throw new IOException("No es un log de tráfico: " + file);
+                    }
+                }
+            }
+            this.out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND), 64 * 1024);
+            this.written = fresh ? 0 : Files.size(file);
+            if (fresh) {
+                write(MAGIC, 0, MAGIC.length);
+            }
+            writeByte(TAG_SESSION);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (sessionStartMicros >>> shift));
+            }
+        }
+
+        /**
+         * Appends a request record.
+         *
+         * @param offsetMicros the arrival time relative to the session start
+         * @param flags        the record flags
+         * @param head         the raw head
+         * @param bodyLength   the declared body length
+         * @param body         the stored body bytes
+         * @param bodySize     how many of them to store
+         * @throws IOException if writing fails
+         */
+        public void append(long offsetMicros, int flags, byte[] head, long bodyLength, byte[] body, int bodySize)
+                throws IOException {
+            writeByte(TAG_REQUEST);
+            writeVarint(offsetMicros);
+            writeVarint(flags);
+            writeVarint(head.length);
+            write(head, 0, head.length);
+            writeVarint(bodyLength);
+            writeVarint(bodySize);
+            write(body, 0, bodySize);
+        }
+
+        /**
+         * Gets the size of the log, including what earlier sessions wrote.
+         *
+         * @return the size in bytes
+         */
+        public long size() {
+            return written;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        private void writeByte(int b) throws IOException {
+            out.write(b);
+            written++;
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+        }
+    }
+
+    /**
+     * Reads the records of a log in order.
+     */
+    public static final class Reader implements Closeable {
+        private final InputStream in;
+        private long sessionStart;
+
+        /**
+         * Opens a log for reading.
+         *
+         * @param file the log file
+         * @throws IOException if the file cannot be read or is not a traffic log
+         */
+        public Reader(Path file) throws IOException {
+            this.in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+            if (!Arrays.equals(in.readNBytes(MAGIC.length), MAGIC)) {
+                in.close();
+                throw new IOException("No es un log de tráfico: " + file);
+            }
+        }
+
+        /**
+         * Reads the next request, skipping session markers.
+         *
+         * @return the entry, or null at the end of the log (a record cut short by a crash also ends it)
+         * @throws IOException if reading fails or the log is corrupt
+         */
+        public Entry next() throws IOException {
+            while (true) {
+                int tag = in.read();
+                if (tag < 0) {
+                    return null;
+                }
+                try {
+                    if (tag == TAG_SESSION) {
+                        long start = 0;
+                        for (int i = 0; i < 8; i++) {
+                            start = (start << 8) | readByte();
+                        }
+                        sessionStart = start;
+                        continue;
+                    }
+                    if (tag != TAG_REQUEST) {
+                        throw new IOException("Registro desconocido en el log: " + tag);
+                    }
+                    long offset = readVarint();
+                    int flags = (int) readVarint();
+                    byte[] head = readBytes(readVarint());
+                    long bodyLength = readVarint();
+                    byte[] body = readBytes(readVarint());
+                    return new Entry(sessionStart, offset, flags, head, bodyLength, body);
+                } catch (EOFException e) {
+                    // Último registro incompleto (el servidor se detuvo mientras escribía)
+                    return null;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Varint demasiado largo en el log");
+        }
+
+        private byte[] readBytes(long length) throws IOException {
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Registro demasiado grande en el log: " + length);
+            }
+            byte[] bytes = in.readNBytes((int) length);
+            if (bytes.length < length) {
+                throw new EOFException();
+            }
+            return bytes;
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return b;
+        }
+    }
+}
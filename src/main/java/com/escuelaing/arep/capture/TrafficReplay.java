@@ -0,0 +1,214 @@
+package com.escuelaing.arep.capture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a {@link TrafficLog} against a server and reports the latency distribution.
+ * <p>
+ * Requests are sent byte for byte as captured, each on its own connection, at the captured
+ * pace, a multiple of it, or as fast as the concurrency limit allows. In the paced modes latency
+ * is measured from when a request was due, not from when it was sent, so a server that falls
+ * behind shows it in the percentiles instead of silently slowing the replay down.
+ * </p>
+ * <p>
+ * Usage:
+ * <pre>
+ * java -cp target/classes com.escuelaing.arep.capture.TrafficReplay traffic.log [host:port] [--speed=1|2.5|max] [--concurrency=256]
+ * </pre>
+ * Requests captured over TLS are replayed over plain TCP.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class TrafficReplay {
+
+    private static final int TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * The outcome of a replay.
+     *
+     * @param requests     requests sent
+     * @param failures     requests without a response (connection error or timeout)
+     * @param serverErrors responses with a 5xx status
+     * @param elapsedNanos the duration of the whole replay
+     * @param latencies    the latency of each answered request in nanoseconds, sorted
+     */
+    public record Report(int requests, int failures, int serverErrors, long elapsedNanos, long[] latencies) {
+
+        /**
+         * Gets a latency percentile (nearest rank).
+         *
+         * @param percent the percentile, between 0 and 100
+         * @return the latency in nanoseconds, 0 if no request was answered
+         */
+        public long percentile(double percent) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100 * latencies.length);
+            return latencies[Math.max(0, Math.min(latencies.length - 1, rank - 1))];
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("peticiones=%d fallidas=%d 5xx=%d duración=%.2fs (%.0f pet/s)%n"
+                            + "latencia ms: p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f",
+                    requests, failures, serverErrors, seconds, seconds > 0 ? requests / seconds : 0,
+                    percentile(50) / 1e6, percentile(90) / 1e6, percentile(99) / 1e6, percentile(99.9) / 1e6,
+                    percentile(100) / 1e6);
+        }
+    }
+
+    private TrafficReplay() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Uso: TrafficReplay <log> [host:port] [--speed=1|2.5|max] [--concurrency=256]");
+            System.exit(2);
+        }
+        String target = "localhost:35000";
+        double speed = 1;
+        int concurrency = 256;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--speed=")) {
+                String value = args[i].substring(8);
+                speed = value.equalsIgnoreCase("max") ? 0 : Double.parseDouble(value);
+            } else if (args[i].startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(args[i].substring(14));
+            } else {
+                target = args[i];
+            }
+        }
+        int colon = target.lastIndexOf(':');
+        Report report = replay(Path.of(args[0]), target.substring(0, colon),
+                Integer.parseInt(target.substring(colon + 1)), speed, concurrency);
+        System.out.printf("velocidad=%s concurrencia=%d destino=%s%n", speed > 0 ? speed + "x" : "max", concurrency, target);
+        System.out.println(report);
+    }
+
+    /**
+     * Replays a log.
+     *
+     * @param log         the traffic log
+     * @param host        the server host
+     * @param port        the server port
+     * @param speed       the pace relative to the captured one; 0 or less sends as fast as possible
+     * @param concurrency the most requests in flight at once
+     * @return the report
+     * @throws IOException          if the log cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static Report replay(Path log, String host, int port, double speed, int concurrency)
+            throws IOException, InterruptedException {
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        Semaphore inFlight = new Semaphore(concurrency);
+        List<Long> latencies = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger serverErrors = new AtomicInteger();
+        int requests = 0;
+        long start = System.nanoTime();
+        try (TrafficLog.Reader reader = new TrafficLog.Reader(log);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long firstMicros = -1;
+            TrafficLog.Entry entry;
+            while ((entry = reader.next()) != null) {
+                long due = start;
+                if (speed > 0) {
+                    long micros = entry.sessionStartMicros() + entry.offsetMicros();
+                    if (firstMicros < 0) {
+                        firstMicros = micros;
+                    }
+                    due = start + (long) ((micros - firstMicros) * 1000 / speed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                inFlight.acquire();
+                long from = speed > 0 ? due : System.nanoTime();
+                TrafficLog.Entry request = entry;
+                requests++;
+                executor.execute(() -> {
+                    try {
+                        int status = send(address, request);
+                        long latency = System.nanoTime() - from;
+                        if (status >= 500) {
+                            serverErrors.incrementAndGet();
+                        }
+                        synchronized (latencies) {
+                            latencies.add(latency);
+                        }
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return new Report(requests, failures.get(), serverErrors.get(), elapsed, sorted);
+    }
+
+    // Envía la petición tal cual y lee la respuesta completa (el servidor cierra la conexión al terminar)
+    private static int send(InetSocketAddress address, TrafficLog.Entry entry) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(address, TIMEOUT_MILLIS);
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            OutputStream out = socket.getOutputStream();
+            out.write(entry.head());
+            if (entry.bodyOmitted()) {
+                byte[] filler = new byte[8192];
+                for (long left = entry.bodyLength(); left > 0; left -= filler.length) {
+                    out.write(filler, 0, (int) Math.min(left, filler.length));
+                }
+            } else {
+                out.write(entry.body());
+            }
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buf = new byte[8192];
+            int n = in.read(buf);
+            if (n < 0) {
+                throw new IOException("Conexión cerrada sin respuesta");
+            }
+            int status = parseStatus(buf, n);
+            while (in.read(buf) >= 0) {
+                // Se descarta el resto de la respuesta
+            }
+            return status;
+        }
+    }
+
+    private static int parseStatus(byte[] buf, int n) {
+        // "HTTP/1.1 200 ..." → dígitos tras el primer espacio
+        int i = 0;
+        while (i < n && buf[i] != ' ') {
+            i++;
+        }
+        int status = 0;
+        for (int k = i + 1; k < Math.min(n, i + 4); k++) {
+            status = status * 10 + (buf[k] - '0');
+        }
+        return status;
+    }
+}
@@ -1,15 +1,36 @@
 package com.escuelaing.arep.config;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  * The {@code ServerConfig} class provides configuration settings for the server,
  * including the port number and the directory for static files.
  * <p>
- * It allows getting and setting the server port, and defines the location of static resources.
+ * Every setting is resolved, in order of precedence, from a JVM system property
+ * ({@code -Dserver.backlog=128}), an environment variable ({@code SERVER_BACKLOG=128}) and a
+ * properties file using the system property names. The file is taken from
+ * {@code -Dserver.config} / {@code SERVER_CONFIG}, or {@code server.properties} on the
+ * classpath if present.
  * </p>
  *
  * <ul>
  *   <li>{@code PORT}: The port number on which the server listens.</li>
  *   <li>{@code STATIC_FILES_DIR}: The directory containing static files to be served.</li>
+ *   <li>{@code SERVER_*}: Socket tuning and timeouts, see {@link SocketSettings}, plus the
+ *       acceptor/worker threading model.</li>
+ *   <li>{@code COUNTERS_FILE}: Optional file where counter snapshots are persisted.</li>
+ *   <li>{@code RATE_LIMIT_*}: Optional per-client and per-route request rate limits.</li>
+ *   <li>{@code BULKHEAD_*}: Optional per-route concurrency limits (bulkheads).</li>
+ *   <li>{@code CORS_*}: Allowed origins and preflight caching for cross-origin requests.</li>
+ *   <li>{@code PROXY_*}: Optional path prefixes forwarded to upstream servers.</li>
+ *   <li>{@code CAPTURE_*}: Optional sampled capture of raw requests for replay.</li>
+ *   <li>{@code SERVER_TLS_*}: Optional HTTPS listener, see {@link TlsSettings}.</li>
  * </ul>
  *
  * <p>
@@ -24,6 +45,8 @@ package com.escuelaing.arep.config;
  * @since 2.0
  */
 public class ServerConfig {
+    private static final Logger LOGGER = Logger.getLogger(ServerConfig.class.getName());
+    private static volatile Properties fileProperties = loadDefaultProperties();
     private static int PORT = initPort();
     public static final String STATIC_FILES_DIR = "static";
     
@@ -45,14 +68,808 @@ public class ServerConfig {
         PORT = port;
     }
 
-    private static int initPort() {
-        String env = System.getenv("PORT");
-        if (env != null) {
+    /**
+     * Gets the file where counter snapshots are persisted, from the {@code COUNTERS_FILE}
+     * environment variable or the {@code counters.file} system property.
+     *
+     * @return the snapshot file path, or null if persistence is disabled
+     */
+    public static String getCountersFile() {
+        return setting("counters.file", "COUNTERS_FILE");
+    }
+
+    /**
+     * Gets how often counter snapshots are written, from {@code COUNTERS_FLUSH_MS} or the
+     * {@code counters.flushMs} system property. Defaults to 5000 ms.
+     *
+     * @return the snapshot period in milliseconds
+     */
+    public static long getCountersFlushMillis() {
+        return (long) numberSetting("counters.flushMs", "COUNTERS_FLUSH_MS", 5000);
+    }
+
+    /**
+     * Gets the sustained requests per second allowed per client IP, from {@code RATE_LIMIT_RPS}
+     * or {@code rateLimit.rps}. Zero (the default) disables the per-client limit.
+     *
+     * @return the per-client rate
+     */
+    public static double getRateLimitPerSecond() {
+        return numberSetting("rateLimit.rps", "RATE_LIMIT_RPS", 0);
+    }
+
+    /**
+     * Gets the per-client burst size, from {@code RATE_LIMIT_BURST} or {@code rateLimit.burst}.
+     *
+     * @return the number of requests a client may send back to back (default 20)
+     */
+    public static int getRateLimitBurst() {
+        return (int) numberSetting("rateLimit.burst", "RATE_LIMIT_BURST", 20);
+    }
+
+    /**
+     * Gets the per-route limits, from {@code RATE_LIMIT_ROUTES} or {@code rateLimit.routes}, in
+     * the form {@code /api/hello=10:20;/count=5:5} (path=rate-per-second:burst).
+     *
+     * @return the route limit specification, or null if none
+     */
+    public static String getRouteRateLimits() {
+        return setting("rateLimit.routes", "RATE_LIMIT_ROUTES");
+    }
+
+    /**
+     * Gets the maximum number of client buckets tracked at once, from {@code RATE_LIMIT_MAX_CLIENTS}.
+     *
+     * @return the bucket table bound (default 10000)
+     */
+    public static int getRateLimitMaxClients() {
+        return (int) numberSetting("rateLimit.maxClients", "RATE_LIMIT_MAX_CLIENTS", 10_000);
+    }
+
+    /**
+     * Gets how long an idle client bucket is kept, from {@code RATE_LIMIT_IDLE_MS}.
+     *
+     * @return the idle eviction time in milliseconds (default 60000)
+     */
+    public static long getRateLimitIdleMillis() {
+        return (long) numberSetting("rateLimit.idleMs", "RATE_LIMIT_IDLE_MS", 60_000);
+    }
+
+    /**
+     * Gets the per-route bulkheads, from {@code BULKHEAD_ROUTES} or {@code bulkhead.routes}, in
+     * the form {@code /api/report=4:8;/count=2} (path=max-concurrent:queue). They take
+     * precedence over {@code @Bulkhead} annotations on the same path.
+     *
+     * @return the bulkhead specification, or null if none
+     */
+    public static String getRouteBulkheads() {
+        return setting("bulkhead.routes", "BULKHEAD_ROUTES");
+    }
+
+    /**
+     * Gets how long a request queued by a configured bulkhead waits for a slot before being
+     * answered 503, from {@code BULKHEAD_MAX_WAIT_MS}.
+     *
+     * @return the queue wait in milliseconds (default 1000)
+     */
+    public static long getBulkheadMaxWaitMillis() {
+        return (long) numberSetting("bulkhead.maxWaitMs", "BULKHEAD_MAX_WAIT_MS", 1000);
+    }
+
+    /**
+     * Indicates whether configured bulkheads adapt their limit to the route latency
+     * ({@code BULKHEAD_ADAPTIVE}); the configured size is then the upper bound.
+     *
+     * @return true for latency-based limits (default false)
+     */
+    public static boolean isBulkheadAdaptive() {
+        return booleanSetting("bulkhead.adaptive", "BULKHEAD_ADAPTIVE", false);
+    }
+
+    /**
+     * Gets the proxied routes, from {@code PROXY_ROUTES} or {@code proxy.routes}, in the form
+     * {@code /backend=127.0.0.1:8081,127.0.0.1:8082;/auth=localhost:9000} (prefix=upstreams).
+     * Annotated routes take precedence over a proxied prefix.
+     *
+     * @return the route specification, or null if none
+     */
+    public static String getProxyRoutes() {
+        return setting("proxy.routes", "PROXY_ROUTES");
+    }
+
+    /**
+     * Gets how proxied routes pick an upstream ({@code PROXY_BALANCER}):
+     * {@code round-robin} or {@code least-connections}.
+     *
+     * @return the balancer name (default {@code round-robin})
+     */
+    public static String getProxyBalancer() {
+        String value = setting("proxy.balancer", "PROXY_BALANCER");
+        return value != null ? value.trim() : "round-robin";
+    }
+
+    /**
+     * Gets how many idle keep-alive connections are pooled per upstream ({@code PROXY_MAX_IDLE}).
+     *
+     * @return the pool size (default 16)
+     */
+    public static int getProxyMaxIdlePerUpstream() {
+        return (int) numberSetting("proxy.maxIdle", "PROXY_MAX_IDLE", 16);
+    }
+
+    /**
+     * Gets how long pooled upstream connections may stay idle before being closed instead of
+     * reused ({@code PROXY_IDLE_TIMEOUT_MS}); keep it below the upstream's keep-alive timeout.
+     *
+     * @return the idle time in milliseconds (default 4000)
+     */
+    public static long getProxyIdleTimeoutMillis() {
+        return (long) numberSetting("proxy.idleTimeoutMs", "PROXY_IDLE_TIMEOUT_MS", 4000);
+    }
+
+    /**
+     * Gets how long connecting to an upstream may take ({@code PROXY_CONNECT_TIMEOUT_MS}).
+     *
+     * @return the timeout in milliseconds (default 2000)
+     */
+    public static int getProxyConnectTimeoutMillis() {
+        return (int) numberSetting("proxy.connectTimeoutMs", "PROXY_CONNECT_TIMEOUT_MS", 2000);
+    }
+
+    /**
+     * Gets how long each read from an upstream may block before answering 504
+     * ({@code PROXY_READ_TIMEOUT_MS}).
+     *
+     * @return the timeout in milliseconds (default 30000)
+     */
+    public static int getProxyReadTimeoutMillis() {
+        return (int) numberSetting("proxy.readTimeoutMs", "PROXY_READ_TIMEOUT_MS", 30000);
+    }
+
+    /**
+     * Gets how many consecutive failures take an upstream out of rotation ({@code PROXY_MAX_FAILS}).
+     *
+     * @return the failure count (default 3)
+     */
+    public static int getProxyMaxFails() {
+        return (int) numberSetting("proxy.maxFails", "PROXY_MAX_FAILS", 3);
+    }
+
+    /**
+     * Gets how long an upstream taken out of rotation gets no traffic ({@code PROXY_FAIL_TIMEOUT_MS}).
+     *
+     * @return the ejection time in milliseconds (default 10000)
+     */
+    public static long getProxyFailTimeoutMillis() {
+        return (long) numberSetting("proxy.failTimeoutMs", "PROXY_FAIL_TIMEOUT_MS", 10000);
+    }
+
+    /**
+     * Gets the largest request body forwarded to an upstream ({@code PROXY_MAX_BODY_BYTES}); it
+     * replaces {@link #getMaxBodyBytes()} for proxied paths, whose bodies are streamed.
+     *
+     * @return the limit in bytes (default 1 GiB)
+     */
+    public static long getProxyMaxBodyBytes() {
+        return (long) numberSetting("proxy.maxBodyBytes", "PROXY_MAX_BODY_BYTES", 1L << 30);
+    }
+
+    /**
+     * Gets the traffic log that sampled requests are appended to ({@code CAPTURE_FILE}); capture
+     * is off unless it is set. See {@link com.escuelaing.arep.capture.TrafficCapture}.
+     *
+     * @return the log path, or null if capture is off
+     */
+    public static String getCaptureFile() {
+        String value = setting("capture.file", "CAPTURE_FILE");
+        return value != null && !value.isBlank() ? value.trim() : null;
+    }
+
+    /**
+     * Gets the fraction of requests captured ({@code CAPTURE_SAMPLE_RATE}), between 0 and 1.
+     *
+     * @return the sample rate (default 0.01)
+     */
+    public static double getCaptureSampleRate() {
+        return Math.max(0, Math.min(1, numberSetting("capture.sampleRate", "CAPTURE_SAMPLE_RATE", 0.01)));
+    }
+
+    /**
+     * Gets how many bytes per second capture may record ({@code CAPTURE_MAX_BYTES_PER_SECOND});
+     * sampled requests over the budget are skipped.
+     *
+     * @return the budget in bytes per second (default 1 MiB)
+     */
+    public static long getCaptureMaxBytesPerSecond() {
+        return (long) numberSetting("capture.maxBytesPerSecond", "CAPTURE_MAX_BYTES_PER_SECOND", 1 << 20);
+    }
+
+    /**
+     * Gets the largest request body stored with a capture ({@code CAPTURE_MAX_BODY_BYTES}); longer
+     * bodies keep only their length.
+     *
+     * @return the limit in bytes (default 64 KiB)
+     */
+    public static int getCaptureMaxBodyBytes() {
+        return (int) numberSetting("capture.maxBodyBytes", "CAPTURE_MAX_BODY_BYTES", 64 * 1024);
+    }
+
+    /**
+     * Gets the size at which the traffic log stops growing ({@code CAPTURE_MAX_FILE_BYTES}).
+     *
+     * @return the limit in bytes (default 1 GiB)
+     */
+    public static long getCaptureMaxFileBytes() {
+        return (long) numberSetting("capture.maxFileBytes", "CAPTURE_MAX_FILE_BYTES", 1L << 30);
+    }
+
+    /**
+     * Gets how many captures may wait for the log writer ({@code CAPTURE_QUEUE}); when it is full,
+     * captures are dropped rather than delaying requests.
+     *
+     * @return the queue capacity (default 1024)
+     */
+    public static int getCaptureQueue() {
+        return Math.max(1, (int) numberSetting("capture.queue", "CAPTURE_QUEUE", 1024));
+    }
+
+    /**
+     * Gets the origins allowed to call the server from a browser, comma separated, from
+     * {@code CORS_ORIGINS}; {@code *} allows any origin.
+     *
+     * @return the allowed origins (default {@code *})
+     */
+    public static String getCorsOrigins() {
+        String value = setting("cors.origins", "CORS_ORIGINS");
+        return value != null ? value : "*";
+    }
+
+    /**
+     * Gets the request headers allowed in cross-origin calls, from {@code CORS_ALLOW_HEADERS}.
+     *
+     * @return the allowed headers (default {@code Content-Type})
+     */
+    public static String getCorsAllowHeaders() {
+        String value = setting("cors.allowHeaders", "CORS_ALLOW_HEADERS");
+        return value != null ? value : "Content-Type";
+    }
+
+    /**
+     * Gets how long browsers may cache a preflight answer, from {@code CORS_MAX_AGE}.
+     *
+     * @return the {@code Access-Control-Max-Age} in seconds (default 600)
+     */
+    public static long getCorsMaxAgeSeconds() {
+        return (long) numberSetting("cors.maxAge", "CORS_MAX_AGE", 600);
+    }
+
+    /**
+     * Gets the accept queue length requested for listening sockets ({@code SERVER_BACKLOG}).
+     *
+     * @return the backlog (default 128)
+     */
+    public static int getAcceptBacklog() {
+        return (int) numberSetting("server.backlog", "SERVER_BACKLOG", 128);
+    }
+
+    /**
+     * Gets the maximum time a connection may stay silent before sending its request line
+     * ({@code SERVER_IDLE_TIMEOUT_MS}).
+     *
+     * @return the idle timeout in milliseconds (default 5000)
+     */
+    public static int getIdleTimeoutMillis() {
+        return (int) numberSetting("server.idleTimeoutMs", "SERVER_IDLE_TIMEOUT_MS", 5000);
+    }
+
+    /**
+     * Gets the total time budget for receiving the request line and all headers
+     * ({@code SERVER_HEADER_TIMEOUT_MS}). Trickling bytes does not extend it; 0 disables it, leaving
+     * only the idle timeout on each read.
+     *
+     * @return the header timeout in milliseconds (default 10000)
+     */
+    public static int getHeaderTimeoutMillis() {
+        return (int) numberSetting("server.headerTimeoutMs", "SERVER_HEADER_TIMEOUT_MS", 10_000);
+    }
+
+    /**
+     * Gets the maximum wait for any single read once the headers are in, e.g. while reading a
+     * body ({@code SERVER_READ_TIMEOUT_MS}).
+     *
+     * @return the read timeout in milliseconds (default 30000)
+     */
+    public static int getReadTimeoutMillis() {
+        return (int) numberSetting("server.readTimeoutMs", "SERVER_READ_TIMEOUT_MS", 30_000);
+    }
+
+    /**
+     * Indicates whether Nagle's algorithm is disabled on accepted sockets ({@code SERVER_TCP_NODELAY}).
+     *
+     * @return true to set TCP_NODELAY (default true)
+     */
+    public static boolean isTcpNoDelay() {
+        return booleanSetting("server.tcpNoDelay", "SERVER_TCP_NODELAY", true);
+    }
+
+    /**
+     * Gets the socket send buffer size ({@code SERVER_SEND_BUFFER}); 0 keeps the OS default.
+     *
+     * @return the send buffer size in bytes
+     */
+    public static int getSendBufferSize() {
+        return (int) numberSetting("server.sendBuffer", "SERVER_SEND_BUFFER", 0);
+    }
+
+    /**
+     * Gets the socket receive buffer size ({@code SERVER_RECEIVE_BUFFER}); 0 keeps the OS default.
+     *
+     * @return the receive buffer size in bytes
+     */
+    public static int getReceiveBufferSize() {
+        return (int) numberSetting("server.receiveBuffer", "SERVER_RECEIVE_BUFFER", 0);
+    }
+
+    /**
+     * Indicates whether listening sockets set SO_REUSEPORT where supported ({@code SERVER_REUSE_PORT}).
+     *
+     * @return true to request SO_REUSEPORT (default false)
+     */
+    public static boolean isReusePort() {
+        return booleanSetting("server.reusePort", "SERVER_REUSE_PORT", false);
+    }
+
+    /**
+     * Gets the maximum size of the request line plus headers ({@code SERVER_MAX_HEADER_BYTES}).
+     *
+     * @return the limit in bytes (default 8192)
+     */
+    public static int getMaxHeaderBytes() {
+        return (int) numberSetting("server.maxHeaderBytes", "SERVER_MAX_HEADER_BYTES", 8192);
+    }
+
+    /**
+     * Gets the maximum size of a request body ({@code SERVER_MAX_BODY_BYTES}); larger
+     * requests are answered 413.
+     *
+     * @return the limit in bytes (default 1048576)
+     */
+    public static int getMaxBodyBytes() {
+        return (int) numberSetting("server.maxBodyBytes", "SERVER_MAX_BODY_BYTES", 1024 * 1024);
+    }
+
+    /**
+     * Gets the path of the batch endpoint ({@code SERVER_BATCH_PATH}); blank disables it.
+     *
+     * @return the path (default {@code /api/batch})
+     */
+    public static String getBatchPath() {
+        String value = setting("server.batch.path", "SERVER_BATCH_PATH");
+        return value != null ? value.trim() : "/api/batch";
+    }
+
+    /**
+     * Gets how many sub-requests a batch may carry ({@code SERVER_BATCH_MAX_ITEMS}).
+     *
+     * @return the limit (default 20)
+     */
+    public static int getBatchMaxItems() {
+        return (int) numberSetting("server.batch.maxItems", "SERVER_BATCH_MAX_ITEMS", 20);
+    }
+
+    /**
+     * Gets the deadline for all the sub-requests of a batch ({@code SERVER_BATCH_TIMEOUT_MS});
+     * the ones still running are answered 504.
+     *
+     * @return the deadline in milliseconds (default 5000)
+     */
+    public static long getBatchTimeoutMillis() {
+        return (long) numberSetting("server.batch.timeoutMs", "SERVER_BATCH_TIMEOUT_MS", 5000);
+    }
+
+    /**
+     * Indicates whether dynamic responses are compressed on the fly ({@code COMPRESSION_ENABLED}).
+     *
+     * @return true to compress (default true)
+     */
+    public static boolean isCompressionEnabled() {
+        return booleanSetting("compression.enabled", "COMPRESSION_ENABLED", true);
+    }
+
+    /**
+     * Gets the smallest body worth compressing ({@code COMPRESSION_MIN_BYTES}).
+     *
+     * @return the threshold in bytes (default 1024)
+     */
+    public static int getCompressionMinBytes() {
+        return (int) numberSetting("compression.minBytes", "COMPRESSION_MIN_BYTES", 1024);
+    }
+
+    /**
+     * Gets the deflate level used for dynamic responses ({@code COMPRESSION_LEVEL}), from 1
+     * (fastest) to 9 (smallest).
+     *
+     * @return the level (default 6)
+     */
+    public static int getCompressionLevel() {
+        return (int) numberSetting("compression.level", "COMPRESSION_LEVEL", 6);
+    }
+
+    /**
+     * Gets the content types eligible for compression ({@code COMPRESSION_TYPES}), as comma
+     * separated prefixes.
+     *
+     * @return the prefixes (default JSON, text, JavaScript and SVG)
+     */
+    public static String getCompressionTypes() {
+        String value = setting("compression.types", "COMPRESSION_TYPES");
+        return value != null ? value : "application/json,text/,application/javascript,image/svg+xml";
+    }
+
+    /**
+     * Gets the number of acceptor threads ({@code SERVER_ACCEPTORS}). With more than one, each
+     * acceptor gets its own listener on the same port through SO_REUSEPORT.
+     *
+     * @return the acceptor count (default 1)
+     */
+    public static int getAcceptors() {
+        return (int) numberSetting("server.acceptors", "SERVER_ACCEPTORS", 1);
+    }
+
+    /**
+     * Gets the size of each acceptor's worker pool ({@code SERVER_WORKERS}); 0 serves
+     * connections sequentially on the acceptor thread.
+     *
+     * @return the worker threads per acceptor (default 0)
+     */
+    public static int getWorkerThreads() {
+        return (int) numberSetting("server.workers", "SERVER_WORKERS", 0);
+    }
+
+    /**
+     * Indicates whether each connection is served on its own virtual thread
+     * ({@code SERVER_VIRTUAL_THREADS}); takes precedence over {@link #getWorkerThreads()}.
+     *
+     * @return true to use virtual threads (default false)
+     */
+    public static boolean isVirtualThreads() {
+        return booleanSetting("server.virtualThreads", "SERVER_VIRTUAL_THREADS", false);
+    }
+
+    /**
+     * Indicates whether HTTP/2 cleartext is accepted ({@code SERVER_H2C}), either with prior
+     * knowledge or through {@code Upgrade: h2c}.
+     *
+     * @return true to serve h2c (default true)
+     */
+    public static boolean isH2cEnabled() {
+        return booleanSetting("server.h2c", "SERVER_H2C", true);
+    }
+
+    /**
+     * Gets the maximum number of concurrent streams per HTTP/2 connection
+     * ({@code SERVER_H2_MAX_STREAMS}).
+     *
+     * @return the advertised stream limit (default 100)
+     */
+    public static int getH2MaxConcurrentStreams() {
+        return (int) numberSetting("server.h2.maxStreams", "SERVER_H2_MAX_STREAMS", 100);
+    }
+
+    /**
+     * Gets how many buffers of each size class a platform thread keeps cached
+     * ({@code SERVER_BUFFERS_THREAD_CACHE}).
+     *
+     * @return buffers per size class and thread (default 4, 0 disables the thread caches)
+     */
+    public static int getBufferThreadCacheSize() {
+        return (int) numberSetting("server.buffers.threadCache", "SERVER_BUFFERS_THREAD_CACHE", 4);
+    }
+
+    /**
+     * Gets how many buffers of each size class the shared pool keeps
+     * ({@code SERVER_BUFFERS_SHARED}).
+     *
+     * @return buffers per size class in the shared stacks (default 64)
+     */
+    public static int getBufferSharedPerClass() {
+        return (int) numberSetting("server.buffers.shared", "SERVER_BUFFERS_SHARED", 64);
+    }
+
+    /**
+     * Indicates whether a web root on disk is watched for changes ({@code SERVER_STATIC_WATCH}),
+     * so edited files are reloaded into the cache without a restart.
+     *
+     * @return true to watch the web root (default true)
+     */
+    public static boolean isStaticWatchEnabled() {
+        return booleanSetting("server.static.watch", "SERVER_STATIC_WATCH", true);
+    }
+
+    /**
+     * Indicates whether static files are also served under content-hashed names
+     * ({@code SERVER_STATIC_FINGERPRINT}), with HTML references rewritten to them.
+     *
+     * @return true to fingerprint assets at startup (default true)
+     */
+    public static boolean isStaticFingerprintEnabled() {
+        return booleanSetting("server.static.fingerprint", "SERVER_STATIC_FINGERPRINT", true);
+    }
+
+    /**
+     * Gets the {@code max-age} sent with fingerprinted files ({@code SERVER_STATIC_IMMUTABLE_MAX_AGE}).
+     *
+     * @return the lifetime in seconds (default one year)
+     */
+    public static long getStaticImmutableMaxAgeSeconds() {
+        return (long) numberSetting("server.static.immutableMaxAge", "SERVER_STATIC_IMMUTABLE_MAX_AGE", 31536000);
+    }
+
+    /**
+     * Gets the largest {@code multipart/form-data} body accepted ({@code SERVER_MULTIPART_MAX_BYTES});
+     * it replaces {@link #getMaxBodyBytes()} for uploads, which are streamed instead of buffered.
+     *
+     * @return the limit in bytes (default 1 GiB)
+     */
+    public static long getMultipartMaxBytes() {
+        return (long) numberSetting("server.multipart.maxBytes", "SERVER_MULTIPART_MAX_BYTES", 1L << 30);
+    }
+
+    /**
+     * Gets the largest single part accepted ({@code SERVER_MULTIPART_MAX_PART_BYTES}).
+     *
+     * @return the limit in bytes (default 1 GiB)
+     */
+    public static long getMultipartMaxPartBytes() {
+        return (long) numberSetting("server.multipart.maxPartBytes", "SERVER_MULTIPART_MAX_PART_BYTES", 1L << 30);
+    }
+
+    /**
+     * Gets the largest number of parts accepted in one body ({@code SERVER_MULTIPART_MAX_PARTS}).
+     *
+     * @return the limit (default 100)
+     */
+    public static int getMultipartMaxParts() {
+        return (int) numberSetting("server.multipart.maxParts", "SERVER_MULTIPART_MAX_PARTS", 100);
+    }
+
+    /**
+     * Gets the size above which parts are spooled to a temporary file instead of kept in memory
+     * ({@code SERVER_MULTIPART_MEMORY_THRESHOLD}).
+     *
+     * @return the threshold in bytes (default 64 KiB)
+     */
+    public static int getMultipartMemoryThreshold() {
+        return (int) numberSetting("server.multipart.memoryThreshold", "SERVER_MULTIPART_MEMORY_THRESHOLD", 64 * 1024);
+    }
+
+    /**
+     * Gets the directory spooled parts are written to ({@code SERVER_MULTIPART_TEMP_DIR}).
+     *
+     * @return the directory (default {@code java.io.tmpdir})
+     */
+    public static String getMultipartTempDir() {
+        String value = setting("server.multipart.tempDir", "SERVER_MULTIPART_TEMP_DIR");
+        return value != null && !value.isBlank() ? value.trim() : System.getProperty("java.io.tmpdir");
+    }
+
+    /**
+     * Gets how long asynchronous handlers may take before the server answers 504
+     * ({@code SERVER_ASYNC_TIMEOUT_MS}); a route can override it with {@code @Timeout}.
+     *
+     * @return the default timeout in milliseconds (default 30000)
+     */
+    public static long getAsyncTimeoutMillis() {
+        return (long) numberSetting("server.asyncTimeoutMs", "SERVER_ASYNC_TIMEOUT_MS", 30000);
+    }
+
+    /**
+     * Gets how many events a Server-Sent Events subscriber may have queued before it is
+     * considered stalled and disconnected ({@code SERVER_SSE_MAX_PENDING}).
+     *
+     * @return the pending event limit per subscriber (default 256)
+     */
+    public static int getSseMaxPending() {
+        return (int) numberSetting("server.sse.maxPending", "SERVER_SSE_MAX_PENDING", 256);
+    }
+
+    /**
+     * Gets the period of the keep-alive comment sent on event streams
+     * ({@code SERVER_SSE_HEARTBEAT_MS}); 0 disables it.
+     *
+     * @return the heartbeat period in milliseconds (default 15000)
+     */
+    public static long getSseHeartbeatMillis() {
+        return (long) numberSetting("server.sse.heartbeatMs", "SERVER_SSE_HEARTBEAT_MS", 15_000);
+    }
+
+    /**
+     * Gets the largest WebSocket message accepted after reassembling its fragments
+     * ({@code SERVER_WS_MAX_MESSAGE_BYTES}); larger messages close the session with 1009.
+     *
+     * @return the message limit in bytes (default 65536)
+     */
+    public static int getWebSocketMaxMessageBytes() {
+        return (int) numberSetting("server.ws.maxMessageBytes", "SERVER_WS_MAX_MESSAGE_BYTES", 64 * 1024);
+    }
+
+    /**
+     * Gets how many bytes may wait in a WebSocket session's send queue before senders block
+     * ({@code SERVER_WS_MAX_PENDING_BYTES}).
+     *
+     * @return the send queue limit in bytes (default 1 MiB)
+     */
+    public static long getWebSocketMaxPendingBytes() {
+        return (long) numberSetting("server.ws.maxPendingBytes", "SERVER_WS_MAX_PENDING_BYTES", 1024 * 1024);
+    }
+
+    /**
+     * Gets how long a WebSocket may stay silent before it is pinged, and then closed if it
+     * stays silent ({@code SERVER_WS_IDLE_TIMEOUT_MS}); also bounds how long a sender waits
+     * for a client that stopped reading.
+     *
+     * @return the idle timeout in milliseconds (default 60000)
+     */
+    public static int getWebSocketIdleTimeoutMillis() {
+        return (int) numberSetting("server.ws.idleTimeoutMs", "SERVER_WS_IDLE_TIMEOUT_MS", 60_000);
+    }
+
+    /**
+     * Gets the keystore with the HTTPS certificate ({@code SERVER_TLS_KEYSTORE}); HTTPS is
+     * only served when it is set.
+     *
+     * @return the keystore path, or null to disable HTTPS
+     */
+    public static String getTlsKeystore() {
+        return setting("server.tls.keystore", "SERVER_TLS_KEYSTORE");
+    }
+
+    /**
+     * Gets the keystore password ({@code SERVER_TLS_KEYSTORE_PASSWORD}).
+     *
+     * @return the password (default empty)
+     */
+    public static String getTlsKeystorePassword() {
+        String value = setting("server.tls.keystorePassword", "SERVER_TLS_KEYSTORE_PASSWORD");
+        return value != null ? value : "";
+    }
+
+    /**
+     * Gets the private key password ({@code SERVER_TLS_KEY_PASSWORD}).
+     *
+     * @return the password, or null to use the keystore password
+     */
+    public static String getTlsKeyPassword() {
+        return setting("server.tls.keyPassword", "SERVER_TLS_KEY_PASSWORD");
+    }
+
+    /**
+     * Gets the keystore format ({@code SERVER_TLS_KEYSTORE_TYPE}).
+     *
+     * @return the keystore type (default PKCS12)
+     */
+    public static String getTlsKeystoreType() {
+        String value = setting("server.tls.keystoreType", "SERVER_TLS_KEYSTORE_TYPE");
+        return value != null ? value.trim() : "PKCS12";
+    }
+
+    /**
+     * Gets the HTTPS port ({@code SERVER_TLS_PORT}).
+     *
+     * @return the port (default 35443)
+     */
+    public static int getTlsPort() {
+        return (int) numberSetting("server.tls.port", "SERVER_TLS_PORT", 35443);
+    }
+
+    /**
+     * Gets the enabled TLS versions, comma separated ({@code SERVER_TLS_PROTOCOLS}).
+     *
+     * @return the protocol list (default {@code TLSv1.3,TLSv1.2})
+     */
+    public static String getTlsProtocols() {
+        String value = setting("server.tls.protocols", "SERVER_TLS_PROTOCOLS");
+        return value != null ? value : "TLSv1.3,TLSv1.2";
+    }
+
+    /**
+     * Gets the ALPN protocols offered to clients, most preferred first ({@code SERVER_TLS_ALPN}).
+     *
+     * @return the protocol list (default {@code h2,http/1.1})
+     */
+    public static String getTlsApplicationProtocols() {
+        String value = setting("server.tls.alpn", "SERVER_TLS_ALPN");
+        return value != null ? value : "h2,http/1.1";
+    }
+
+    /**
+     * Gets how many TLS sessions are kept for resumption ({@code SERVER_TLS_SESSION_CACHE}).
+     *
+     * @return the session cache size (default 10000, 0 for unbounded)
+     */
+    public static int getTlsSessionCacheSize() {
+        return (int) numberSetting("server.tls.sessionCache", "SERVER_TLS_SESSION_CACHE", 10_000);
+    }
+
+    /**
+     * Gets how long a TLS session can be resumed ({@code SERVER_TLS_SESSION_TIMEOUT_S}).
+     *
+     * @return the session lifetime in seconds (default 86400)
+     */
+    public static int getTlsSessionTimeoutSeconds() {
+        return (int) numberSetting("server.tls.sessionTimeoutS", "SERVER_TLS_SESSION_TIMEOUT_S", 86_400);
+    }
+
+    /**
+     * Loads a properties file as the lowest-precedence configuration source, replacing any
+     * previously loaded file. Settings are read on demand, so this affects subsequent getters;
+     * the port is re-resolved immediately.
+     *
+     * @param file the properties file, keyed by the system property names
+     * @throws IOException if the file cannot be read
+     */
+    public static void loadProperties(Path file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = Files.newInputStream(file)) {
+            props.load(is);
+        }
+        fileProperties = props;
+        PORT = initPort();
+    }
+
+    /**
+     * Drops any properties file loaded with {@link #loadProperties(Path)}.
+     */
+    public static void clearProperties() {
+        fileProperties = new Properties();
+    }
+
+    private static Properties loadDefaultProperties() {
+        Properties props = new Properties();
+        String file = System.getProperty("server.config", System.getenv("SERVER_CONFIG"));
+        try {
+            if (file != null) {
+                try (InputStream is = Files.newInputStream(Path.of(file))) {
+                    props.load(is);
+                }
+            } else {
+                try (InputStream is = ServerConfig.class.getClassLoader().getResourceAsStream("server.properties")) {
+                    if (is != null) {
+                        props.load(is);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer la configuración {0}: {1}", new Object[]{file, e.getMessage()});
+        }
+        return props;
+    }
+
+    private static String setting(String property, String env) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(env);
+        }
+        return value != null ? value : fileProperties.getProperty(property);
+    }
+
+    private static boolean booleanSetting(String property, String env, boolean defaultValue) {
+        String value = setting(property, env);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    private static double numberSetting(String property, String env, double defaultValue) {
+        String value = setting(property, env);
+        if (value != null) {
             try {
-                return Integer.parseInt(env);
+                return Double.parseDouble(value.trim());
             } catch (NumberFormatException ignored) {
             }
         }
-        return 35000;
+        return defaultValue;
+    }
+
+    private static int initPort() {
+        return (int) numberSetting("server.port", "PORT", 35000);
     }
 }
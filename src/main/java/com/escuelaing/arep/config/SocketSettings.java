@@ -0,0 +1,128 @@
+package com.escuelaing.arep.config;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Socket tuning and timeouts resolved from {@link ServerConfig}.
+ * <p>
+ * Every listener the server opens goes through {@link #bind(ServerSocket, int)} (or the
+ * channel variant) and every accepted connection through {@link #applyTo(Socket)}, so all
+ * engines share the same backlog, buffer sizes, TCP_NODELAY and SO_REUSEPORT behaviour.
+ * The timeouts are enforced by the request reader: {@code idleTimeoutMillis} bounds the wait
+ * for the first byte, {@code headerTimeoutMillis} is a hard deadline for the whole request
+ * head, and {@code readTimeoutMillis} bounds each later read.
+ * </p>
+ *
+ * @param backlog             accept queue length
+ * @param idleTimeoutMillis   maximum silence before the request line
+ * @param headerTimeoutMillis total budget for request line plus headers
+ * @param readTimeoutMillis   maximum wait for any read after the headers
+ * @param tcpNoDelay          whether to disable Nagle's algorithm
+ * @param sendBufferSize      SO_SNDBUF, 0 for the OS default
+ * @param receiveBufferSize   SO_RCVBUF, 0 for the OS default
+ * @param reusePort           whether to request SO_REUSEPORT on listeners
+ * @param maxHeaderBytes      maximum size of request line plus headers
+ * @param maxBodyBytes        maximum size of a request body
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public record SocketSettings(int backlog, int idleTimeoutMillis, int headerTimeoutMillis, int readTimeoutMillis,
+                             boolean tcpNoDelay, int sendBufferSize, int receiveBufferSize, boolean reusePort,
+                             int maxHeaderBytes, int maxBodyBytes) {
+
+    private static final Logger LOGGER = Logger.getLogger(SocketSettings.class.getName());
+
+    /**
+     * Resolves the current settings from {@link ServerConfig}.
+     *
+     * @return the socket settings
+     */
+    public static SocketSettings fromConfig() {
+        return new SocketSettings(ServerConfig.getAcceptBacklog(), ServerConfig.getIdleTimeoutMillis(),
+                ServerConfig.getHeaderTimeoutMillis(), ServerConfig.getReadTimeoutMillis(),
+                ServerConfig.isTcpNoDelay(), ServerConfig.getSendBufferSize(), ServerConfig.getReceiveBufferSize(),
+                ServerConfig.isReusePort(), ServerConfig.getMaxHeaderBytes(), ServerConfig.getMaxBodyBytes());
+    }
+
+    /**
+     * Returns a copy of these settings with a different SO_REUSEPORT flag.
+     *
+     * @param enabled whether listeners should request SO_REUSEPORT
+     * @return the adjusted settings
+     */
+    public SocketSettings withReusePort(boolean enabled) {
+        return new SocketSettings(backlog, idleTimeoutMillis, headerTimeoutMillis, readTimeoutMillis,
+                tcpNoDelay, sendBufferSize, receiveBufferSize, enabled, maxHeaderBytes, maxBodyBytes);
+    }
+
+    /**
+     * Configures and binds a listening socket on all interfaces.
+     *
+     * @param serverSocket an unbound server socket
+     * @param port         the port to bind
+     * @throws IOException if an option cannot be set or the bind fails
+     */
+    public void bind(ServerSocket serverSocket, int port) throws IOException {
+        serverSocket.setReuseAddress(true);
+        if (receiveBufferSize > 0) {
+            // Debe fijarse antes del bind para que aplique a la ventana TCP de las conexiones aceptadas
+            serverSocket.setReceiveBufferSize(receiveBufferSize);
+        }
+        if (reusePort) {
+            if (serverSocket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                serverSocket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            } else {
+                LOGGER.log(Level.WARNING, "SO_REUSEPORT no soportado en esta plataforma");
+            }
+        }
+        serverSocket.bind(new InetSocketAddress(port), backlog);
+    }
+
+    /**
+     * Configures and binds a listening channel on all interfaces.
+     *
+     * @param channel an unbound server socket channel
+     * @param port    the port to bind
+     * @throws IOException if an option cannot be set or the bind fails
+     */
+    public void bind(ServerSocketChannel channel, int port) throws IOException {
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        if (receiveBufferSize > 0) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+        }
+        if (reusePort) {
+            if (channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            } else {
+                LOGGER.log(Level.WARNING, "SO_REUSEPORT no soportado en esta plataforma");
+            }
+        }
+        channel.bind(new InetSocketAddress(port), backlog);
+    }
+
+    /**
+     * Applies per-connection options to an accepted socket. The initial read timeout is the
+     * idle timeout; the request reader tightens it while the head is being received.
+     *
+     * @param socket the accepted socket
+     * @throws IOException if an option cannot be set
+     */
+    public void applyTo(Socket socket) throws IOException {
+        socket.setTcpNoDelay(tcpNoDelay);
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+        socket.setSoTimeout(idleTimeoutMillis);
+    }
+}
@@ -0,0 +1,121 @@
+package com.escuelaing.arep.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * HTTPS listener settings resolved from {@link ServerConfig}.
+ * <p>
+ * The server certificate and key come from a local keystore. The listener prefers TLS 1.3
+ * and keeps a server-side session cache so returning clients resume instead of running a
+ * full handshake (TLS 1.3 resumption uses session tickets, enabled by default in the JDK
+ * through {@code jdk.tls.server.enableSessionTicketExtension}). ALPN advertises the
+ * configured application protocols; when a client picks {@code h2} it sends the HTTP/2
+ * preface straight away and the connection is served by the same HTTP/2 code as h2c.
+ * </p>
+ *
+ * @param keystore              path of the keystore holding the server certificate and key
+ * @param keystorePassword      keystore password
+ * @param keyPassword           private key password
+ * @param keystoreType          keystore format (PKCS12, JKS)
+ * @param port                  HTTPS port
+ * @param protocols             enabled TLS versions, most preferred first
+ * @param applicationProtocols  ALPN protocols, most preferred first
+ * @param sessionCacheSize      resumable sessions kept by the server
+ * @param sessionTimeoutSeconds lifetime of a resumable session
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public record TlsSettings(Path keystore, char[] keystorePassword, char[] keyPassword, String keystoreType, int port,
+                          List<String> protocols, List<String> applicationProtocols, int sessionCacheSize,
+                          int sessionTimeoutSeconds) {
+
+    private static final Logger LOGGER = Logger.getLogger(TlsSettings.class.getName());
+
+    /**
+     * Resolves the HTTPS settings from {@link ServerConfig}.
+     *
+     * @return the settings, or null if no keystore is configured (HTTPS disabled)
+     */
+    public static TlsSettings fromConfig() {
+        String keystore = ServerConfig.getTlsKeystore();
+        if (keystore == null || keystore.isBlank()) {
+            return null;
+        }
+        char[] password = ServerConfig.getTlsKeystorePassword().toCharArray();
+        String keyPassword = ServerConfig.getTlsKeyPassword();
+        // HTTP/2 sobre TLS usa la misma implementación que h2c: sin ella no se ofrece "h2"
+        List<String> alpn = list(ServerConfig.getTlsApplicationProtocols()).stream()
+                .filter(p -> ServerConfig.isH2cEnabled() || !p.equals("h2")).toList();
+        return new TlsSettings(Path.of(keystore), password, keyPassword != null ? keyPassword.toCharArray() : password,
+                ServerConfig.getTlsKeystoreType(), ServerConfig.getTlsPort(), list(ServerConfig.getTlsProtocols()),
+                alpn, ServerConfig.getTlsSessionCacheSize(),
+                ServerConfig.getTlsSessionTimeoutSeconds());
+    }
+
+    /**
+     * Loads the keystore and builds the server SSL context, with its session cache sized.
+     *
+     * @return the SSL context
+     * @throws IOException if the keystore cannot be read or the context cannot be created
+     */
+    public SSLContext createContext() throws IOException {
+        try (InputStream is = Files.newInputStream(keystore)) {
+            KeyStore ks = KeyStore.getInstance(keystoreType);
+            ks.load(is, keystorePassword);
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(ks, keyPassword);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(kmf.getKeyManagers(), null, null);
+            SSLSessionContext sessions = context.getServerSessionContext();
+            sessions.setSessionCacheSize(sessionCacheSize);
+            sessions.setSessionTimeout(sessionTimeoutSeconds);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("No se pudo cargar el keystore " + keystore + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates an unbound HTTPS listener with the configured protocols and ALPN list; bind it
+     * with {@link SocketSettings#bind(java.net.ServerSocket, int)}.
+     *
+     * @param context the context from {@link #createContext()}
+     * @return the unbound listener
+     * @throws IOException if the socket cannot be created
+     */
+    public SSLServerSocket newServerSocket(SSLContext context) throws IOException {
+        SSLServerSocket serverSocket = (SSLServerSocket) context.getServerSocketFactory().createServerSocket();
+        SSLParameters params = serverSocket.getSSLParameters();
+        String[] supported = serverSocket.getSupportedProtocols();
+        String[] enabled = protocols.stream().filter(p -> Arrays.asList(supported).contains(p)).toArray(String[]::new);
+        if (enabled.length == 0) {
+            LOGGER.log(Level.WARNING, "Ningún protocolo TLS configurado es soportado: {0}", protocols);
+        } else {
+            params.setProtocols(enabled);
+        }
+        params.setApplicationProtocols(applicationProtocols.toArray(String[]::new));
+        params.setUseCipherSuitesOrder(true);
+        serverSocket.setSSLParameters(params);
+        return serverSocket;
+    }
+
+    private static List<String> list(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
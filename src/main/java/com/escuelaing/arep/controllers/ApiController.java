@@ -1,95 +1,103 @@
 package com.escuelaing.arep.controllers;
 
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.escuelaing.arep.annotations.CrossOrigin;
 import com.escuelaing.arep.annotations.GetMapping;
 import com.escuelaing.arep.annotations.PostMapping;
 import com.escuelaing.arep.annotations.RequestParam;
+import com.escuelaing.arep.annotations.RequestPart;
 import com.escuelaing.arep.annotations.RestController;
+import com.escuelaing.arep.http.Part;
+import com.escuelaing.arep.http.Response;
 
 /**
  * API Controller que maneja los endpoints que el frontend está llamando.
- * Devuelve respuestas en formato JSON para ser parseadas por JavaScript.
+ * Devuelve records que el framework serializa a JSON (con escape de la entrada del usuario)
+ * para ser parseados por JavaScript.
  */
 @RestController
 public class ApiController {
 
+    // Lista de citas inspiradoras para retornar aleatoriamente
+    private static final Quote[] QUOTES = {
+        new Quote("El éxito es la suma de pequeños esfuerzos repetidos día tras día.", "Robert Collier"),
+        new Quote("La única forma de hacer un gran trabajo es amar lo que haces.", "Steve Jobs"),
+        new Quote("El futuro pertenece a quienes creen en la belleza de sus sueños.", "Eleanor Roosevelt"),
+        new Quote("No esperes por el momento perfecto, toma el momento y hazlo perfecto.", "Anónimo"),
+        new Quote("El código es como el humor. Cuando tienes que explicarlo, es malo.", "Cory House")
+    };
+
+    private static final Quote[] POST_QUOTES = {
+        new Quote("El éxito no es definitivo, el fracaso no es fatal: lo que cuenta es el valor para continuar.", "Winston Churchill"),
+        new Quote("La innovación distingue entre un líder y un seguidor.", "Steve Jobs"),
+        new Quote("El único modo de hacer un gran trabajo es amar lo que haces.", "Steve Jobs"),
+        new Quote("El progreso es imposible sin cambio, y aquellos que no pueden cambiar sus mentes no pueden cambiar nada.", "George Bernard Shaw")
+    };
+
+    record Quote(String content, String author) {
+    }
+
+    // timestamp va como texto, igual que antes de JsonWriter (los clientes existentes lo leen así)
+    record Greeting(String message, String timestamp, String status) {
+    }
+
+    record Weather(String city, String temperature, String description, String humidity,
+                   String message, long timestamp, String status) {
+    }
+
+    record QuoteOfTheDay(String content, String author, String message, long timestamp, String status) {
+    }
+
+    record Upload(String title, String filename, String contentType, long size, boolean spooled, String status) {
+    }
+
     @GetMapping("/api/hello")
-    public String hello(@RequestParam(value = "name", defaultValue = "World") String name) {
-        // Retornamos JSON como string para que el frontend pueda parsearlo
-        return String.format("{\"message\": \"Hello, %s!\", \"timestamp\": \"%d\", \"status\": \"success\"}", 
-                           name, System.currentTimeMillis());
+    public Greeting hello(@RequestParam(value = "name", defaultValue = "World") String name) {
+        return new Greeting("Hello, " + name + "!", String.valueOf(System.currentTimeMillis()), "success");
     }
 
     @GetMapping("/api/weather")
-    public String weather() {
+    public Weather weather() {
         // Simulamos información del clima de Bogotá
-        return "{"
-                + "\"city\": \"Bogotá\","
-                + "\"temperature\": \"18°C\","
-                + "\"description\": \"Parcialmente nublado\","
-                + "\"humidity\": \"75%\","
-                + "\"message\": \"Datos simulados del servidor HTTP\","
-                + "\"timestamp\": " + System.currentTimeMillis() + ","
-                + "\"status\": \"success\""
-                + "}";
+        return new Weather("Bogotá", "18°C", "Parcialmente nublado", "75%",
+                "Datos simulados del servidor HTTP", System.currentTimeMillis(), "success");
     }
 
     @GetMapping("/api/quote")
-    public String quote() {
-        // Lista de citas inspiradoras para retornar aleatoriamente
-        String[] quotes = {
-            "{\"content\": \"El éxito es la suma de pequeños esfuerzos repetidos día tras día.\", \"author\": \"Robert Collier\"}",
-            "{\"content\": \"La única forma de hacer un gran trabajo es amar lo que haces.\", \"author\": \"Steve Jobs\"}",
-            "{\"content\": \"El futuro pertenece a quienes creen en la belleza de sus sueños.\", \"author\": \"Eleanor Roosevelt\"}",
-            "{\"content\": \"No esperes por el momento perfecto, toma el momento y hazlo perfecto.\", \"author\": \"Anónimo\"}",
-            "{\"content\": \"El código es como el humor. Cuando tienes que explicarlo, es malo.\", \"author\": \"Cory House\"}"
-        };
-        
-        // Seleccionar una cita aleatoria
-        int randomIndex = (int) (Math.random() * quotes.length);
-        String selectedQuote = quotes[randomIndex];
-        
-        // Agregar campos adicionales
-        return selectedQuote.replace("}", 
-                ", \"message\": \"Cita inspiradora del día\", "
-                + "\"timestamp\": " + System.currentTimeMillis() + ", "
-                + "\"status\": \"success\"}");
+    public QuoteOfTheDay quote() {
+        Quote selected = QUOTES[ThreadLocalRandom.current().nextInt(QUOTES.length)];
+        return new QuoteOfTheDay(selected.content(), selected.author(),
+                "Cita inspiradora del día", System.currentTimeMillis(), "success");
     }
 
     // Métodos POST equivalentes para manejar las peticiones POST del frontend
     @PostMapping("/api/hello")
-    public String helloPost(@RequestParam(value = "name", defaultValue = "World") String name) {
-        return String.format("{\"message\": \"Hello, %s! (via POST)\", \"timestamp\": \"%d\", \"status\": \"success\"}", 
-                           name, System.currentTimeMillis());
+    @CrossOrigin(maxAge = 3600)
+    public Greeting helloPost(@RequestParam(value = "name", defaultValue = "World") String name) {
+        return new Greeting("Hello, " + name + "! (via POST)", String.valueOf(System.currentTimeMillis()), "success");
     }
 
     @PostMapping("/api/weather")
-    public String weatherPost() {
-        return "{"
-                + "\"city\": \"Bogotá\","
-                + "\"temperature\": \"19°C\","
-                + "\"description\": \"Soleado (via POST)\","
-                + "\"humidity\": \"70%\","
-                + "\"message\": \"Datos del clima via POST\","
-                + "\"timestamp\": " + System.currentTimeMillis() + ","
-                + "\"status\": \"success\""
-                + "}";
+    public Weather weatherPost() {
+        return new Weather("Bogotá", "19°C", "Soleado (via POST)", "70%",
+                "Datos del clima via POST", System.currentTimeMillis(), "success");
     }
 
     @PostMapping("/api/quote")
-    public String quotePost() {
-        String[] quotes = {
-            "{\"content\": \"El éxito no es definitivo, el fracaso no es fatal: lo que cuenta es el valor para continuar.\", \"author\": \"Winston Churchill\"}",
-            "{\"content\": \"La innovación distingue entre un líder y un seguidor.\", \"author\": \"Steve Jobs\"}",
-            "{\"content\": \"El único modo de hacer un gran trabajo es amar lo que haces.\", \"author\": \"Steve Jobs\"}",
-            "{\"content\": \"El progreso es imposible sin cambio, y aquellos que no pueden cambiar sus mentes no pueden cambiar nada.\", \"author\": \"George Bernard Shaw\"}"
-        };
-        
-        int randomIndex = (int) (Math.random() * quotes.length);
-        String selectedQuote = quotes[randomIndex];
-        
-        return selectedQuote.replace("}", 
-                ", \"message\": \"Cita inspiradora via POST\", "
-                + "\"timestamp\": " + System.currentTimeMillis() + ", "
-                + "\"status\": \"success\"}");
+    public QuoteOfTheDay quotePost() {
+        Quote selected = POST_QUOTES[ThreadLocalRandom.current().nextInt(POST_QUOTES.length)];
+        return new QuoteOfTheDay(selected.content(), selected.author(),
+                "Cita inspiradora via POST", System.currentTimeMillis(), "success");
+    }
+
+    @PostMapping("/api/upload")
+    public Upload upload(@RequestPart("file") Part file, @RequestPart("title") String title, Response response) {
+        if (file == null) {
+            response.status(400);
+            return new Upload(title, null, null, 0, false, "missing file part");
+        }
+        // Solo se describe el archivo: el servidor borra la copia temporal al terminar la petición
+        return new Upload(title, file.getFilename(), file.getContentType(), file.getSize(), !file.isInMemory(), "success");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.escuelaing.arep.controllers;
+
+import java.nio.ByteBuffer;
+
+import com.escuelaing.arep.annotations.WebSocketEndpoint;
+import com.escuelaing.arep.websocket.WebSocketHandler;
+import com.escuelaing.arep.websocket.WebSocketSession;
+
+/**
+ * WebSocket de eco: devuelve cada mensaje de texto o binario tal como llega.
+ */
+@WebSocketEndpoint("/ws/echo")
+public class EchoSocket implements WebSocketHandler {
+
+    @Override
+    public void onText(WebSocketSession session, String message) throws Exception {
+        session.sendText(message);
+    }
+
+    @Override
+    public void onBinary(WebSocketSession session, ByteBuffer message) throws Exception {
+        // sendBinary copia los bytes, así que se puede enviar la vista del buffer del pool
+        session.sendBinary(message);
+    }
+}
@@ -1,24 +1,68 @@
 package com.escuelaing.arep.controllers;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.escuelaing.arep.annotations.GetMapping;
 import com.escuelaing.arep.annotations.RequestParam;
 import com.escuelaing.arep.annotations.RestController;
+import com.escuelaing.arep.framework.Counters;
+import com.escuelaing.arep.framework.EventBroadcaster;
 
 @RestController
 public class GreetingController {
 
     private static final String template = "Hello, %s!";
-    private final AtomicLong counter = new AtomicLong();
+    // Contador con celdas por hilo: los incrementos concurrentes no compiten por una sola línea de caché
+    private final LongAdder counter;
+    // Los clientes suscritos a /events/count reciben cada nuevo valor sin volver a preguntar
+    private final EventBroadcaster countEvents = new EventBroadcaster();
+    // Solo un hilo publica a la vez y siempre el valor más reciente: los suscriptores nunca ven retroceder el contador
+    private final AtomicBoolean publishing = new AtomicBoolean();
+    private volatile long lastPublished;
+
+    public GreetingController() {
+        this(new Counters());
+    }
+
+    public GreetingController(Counters counters) {
+        this.counter = counters.counter("greeting.count");
+    }
 
     @GetMapping("/greeting")
     public String greeting(@RequestParam(value = "name", defaultValue = "World") String name) {
         return "Hola " + name;
     }
     
+    // Dos llamadas concurrentes pueden devolver el mismo valor: sum() no es un incrementAndGet
     @GetMapping("/count")
     public String count() {
-        return "Count: " + counter.incrementAndGet();
+        counter.increment();
+        long value = counter.sum();
+        publishCount();
+        return "Count: " + value;
+    }
+
+    private void publishCount() {
+        // Quien no consigue publicar no espera: el hilo que publica vuelve a leer la suma al terminar
+        while (publishing.compareAndSet(false, true)) {
+            try {
+                long value = counter.sum();
+                if (value > lastPublished) {
+                    lastPublished = value;
+                    countEvents.publish("count", Long.toString(value));
+                }
+            } finally {
+                publishing.set(false);
+            }
+            if (counter.sum() <= lastPublished) {
+                return;
+            }
+        }
+    }
+
+    @GetMapping("/events/count")
+    public EventBroadcaster countEvents() {
+        return countEvents;
     }
 }
@@ -0,0 +1,23 @@
+package com.escuelaing.arep.controllers;
+
+import com.escuelaing.arep.annotations.GetMapping;
+import com.escuelaing.arep.annotations.RestController;
+import com.escuelaing.arep.framework.BufferPool;
+import com.escuelaing.arep.framework.ResponseCompressor;
+
+/**
+ * Exposes the server's internal metrics as JSON.
+ */
+@RestController
+public class MetricsController {
+
+    @GetMapping("/api/metrics/buffers")
+    public BufferPool.Stats buffers() {
+        return BufferPool.shared().stats();
+    }
+
+    @GetMapping("/api/metrics/compression")
+    public ResponseCompressor.Stats compression() {
+        return ResponseCompressor.shared().stats();
+    }
+}
@@ -0,0 +1,44 @@
+package com.escuelaing.arep.controllers;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.escuelaing.arep.annotations.Filter;
+import com.escuelaing.arep.framework.RouteFilter;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Filtro de identificadores de petición: devuelve en {@code X-Request-Id} el que envió el
+ * cliente o uno nuevo, para correlacionar logs de cliente y servidor en las rutas de la API.
+ */
+@Filter("/api/*")
+public class RequestIdFilter implements RouteFilter {
+
+    private static final String PREFIX = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 16) + "-";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    @Override
+    public Object before(Request request, Response response) {
+        String id = request.getHeader("x-request-id");
+        if (id == null || !isValid(id)) {
+            id = PREFIX + Long.toHexString(SEQUENCE.incrementAndGet());
+        }
+        response.header("X-Request-Id", id);
+        return null;
+    }
+
+    // Solo se repiten identificadores cortos e imprimibles, nunca saltos de línea
+    private static boolean isValid(String id) {
+        if (id.isEmpty() || id.length() > 64) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c <= ' ' || c >= 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,242 @@
+package com.escuelaing.arep.framework;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Runs the sub-requests of a batch call in parallel and combines their answers, so a page
+ * that needs several API calls pays a single round trip.
+ * <p>
+ * The body is a JSON array (or an object with a {@code requests} array) of sub-requests:
+ * </p>
+ * <pre>
+ * [{"method": "GET", "path": "/api/hello", "params": {"name": "Ana"}},
+ *  {"path": "/api/weather"}]
+ * </pre>
+ * <p>
+ * Each one is dispatched through the route table on its own virtual thread, with the headers
+ * of the batch request, after passing the client's rate limit for its path (a denied one is
+ * reported as 429 without being dispatched). All of them share one deadline; those still running when it expires
+ * are interrupted and reported as 504. The answer lists, in request order, each status,
+ * content type and body (JSON bodies are embedded as-is, anything else as a string):
+ * </p>
+ * <pre>
+ * {"responses": [{"path": "/api/hello?name=Ana", "status": 200, "contentType": "...", "body": {...}}, ...]}
+ * </pre>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class BatchDispatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchDispatcher.class.getName());
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+    private static final ExecutorService WORKERS =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("batch-", 0).factory());
+
+    /**
+     * A sub-request of a batch.
+     *
+     * @param method the HTTP method, GET or POST
+     * @param target the path with its encoded query string
+     */
+    public record Item(String method, String target) {
+    }
+
+    private final Function<Request, Response> dispatcher;
+    private final int maxItems;
+    private final long timeoutMillis;
+    private final ToLongBiFunction<String, String> rateLimit;
+
+    /**
+     * Creates a dispatcher without rate limits.
+     *
+     * @param dispatcher    answers one sub-request (only routes, never the batch endpoint itself)
+     * @param maxItems      the largest number of sub-requests accepted in one batch
+     * @param timeoutMillis the deadline shared by all the sub-requests of a batch
+     */
+    public BatchDispatcher(Function<Request, Response> dispatcher, int maxItems, long timeoutMillis) {
+        this(dispatcher, maxItems, timeoutMillis, (client, path) -> 0);
+    }
+
+    /**
+     * Creates a dispatcher.
+     *
+     * @param dispatcher    answers one sub-request (only routes, never the batch endpoint itself)
+     * @param maxItems      the largest number of sub-requests accepted in one batch
+     * @param timeoutMillis the deadline shared by all the sub-requests of a batch
+     * @param rateLimit     given the client address and a sub-request path, 0 to admit it or the
+     *                      nanoseconds until it would be admitted, as {@link RateLimiter#tryAcquire}
+     */
+    public BatchDispatcher(Function<Request, Response> dispatcher, int maxItems, long timeoutMillis,
+                           ToLongBiFunction<String, String> rateLimit) {
+        this.dispatcher = dispatcher;
+        this.maxItems = maxItems;
+        this.timeoutMillis = timeoutMillis;
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * Answers a batch request: 400 if its body is not a valid batch, 200 with the combined
+     * answers otherwise (each carrying its own status).
+     *
+     * @param request the batch request, with a JSON body
+     * @param client  the client address the rate limits apply to
+     * @return the combined response
+     */
+    public Response handle(Request request, String client) {
+        List<Item> items;
+        try {
+            items = parse(new String(request.getBody().readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException | IllegalArgumentException e) {
+            JsonWriter json = JsonWriter.forCurrentThread();
+            json.beginObject().name("error").value(e.getMessage()).endObject();
+            return new Response().status(400).type(JSON_CONTENT_TYPE).body(json.toByteArray());
+        }
+        return execute(items, subRequestHeaders(request.getHeaders()), client);
+    }
+
+    /**
+     * Parses a batch body.
+     *
+     * @param body the JSON text
+     * @return the sub-requests, in order
+     * @throws IllegalArgumentException if the body is not a valid batch
+     */
+    public List<Item> parse(String body) {
+        Object root = JsonReader.parse(body);
+        if (root instanceof Map<?, ?> object) {
+            root = object.get("requests");
+        }
+        if (!(root instanceof List<?> list)) {
+            throw new IllegalArgumentException("Se esperaba una lista de peticiones");
+        }
+        if (list.isEmpty() || list.size() > maxItems) {
+            throw new IllegalArgumentException("Un batch admite entre 1 y " + maxItems + " peticiones");
+        }
+        List<Item> items = new ArrayList<>(list.size());
+        for (Object element : list) {
+            if (!(element instanceof Map<?, ?> entry) || !(entry.get("path") instanceof String path)
+                    || !path.startsWith("/")) {
+                throw new IllegalArgumentException("Cada petición necesita un path absoluto");
+            }
+            Object method = entry.get("method");
+            String verb = method == null ? "GET" : method.toString().toUpperCase();
+            if (!verb.equals("GET") && !verb.equals("POST")) {
+                throw new IllegalArgumentException("Método no soportado en batch: " + verb);
+            }
+            items.add(new Item(verb, target(path, entry.get("params"))));
+        }
+        return items;
+    }
+
+    /**
+     * Dispatches the sub-requests in parallel and combines their answers.
+     *
+     * @param items   the sub-requests
+     * @param headers the headers every sub-request carries
+     * @param client  the client address the rate limits apply to
+     * @return the combined 200 response
+     */
+    public Response execute(List<Item> items, Map<String, String> headers, String client) {
+        List<Future<Response>> futures = new ArrayList<>(items.size());
+        for (Item item : items) {
+            // Cada sub-petición gasta su propio token: el batch no sirve para saltarse los límites por ruta
+            String target = item.target();
+            int query = target.indexOf('?');
+            if (rateLimit.applyAsLong(client, query >= 0 ? target.substring(0, query) : target) > 0) {
+                futures.add(null);
+                continue;
+            }
+            futures.add(WORKERS.submit(() -> dispatcher.apply(new Request(item.method(), target, headers))));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        JsonWriter json = JsonWriter.forCurrentThread();
+        json.beginObject().name("responses").beginArray();
+        for (int i = 0; i < items.size(); i++) {
+            Future<Response> future = futures.get(i);
+            json.beginObject().name("path").value(items.get(i).target());
+            if (future == null) {
+                json.name("status").value(429).endObject();
+                continue;
+            }
+            try {
+                writeResponse(json, future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                json.name("status").value(504);
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Error en sub-petición {0}: {1}",
+                        new Object[]{items.get(i).target(), e.getCause()});
+                json.name("status").value(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                json.name("status").value(503);
+            }
+            json.endObject();
+        }
+        json.endArray().endObject();
+        return new Response().type(JSON_CONTENT_TYPE).body(json.toByteArray());
+    }
+
+    private static void writeResponse(JsonWriter json, Response response) {
+        json.name("status").value(response.getStatusCode());
+        json.name("contentType").value(response.getContentType());
+        byte[] body = response.getBody();
+        int length = response.getBodyLength();
+        if (body == null || length == 0) {
+            return;
+        }
+        json.name("body");
+        if (response.getContentType().contains("json")) {
+            json.rawValue(body, 0, length);
+        } else {
+            json.value(new String(body, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String target(String path, Object params) {
+        if (!(params instanceof Map<?, ?> map) || map.isEmpty()) {
+            return path;
+        }
+        StringBuilder target = new StringBuilder(path).append(path.indexOf('?') >= 0 ? '&' : '?');
+        boolean first = true;
+        for (Map.Entry<?, ?> param : map.entrySet()) {
+            if (!first) {
+                target.append('&');
+            }
+            first = false;
+            target.append(URLEncoder.encode(String.valueOf(param.getKey()), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(String.valueOf(param.getValue()), StandardCharsets.UTF_8));
+        }
+        return target.toString();
+    }
+
+    private static Map<String, String> subRequestHeaders(Map<String, String> headers) {
+        // Las sub-peticiones no tienen cuerpo propio
+        Map<String, String> copy = new HashMap<>(headers);
+        copy.remove("content-length");
+        copy.remove("content-type");
+        copy.remove("transfer-encoding");
+        return copy;
+    }
+}
@@ -0,0 +1,288 @@
+package com.escuelaing.arep.framework;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.escuelaing.arep.config.ServerConfig;
+
+/**
+ * Size-classed pool of byte buffers for request parsing and response writing.
+ * <p>
+ * Capacities are rounded up to a power of two between {@link #MIN_CLASS_SIZE} and
+ * {@link #MAX_CLASS_SIZE}; larger requests get an unpooled array. Each platform thread keeps a
+ * small cache per size class, so a worker that parses and answers requests back to back
+ * reuses the same arrays without any synchronization. Buffers that do not fit in the thread
+ * cache go to a bounded shared stack per class (a short uncontended lock, no allocation).
+ * Virtual threads are short-lived, so they skip the thread cache and use the shared stacks.
+ * </p>
+ * <p>
+ * A {@link Buffer} owns its array for life and is registered with a {@link Cleaner} once, when
+ * it is created. If a buffer becomes unreachable while still acquired, it was never released:
+ * the cleaner counts it as a leak. Counters are exposed through {@link #stats()}.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class BufferPool {
+
+    public static final int MIN_CLASS_SIZE = 1024;
+    public static final int MAX_CLASS_SIZE = 64 * 1024;
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE)
+            - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE) + 1;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final BufferPool SHARED = new BufferPool(
+            ServerConfig.getBufferThreadCacheSize(), ServerConfig.getBufferSharedPerClass());
+
+    /**
+     * A pooled array; only its owner may touch it between acquire and release.
+     */
+    public static final class Buffer {
+        private final byte[] array;
+        private final BufferPool pool;
+        private final int sizeClass;
+        private final LeakTracker tracker;
+
+        private Buffer(byte[] array, BufferPool pool, int sizeClass, LeakTracker tracker) {
+            this.array = array;
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.tracker = tracker;
+        }
+
+        /**
+         * Gets the backing array; its length may exceed the requested capacity.
+         *
+         * @return the array
+         */
+        public byte[] array() {
+            return array;
+        }
+
+        /**
+         * Gets the usable capacity.
+         *
+         * @return the array length
+         */
+        public int capacity() {
+            return array.length;
+        }
+
+        /**
+         * Returns this buffer to its pool; it must not be used afterwards.
+         */
+        public void release() {
+            pool.release(this);
+        }
+    }
+
+    /**
+     * Pool counters.
+     *
+     * @param acquires        buffers handed out
+     * @param releases        buffers returned
+     * @param threadCacheHits acquires served from the calling thread's cache
+     * @param sharedHits      acquires served from the shared stacks
+     * @param allocations     pooled buffers created because no cached one was available
+     * @param unpooled        acquires larger than the biggest size class
+     * @param outstanding     pooled buffers currently acquired
+     * @param leaked          buffers garbage collected without being released
+     * @param sharedBuffers   buffers waiting in the shared stacks
+     * @param sharedBytes     bytes held by the shared stacks
+     * @param hitRatio        fraction of pooled acquires served without allocating
+     */
+    public record Stats(long acquires, long releases, long threadCacheHits, long sharedHits, long allocations,
+                        long unpooled, long outstanding, long leaked, long sharedBuffers, long sharedBytes,
+                        double hitRatio) {
+    }
+
+    // Estado que ve el Cleaner: no puede referenciar al Buffer, o este nunca sería recolectado
+    private static final class LeakTracker implements Runnable {
+        private final BufferPool pool;
+        private volatile boolean inUse;
+
+        LeakTracker(BufferPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void run() {
+            if (inUse) {
+                pool.leaked.increment();
+                pool.outstanding.decrement();
+            }
+        }
+    }
+
+    private static final class ThreadCache {
+        final Buffer[][] stacks;
+        final int[] counts = new int[CLASSES];
+
+        ThreadCache(int perClass) {
+            stacks = new Buffer[CLASSES][perClass];
+        }
+    }
+
+    private final int threadCacheSize;
+    private final int sharedPerClass;
+    private final Buffer[][] shared;
+    private final int[] sharedCounts = new int[CLASSES];
+    private final Object[] sharedLocks = new Object[CLASSES];
+    private final ThreadLocal<ThreadCache> caches;
+
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder threadCacheHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder unpooled = new LongAdder();
+    private final LongAdder outstanding = new LongAdder();
+    private final LongAdder leaked = new LongAdder();
+
+    /**
+     * Creates a pool.
+     *
+     * @param threadCacheSize buffers kept per size class in each platform thread (0 disables the cache)
+     * @param sharedPerClass  buffers kept per size class in the shared stacks
+     */
+    public BufferPool(int threadCacheSize, int sharedPerClass) {
+        this.threadCacheSize = Math.max(0, threadCacheSize);
+        this.sharedPerClass = Math.max(0, sharedPerClass);
+        this.shared = new Buffer[CLASSES][this.sharedPerClass];
+        for (int i = 0; i < CLASSES; i++) {
+            sharedLocks[i] = new Object();
+        }
+        this.caches = ThreadLocal.withInitial(() -> new ThreadCache(this.threadCacheSize));
+    }
+
+    /**
+     * Gets the server-wide pool, sized from {@link ServerConfig}.
+     *
+     * @return the shared pool
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Acquires a buffer of at least the given capacity.
+     *
+     * @param minCapacity the required capacity
+     * @return a buffer that must be released exactly once
+     */
+    public Buffer acquire(int minCapacity) {
+        acquires.increment();
+        if (minCapacity > MAX_CLASS_SIZE) {
+            unpooled.increment();
+            return new Buffer(new byte[minCapacity], this, -1, null);
+        }
+        int sizeClass = sizeClass(minCapacity);
+        Buffer buffer = null;
+        if (useThreadCache()) {
+            ThreadCache cache = caches.get();
+            int n = cache.counts[sizeClass];
+            if (n > 0) {
+                buffer = cache.stacks[sizeClass][--n];
+                cache.stacks[sizeClass][n] = null;
+                cache.counts[sizeClass] = n;
+                threadCacheHits.increment();
+            }
+        }
+        if (buffer == null) {
+            synchronized (sharedLocks[sizeClass]) {
+                int n = sharedCounts[sizeClass];
+                if (n > 0) {
+                    buffer = shared[sizeClass][--n];
+                    shared[sizeClass][n] = null;
+                    sharedCounts[sizeClass] = n;
+                }
+            }
+            if (buffer != null) {
+                sharedHits.increment();
+            }
+        }
+        if (buffer == null) {
+            allocations.increment();
+            LeakTracker tracker = new LeakTracker(this);
+            buffer = new Buffer(new byte[MIN_CLASS_SIZE << sizeClass], this, sizeClass, tracker);
+            CLEANER.register(buffer, tracker);
+        }
+        buffer.tracker.inUse = true;
+        outstanding.increment();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers from another pool, or released twice, are rejected.
+     *
+     * @param buffer the buffer to release
+     * @throws IllegalArgumentException if the buffer belongs to another pool
+     * @throws IllegalStateException    if the buffer was already released
+     */
+    public void release(Buffer buffer) {
+        if (buffer.pool != this) {
+            throw new IllegalArgumentException("El buffer pertenece a otro pool");
+        }
+        releases.increment();
+        if (buffer.sizeClass < 0) {
+            return;
+        }
+        if (!buffer.tracker.inUse) {
+            throw new IllegalStateException("Buffer liberado dos veces");
+        }
+        buffer.tracker.inUse = false;
+        outstanding.decrement();
+        int sizeClass = buffer.sizeClass;
+        if (useThreadCache()) {
+            ThreadCache cache = caches.get();
+            int n = cache.counts[sizeClass];
+            if (n < threadCacheSize) {
+                cache.stacks[sizeClass][n] = buffer;
+                cache.counts[sizeClass] = n + 1;
+                return;
+            }
+        }
+        synchronized (sharedLocks[sizeClass]) {
+            int n = sharedCounts[sizeClass];
+            if (n < sharedPerClass) {
+                shared[sizeClass][n] = buffer;
+                sharedCounts[sizeClass] = n + 1;
+            }
+            // Si no cabe se descarta: el GC lo recoge y el Cleaner lo ignora porque ya no está en uso
+        }
+    }
+
+    /**
+     * Takes a snapshot of the pool counters.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        long sharedBuffers = 0;
+        long sharedBytes = 0;
+        for (int i = 0; i < CLASSES; i++) {
+            synchronized (sharedLocks[i]) {
+                sharedBuffers += sharedCounts[i];
+                sharedBytes += (long) sharedCounts[i] * (MIN_CLASS_SIZE << i);
+            }
+        }
+        long totalAcquires = acquires.sum();
+        long pooledAcquires = totalAcquires - unpooled.sum();
+        long hits = threadCacheHits.sum() + sharedHits.sum();
+        double hitRatio = pooledAcquires > 0 ? (double) hits / pooledAcquires : 0.0;
+        return new Stats(totalAcquires, releases.sum(), threadCacheHits.sum(), sharedHits.sum(), allocations.sum(),
+                unpooled.sum(), outstanding.sum(), leaked.sum(), sharedBuffers, sharedBytes, hitRatio);
+    }
+
+    private boolean useThreadCache() {
+        return threadCacheSize > 0 && !Thread.currentThread().isVirtual();
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity <= MIN_CLASS_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    }
+}
@@ -0,0 +1,250 @@
+package com.escuelaing.arep.framework;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.annotations.Bulkhead;
+
+/**
+ * Per-route bulkhead: a semaphore bounding the requests a handler serves concurrently, plus
+ * a bounded number of callers allowed to wait for a permit. Callers that find both full are
+ * rejected at once, so the server can answer 503 instead of parking another worker thread.
+ * <p>
+ * In adaptive mode the number of permits follows the route's latency (a gradient limit): the
+ * lowest latency seen is taken as the no-load baseline and, once per window of samples, the
+ * limit is scaled by {@code baseline * tolerance / average} (at most halving it) plus a small
+ * headroom. While latency stays near the baseline the limit grows up to the configured
+ * maximum; when requests start queuing inside the handler it shrinks, shedding the excess
+ * instead of letting latency grow for every caller. The baseline is re-measured periodically
+ * so it can follow genuine changes.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(ConcurrencyLimiter.class.getName());
+    // Latencia media tolerada respecto del mínimo antes de reducir el límite
+    private static final double TOLERANCE = 2.0;
+    private static final int MIN_WINDOW = 10;
+    // Cada cuántas ventanas se vuelve a medir la latencia base
+    private static final int BASELINE_WINDOWS = 50;
+
+    /**
+     * Bulkhead definition.
+     *
+     * @param maxConcurrent requests served at once (the upper bound in adaptive mode)
+     * @param queue         requests allowed to wait for a permit
+     * @param maxWaitMillis how long a queued request waits before being rejected
+     * @param adaptive      whether the limit follows the route latency
+     */
+    public record Limit(int maxConcurrent, int queue, long maxWaitMillis, boolean adaptive) {
+        public Limit {
+            if (maxConcurrent < 1 || queue < 0 || maxWaitMillis < 0) {
+                throw new IllegalArgumentException("Bulkhead inválido: " + maxConcurrent + ":" + queue);
+            }
+        }
+
+        /**
+         * Builds the definition declared by a {@link Bulkhead} annotation.
+         *
+         * @param bulkhead the annotation
+         * @return the equivalent limit
+         */
+        public static Limit of(Bulkhead bulkhead) {
+            return new Limit(bulkhead.maxConcurrent(), bulkhead.queue(), bulkhead.maxWaitMs(), bulkhead.adaptive());
+        }
+    }
+
+    /** Semaphore whose permits can also be withdrawn, so the adaptive limit can shrink. */
+    private static final class Permits extends Semaphore {
+        Permits(int permits) {
+            super(permits);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+
+    private final Limit config;
+    private final Permits permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    // Estado del límite adaptativo, protegido por el monitor de esta instancia
+    private long minRttNanos = Long.MAX_VALUE;
+    private long windowSumNanos;
+    private int windowCount;
+    private int windows;
+
+    /**
+     * Creates a bulkhead; adaptive bulkheads start at the maximum.
+     *
+     * @param config the bulkhead definition
+     */
+    public ConcurrencyLimiter(Limit config) {
+        this.config = config;
+        this.limit = config.maxConcurrent();
+        this.permits = new Permits(limit);
+    }
+
+    /**
+     * Parses a route bulkhead specification such as {@code /api/report=4:8;/count=2}
+     * (path=max-concurrent:queue; the queue defaults to 0). Malformed entries are logged and
+     * skipped.
+     *
+     * @param spec          the specification, may be null or blank
+     * @param maxWaitMillis how long queued requests wait
+     * @param adaptive      whether the parsed bulkheads use the adaptive limit
+     * @return the parsed limits keyed by path
+     */
+    public static Map<String, Limit> parseRouteLimits(String spec, long maxWaitMillis, boolean adaptive) {
+        Map<String, Limit> limits = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return limits;
+        }
+        for (String entry : spec.split("[;,]")) {
+            String[] kv = entry.trim().split("=", 2);
+            if (kv.length != 2) {
+                continue;
+            }
+            try {
+                String[] mq = kv[1].trim().split(":", 2);
+                int queue = mq.length == 2 ? Integer.parseInt(mq[1].trim()) : 0;
+                limits.put(kv[0].trim(), new Limit(Integer.parseInt(mq[0].trim()), queue, maxWaitMillis, adaptive));
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Bulkhead de ruta inválido ignorado: {0}", entry);
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Tries to take a permit, waiting up to the configured time if a queue slot is free.
+     * Every successful call must be paired with {@link #release(long)}.
+     *
+     * @return true if the request may proceed, false if it must be shed
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            inFlight.incrementAndGet();
+            return true;
+        }
+        if (!enqueue()) {
+            rejected.increment();
+            return false;
+        }
+        boolean acquired = false;
+        try {
+            acquired = permits.tryAcquire(config.maxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (acquired) {
+            inFlight.incrementAndGet();
+        } else {
+            rejected.increment();
+        }
+        return acquired;
+    }
+
+    /**
+     * Returns a permit taken by {@link #tryAcquire()}.
+     *
+     * @param latencyNanos how long the request held the permit, fed to the adaptive limit
+     */
+    public void release(long latencyNanos) {
+        inFlight.decrementAndGet();
+        permits.release();
+        if (config.adaptive()) {
+            onSample(latencyNanos);
+        }
+    }
+
+    /**
+     * Gets the current concurrency limit.
+     *
+     * @return the configured maximum, or the current adaptive limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the number of requests currently holding a permit.
+     *
+     * @return the in-flight count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of requests waiting for a permit.
+     *
+     * @return the queued count
+     */
+    public int getQueued() {
+        return waiting.get();
+    }
+
+    /**
+     * Gets the number of requests shed since creation.
+     *
+     * @return the rejected count
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private boolean enqueue() {
+        while (true) {
+            int queued = waiting.get();
+            if (queued >= config.queue()) {
+                return false;
+            }
+            if (waiting.compareAndSet(queued, queued + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void onSample(long rttNanos) {
+        rttNanos = Math.max(1, rttNanos);
+        minRttNanos = Math.min(minRttNanos, rttNanos);
+        windowSumNanos += rttNanos;
+        windowCount++;
+        if (windowCount < Math.max(MIN_WINDOW, limit)) {
+            return;
+        }
+        long average = windowSumNanos / windowCount;
+        windowSumNanos = 0;
+        windowCount = 0;
+        double gradient = Math.max(0.5, Math.min(1.0, minRttNanos * TOLERANCE / average));
+        int current = limit;
+        int next = (int) (current * gradient + Math.sqrt(current));
+        next = Math.max(1, Math.min(config.maxConcurrent(), next));
+        if (next > current) {
+            permits.release(next - current);
+        } else if (next < current) {
+            permits.reduce(current - next);
+        }
+        limit = next;
+        if (++windows >= BASELINE_WINDOWS) {
+            windows = 0;
+            minRttNanos = average;
+        }
+    }
+}
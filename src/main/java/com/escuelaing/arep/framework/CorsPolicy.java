@@ -0,0 +1,190 @@
+package com.escuelaing.arep.framework;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.escuelaing.arep.annotations.CrossOrigin;
+import com.escuelaing.arep.config.ServerConfig;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Cross-origin (CORS) rules: which origins may call the server from a browser, which request
+ * headers they may send and how long a preflight answer may be cached.
+ * <p>
+ * Preflight ({@code OPTIONS}) answers depend only on the methods of the path and on whether the
+ * origin is allowed, so each combination is serialized once and then written as-is. Disallowed
+ * origins share a single entry, which keeps the cache bounded by the configured origins.
+ * {@code Access-Control-Max-Age} lets browsers skip the preflight for the following calls.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class CorsPolicy {
+
+    /** Response header carrying the allowed origin. */
+    public static final String ALLOW_ORIGIN = "Access-Control-Allow-Origin";
+
+    // null: cualquier origen
+    private final Set<String> origins;
+    private final String allowHeaders;
+    private final long maxAgeSeconds;
+    private final Map<String, byte[]> preflights = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a policy.
+     *
+     * @param origins       the allowed origins; containing {@code *} allows any origin
+     * @param allowHeaders  the allowed request headers, comma separated
+     * @param maxAgeSeconds how long browsers may cache a preflight answer
+     */
+    public CorsPolicy(Collection<String> origins, String allowHeaders, long maxAgeSeconds) {
+        this.origins = origins.contains("*") ? null : Set.copyOf(origins);
+        this.allowHeaders = allowHeaders;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    /**
+     * Creates the server-wide policy from {@link ServerConfig}.
+     *
+     * @return the policy
+     */
+    public static CorsPolicy fromConfig() {
+        Set<String> origins = Arrays.stream(ServerConfig.getCorsOrigins().split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+        return new CorsPolicy(origins, ServerConfig.getCorsAllowHeaders(), ServerConfig.getCorsMaxAgeSeconds());
+    }
+
+    /**
+     * Derives the policy of a route annotated with {@link CrossOrigin}; the origins stay the same.
+     *
+     * @param annotation the route annotation, or null
+     * @return this policy if there is nothing to override, a new one otherwise
+     */
+    public CorsPolicy with(CrossOrigin annotation) {
+        if (annotation == null) {
+            return this;
+        }
+        String headers = annotation.allowedHeaders().length > 0
+                ? String.join(", ", annotation.allowedHeaders()) : allowHeaders;
+        long maxAge = annotation.maxAge() >= 0 ? annotation.maxAge() : maxAgeSeconds;
+        return new CorsPolicy(origins != null ? origins : Set.of("*"), headers, maxAge);
+    }
+
+    /**
+     * Indicates whether any origin is allowed, in which case every response carries
+     * {@code Access-Control-Allow-Origin: *} (see {@link #defaultHeaders()}).
+     *
+     * @return true if the origin is not checked
+     */
+    public boolean allowsAnyOrigin() {
+        return origins == null;
+    }
+
+    /**
+     * Resolves the {@code Access-Control-Allow-Origin} value for a request.
+     *
+     * @param origin the request {@code Origin} header, or null
+     * @return {@code *}, the origin itself, or null if it is not allowed
+     */
+    public String allowedOrigin(String origin) {
+        if (origins == null) {
+            return "*";
+        }
+        return origin != null && origins.contains(origin) ? origin : null;
+    }
+
+    /**
+     * Gets the headers every response carries regardless of the request.
+     *
+     * @return the header names and values, empty when origins are checked per request
+     */
+    public Map<String, String> defaultHeaders() {
+        return origins == null ? Map.of(ALLOW_ORIGIN, "*") : Map.of();
+    }
+
+    /**
+     * Adds the per-request CORS headers to a response when origins are checked; with any origin
+     * allowed the {@link #defaultHeaders()} already cover it and nothing is added.
+     *
+     * @param origin   the request {@code Origin} header, or null
+     * @param response the response to complete
+     */
+    public void apply(String origin, Response response) {
+        if (origins == null) {
+            return;
+        }
+        String vary = response.getHeaders().get("Vary");
+        response.header("Vary", vary == null ? "Origin" : vary + ", Origin");
+        String allowed = allowedOrigin(origin);
+        if (allowed != null) {
+            response.header(ALLOW_ORIGIN, allowed);
+        }
+    }
+
+    /**
+     * Builds the preflight answer headers, on top of {@link #defaultHeaders()}.
+     *
+     * @param methods the methods the path supports, e.g. {@code GET, HEAD, OPTIONS}
+     * @param origin  the request {@code Origin} header, or null
+     * @return the header names and values
+     */
+    public Map<String, String> preflightHeaders(String methods, String origin) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Allow", methods);
+        String allowed = allowedOrigin(origin);
+        if (origins != null) {
+            headers.put("Vary", "Origin");
+            if (allowed != null) {
+                headers.put(ALLOW_ORIGIN, allowed);
+            }
+        }
+        if (allowed != null) {
+            headers.put("Access-Control-Allow-Methods", methods);
+            headers.put("Access-Control-Allow-Headers", allowHeaders);
+            headers.put("Access-Control-Max-Age", Long.toString(maxAgeSeconds));
+        }
+        return headers;
+    }
+
+    /**
+     * Gets the complete HTTP/1.1 preflight answer ({@code 204 No Content}), serialized on first use.
+     *
+     * @param methods the methods the path supports
+     * @param origin  the request {@code Origin} header, or null
+     * @return the response bytes, to be written as-is
+     */
+    public byte[] preflight(String methods, String origin) {
+        String allowed = allowedOrigin(origin);
+        String key = allowed == null ? methods : methods + '\n' + allowed;
+        return preflights.computeIfAbsent(key, k -> serialize(methods, origin));
+    }
+
+    /**
+     * Builds the preflight answer as a {@link Response}, for protocols that add
+     * {@link #defaultHeaders()} themselves (HTTP/2).
+     *
+     * @param methods the methods the path supports
+     * @param origin  the request {@code Origin} header, or null
+     * @return the 204 response
+     */
+    public Response preflightResponse(String methods, String origin) {
+        Response response = new Response().status(204);
+        preflightHeaders(methods, origin).forEach(response::header);
+        return response;
+    }
+
+    private byte[] serialize(String methods, String origin) {
+        StringBuilder head = new StringBuilder("HTTP/1.1 204 No Content\r\n");
+        defaultHeaders().forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+        preflightHeaders(methods, origin).forEach((name, value) -> head.append(name).append(": ").append(value).append("\r\n"));
+        head.append("Content-Length: 0\r\nConnection: close\r\n\r\n");
+        return head.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
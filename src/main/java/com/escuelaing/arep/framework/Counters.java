@@ -0,0 +1,184 @@
+package com.escuelaing.arep.framework;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of named counters for stateful controllers.
+ * <p>
+ * Every counter is a {@link LongAdder}: increments are spread over per-thread cells, so
+ * there is no single contended cache line between cores. The exact sum is only computed
+ * when someone asks for it ({@link #get(String)} or a snapshot).
+ * </p>
+ * <p>
+ * Snapshots can optionally be written periodically to a local properties file (atomic
+ * write through a temp file + move) and are reloaded when persistence is enabled, so counts
+ * survive restarts.
+ * </p>
+ * <p>
+ * Controllers receive it by declaring a constructor with a {@code Counters} parameter;
+ * {@code HttpServer.loadControllers} injects the server's shared instance.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public class Counters {
+
+    private static final Logger LOGGER = Logger.getLogger(Counters.class.getName());
+
+    private final Map<String, LongAdder> adders = new ConcurrentHashMap<>();
+    private ScheduledExecutorService persister;
+    private ScheduledFuture<?> persistTask;
+    private Path file;
+    private boolean loaded;
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     *
+     * @param name the counter name
+     * @return the striped counter; callers should keep the reference instead of looking it up per request
+     */
+    public LongAdder counter(String name) {
+        return adders.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Increments a counter and returns its new total.
+     *
+     * @param name the counter name
+     * @return the exact sum after the increment (other threads may have added concurrently)
+     */
+    public long incrementAndGet(String name) {
+        LongAdder adder = counter(name);
+        adder.increment();
+        return adder.sum();
+    }
+
+    /**
+     * Gets the exact current value of a counter.
+     *
+     * @param name the counter name
+     * @return the summed value, or 0 if the counter does not exist
+     */
+    public long get(String name) {
+        LongAdder adder = adders.get(name);
+        return adder != null ? adder.sum() : 0L;
+    }
+
+    /**
+     * Takes a sorted snapshot of every counter.
+     *
+     * @return a new map of counter names to their current sums
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snap = new TreeMap<>();
+        adders.forEach((k, v) -> snap.put(k, v.sum()));
+        return snap;
+    }
+
+    /**
+     * Enables periodic persistence to a local file. The first time it is enabled, values already
+     * stored in the file are added to the in-memory counters before any snapshot is scheduled.
+     *
+     * @param path         the snapshot file
+     * @param periodMillis how often to write snapshots
+     */
+    public synchronized void persistTo(Path path, long periodMillis) {
+        if (persistTask != null) {
+            return;
+        }
+        this.file = path;
+        if (!loaded) {
+            load(path);
+            loaded = true;
+        }
+        persister = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "counters-persister");
+            t.setDaemon(true);
+            return t;
+        });
+        persistTask = persister.scheduleAtFixedRate(this::flushQuietly, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        LOGGER.log(Level.INFO, "Persistiendo contadores en {0} cada {1} ms", new Object[]{path, periodMillis});
+    }
+
+    /**
+     * Writes a snapshot immediately, if persistence is enabled.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Properties props = new Properties();
+        snapshot().forEach((k, v) -> props.setProperty(k, Long.toString(v)));
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            props.store(os, "counters snapshot");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stops periodic persistence after writing a final snapshot.
+     */
+    public synchronized void close() {
+        if (persistTask == null) {
+            return;
+        }
+        flushQuietly();
+        persistTask.cancel(false);
+        persister.shutdown();
+        persistTask = null;
+        persister = null;
+        file = null;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar la instantánea de contadores: {0}", e.getMessage());
+        }
+    }
+
+    private void load(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream is = Files.newInputStream(path)) {
+            props.load(is);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer la instantánea de contadores: {0}", e.getMessage());
+            return;
+        }
+        for (String name : props.stringPropertyNames()) {
+            try {
+                counter(name).add(Long.parseLong(props.getProperty(name).trim()));
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "Valor inválido para contador {0}", name);
+            }
+        }
+    }
+}
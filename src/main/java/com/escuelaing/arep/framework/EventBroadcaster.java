@@ -0,0 +1,254 @@
+package com.escuelaing.arep.framework;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.config.ServerConfig;
+
+/**
+ * Fan-out channel for Server-Sent Events ({@code text/event-stream}).
+ * <p>
+ * A handler that returns an {@code EventBroadcaster} turns its route into an event stream:
+ * the server writes the response head, keeps the connection open and subscribes it here.
+ * Server code then calls {@link #publish(String, Object)}; each event is encoded once and the
+ * same bytes are queued on every subscriber.
+ * </p>
+ * <p>
+ * Idle subscribers cost a socket and an empty queue, no thread. When events arrive, one
+ * virtual thread per subscriber drains everything pending into a single pooled buffer and
+ * writes it with one flush, so bursts are batched. A subscriber whose queue exceeds
+ * {@code maxPending} (a client that stopped reading) or whose write fails is dropped and its
+ * connection closed. A periodic comment line keeps proxies from timing out idle streams and
+ * detects clients that went away.
+ * </p>
+ * <p>
+ * New subscribers first receive the most recent event, so a stream can replace polling for
+ * the current state of a value.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public class EventBroadcaster implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(EventBroadcaster.class.getName());
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int BATCH_SIZE = 8 * 1024;
+    // Hilos compartidos por todos los canales: uno virtual por flush y un planificador para los heartbeats
+    private static final ExecutorService FLUSHERS = Executors.newVirtualThreadPerTaskExecutor();
+    private static final ScheduledExecutorService HEARTBEATS = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("sse-heartbeat").factory());
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+    private final int maxPending;
+    private final long heartbeatMillis;
+    private volatile byte[] lastEvent;
+    private ScheduledFuture<?> heartbeat;
+    private volatile boolean closed;
+
+    /**
+     * Creates a broadcaster with the limits from {@link ServerConfig}.
+     */
+    public EventBroadcaster() {
+        this(ServerConfig.getSseMaxPending(), ServerConfig.getSseHeartbeatMillis());
+    }
+
+    /**
+     * Creates a broadcaster.
+     *
+     * @param maxPending      events a subscriber may have queued before it is dropped
+     * @param heartbeatMillis period of the keep-alive comment, or 0 to disable it
+     */
+    public EventBroadcaster(int maxPending, long heartbeatMillis) {
+        this.maxPending = Math.max(1, maxPending);
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    /**
+     * Publishes an unnamed event.
+     *
+     * @param data the event data
+     */
+    public void publish(Object data) {
+        publish(null, data);
+    }
+
+    /**
+     * Publishes an event to every subscriber. Strings are sent as-is (one {@code data:} line
+     * per line); any other value is serialized as JSON.
+     *
+     * @param event the event name, or null for the default {@code message} event
+     * @param data  the event data
+     */
+    public void publish(String event, Object data) {
+        if (closed) {
+            return;
+        }
+        byte[] encoded = encode(ids.incrementAndGet(), event, data);
+        lastEvent = encoded;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(encoded);
+        }
+    }
+
+    /**
+     * Subscribes a connection whose response head has already been written. From now on the
+     * broadcaster owns the connection and closes it when the subscriber is dropped.
+     *
+     * @param out        the connection output stream
+     * @param connection the connection, closed when the subscriber goes away
+     */
+    public void subscribe(OutputStream out, Closeable connection) {
+        Subscriber subscriber = new Subscriber(out, connection);
+        if (closed) {
+            subscriber.close();
+            return;
+        }
+        subscribers.add(subscriber);
+        startHeartbeat();
+        byte[] last = lastEvent;
+        if (last != null) {
+            subscriber.offer(last);
+        }
+    }
+
+    /**
+     * Gets the number of open subscriptions.
+     *
+     * @return the subscriber count
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Closes every subscription and stops accepting events.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    private synchronized void startHeartbeat() {
+        if (heartbeat == null && heartbeatMillis > 0 && !closed) {
+            heartbeat = HEARTBEATS.scheduleAtFixedRate(() -> {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(HEARTBEAT);
+                }
+            }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static byte[] encode(long id, String event, Object data) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append("id: ").append(id).append('\n');
+        if (event != null) {
+            sb.append("event: ").append(event.replace('\r', ' ').replace('\n', ' ')).append('\n');
+        }
+        String text = data == null ? "" : data instanceof String s ? s : JsonWriter.toJson(data);
+        for (String line : text.split("\r\n|\r|\n", -1)) {
+            sb.append("data: ").append(line).append('\n');
+        }
+        sb.append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** One open connection: its pending events and the flag that keeps a single flush running. */
+    private final class Subscriber {
+        private final OutputStream out;
+        private final Closeable connection;
+        private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean flushing = new AtomicBoolean();
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        Subscriber(OutputStream out, Closeable connection) {
+            this.out = out;
+            this.connection = connection;
+        }
+
+        void offer(byte[] event) {
+            if (!open.get()) {
+                return;
+            }
+            if (size.incrementAndGet() > maxPending) {
+                LOGGER.log(Level.FINE, "Suscriptor SSE lento descartado");
+                close();
+                return;
+            }
+            pending.add(event);
+            if (flushing.compareAndSet(false, true)) {
+                FLUSHERS.execute(this::flush);
+            }
+        }
+
+        private void flush() {
+            BufferPool.Buffer buffer = BufferPool.shared().acquire(BATCH_SIZE);
+            try {
+                do {
+                    byte[] batch = buffer.array();
+                    int pos = 0;
+                    byte[] event;
+                    while ((event = pending.poll()) != null) {
+                        size.decrementAndGet();
+                        if (pos + event.length > batch.length) {
+                            out.write(batch, 0, pos);
+                            pos = 0;
+                        }
+                        if (event.length > batch.length) {
+                            out.write(event);
+                        } else {
+                            System.arraycopy(event, 0, batch, pos, event.length);
+                            pos += event.length;
+                        }
+                    }
+                    if (pos > 0) {
+                        out.write(batch, 0, pos);
+                    }
+                    out.flush();
+                    flushing.set(false);
+                    // Un evento pudo llegar entre el último poll y liberar la bandera
+                } while (!pending.isEmpty() && open.get() && flushing.compareAndSet(false, true));
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Suscriptor SSE desconectado: {0}", e.getMessage());
+                close();
+            } finally {
+                buffer.release();
+            }
+        }
+
+        void close() {
+            if (open.compareAndSet(true, false)) {
+                subscribers.remove(this);
+                pending.clear();
+                try {
+                    connection.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
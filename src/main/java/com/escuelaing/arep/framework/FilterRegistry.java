@@ -0,0 +1,86 @@
+package com.escuelaing.arep.framework;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.escuelaing.arep.annotations.Filter;
+
+/**
+ * The discovered {@link RouteFilter}s with their path patterns, used at startup to resolve the
+ * chain of each route ({@link #chainFor(String)}); requests never consult it.
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class FilterRegistry {
+
+    /** The chain of routes no filter matches, shared by all of them. */
+    public static final RouteFilter[] NO_FILTERS = new RouteFilter[0];
+
+    private record Registration(RouteFilter filter, String[] patterns, int order) {
+    }
+
+    private final List<Registration> registrations = new ArrayList<>();
+
+    /**
+     * Registers a filter annotated with {@link Filter}.
+     *
+     * @param filter the filter instance
+     */
+    public void register(RouteFilter filter) {
+        Filter annotation = filter.getClass().getAnnotation(Filter.class);
+        if (annotation == null) {
+            throw new IllegalArgumentException(filter.getClass().getName() + " no tiene @Filter");
+        }
+        register(filter, annotation.order(), annotation.value());
+    }
+
+    /**
+     * Registers a filter with explicit patterns and order.
+     *
+     * @param filter   the filter instance
+     * @param order    the position in the chain, lower first
+     * @param patterns the route path patterns
+     */
+    public void register(RouteFilter filter, int order, String... patterns) {
+        registrations.add(new Registration(filter, patterns.clone(), order));
+        // Orden estable: a igual orden, por nombre de clase
+        registrations.sort(Comparator.comparingInt(Registration::order)
+                .thenComparing(r -> r.filter().getClass().getName()));
+    }
+
+    /**
+     * Resolves the chain of a route.
+     *
+     * @param routePath the route path
+     * @return the matching filters in order, or {@link #NO_FILTERS}
+     */
+    public RouteFilter[] chainFor(String routePath) {
+        List<RouteFilter> chain = new ArrayList<>();
+        for (Registration registration : registrations) {
+            for (String pattern : registration.patterns()) {
+                if (matches(pattern, routePath)) {
+                    chain.add(registration.filter());
+                    break;
+                }
+            }
+        }
+        return chain.isEmpty() ? NO_FILTERS : chain.toArray(RouteFilter[]::new);
+    }
+
+    /**
+     * Matches a route path against a pattern: an exact path, a prefix ending in {@code *} or
+     * {@code *} alone.
+     *
+     * @param pattern   the pattern
+     * @param routePath the route path
+     * @return true if the pattern covers the path
+     */
+    public static boolean matches(String pattern, String routePath) {
+        if (pattern.endsWith("*")) {
+            return routePath.startsWith(pattern.substring(0, pattern.length() - 1));
+        }
+        return pattern.equals(routePath);
+    }
+}
@@ -0,0 +1,445 @@
+package com.escuelaing.arep.framework;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Streaming JSON writer that encodes escaped UTF-8 straight into a reusable byte buffer.
+ * <p>
+ * There are no intermediate Strings: field names, strings and integers are written byte by
+ * byte. Each thread reuses its own writer through {@link #forCurrentThread()}, so the
+ * buffer is allocated once and then recycled between requests.
+ * </p>
+ * <p>
+ * Besides the streaming API ({@link #beginObject()}, {@link #name(String)}, {@link #value(String)} ...)
+ * it serializes arbitrary values with {@link #writeValue(Object)}: {@link Map}s, {@link Iterable}s,
+ * arrays, numbers, booleans, enums and records. Record accessors are resolved once per class
+ * (with the field names pre-encoded) and cached in a {@link ClassValue}.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class JsonWriter {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Buffers que crecieron más allá de esto no se retienen entre peticiones
+    private static final int RETAIN_LIMIT = 64 * 1024;
+    private static final int MAX_DEPTH = 64;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private static final ThreadLocal<JsonWriter> LOCAL = ThreadLocal.withInitial(JsonWriter::new);
+
+    private static final ClassValue<RecordField[]> RECORD_FIELDS = new ClassValue<>() {
+        @Override
+        protected RecordField[] computeValue(Class<?> type) {
+            RecordComponent[] components = type.getRecordComponents();
+            RecordField[] fields = new RecordField[components.length];
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int i = 0; i < components.length; i++) {
+                try {
+                    var accessor = components[i].getAccessor();
+                    // Los records declarados dentro de controladores suelen no ser públicos
+                    accessor.setAccessible(true);
+                    fields[i] = new RecordField(encodeName(components[i].getName()), lookup.unreflect(accessor));
+                } catch (IllegalAccessException | RuntimeException e) {
+                    throw new IllegalStateException("Record no accesible: " + type.getName(), e);
+                }
+            }
+            return fields;
+        }
+    };
+
+    private byte[] buf = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int depth;
+    // true cuando el siguiente elemento del contenedor actual necesita una coma antes
+    private final boolean[] needsComma = new boolean[MAX_DEPTH + 1];
+    private boolean afterName;
+
+    /**
+     * Returns this thread's writer, reset and ready to use.
+     *
+     * @return the per-thread writer
+     */
+    public static JsonWriter forCurrentThread() {
+        JsonWriter writer = LOCAL.get();
+        writer.reset();
+        return writer;
+    }
+
+    /**
+     * Serializes a value to a String (convenience for callers that need text).
+     *
+     * @param value the value to serialize
+     * @return the JSON text
+     */
+    public static String toJson(Object value) {
+        JsonWriter writer = forCurrentThread();
+        writer.writeValue(value);
+        return new String(writer.buf, 0, writer.size, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Clears the buffer and nesting state, dropping the buffer if it grew too large.
+     *
+     * @return this writer
+     */
+    public JsonWriter reset() {
+        if (buf.length > RETAIN_LIMIT) {
+            buf = new byte[INITIAL_CAPACITY];
+        }
+        size = 0;
+        depth = 0;
+        needsComma[0] = false;
+        afterName = false;
+        return this;
+    }
+
+    public JsonWriter beginObject() {
+        return open('{');
+    }
+
+    public JsonWriter endObject() {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() {
+        return open('[');
+    }
+
+    public JsonWriter endArray() {
+        return close(']');
+    }
+
+    /**
+     * Writes a member name inside an object.
+     *
+     * @param name the member name; it is escaped
+     * @return this writer
+     */
+    public JsonWriter name(String name) {
+        separator();
+        writeString(name);
+        put((byte) ':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        separator();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        separator();
+        writeLong(value);
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        separator();
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            writeLong((long) value);
+        } else {
+            writeAscii(Double.toString(value));
+        }
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separator();
+        put(value ? TRUE : FALSE);
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        separator();
+        put(NULL);
+        return this;
+    }
+
+    /**
+     * Writes already encoded JSON as a value, such as the body of a route response; it is
+     * copied as-is, not validated.
+     *
+     * @param json   the buffer holding the encoded value
+     * @param offset where the value starts
+     * @param length the encoded length
+     * @return this writer
+     */
+    public JsonWriter rawValue(byte[] json, int offset, int length) {
+        separator();
+        ensure(length);
+        System.arraycopy(json, offset, buf, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Writes any supported value: null, String/CharSequence, Number, Boolean, Character, Enum,
+     * Map (keys via {@code toString()}), Iterable, array or record. Anything else is written
+     * as its {@code toString()}.
+     *
+     * @param value the value to serialize
+     * @return this writer
+     */
+    public JsonWriter writeValue(Object value) {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof CharSequence cs) {
+            return value(cs.toString());
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        }
+        if (value instanceof Number n) {
+            return value(n.doubleValue());
+        }
+        if (value instanceof Boolean b) {
+            return value(b.booleanValue());
+        }
+        if (value instanceof Character || value instanceof Enum<?>) {
+            return value(value.toString());
+        }
+        if (value instanceof Map<?, ?> map) {
+            beginObject();
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                name(String.valueOf(e.getKey()));
+                writeValue(e.getValue());
+            }
+            return endObject();
+        }
+        if (value instanceof Iterable<?> it) {
+            beginArray();
+            for (Object o : it) {
+                writeValue(o);
+            }
+            return endArray();
+        }
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            beginArray();
+            int len = Array.getLength(value);
+            for (int i = 0; i < len; i++) {
+                writeValue(Array.get(value, i));
+            }
+            return endArray();
+        }
+        if (type.isRecord()) {
+            beginObject();
+            for (RecordField field : RECORD_FIELDS.get(type)) {
+                separator();
+                put(field.encodedName);
+                afterName = true;
+                writeValue(field.get(value));
+            }
+            return endObject();
+        }
+        return value(value.toString());
+    }
+
+    /**
+     * Gets the internal buffer; only the first {@link #size()} bytes are valid.
+     *
+     * @return the backing byte array
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * Gets the number of bytes written.
+     *
+     * @return the encoded length
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the encoded bytes into a new array.
+     *
+     * @return the UTF-8 JSON
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    /**
+     * Writes the encoded bytes to a stream.
+     *
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, size);
+    }
+
+    private JsonWriter open(char c) {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON demasiado anidado");
+        }
+        separator();
+        put((byte) c);
+        needsComma[++depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char c) {
+        if (depth == 0) {
+            throw new IllegalStateException("No hay contenedor abierto");
+        }
+        depth--;
+        put((byte) c);
+        return this;
+    }
+
+    private void separator() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (needsComma[depth]) {
+            put((byte) ',');
+        }
+        needsComma[depth] = true;
+    }
+
+    private void writeLong(long v) {
+        if (v == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        if (v < 0) {
+            put((byte) '-');
+            v = -v;
+        }
+        ensure(20);
+        int start = size;
+        do {
+            buf[size++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        // Los dígitos quedaron al revés
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    private void writeAscii(String s) {
+        int len = s.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buf[size++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeString(String s) {
+        int len = s.length();
+        // Peor caso: 6 bytes por carácter (\\u00XX) más las comillas
+        ensure(len * 6 + 2);
+        byte[] b = buf;
+        int p = size;
+        b[p++] = '"';
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    b[p++] = '\\';
+                    b[p++] = (byte) c;
+                } else if (c >= 0x20) {
+                    b[p++] = (byte) c;
+                } else {
+                    b[p++] = '\\';
+                    switch (c) {
+                        case '\n' -> b[p++] = 'n';
+                        case '\r' -> b[p++] = 'r';
+                        case '\t' -> b[p++] = 't';
+                        case '\b' -> b[p++] = 'b';
+                        case '\f' -> b[p++] = 'f';
+                        default -> {
+                            b[p++] = 'u';
+                            b[p++] = '0';
+                            b[p++] = '0';
+                            b[p++] = HEX[c >> 4];
+                            b[p++] = HEX[c & 0xF];
+                        }
+                    }
+                }
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[p++] = (byte) (0xF0 | (cp >> 18));
+                b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Surrogate suelto: se reemplaza como lo haría el codificador UTF-8 estándar
+                b[p++] = '?';
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[p++] = '"';
+        size = p;
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buf[size++] = b;
+    }
+
+    private void put(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+
+    private static byte[] encodeName(String name) {
+        JsonWriter tmp = new JsonWriter();
+        tmp.writeString(name);
+        tmp.put((byte) ':');
+        return tmp.toByteArray();
+    }
+
+    private record RecordField(byte[] encodedName, MethodHandle accessor) {
+        Object get(Object target) {
+            try {
+                return accessor.invoke(target);
+            } catch (Throwable t) {
+                throw new IllegalStateException("No se pudo leer el componente del record", t);
+            }
+        }
+    }
+}
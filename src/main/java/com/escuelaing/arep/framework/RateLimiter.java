@@ -0,0 +1,191 @@
+package com.escuelaing.arep.framework;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-client and per-route rate limiter built on lock-free token buckets.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding its "theoretical arrival time" (the
+ * GCRA formulation of a token bucket): a request is admitted if that time is no further in
+ * the future than the burst allows, and the bucket is updated with one CAS. There is no
+ * global lock; concurrent requests for the same key simply retry the CAS.
+ * </p>
+ * <p>
+ * Buckets live in a bounded {@link ConcurrentHashMap}. A bucket whose arrival time is in the
+ * past is indistinguishable from a fresh (full) one, so idle entries are evicted by an
+ * opportunistic sweep, run at most once per idle interval, without changing any client's
+ * allowance. If the map is still full of active clients the new client is rejected (fail
+ * closed) until a sweep frees room, so rotating keys cannot bypass the limits.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public class RateLimiter {
+
+    private static final Logger LOGGER = Logger.getLogger(RateLimiter.class.getName());
+
+    /**
+     * Rate limit definition.
+     *
+     * @param ratePerSecond sustained requests per second
+     * @param burst         requests allowed back to back when the bucket is full
+     */
+    public record Limit(double ratePerSecond, int burst) {
+        public Limit {
+            if (ratePerSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("Límite inválido: " + ratePerSecond + "/" + burst);
+            }
+        }
+
+        long intervalNanos() {
+            return (long) (1_000_000_000L / ratePerSecond);
+        }
+
+        long toleranceNanos() {
+            return intervalNanos() * (burst - 1);
+        }
+    }
+
+    private final Limit perClient;
+    private final Map<String, Limit> perRoute;
+    private final int maxKeys;
+    private final long idleNanos;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    // Instante a partir del cual se permite el siguiente barrido
+    private final AtomicLong nextSweep = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Creates a rate limiter.
+     *
+     * @param perClient  limit applied to every client address, or null for none
+     * @param perRoute   limits per request path, applied per client address
+     * @param maxKeys    maximum number of tracked buckets
+     * @param idleMillis how long a full bucket must be idle before it is evicted
+     */
+    public RateLimiter(Limit perClient, Map<String, Limit> perRoute, int maxKeys, long idleMillis) {
+        this.perClient = perClient;
+        this.perRoute = perRoute != null ? Map.copyOf(perRoute) : Map.of();
+        this.maxKeys = Math.max(1, maxKeys);
+        this.idleNanos = idleMillis * 1_000_000L;
+    }
+
+    /**
+     * Parses a route limit specification such as {@code /api/hello=10:20;/count=5:5}
+     * (path=rate-per-second:burst; the burst defaults to the rate). Malformed entries are
+     * logged and skipped.
+     *
+     * @param spec the specification, may be null or blank
+     * @return the parsed limits keyed by path
+     */
+    public static Map<String, Limit> parseRouteLimits(String spec) {
+        Map<String, Limit> limits = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return limits;
+        }
+        for (String entry : spec.split("[;,]")) {
+            String[] kv = entry.trim().split("=", 2);
+            if (kv.length != 2) {
+                continue;
+            }
+            try {
+                String[] rb = kv[1].trim().split(":", 2);
+                double rate = Double.parseDouble(rb[0]);
+                int burst = rb.length == 2 ? Integer.parseInt(rb[1]) : (int) Math.max(1, Math.ceil(rate));
+                limits.put(kv[0].trim(), new Limit(rate, burst));
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Límite de ruta inválido ignorado: {0}", entry);
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Indicates whether any limit is configured.
+     *
+     * @return true if requests can be rejected
+     */
+    public boolean isEnabled() {
+        return perClient != null || !perRoute.isEmpty();
+    }
+
+    /**
+     * Tries to admit a request.
+     *
+     * @param client the client address
+     * @param path   the request path, without query string
+     * @return 0 if admitted, otherwise the nanoseconds until a retry would be admitted
+     */
+    public long tryAcquire(String client, String path) {
+        return tryAcquire(client, path, System.nanoTime());
+    }
+
+    long tryAcquire(String client, String path, long now) {
+        if (perClient != null) {
+            long wait = acquire(client, perClient, now);
+            if (wait > 0) {
+                return wait;
+            }
+        }
+        Limit routeLimit = perRoute.get(path);
+        if (routeLimit != null) {
+            return acquire(path + '|' + client, routeLimit, now);
+        }
+        return 0L;
+    }
+
+    /**
+     * Gets the number of tracked buckets.
+     *
+     * @return the current map size
+     */
+    public int trackedKeys() {
+        return buckets.size();
+    }
+
+    private long acquire(String key, Limit limit, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                sweep(now);
+                if (buckets.size() >= maxKeys) {
+                    LOGGER.log(Level.FINE, "Tabla de rate limiting llena, cliente rechazado: {0}", key);
+                    return limit.intervalNanos();
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long interval = limit.intervalNanos();
+        long tolerance = limit.toleranceNanos();
+        while (true) {
+            long tat = bucket.get();
+            long base = Math.max(tat, now);
+            if (base - now > tolerance) {
+                return base - now - tolerance;
+            }
+            if (bucket.compareAndSet(tat, base + interval)) {
+                return 0L;
+            }
+        }
+    }
+
+    private void sweep(long now) {
+        // Un solo hilo barre, y como mucho una vez por intervalo de inactividad
+        long next = nextSweep.get();
+        if (now < next || !nextSweep.compareAndSet(next, now + idleNanos)) {
+            return;
+        }
+        Iterator<AtomicLong> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().get() >= idleNanos) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.escuelaing.arep.framework;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.escuelaing.arep.config.ServerConfig;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Compresses dynamic response bodies on the fly, with gzip or deflate as the client's
+ * {@code Accept-Encoding} allows.
+ * <p>
+ * Only bodies of an eligible content type and at least {@code minBytes} long are compressed;
+ * smaller ones cost more CPU than the bytes they would save. A {@link Deflater} holds native
+ * memory, so instances are reused instead of created per response: each platform thread keeps
+ * its own, and virtual threads (short-lived) borrow them from a bounded shared pool. The
+ * output buffer is sized like the input, so a body that would not shrink is abandoned as soon
+ * as it fills it and sent as-is.
+ * </p>
+ * <p>
+ * {@link #stats()} reports the compressed responses, the bytes saved and the time spent
+ * compressing (thread CPU time where the JVM measures it, elapsed time on virtual threads).
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class ResponseCompressor {
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER = 8;
+    private static final int SHARED_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final ResponseCompressor SHARED = new ResponseCompressor(ServerConfig.isCompressionEnabled(),
+            ServerConfig.getCompressionMinBytes(), ServerConfig.getCompressionLevel(),
+            list(ServerConfig.getCompressionTypes()));
+
+    /**
+     * Compression counters.
+     *
+     * @param compressed       responses sent compressed
+     * @param incompressible   eligible responses sent as-is because they did not shrink
+     * @param bytesIn          body bytes before compression
+     * @param bytesOut         body bytes after compression
+     * @param bytesSaved       bytes not sent thanks to compression
+     * @param compressionNanos time spent compressing, CPU time where measurable
+     * @param ratio            bytesOut / bytesIn
+     */
+    public record Stats(long compressed, long incompressible, long bytesIn, long bytesOut, long bytesSaved,
+                        long compressionNanos, double ratio) {
+    }
+
+    // Deflater y suma de control reutilizados juntos
+    private static final class Encoder {
+        final Deflater deflater;
+        final CRC32 crc = new CRC32();
+
+        Encoder(int level, boolean gzip) {
+            // gzip lleva cabecera y trailer propios; deflate usa el formato zlib del Deflater
+            deflater = new Deflater(level, gzip);
+        }
+    }
+
+    private final boolean enabled;
+    private final int minBytes;
+    private final int level;
+    private final List<String> types;
+    private final ThreadLocal<Encoder[]> threadEncoders = new ThreadLocal<>();
+    private final ArrayBlockingQueue<Encoder> sharedGzip = new ArrayBlockingQueue<>(SHARED_POOL_SIZE);
+    private final ArrayBlockingQueue<Encoder> sharedDeflate = new ArrayBlockingQueue<>(SHARED_POOL_SIZE);
+
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder incompressible = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    /**
+     * Creates a compressor.
+     *
+     * @param enabled  false to never compress
+     * @param minBytes the smallest body worth compressing
+     * @param level    the deflate level, 1 (fastest) to 9 (smallest)
+     * @param types    eligible content type prefixes, e.g. {@code application/json} or {@code text/}
+     */
+    public ResponseCompressor(boolean enabled, int minBytes, int level, List<String> types) {
+        this.enabled = enabled;
+        this.minBytes = Math.max(1, minBytes);
+        this.level = Math.min(Deflater.BEST_COMPRESSION, Math.max(Deflater.BEST_SPEED, level));
+        this.types = List.copyOf(types);
+    }
+
+    /**
+     * Gets the server-wide compressor configured from {@link ServerConfig}.
+     *
+     * @return the shared compressor
+     */
+    public static ResponseCompressor shared() {
+        return SHARED;
+    }
+
+    /**
+     * Indicates whether a response would be compressed for a client that accepts it: a
+     * successful, not yet encoded body of an eligible type and size.
+     *
+     * @param response the response
+     * @return true if its body is eligible
+     */
+    public boolean isEligible(Response response) {
+        if (!enabled || response.getBodyLength() < minBytes || response.getStatusCode() < 200
+                || response.getStatusCode() == 204 || response.getStatusCode() == 304
+                || response.getHeaders().containsKey("Content-Encoding")) {
+            return false;
+        }
+        String contentType = response.getContentType();
+        for (String type : types) {
+            if (contentType.regionMatches(true, 0, type, 0, type.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compresses an eligible response body in place, preferring gzip over deflate. Eligible
+     * responses get {@code Vary: Accept-Encoding} even when the client accepts neither, so
+     * caches keep both variants apart.
+     *
+     * @param acceptEncoding the request {@code Accept-Encoding} header, or null
+     * @param response       the response; its body may be a reused buffer, read only here
+     * @return the same response
+     */
+    public Response compress(String acceptEncoding, Response response) {
+        if (!isEligible(response)) {
+            return response;
+        }
+        String vary = response.getHeaders().get("Vary");
+        response.header("Vary", vary == null ? "Accept-Encoding" : vary + ", Accept-Encoding");
+        boolean gzip = accepts(acceptEncoding, "gzip");
+        if (!gzip && !accepts(acceptEncoding, "deflate")) {
+            return response;
+        }
+
+        long start = cpuTime();
+        Encoder encoder = acquire(gzip);
+        byte[] body = response.getBody();
+        int length = response.getBodyLength();
+        byte[] out = new byte[length];
+        int size;
+        try {
+            size = gzip ? gzip(encoder, body, length, out) : deflate(encoder.deflater, body, length, out, 0);
+        } finally {
+            release(encoder, gzip);
+        }
+        nanos.add(cpuTime() - start);
+
+        if (size < 0) {
+            incompressible.increment();
+            return response;
+        }
+        compressed.increment();
+        bytesIn.add(length);
+        bytesOut.add(size);
+        return response.header("Content-Encoding", gzip ? "gzip" : "deflate").body(out, size);
+    }
+
+    /**
+     * Takes a snapshot of the counters.
+     *
+     * @return the current statistics
+     */
+    public Stats stats() {
+        long in = bytesIn.sum();
+        long outBytes = bytesOut.sum();
+        return new Stats(compressed.sum(), incompressible.sum(), in, outBytes, in - outBytes, nanos.sum(),
+                in == 0 ? 0.0 : (double) outBytes / in);
+    }
+
+    /**
+     * Checks whether an {@code Accept-Encoding} header allows a coding (or {@code *}) with a
+     * non-zero quality.
+     *
+     * @param acceptEncoding the header value, or null
+     * @param coding         the content coding, e.g. {@code gzip}
+     * @return true if the client accepts it
+     */
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String name = parts[0].trim();
+            boolean allowed = parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            if (name.equalsIgnoreCase(coding)) {
+                return allowed;
+            }
+            if (name.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard;
+    }
+
+    private static int gzip(Encoder encoder, byte[] body, int length, byte[] out) {
+        if (out.length < GZIP_HEADER.length + GZIP_TRAILER) {
+            return -1;
+        }
+        System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+        int end = deflate(encoder.deflater, body, length, out, GZIP_HEADER.length);
+        if (end < 0 || end + GZIP_TRAILER >= out.length) {
+            return -1;
+        }
+        encoder.crc.reset();
+        encoder.crc.update(body, 0, length);
+        writeIntLE(out, end, (int) encoder.crc.getValue());
+        writeIntLE(out, end + 4, length);
+        return end + GZIP_TRAILER;
+    }
+
+    // Devuelve el fin de los datos comprimidos, o -1 si no caben en out (no compensa)
+    private static int deflate(Deflater deflater, byte[] body, int length, byte[] out, int offset) {
+        deflater.setInput(body, 0, length);
+        deflater.finish();
+        int pos = offset;
+        while (!deflater.finished()) {
+            if (pos == out.length) {
+                return -1;
+            }
+            pos += deflater.deflate(out, pos, out.length - pos);
+        }
+        return pos;
+    }
+
+    private static void writeIntLE(byte[] out, int offset, int value) {
+        out[offset] = (byte) value;
+        out[offset + 1] = (byte) (value >>> 8);
+        out[offset + 2] = (byte) (value >>> 16);
+        out[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private Encoder acquire(boolean gzip) {
+        if (!Thread.currentThread().isVirtual()) {
+            Encoder[] cached = threadEncoders.get();
+            if (cached == null) {
+                cached = new Encoder[2];
+                threadEncoders.set(cached);
+            }
+            int index = gzip ? 0 : 1;
+            if (cached[index] != null) {
+                Encoder encoder = cached[index];
+                cached[index] = null;
+                return encoder;
+            }
+        }
+        Encoder encoder = (gzip ? sharedGzip : sharedDeflate).poll();
+        return encoder != null ? encoder : new Encoder(level, gzip);
+    }
+
+    private void release(Encoder encoder, boolean gzip) {
+        encoder.deflater.reset();
+        if (!Thread.currentThread().isVirtual()) {
+            Encoder[] cached = threadEncoders.get();
+            int index = gzip ? 0 : 1;
+            if (cached[index] == null) {
+                cached[index] = encoder;
+                return;
+            }
+        }
+        if (!(gzip ? sharedGzip : sharedDeflate).offer(encoder)) {
+            // Pool lleno: se libera la memoria nativa ya, sin esperar al GC
+            encoder.deflater.end();
+        }
+    }
+
+    private static long cpuTime() {
+        long cpu = Thread.currentThread().isVirtual() ? -1 : THREADS.getCurrentThreadCpuTime();
+        return cpu >= 0 ? cpu : System.nanoTime();
+    }
+
+    private static List<String> list(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,45 @@
+package com.escuelaing.arep.framework;
+
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Cross-cutting step run around route handlers (authentication, request IDs, timing), declared
+ * with {@link com.escuelaing.arep.annotations.Filter}.
+ * <p>
+ * The filters of a route are resolved once at startup into an array held by its
+ * {@link RouteInfo}: a request walks it with an indexed loop, {@code before} in order and
+ * {@code after} in reverse, without matching paths or allocating a chain object. Routes that
+ * no filter matches invoke their handler directly.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public interface RouteFilter {
+
+    /**
+     * Runs before the handler.
+     *
+     * @param request  the parsed request
+     * @param response the response the handler will receive
+     * @return null to continue the chain, or a result that is sent instead of invoking the
+     *         rest of the chain and the handler (a String, a value to serialize as JSON, ...)
+     * @throws Exception to fail the request as if the handler had thrown
+     */
+    default Object before(Request request, Response response) throws Exception {
+        return null;
+    }
+
+    /**
+     * Runs after the handler, also when it threw or a later filter ended the chain early, but
+     * not when this filter's own {@code before} threw. For asynchronous handlers it runs when
+     * their {@code CompletionStage} completes. The body is not set yet; status and headers can
+     * still be changed.
+     *
+     * @param request  the parsed request
+     * @param response the response being built
+     */
+    default void after(Request request, Response response) {
+    }
+}
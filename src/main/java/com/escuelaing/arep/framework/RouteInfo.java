@@ -1,20 +1,118 @@
 package com.escuelaing.arep.framework;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+import com.escuelaing.arep.annotations.Bulkhead;
+import com.escuelaing.arep.annotations.RequestPart;
+import com.escuelaing.arep.annotations.RequestParam;
+import com.escuelaing.arep.annotations.Timeout;
+import com.escuelaing.arep.http.Part;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
 
 public class RouteInfo {
+    private static final int ARG_NONE = 0;
+    private static final int ARG_QUERY = 1;
+    private static final int ARG_REQUEST = 2;
+    private static final int ARG_RESPONSE = 3;
+    private static final int ARG_PART = 4;
+    private static final int ARG_PART_TEXT = 5;
+    private static final int ARG_PART_BYTES = 6;
+    private static final Object[] NO_ARGS = new Object[0];
+
     private final String path;
     private final Method method;
     private final Object controllerInstance;
     private final Parameter[] parameters;
+    // Resuelto una sola vez: tipo de argumento, nombre y valor por defecto de cada parámetro
+    private final int[] argKinds;
+    private final String[] argNames;
+    private final String[] argDefaults;
+    private final boolean usesQueryParams;
+    // Handlers que devuelven CompletionStage se completan fuera del hilo de la conexión
+    private final boolean async;
+    // Handlers que devuelven un EventBroadcaster dejan la conexión abierta como text/event-stream
+    private final boolean eventStream;
+    private final long timeoutMillis;
+    // Límite de concurrencia de la ruta (null si no tiene bulkhead)
+    private final ConcurrencyLimiter bulkhead;
+    // Filtros resueltos al arrancar (FilterRegistry.NO_FILTERS si ninguno aplica)
+    private final RouteFilter[] filters;
     
     public RouteInfo(String path, Method method, Object controllerInstance) {
+        this(path, method, controllerInstance, null);
+    }
+
+    /**
+     * Creates a route whose bulkhead comes from configuration, taking precedence over any
+     * {@link Bulkhead} annotation on the handler.
+     *
+     * @param path               the route path
+     * @param method             the handler method
+     * @param controllerInstance the controller the handler is invoked on
+     * @param bulkhead           the configured bulkhead, or null to use the annotation
+     */
+    public RouteInfo(String path, Method method, Object controllerInstance, ConcurrencyLimiter.Limit bulkhead) {
+        this(path, method, controllerInstance, bulkhead, FilterRegistry.NO_FILTERS);
+    }
+
+    /**
+     * Creates a route with its configured bulkhead and its filter chain.
+     *
+     * @param path               the route path
+     * @param method             the handler method
+     * @param controllerInstance the controller the handler is invoked on
+     * @param bulkhead           the configured bulkhead, or null to use the annotation
+     * @param filters            the filters run around the handler, in order (see {@link FilterRegistry#chainFor(String)})
+     */
+    public RouteInfo(String path, Method method, Object controllerInstance, ConcurrencyLimiter.Limit bulkhead,
+                     RouteFilter[] filters) {
         this.path = path;
+        this.filters = filters;
         this.method = method;
         this.controllerInstance = controllerInstance;
         this.parameters = method.getParameters();
+        this.argKinds = new int[parameters.length];
+        this.argNames = new String[parameters.length];
+        this.argDefaults = new String[parameters.length];
+        boolean query = false;
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter param = parameters[i];
+            if (param.isAnnotationPresent(RequestParam.class)) {
+                RequestParam requestParam = param.getAnnotation(RequestParam.class);
+                argKinds[i] = ARG_QUERY;
+                argNames[i] = requestParam.value();
+                argDefaults[i] = requestParam.defaultValue();
+                query = true;
+            } else if (param.isAnnotationPresent(RequestPart.class)) {
+                Class<?> type = param.getType();
+                argKinds[i] = type == String.class ? ARG_PART_TEXT : type == byte[].class ? ARG_PART_BYTES : ARG_PART;
+                argNames[i] = param.getAnnotation(RequestPart.class).value();
+                if (argKinds[i] == ARG_PART && type != Part.class) {
+                    throw new IllegalArgumentException("@RequestPart no admite el tipo " + type.getName()
+                            + " en " + method);
+                }
+            } else if (param.getType() == Request.class) {
+                argKinds[i] = ARG_REQUEST;
+            } else if (param.getType() == Response.class) {
+                argKinds[i] = ARG_RESPONSE;
+            } else {
+                argKinds[i] = ARG_NONE;
+            }
+        }
+        this.usesQueryParams = query;
+        this.async = CompletionStage.class.isAssignableFrom(method.getReturnType());
+        this.eventStream = EventBroadcaster.class.isAssignableFrom(method.getReturnType());
+        Timeout timeout = method.getAnnotation(Timeout.class);
+        this.timeoutMillis = timeout != null ? timeout.value() : 0L;
+        if (bulkhead == null && method.isAnnotationPresent(Bulkhead.class)) {
+            bulkhead = ConcurrencyLimiter.Limit.of(method.getAnnotation(Bulkhead.class));
+        }
+        this.bulkhead = bulkhead != null ? new ConcurrencyLimiter(bulkhead) : null;
     }
     
     public String getPath() {
@@ -34,25 +132,149 @@ public class RouteInfo {
     }
     
     public String invoke(Map<String, String> queryParams) throws Exception {
-        Object[] args = new Object[parameters.length];
+        Object result = method.invoke(controllerInstance, bindArguments(queryParams, null, null));
+        if (result == null) {
+            return "";
+        }
+        return result instanceof String s ? s : JsonWriter.toJson(result);
+    }
         
-        for (int i = 0; i < parameters.length; i++) {
-            Parameter param = parameters[i];
-            if (param.isAnnotationPresent(com.escuelaing.arep.annotations.RequestParam.class)) {
-                com.escuelaing.arep.annotations.RequestParam requestParam = 
-                    param.getAnnotation(com.escuelaing.arep.annotations.RequestParam.class);
-                String paramName = requestParam.value();
-                String defaultValue = requestParam.defaultValue();
-                
-                String value = queryParams.get(paramName);
-                if (value == null && !defaultValue.isEmpty()) {
-                    value = defaultValue;
+    /**
+     * Invokes the handler binding {@code @RequestParam}, {@link Request} and {@link Response}
+     * parameters. Query parameters are looked up by name on the request's {@link com.escuelaing.arep.http.QueryParams}
+     * view, so only the ones the handler declares are ever decoded and routes without
+     * {@code @RequestParam} never touch the query string.
+     *
+     * <p>
+     * The route's {@link RouteFilter}s run around the handler; a filter may answer in its place,
+     * so the result of an asynchronous or event stream route is not always a stage or a broadcaster.
+     * </p>
+     *
+     * @param request  the parsed request
+     * @param response the response the handler may adjust (status, type, headers)
+     * @return the raw handler result (a String, a value to serialize as JSON, a {@link CompletionStage}
+     *         of either, or null)
+     * @throws Exception if the handler invocation fails
+     */
+    public Object invoke(Request request, Response response) throws Exception {
+        if (filters.length == 0) {
+            return method.invoke(controllerInstance, bindArguments(null, request, response));
+        }
+        int entered = 0;
+        boolean deferred = false;
+        try {
+            while (entered < filters.length) {
+                Object early = filters[entered].before(request, response);
+                // Solo cuenta como entrado (y recibe su after) el filtro cuyo before terminó sin lanzar
+                entered++;
+                if (early != null) {
+                    return early;
                 }
-                args[i] = value != null ? value : "";
+            }
+            Object result = method.invoke(controllerInstance, bindArguments(null, request, response));
+            if (async && result instanceof CompletionStage<?> stage) {
+                // Los after de un handler asíncrono corren cuando su stage termina
+                deferred = true;
+                return stage.whenComplete((value, error) -> after(request, response, filters.length));
+            }
+            return result;
+        } finally {
+            if (!deferred) {
+                after(request, response, entered);
             }
         }
+    }
         
-        Object result = method.invoke(controllerInstance, args);
-        return result != null ? result.toString() : "";
+    /**
+     * Gets the filters run around the handler.
+     *
+     * @return the chain, empty if no filter matches the route
+     */
+    public RouteFilter[] getFilters() {
+        return filters.clone();
+    }
+
+    /**
+     * Indicates whether the handler declares any {@code @RequestParam}; routes that do not
+     * never look at the query string.
+     *
+     * @return true if at least one parameter is bound from the query string
+     */
+    public boolean usesQueryParams() {
+        return usesQueryParams;
+    }
+
+    /**
+     * Indicates whether the handler returns a {@link CompletionStage}; its response is written
+     * when the stage completes.
+     *
+     * @return true for asynchronous handlers
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Indicates whether the handler returns an {@link EventBroadcaster}; the connection is then
+     * kept open and subscribed to it as a Server-Sent Events stream.
+     *
+     * @return true for event stream handlers
+     */
+    public boolean isEventStream() {
+        return eventStream;
+    }
+
+    /**
+     * Gets the timeout declared with {@link Timeout}.
+     *
+     * @return the timeout in milliseconds, or 0 to use the server default
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Gets the bulkhead that bounds concurrent invocations of this route.
+     *
+     * @return the route's concurrency limiter, or null if the route is unbounded
+     */
+    public ConcurrencyLimiter getBulkhead() {
+        return bulkhead;
+    }
+
+    private void after(Request request, Response response, int entered) {
+        for (int i = entered - 1; i >= 0; i--) {
+            filters[i].after(request, response);
+        }
+    }
+
+    private Object[] bindArguments(Map<String, String> queryParams, Request request, Response response)
+            throws IOException {
+        if (argKinds.length == 0) {
+            return NO_ARGS;
+        }
+        Object[] args = new Object[argKinds.length];
+        for (int i = 0; i < argKinds.length; i++) {
+            switch (argKinds[i]) {
+                case ARG_QUERY -> {
+                    String value = request != null ? request.getQueryParam(argNames[i]) : queryParams.get(argNames[i]);
+                    if (value == null && !argDefaults[i].isEmpty()) {
+                        value = argDefaults[i];
+                    }
+                    args[i] = value != null ? value : "";
+                }
+                case ARG_REQUEST -> args[i] = request;
+                case ARG_RESPONSE -> args[i] = response;
+                case ARG_PART, ARG_PART_TEXT, ARG_PART_BYTES -> {
+                    // El cuerpo se analiza una vez, al enlazar la primera parte
+                    Part part = request != null ? request.getPart(argNames[i]) : null;
+                    args[i] = part == null ? null
+                            : argKinds[i] == ARG_PART_TEXT ? part.getString()
+                            : argKinds[i] == ARG_PART_BYTES ? part.getBytes() : part;
+                }
+                default -> args[i] = null;
+            }
+        }
+        return args;
     }
 }
@@ -0,0 +1,554 @@
+package com.escuelaing.arep.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of static files with their derived data: content type, a strong ETag and, for text
+ * formats, a pre-compressed gzip variant.
+ * <p>
+ * Files come either from the classpath (packaged resources, immutable) or from a directory on
+ * disk. For a directory, {@link #startWatching()} registers a {@link WatchService} on the whole
+ * tree: a change to a file drops exactly that entry and a background thread rebuilds it (read,
+ * hash, compress), so the next requests hit the cache again with fresh content. Requests that
+ * arrive before the rebuild finishes load the file themselves. Events for the same file are
+ * coalesced while its rebuild is pending; an overflow (lost events) clears the whole cache.
+ * </p>
+ * <p>
+ * A {@link StaticManifest} of the existing files is built up front, so misses for paths that do
+ * not exist (scanners probing {@code /wp-admin.php}) are answered without touching the class
+ * loader or the disk. The watcher keeps the manifest of a directory up to date.
+ * </p>
+ * <p>
+ * With {@link #fingerprintAssets()} every file is also reachable under a name carrying a hash of
+ * its content ({@code app.js} as {@code app.3f9a1c0d.js}), which can be cached forever because
+ * new content gets a new name. HTML pages are rewritten when loaded so their {@code src} and
+ * {@code href} references to local assets use those names; a change to an asset rebuilds the
+ * cached pages with the new hash.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class StaticFileCache implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(StaticFileCache.class.getName());
+
+    /**
+     * Files at least this large are served but not cached. They are read on every request, so
+     * they are served uncompressed and their ETag comes from size and modification time instead
+     * of a content hash.
+     */
+    public static final int MAX_CACHED_SIZE = 1024 * 1024;
+    private static final int MIN_GZIP_SIZE = 256;
+
+    /**
+     * A static file ready to be served.
+     *
+     * @param content     the raw bytes
+     * @param contentType the MIME type
+     * @param etag        the strong entity tag, quoted
+     * @param gzip        the gzip-compressed bytes, or null if compression does not pay off
+     * @param fingerprint the content hash used in fingerprinted names (8 hex digits)
+     */
+    public record Entry(byte[] content, String contentType, String etag, byte[] gzip, String fingerprint) {
+    }
+
+    // nombre.<hash>.ext, con la extensión opcional
+    private static final Pattern FINGERPRINTED = Pattern.compile("(.+)\\.([0-9a-f]{8})(\\.[^./]+)?");
+    private static final Pattern ASSET_REFERENCE =
+            Pattern.compile("\\b(?:src|href)\\s*=\\s*([\"'])([^\"']+)\\1", Pattern.CASE_INSENSITIVE);
+
+    private final Path directory;
+    private final String classpathRoot;
+    private final ClassLoader loader;
+    private final Function<String, String> mimeTypes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefresh = ConcurrentHashMap.newKeySet();
+    // Cambia con cada evento del watcher; un fallo de caché solo inserta si no hubo eventos mientras leía
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private volatile StaticManifest manifest;
+    private volatile boolean fingerprints;
+    private WatchService watcher;
+    private ExecutorService refresher;
+
+    private StaticFileCache(Path directory, String classpathRoot, ClassLoader loader, Function<String, String> mimeTypes,
+                            StaticManifest manifest) {
+        this.directory = directory;
+        this.classpathRoot = classpathRoot;
+        this.loader = loader;
+        this.mimeTypes = mimeTypes;
+        this.manifest = manifest;
+    }
+
+    /**
+     * Creates a cache over a directory on disk.
+     *
+     * @param directory the web root
+     * @param mimeTypes maps a file name to its MIME type
+     * @return the cache; call {@link #startWatching()} to enable hot reload
+     */
+    public static StaticFileCache forDirectory(Path directory, Function<String, String> mimeTypes) {
+        Path root = directory.toAbsolutePath().normalize();
+        return new StaticFileCache(root, null, null, mimeTypes, listDirectory(root));
+    }
+
+    /**
+     * Creates a cache over classpath resources.
+     *
+     * @param root      the resource folder, e.g. {@code static}
+     * @param loader    the class loader to read resources from
+     * @param mimeTypes maps a file name to its MIME type
+     * @return the cache
+     */
+    public static StaticFileCache forClasspath(String root, ClassLoader loader, Function<String, String> mimeTypes) {
+        String normalized = root.replaceAll("^/+|/+$", "");
+        return new StaticFileCache(null, normalized, loader, mimeTypes, StaticManifest.ofClasspath(normalized, loader));
+    }
+
+    /**
+     * Gets a file, loading and caching it on a miss.
+     *
+     * @param path the path relative to the web root, as returned by {@link StaticManifest#normalize(String)}
+     * @return the entry, or null if the file does not exist
+     * @throws IOException if the file exists but cannot be read
+     */
+    public Entry get(String path) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry != null) {
+            return entry;
+        }
+        StaticManifest known = manifest;
+        if (known != null && !known.contains(path)) {
+            return null;
+        }
+        long readGeneration = generation.get();
+        byte[] content = read(path);
+        if (content == null) {
+            return null;
+        }
+        if (content.length >= MAX_CACHED_SIZE) {
+            return buildUncached(path, content);
+        }
+        entry = build(path, content);
+        // putIfAbsent: una entrada que dejó una recarga en segundo plano se leyó después que esta
+        Entry existing = entries.putIfAbsent(path, entry);
+        if (existing != null) {
+            return existing;
+        }
+        if (generation.get() != readGeneration) {
+            // Hubo un evento entre la lectura y la inserción: puede que onChange no haya visto
+            // esta entrada, así que no se deja en caché (la siguiente petición la relee)
+            entries.remove(path, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Gets a file requested under its fingerprinted name.
+     *
+     * @param path the requested path, e.g. {@code js/app.3f9a1c0d.js}
+     * @return the entry of {@code js/app.js} if fingerprints are enabled and the hash matches its
+     *         current content, null otherwise
+     * @throws IOException if the file exists but cannot be read
+     */
+    public Entry getFingerprinted(String path) throws IOException {
+        if (!fingerprints) {
+            return null;
+        }
+        Matcher matcher = FINGERPRINTED.matcher(path);
+        if (!matcher.matches() || matcher.group(1).endsWith("/")) {
+            return null;
+        }
+        String original = matcher.group(1) + (matcher.group(3) != null ? matcher.group(3) : "");
+        Entry entry = get(original);
+        return entry != null && entry.fingerprint().equals(matcher.group(2)) ? entry : null;
+    }
+
+    /**
+     * Inserts a fingerprint in a file name, before its extension.
+     *
+     * @param path        the path or URL path, e.g. {@code /js/app.js}
+     * @param fingerprint the content hash
+     * @return the fingerprinted path, e.g. {@code /js/app.3f9a1c0d.js}
+     */
+    public static String fingerprintedPath(String path, String fingerprint) {
+        int dot = path.lastIndexOf('.');
+        if (dot <= path.lastIndexOf('/') + 1) {
+            return path + '.' + fingerprint;
+        }
+        return path.substring(0, dot) + '.' + fingerprint + path.substring(dot);
+    }
+
+    /**
+     * Enables fingerprinted names: hashes every listed file up front and reloads the HTML pages
+     * with their asset references rewritten. Meant to run once at startup.
+     *
+     * @throws IOException if a file cannot be read
+     */
+    public void fingerprintAssets() throws IOException {
+        fingerprints = true;
+        StaticManifest known = manifest;
+        if (known == null) {
+            // Sin manifiesto las páginas se reescriben igual, al cargarse
+            entries.values().removeIf(entry -> isHtml(entry.contentType()));
+            return;
+        }
+        List<String> pages = new ArrayList<>();
+        for (String path : known.paths()) {
+            if (isHtml(mimeTypes.apply(path))) {
+                pages.add(path);
+            } else {
+                get(path);
+            }
+        }
+        for (String page : pages) {
+            entries.remove(page);
+            get(page);
+        }
+        LOGGER.log(Level.INFO, "Huellas de contenido calculadas para {0} archivos", known.size());
+    }
+
+    /**
+     * Indicates whether files are served from a directory on disk.
+     *
+     * @return true for a directory, false for classpath resources
+     */
+    public boolean isDirectory() {
+        return directory != null;
+    }
+
+    /**
+     * Gets the number of cached entries.
+     *
+     * @return the cache size
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the index of existing files.
+     *
+     * @return the current manifest, or null if the web root could not be listed
+     */
+    public StaticManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Starts watching the directory tree for changes. Does nothing for classpath caches.
+     *
+     * @throws IOException if the watch service cannot be created
+     */
+    public synchronized void startWatching() throws IOException {
+        if (directory == null || watcher != null) {
+            return;
+        }
+        watcher = FileSystems.getDefault().newWatchService();
+        registerTree(directory);
+        refresher = Executors.newSingleThreadExecutor(Thread.ofPlatform().daemon().name("static-refresh").factory());
+        Thread.ofPlatform().daemon().name("static-watcher").start(this::watchLoop);
+        LOGGER.log(Level.INFO, "Observando cambios en {0}", directory);
+    }
+
+    /**
+     * Stops watching and the background refresh.
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error cerrando WatchService: {0}", e.getMessage());
+        }
+        refresher.shutdownNow();
+        watcher = null;
+        refresher = null;
+    }
+
+    private void watchLoop() {
+        WatchService service = watcher;
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    generation.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Eventos de archivos perdidos, se vacía la caché estática");
+                    entries.clear();
+                    manifest = listDirectory(directory);
+                    continue;
+                }
+                if (dir != null) {
+                    onChange(dir.resolve((Path) event.context()), event.kind());
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    private void onChange(Path file, WatchEvent.Kind<?> kind) {
+        // Antes de tocar las entradas, para que un fallo de caché concurrente descarte lo que leyó
+        generation.incrementAndGet();
+        String key = directory.relativize(file).toString().replace('\\', '/');
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+            try {
+                registerTree(file);
+                // Los archivos copiados junto con el directorio no generan eventos propios
+                try (Stream<Path> files = Files.walk(file)) {
+                    files.filter(Files::isRegularFile).forEach(f -> addToManifest(directory.relativize(f)));
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "No se pudo observar {0}: {1}", new Object[]{file, e.getMessage()});
+            }
+            return;
+        }
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            invalidateTree(key);
+            return;
+        }
+        if (Files.isRegularFile(file)) {
+            addToManifest(directory.relativize(file));
+        }
+        // Solo se recargan entradas que estaban en caché; el resto se cargará cuando se pidan
+        if (entries.remove(key) != null) {
+            scheduleRefresh(key);
+            if (fingerprints && !isHtml(mimeTypes.apply(key))) {
+                // Las páginas en caché apuntan al hash anterior del recurso
+                for (String page : entries.keySet()) {
+                    if (isHtml(mimeTypes.apply(page)) && entries.remove(page) != null) {
+                        scheduleRefresh(page);
+                    }
+                }
+            }
+        }
+    }
+
+    private void scheduleRefresh(String key) {
+        if (pendingRefresh.add(key)) {
+            refresher.execute(() -> refresh(key));
+        }
+    }
+
+    private void refresh(String key) {
+        pendingRefresh.remove(key);
+        try {
+            byte[] content = read(key);
+            if (content != null && content.length < MAX_CACHED_SIZE) {
+                entries.put(key, build(key, content));
+                LOGGER.log(Level.FINE, "Recargado {0}", key);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo recargar {0}: {1}", new Object[]{key, e.getMessage()});
+        }
+    }
+
+    private void addToManifest(Path relative) {
+        // Solo el hilo del watcher modifica el manifiesto
+        StaticManifest known = manifest;
+        if (known != null) {
+            manifest = known.with(relative.toString().replace('\\', '/'));
+        }
+    }
+
+    private void invalidateTree(String key) {
+        StaticManifest known = manifest;
+        if (known != null) {
+            manifest = known.withoutTree(key);
+        }
+        entries.remove(key);
+        String prefix = key + "/";
+        entries.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    private void registerTree(Path root) throws IOException {
+        try (Stream<Path> dirs = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirs.put(key, dir);
+            }
+        }
+    }
+
+    private static StaticManifest listDirectory(Path root) {
+        try {
+            return StaticManifest.ofDirectory(root);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo listar {0}: {1}", new Object[]{root, e.getMessage()});
+            return null;
+        }
+    }
+
+    private byte[] read(String path) throws IOException {
+        if (directory == null) {
+            try (InputStream is = loader.getResourceAsStream(classpathRoot + "/" + path)) {
+                return is == null ? null : is.readAllBytes();
+            }
+        }
+        Path file = directory.resolve(path).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private Entry build(String path, byte[] content) {
+        String contentType = mimeTypes.apply(path);
+        if (fingerprints && isHtml(contentType)) {
+            content = rewriteReferences(path, content);
+        }
+        byte[] gzip = isCompressible(contentType) && content.length >= MIN_GZIP_SIZE ? gzip(content) : null;
+        byte[] hash = sha256(content);
+        String etag = '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22) + '"';
+        return new Entry(content, contentType, etag, gzip, HexFormat.of().formatHex(hash, 0, 4));
+    }
+
+    // Sin gzip ni SHA-256: un archivo que no se cachea pagaría ambos en cada petición
+    private Entry buildUncached(String path, byte[] content) {
+        String contentType = mimeTypes.apply(path);
+        if (fingerprints && isHtml(contentType)) {
+            content = rewriteReferences(path, content);
+        }
+        String version = Long.toHexString(content.length) + '-' + Long.toHexString(lastModified(path));
+        return new Entry(content, contentType, '"' + version + '"', null, String.format("%08x", version.hashCode()));
+    }
+
+    private long lastModified(String path) {
+        try {
+            if (directory == null) {
+                URL url = loader.getResource(classpathRoot + "/" + path);
+                return url == null ? 0 : url.openConnection().getLastModified();
+            }
+            return Files.getLastModifiedTime(directory.resolve(path).normalize()).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private byte[] rewriteReferences(String page, byte[] content) {
+        String html = new String(content, StandardCharsets.UTF_8);
+        Matcher matcher = ASSET_REFERENCE.matcher(html);
+        StringBuilder rewritten = null;
+        int last = 0;
+        while (matcher.find()) {
+            String reference = fingerprintReference(page, matcher.group(2));
+            if (reference == null) {
+                continue;
+            }
+            if (rewritten == null) {
+                rewritten = new StringBuilder(html.length() + 64);
+            }
+            rewritten.append(html, last, matcher.start(2)).append(reference);
+            last = matcher.end(2);
+        }
+        if (rewritten == null) {
+            return content;
+        }
+        return rewritten.append(html, last, html.length()).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String fingerprintReference(String page, String reference) {
+        int end = reference.length();
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        String target = reference.substring(0, end);
+        // Solo recursos locales: nada de esquemas (https:, data:) ni URLs de otro host
+        if (target.isEmpty() || target.indexOf(':') >= 0 || target.startsWith("//")) {
+            return null;
+        }
+        String base = target.startsWith("/") ? "" : page.substring(0, page.lastIndexOf('/') + 1);
+        String key = StaticManifest.normalize(base + target);
+        if (key == null || key.isEmpty() || isHtml(mimeTypes.apply(key))) {
+            return null;
+        }
+        try {
+            Entry asset = get(key);
+            return asset == null ? null : fingerprintedPath(target, asset.fingerprint()) + reference.substring(end);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo calcular la huella de {0}: {1}", new Object[]{key, e.getMessage()});
+            return null;
+        }
+    }
+
+    private static boolean isHtml(String contentType) {
+        return contentType.startsWith("text/html");
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("javascript")
+                || contentType.contains("json") || contentType.contains("svg") || contentType.contains("xml");
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+            gz.write(content);
+        } catch (IOException e) {
+            return null;
+        }
+        // Solo se guarda la variante si ahorra al menos un 10%
+        return bytes.size() < content.length * 9L / 10 ? bytes.toByteArray() : null;
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.escuelaing.arep.framework;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Immutable index of the static files that exist under a web root.
+ * <p>
+ * It is built once by listing the web root (a directory on disk, or the classpath folder inside
+ * a JAR or a class directory), so a request for an unknown path is answered 404 from memory
+ * instead of asking the class loader or the file system. Paths are kept in an open-addressing
+ * table with linear probing; a lookup is a hash and, usually, a single string comparison.
+ * Changes produce a new manifest ({@link #with(String)}, {@link #withoutTree(String)}).
+ * </p>
+ * <p>
+ * {@link #normalize(String)} turns a request path into the relative key used here, resolving
+ * {@code .} and {@code ..} segments and rejecting paths that would leave the web root.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class StaticManifest {
+
+    private static final Logger LOGGER = Logger.getLogger(StaticManifest.class.getName());
+
+    private final String[] table;
+    private final int mask;
+    private final int size;
+
+    private StaticManifest(Collection<String> paths) {
+        // Factor de carga <= 0.5 para que las búsquedas fallidas terminen pronto
+        int capacity = Integer.highestOneBit(Math.max(4, paths.size() * 2 - 1)) << 1;
+        table = new String[capacity];
+        mask = capacity - 1;
+        int count = 0;
+        for (String path : paths) {
+            int slot = slot(path);
+            while (table[slot] != null && !table[slot].equals(path)) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == null) {
+                table[slot] = path;
+                count++;
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Creates a manifest from the given relative paths.
+     *
+     * @param paths the file paths, relative to the web root and without leading slash
+     * @return the manifest
+     */
+    public static StaticManifest of(Collection<String> paths) {
+        return new StaticManifest(paths);
+    }
+
+    /**
+     * Lists every regular file below a directory.
+     *
+     * @param directory the web root
+     * @return the manifest
+     * @throws IOException if the directory cannot be walked
+     */
+    public static StaticManifest ofDirectory(Path directory) throws IOException {
+        List<String> paths = new ArrayList<>();
+        listDirectory(directory, paths);
+        return new StaticManifest(paths);
+    }
+
+    /**
+     * Lists the resources below a classpath folder, merging every location that provides it
+     * (class directories and JARs).
+     *
+     * @param root   the resource folder, e.g. {@code static}
+     * @param loader the class loader the files are read from
+     * @return the manifest, or null if some location cannot be listed (lookups must then fall
+     *         back to the class loader)
+     */
+    public static StaticManifest ofClasspath(String root, ClassLoader loader) {
+        List<String> paths = new ArrayList<>();
+        try {
+            Enumeration<URL> locations = loader.getResources(root);
+            while (locations.hasMoreElements()) {
+                URL location = locations.nextElement();
+                switch (location.getProtocol()) {
+                    case "file" -> listDirectory(Path.of(location.toURI()), paths);
+                    case "jar" -> listJar(location, root, paths);
+                    default -> {
+                        LOGGER.log(Level.FINE, "No se puede listar {0}", location);
+                        return null;
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "No se pudo construir el manifiesto de {0}: {1}", new Object[]{root, e.getMessage()});
+            return null;
+        }
+        return new StaticManifest(paths);
+    }
+
+    /**
+     * Resolves a request path against the web root.
+     *
+     * @param requestPath the path of the request, e.g. {@code /css/../app.js}
+     * @return the relative key (e.g. {@code app.js}), or null if the path escapes the web root
+     *         or contains characters no file name here can have
+     */
+    public static String normalize(String requestPath) {
+        if (requestPath.indexOf('\\') >= 0 || requestPath.indexOf('\0') >= 0) {
+            return null;
+        }
+        String[] segments = new String[requestPath.length() / 2 + 1];
+        int depth = 0;
+        int start = 0;
+        int length = requestPath.length();
+        while (start <= length) {
+            int end = requestPath.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            String segment = requestPath.substring(start, end);
+            if (segment.equals("..")) {
+                if (depth == 0) {
+                    return null;
+                }
+                depth--;
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments[depth++] = segment;
+            }
+            start = end + 1;
+        }
+        return String.join("/", Arrays.asList(segments).subList(0, depth));
+    }
+
+    /**
+     * Indicates whether a file exists.
+     *
+     * @param path the key from {@link #normalize(String)}
+     * @return true if the file is listed
+     */
+    public boolean contains(String path) {
+        int slot = slot(path);
+        String candidate;
+        while ((candidate = table[slot]) != null) {
+            if (candidate.equals(path)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of listed files.
+     *
+     * @return the manifest size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a manifest that also lists the given file.
+     *
+     * @param path the key of the new file
+     * @return this manifest if the file was already listed, a new one otherwise
+     */
+    public StaticManifest with(String path) {
+        if (contains(path)) {
+            return this;
+        }
+        List<String> paths = paths();
+        paths.add(path);
+        return new StaticManifest(paths);
+    }
+
+    /**
+     * Returns a manifest without the given file or directory (and everything under it).
+     *
+     * @param path the key of the deleted file or directory
+     * @return the new manifest
+     */
+    public StaticManifest withoutTree(String path) {
+        String prefix = path + "/";
+        List<String> paths = paths();
+        paths.removeIf(p -> p.equals(path) || p.startsWith(prefix));
+        return paths.size() == size ? this : new StaticManifest(paths);
+    }
+
+    /**
+     * Lists the files, in no particular order.
+     *
+     * @return a new list of the keys
+     */
+    public List<String> paths() {
+        List<String> paths = new ArrayList<>(size + 1);
+        for (String path : table) {
+            if (path != null) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private int slot(String path) {
+        int h = path.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static void listDirectory(Path directory, Collection<String> paths) throws IOException {
+        Path root = directory.toAbsolutePath().normalize();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile)
+                    .forEach(file -> paths.add(root.relativize(file).toString().replace('\\', '/')));
+        }
+    }
+
+    private static void listJar(URL location, String root, Collection<String> paths) throws IOException {
+        URLConnection connection = location.openConnection();
+        connection.setUseCaches(false);
+        String prefix = root + "/";
+        try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(prefix) && !name.endsWith("/")) {
+                    paths.add(name.substring(prefix.length()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.escuelaing.arep.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+import com.escuelaing.arep.framework.BufferPool;
+
+/**
+ * Reads the request line and headers of an HTTP/1.x request with hard limits.
+ * <p>
+ * Unlike a {@code BufferedReader}, it bounds both size and time: the head may not exceed
+ * {@code maxHeaderBytes}, the first byte must arrive within the idle timeout, and once it has
+ * arrived the whole head must be received before the header deadline. Before every blocking
+ * read the socket timeout is set to the time left, so a client trickling one byte at a time
+ * (slowloris) is cut off in bounded time instead of holding the connection forever.
+ * </p>
+ * <p>
+ * Bytes read past the end of the head (the start of a body) stay buffered and are available
+ * through {@link #bodyStream()}.
+ * </p>
+ * <p>
+ * The head buffer can come from a {@link BufferPool}; the owner then calls {@link #release()}
+ * when the connection is done, or {@link #detach()} to keep reading past the head after the
+ * buffer has gone back to the pool.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class HttpHeadReader {
+
+    /**
+     * Signals that the request line plus headers exceeded the configured limit (HTTP 431).
+     */
+    public static final class HeadTooLargeException extends IOException {
+        public HeadTooLargeException(int limit) {
+            super("Request head exceeds " + limit + " bytes");
+        }
+    }
+
+    /**
+     * Signals a head that cannot be read unambiguously, such as conflicting {@code Content-Length}
+     * headers (HTTP 400).
+     */
+    public static final class MalformedHeadException extends IOException {
+        public MalformedHeadException(String message) {
+            super(message);
+        }
+    }
+
+    private final InputStream in;
+    private final Socket socket;
+    private byte[] buf;
+    private final BufferPool.Buffer pooled;
+    private final int maxHeaderBytes;
+    private final int idleTimeoutMillis;
+    private final int headerTimeoutMillis;
+    private final int readTimeoutMillis;
+    private int pos;
+    private int limit;
+    private long deadline;
+    private boolean started;
+    private boolean released;
+
+    /**
+     * Creates a reader.
+     *
+     * @param in                  the connection input stream
+     * @param socket              the socket whose timeout is adjusted, or null (no timeouts)
+     * @param maxHeaderBytes      maximum size of request line plus headers
+     * @param idleTimeoutMillis   maximum wait for the first byte
+     * @param headerTimeoutMillis total budget for the whole head once the first byte arrived, or 0
+     *                            for none (each read still waits at most the idle timeout)
+     * @param readTimeoutMillis   socket timeout restored after the head, for body reads
+     */
+    public HttpHeadReader(InputStream in, Socket socket, int maxHeaderBytes, int idleTimeoutMillis,
+                          int headerTimeoutMillis, int readTimeoutMillis) {
+        this(in, socket, null, maxHeaderBytes, idleTimeoutMillis, headerTimeoutMillis, readTimeoutMillis);
+    }
+
+    /**
+     * Creates a reader whose head buffer is taken from a pool.
+     *
+     * @param in                  the connection input stream
+     * @param socket              the socket whose timeout is adjusted, or null (no timeouts)
+     * @param pool                the pool to borrow the head buffer from, or null to allocate it
+     * @param maxHeaderBytes      maximum size of request line plus headers
+     * @param idleTimeoutMillis   maximum wait for the first byte
+     * @param headerTimeoutMillis total budget for the whole head once the first byte arrived, or 0
+     *                            for none (each read still waits at most the idle timeout)
+     * @param readTimeoutMillis   socket timeout restored after the head, for body reads
+     */
+    public HttpHeadReader(InputStream in, Socket socket, BufferPool pool, int maxHeaderBytes, int idleTimeoutMillis,
+                          int headerTimeoutMillis, int readTimeoutMillis) {
+        this.in = in;
+        this.socket = socket;
+        this.pooled = pool != null ? pool.acquire(maxHeaderBytes) : null;
+        this.buf = pooled != null ? pooled.array() : new byte[maxHeaderBytes];
+        this.maxHeaderBytes = maxHeaderBytes;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.headerTimeoutMillis = headerTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Reads the request line, skipping leading empty lines.
+     *
+     * @return the request line, or null if the client closed the connection first
+     * @throws IOException if the head is too large, a timeout expires or reading fails
+     */
+    public String readRequestLine() throws IOException {
+        started = false;
+        String line;
+        do {
+            line = readLine(StandardCharsets.UTF_8);
+        } while (line != null && line.isEmpty());
+        return line;
+    }
+
+    /**
+     * Reads header lines up to the blank line, storing lower-case names. A repeated header keeps
+     * its last value, except {@code Content-Length}, whose values must agree.
+     *
+     * @param headers the map to fill (the parser's own map, later exposed by {@link Request})
+     * @throws IOException if the head is too large or malformed, the deadline expires or reading fails
+     */
+    public void readHeaders(Map<String, String> headers) throws IOException {
+        String line;
+        while ((line = readLine(StandardCharsets.ISO_8859_1)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                String previous = headers.put(name, value);
+                // Con dos largos distintos cada intermediario podría elegir uno (request smuggling)
+                if (previous != null && name.equals("content-length") && !previous.equals(value)) {
+                    throw new MalformedHeadException("Conflicting Content-Length headers");
+                }
+            }
+        }
+        if (socket != null) {
+            socket.setSoTimeout(readTimeoutMillis);
+        }
+    }
+
+    /**
+     * Returns a stream over the request body: the bytes already buffered past the head,
+     * followed by the rest of the connection input.
+     *
+     * @return the body stream
+     */
+    public InputStream bodyStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                if (pos < limit) {
+                    return buf[pos++] & 0xFF;
+                }
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (pos < limit) {
+                    int n = Math.min(len, limit - pos);
+                    System.arraycopy(buf, pos, b, off, n);
+                    pos += n;
+                    return n;
+                }
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (limit - pos) + in.available();
+            }
+        };
+    }
+
+    /**
+     * Returns a stream over a request body of known length ({@code Content-Length}); it ends
+     * after {@code length} bytes even if the connection carries more.
+     *
+     * @param length the body length in bytes
+     * @return the bounded body stream
+     */
+    public InputStream bodyStream(long length) {
+        InputStream body = bodyStream();
+        return new InputStream() {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = body.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return len == 0 ? 0 : -1;
+                }
+                int n = body.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return (int) Math.min(remaining, body.available());
+            }
+        };
+    }
+
+    /**
+     * Copies the raw bytes consumed so far: after {@link #readHeaders(Map)}, the request line
+     * and headers exactly as received.
+     *
+     * @return a copy of the consumed head bytes
+     */
+    public byte[] head() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    /**
+     * Returns the head buffer to its pool, if it came from one. The reader and any stream
+     * from {@link #bodyStream()} must not be used afterwards.
+     */
+    public void release() {
+        if (pooled != null && !released) {
+            released = true;
+            pos = 0;
+            limit = 0;
+            pooled.release();
+        }
+    }
+
+    /**
+     * Copies the bytes buffered past the head, releases the head buffer and returns a stream
+     * over those bytes followed by the rest of the connection input. Streams already obtained
+     * from {@link #bodyStream()} keep working: they read from the same copy, so the request can
+     * outlive the connection handler (asynchronous routes).
+     *
+     * @return the stream positioned right after the consumed bytes
+     */
+    public InputStream detach() {
+        byte[] rest = limit > pos ? Arrays.copyOfRange(buf, pos, limit) : new byte[0];
+        release();
+        // El lector pasa a la copia, fuera del pool
+        buf = rest;
+        pos = 0;
+        limit = rest.length;
+        return bodyStream();
+    }
+
+    private String readLine(Charset charset) throws IOException {
+        int start = pos;
+        while (true) {
+            for (int i = start; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    int end = i > pos && buf[i - 1] == '\r' ? i - 1 : i;
+                    String line = new String(buf, pos, end - pos, charset);
+                    pos = i + 1;
+                    return line;
+                }
+            }
+            start = limit;
+            if (!fill()) {
+                return limit > pos ? consumeRest(charset) : null;
+            }
+        }
+    }
+
+    private String consumeRest(Charset charset) {
+        String line = new String(buf, pos, limit - pos, charset);
+        pos = limit;
+        return line;
+    }
+
+    private boolean fill() throws IOException {
+        if (limit == maxHeaderBytes) {
+            throw new HeadTooLargeException(maxHeaderBytes);
+        }
+        if (socket != null) {
+            if (!started) {
+                socket.setSoTimeout(idleTimeoutMillis);
+            } else if (headerTimeoutMillis > 0) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remaining <= 0) {
+                    throw new SocketTimeoutException("Request head not received within " + headerTimeoutMillis + " ms");
+                }
+                socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, remaining));
+            }
+        }
+        int n = in.read(buf, limit, maxHeaderBytes - limit);
+        if (n < 0) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            deadline = System.nanoTime() + headerTimeoutMillis * 1_000_000L;
+        }
+        limit += n;
+        return true;
+    }
+}
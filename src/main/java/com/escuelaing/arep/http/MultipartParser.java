@@ -0,0 +1,427 @@
+package com.escuelaing.arep.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.escuelaing.arep.config.ServerConfig;
+import com.escuelaing.arep.framework.BufferPool;
+
+/**
+ * Streaming parser for {@code multipart/form-data} request bodies (RFC 7578).
+ * <p>
+ * The body is read through one pooled buffer and scanned incrementally for the boundary
+ * delimiter: part content is handed out as soon as it is known not to be the start of a
+ * delimiter, keeping only the last {@code delimiter length - 1} bytes back between reads. Memory
+ * use is therefore the buffer plus whatever the consumer keeps, whatever the body size:
+ * </p>
+ * <ul>
+ *   <li>{@link #stream} passes each part to a {@link PartHandler} as a stream, without storing it.</li>
+ *   <li>{@link #parse} stores each part as a {@link Part}: in memory up to the memory threshold,
+ *       spooled to a temporary file beyond it.</li>
+ * </ul>
+ * <p>
+ * Limits on the size of each part, the whole body and the number of parts are enforced while
+ * reading; exceeding one fails with a {@link MultipartException} carrying 413, a malformed body
+ * with one carrying 400.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class MultipartParser {
+
+    private static final int MAX_PART_HEADER_BYTES = 8 * 1024;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private static final MultipartParser SHARED = new MultipartParser(BufferPool.shared(),
+            ServerConfig.getMultipartMaxBytes(), ServerConfig.getMultipartMaxPartBytes(),
+            ServerConfig.getMultipartMaxParts(), ServerConfig.getMultipartMemoryThreshold(),
+            Path.of(ServerConfig.getMultipartTempDir()));
+
+    /**
+     * Signals a multipart body that is malformed (400) or exceeds a limit (413).
+     */
+    public static final class MultipartException extends IOException {
+        private final int status;
+
+        public MultipartException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        /**
+         * Gets the HTTP status to answer with.
+         *
+         * @return 400 or 413
+         */
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * The headers of a part.
+     *
+     * @param name        the form field name
+     * @param filename    the client file name, or null for plain fields
+     * @param contentType the part content type ({@code text/plain} if absent)
+     * @param headers     all part headers, with lower-case names
+     */
+    public record PartHeaders(String name, String filename, String contentType, Map<String, String> headers) {
+    }
+
+    /**
+     * Receives the parts of a body as they are read.
+     */
+    @FunctionalInterface
+    public interface PartHandler {
+        /**
+         * Handles one part. The content stream ends at the part's boundary and is only valid
+         * during the call; whatever the handler leaves unread is skipped.
+         *
+         * @param headers the part headers
+         * @param content the part content
+         * @throws IOException to abort parsing
+         */
+        void onPart(PartHeaders headers, InputStream content) throws IOException;
+    }
+
+    private final BufferPool pool;
+    private final long maxBytes;
+    private final long maxPartBytes;
+    private final int maxParts;
+    private final int memoryThreshold;
+    private final Path tempDir;
+
+    /**
+     * Creates a parser.
+     *
+     * @param pool            the pool the scan buffer is borrowed from
+     * @param maxBytes        the largest body accepted
+     * @param maxPartBytes    the largest part accepted
+     * @param maxParts        the largest number of parts accepted
+     * @param memoryThreshold parts larger than this are spooled to disk by {@link #parse}
+     * @param tempDir         where spooled parts are written
+     */
+    public MultipartParser(BufferPool pool, long maxBytes, long maxPartBytes, int maxParts, int memoryThreshold,
+                           Path tempDir) {
+        this.pool = pool;
+        this.maxBytes = maxBytes;
+        this.maxPartBytes = maxPartBytes;
+        this.maxParts = maxParts;
+        this.memoryThreshold = memoryThreshold;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Gets the parser configured from {@link ServerConfig}.
+     *
+     * @return the shared parser
+     */
+    public static MultipartParser shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the largest body this parser accepts, for checking {@code Content-Length} up front.
+     *
+     * @return the limit in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Extracts the boundary of a {@code multipart/form-data} content type.
+     *
+     * @param contentType the request {@code Content-Type}, or null
+     * @return the boundary, or null if the body is not {@code multipart/form-data}
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.regionMatches(true, 0, "multipart/form-data", 0, 19)) {
+            return null;
+        }
+        String boundary = parameters(contentType).get("boundary");
+        return boundary == null || boundary.isEmpty() || boundary.length() > 70 ? null : boundary;
+    }
+
+    /**
+     * Reads every part into a {@link Part}, spooling large ones to temporary files. If parsing
+     * fails, the files already written are deleted.
+     *
+     * @param body     the request body
+     * @param boundary the boundary from {@link #boundary(String)}
+     * @return the parts, in body order
+     * @throws IOException if the body is malformed, exceeds a limit or cannot be read or spooled
+     */
+    public List<Part> parse(InputStream body, String boundary) throws IOException {
+        List<Part> parts = new ArrayList<>();
+        try {
+            stream(body, boundary, (headers, content) -> parts.add(store(headers, content)));
+        } catch (IOException | RuntimeException e) {
+            parts.forEach(Part::delete);
+            throw e;
+        }
+        return parts;
+    }
+
+    /**
+     * Passes every part to a handler as it is read, without storing it.
+     *
+     * @param body     the request body
+     * @param boundary the boundary from {@link #boundary(String)}
+     * @param handler  receives each part
+     * @throws IOException if the body is malformed, exceeds a limit or cannot be read, or the handler fails
+     */
+    public void stream(InputStream body, String boundary, PartHandler handler) throws IOException {
+        BufferPool.Buffer buffer = pool.acquire(BufferPool.MAX_CLASS_SIZE);
+        try {
+            Scanner scanner = new Scanner(body, buffer.array(), ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1));
+            // El primer delimitador no lleva CRLF delante: se antepone uno y el preámbulo se descarta
+            scanner.buf[0] = '\r';
+            scanner.buf[1] = '\n';
+            scanner.end = 2;
+            scanner.partStream(Long.MAX_VALUE).transferTo(OutputStream.nullOutputStream());
+            int count = 0;
+            while (scanner.nextPart()) {
+                if (++count > maxParts) {
+                    throw new MultipartException(413, "Demasiadas partes (máximo " + maxParts + ")");
+                }
+                PartHeaders headers = scanner.readHeaders();
+                InputStream content = scanner.partStream(maxPartBytes);
+                handler.onPart(headers, content);
+                content.transferTo(OutputStream.nullOutputStream());
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private Part store(PartHeaders headers, InputStream content) throws IOException {
+        ByteArrayOutputStream memory = new ByteArrayOutputStream(Math.min(memoryThreshold, 8192));
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = content.read(chunk)) >= 0) {
+            if (memory.size() + n > memoryThreshold) {
+                return spool(headers, memory, chunk, n, content);
+            }
+            memory.write(chunk, 0, n);
+        }
+        return new Part(headers, memory.toByteArray(), null, memory.size());
+    }
+
+    private Part spool(PartHeaders headers, ByteArrayOutputStream memory, byte[] chunk, int n, InputStream content)
+            throws IOException {
+        Path file = Files.createTempFile(tempDir, "upload-", ".part");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            memory.writeTo(out);
+            out.write(chunk, 0, n);
+            long size = memory.size() + n + content.transferTo(out);
+            return new Part(headers, null, file, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    // Parámetros "clave=valor" separados por ';', con valores opcionalmente entre comillas
+    private static Map<String, String> parameters(String value) {
+        Map<String, String> params = new HashMap<>();
+        int i = value.indexOf(';');
+        while (i >= 0 && i < value.length()) {
+            int eq = value.indexOf('=', i + 1);
+            if (eq < 0) {
+                break;
+            }
+            String key = value.substring(i + 1, eq).trim().toLowerCase();
+            StringBuilder param = new StringBuilder();
+            int j = eq + 1;
+            while (j < value.length() && value.charAt(j) == ' ') {
+                j++;
+            }
+            if (j < value.length() && value.charAt(j) == '"') {
+                for (j++; j < value.length() && value.charAt(j) != '"'; j++) {
+                    char c = value.charAt(j);
+                    if (c == '\\' && j + 1 < value.length()) {
+                        c = value.charAt(++j);
+                    }
+                    param.append(c);
+                }
+                i = value.indexOf(';', j);
+            } else {
+                int end = value.indexOf(';', j);
+                param.append(value, j, end < 0 ? value.length() : end);
+                i = end;
+            }
+            params.putIfAbsent(key, param.toString().trim());
+        }
+        return params;
+    }
+
+    /**
+     * Incremental scan state over the pooled buffer; {@code [start, end)} holds unread bytes.
+     */
+    private final class Scanner {
+        final InputStream in;
+        final byte[] buf;
+        final byte[] delimiter;
+        int start;
+        int end;
+        long total;
+
+        Scanner(InputStream in, byte[] buf, byte[] delimiter) {
+            this.in = in;
+            this.buf = buf;
+            this.delimiter = delimiter;
+        }
+
+        // Garantiza al menos n bytes sin leer; false si el cuerpo terminó antes
+        boolean fill(int n) throws IOException {
+            while (end - start < n) {
+                if (end == buf.length || buf.length - start < n) {
+                    System.arraycopy(buf, start, buf, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                int read = in.read(buf, end, buf.length - end);
+                if (read < 0) {
+                    return false;
+                }
+                total += read;
+                if (total > maxBytes) {
+                    throw new MultipartException(413, "El cuerpo supera " + maxBytes + " bytes");
+                }
+                end += read;
+            }
+            return true;
+        }
+
+        int indexOf(byte[] pattern, int from) {
+            byte first = pattern[0];
+            for (int i = from, last = end - pattern.length; i <= last; i++) {
+                if (buf[i] != first) {
+                    continue;
+                }
+                int k = 1;
+                while (k < pattern.length && buf[i + k] == pattern[k]) {
+                    k++;
+                }
+                if (k == pattern.length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Tras un delimitador: "--" cierra el cuerpo, CRLF abre otra parte
+        boolean nextPart() throws IOException {
+            if (!fill(2)) {
+                throw new MultipartException(400, "Cuerpo multipart truncado");
+            }
+            if (buf[start] == '-' && buf[start + 1] == '-') {
+                return false;
+            }
+            while (buf[start] == ' ' || buf[start] == '\t') {
+                start++;
+                if (!fill(2)) {
+                    throw new MultipartException(400, "Cuerpo multipart truncado");
+                }
+            }
+            if (buf[start] != '\r' || buf[start + 1] != '\n') {
+                throw new MultipartException(400, "Delimitador multipart inválido");
+            }
+            // El CRLF queda: la búsqueda de CRLFCRLF admite así un bloque de cabeceras vacío
+            return true;
+        }
+
+        PartHeaders readHeaders() throws IOException {
+            int idx;
+            while ((idx = indexOf(HEADER_END, start)) < 0) {
+                if (end - start > MAX_PART_HEADER_BYTES) {
+                    throw new MultipartException(400, "Cabeceras de parte demasiado grandes");
+                }
+                if (!fill(end - start + 1)) {
+                    throw new MultipartException(400, "Cabeceras de parte truncadas");
+                }
+            }
+            // idx == start: la parte no trae cabeceras y cae en la validación de Content-Disposition
+            String block = idx == start ? "" : new String(buf, start + 2, idx - start - 2, StandardCharsets.UTF_8);
+            start = idx + HEADER_END.length;
+            Map<String, String> headers = new HashMap<>();
+            for (String line : block.split("\r\n")) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+                }
+            }
+            String disposition = headers.get("content-disposition");
+            if (disposition == null || !disposition.regionMatches(true, 0, "form-data", 0, 9)) {
+                throw new MultipartException(400, "Parte sin Content-Disposition form-data");
+            }
+            Map<String, String> params = parameters(disposition);
+            String name = params.get("name");
+            if (name == null) {
+                throw new MultipartException(400, "Parte sin nombre");
+            }
+            String contentType = headers.getOrDefault("content-type", "text/plain");
+            return new PartHeaders(name, params.get("filename"), contentType, Collections.unmodifiableMap(headers));
+        }
+
+        // Contenido de la parte actual hasta el siguiente delimitador, que se consume al terminar
+        InputStream partStream(long limit) {
+            return new InputStream() {
+                private long size;
+                private boolean done;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (done) {
+                        return -1;
+                    }
+                    if (len == 0) {
+                        return 0;
+                    }
+                    while (true) {
+                        int idx = indexOf(delimiter, start);
+                        // Sin delimitador a la vista, los últimos bytes podrían ser su comienzo
+                        int available = idx >= 0 ? idx - start : end - start - (delimiter.length - 1);
+                        if (available > 0) {
+                            int n = Math.min(len, available);
+                            size += n;
+                            if (size > limit) {
+                                throw new MultipartException(413, "La parte supera " + limit + " bytes");
+                            }
+                            System.arraycopy(buf, start, b, off, n);
+                            start += n;
+                            return n;
+                        }
+                        if (idx >= 0) {
+                            start += delimiter.length;
+                            done = true;
+                            return -1;
+                        }
+                        if (!fill(end - start + 1)) {
+                            throw new MultipartException(400, "Falta el delimitador multipart");
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.escuelaing.arep.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * A part of a {@code multipart/form-data} body, as stored by {@link MultipartParser#parse}.
+ * <p>
+ * Small parts are kept in memory; parts larger than the parser's memory threshold live in a
+ * temporary file, which is deleted with {@link #delete()} once the request has been handled
+ * (the server does it after the handler returns) or moved away with {@link #transferTo(Path)}.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class Part {
+
+    private final MultipartParser.PartHeaders headers;
+    private final byte[] content;
+    private final Path file;
+    private final long size;
+
+    Part(MultipartParser.PartHeaders headers, byte[] content, Path file, long size) {
+        this.headers = headers;
+        this.content = content;
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * Gets the form field name.
+     *
+     * @return the {@code name} of the part's {@code Content-Disposition}
+     */
+    public String getName() {
+        return headers.name();
+    }
+
+    /**
+     * Gets the file name sent by the client, as-is: it must be sanitized before being used as a path.
+     *
+     * @return the {@code filename} of the part's {@code Content-Disposition}, or null for plain fields
+     */
+    public String getFilename() {
+        return headers.filename();
+    }
+
+    /**
+     * Gets the part content type.
+     *
+     * @return the {@code Content-Type} of the part ({@code text/plain} if absent)
+     */
+    public String getContentType() {
+        return headers.contentType();
+    }
+
+    /**
+     * Gets a part header.
+     *
+     * @param name the header name (case-insensitive)
+     * @return the header value, or null if absent
+     */
+    public String getHeader(String name) {
+        return headers.headers().get(name.toLowerCase());
+    }
+
+    /**
+     * Gets all part headers.
+     *
+     * @return a read-only map with lower-case names
+     */
+    public Map<String, String> getHeaders() {
+        return headers.headers();
+    }
+
+    /**
+     * Gets the content size.
+     *
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Indicates whether the content is held in memory rather than in a temporary file.
+     *
+     * @return true for parts below the memory threshold
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * Opens the content.
+     *
+     * @return a new stream over the content
+     * @throws IOException if the temporary file cannot be opened
+     */
+    public InputStream getInputStream() throws IOException {
+        return file == null ? new ByteArrayInputStream(content) : Files.newInputStream(file);
+    }
+
+    /**
+     * Reads the whole content into memory; meant for small parts.
+     *
+     * @return the content bytes
+     * @throws IOException if the temporary file cannot be read
+     */
+    public byte[] getBytes() throws IOException {
+        return file == null ? content.clone() : Files.readAllBytes(file);
+    }
+
+    /**
+     * Reads the content as UTF-8 text, as browsers send form fields.
+     *
+     * @return the content as a string
+     * @throws IOException if the temporary file cannot be read
+     */
+    public String getString() throws IOException {
+        return file == null ? new String(content, StandardCharsets.UTF_8) : Files.readString(file);
+    }
+
+    /**
+     * Stores the content at the given path, moving the temporary file when there is one.
+     *
+     * @param target the destination file, replaced if it exists
+     * @throws IOException if the content cannot be written
+     */
+    public void transferTo(Path target) throws IOException {
+        if (file == null) {
+            Files.write(target, content);
+        } else {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the temporary file, if any and not already moved.
+     */
+    public void delete() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Se reintentará al salir de la JVM
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.escuelaing.arep.http;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view over a raw query string.
+ * <p>
+ * Nothing is split or decoded up front: each lookup scans the original slice for the
+ * requested key and only the matching value is materialized. Keys and values that contain
+ * no {@code %} or {@code +} are returned as plain substrings, skipping
+ * {@link URLDecoder} entirely. Repeated keys ({@code ?tag=a&tag=b}) are supported through
+ * {@link #getAll(String)}.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class QueryParams {
+
+    /** Shared view for requests without a query string. */
+    public static final QueryParams EMPTY = new QueryParams("");
+
+    private final String raw;
+
+    /**
+     * Creates a view over the text following '?' in a request target.
+     *
+     * @param raw the undecoded query string; null is treated as empty
+     */
+    public QueryParams(String raw) {
+        this.raw = raw != null ? raw : "";
+    }
+
+    /**
+     * Returns the first value of a parameter.
+     *
+     * @param name the decoded parameter name
+     * @return the decoded value, or null if the parameter is absent
+     */
+    public String get(String name) {
+        int len = raw.length();
+        int start = 0;
+        while (start < len) {
+            int end = raw.indexOf('&', start);
+            if (end < 0) {
+                end = len;
+            }
+            int eq = raw.indexOf('=', start);
+            if (eq >= 0 && eq < end && keyMatches(start, eq, name)) {
+                return decode(raw, eq + 1, end);
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Returns every value of a (possibly repeated) parameter, in query order.
+     *
+     * @param name the decoded parameter name
+     * @return the decoded values, empty if the parameter is absent
+     */
+    public List<String> getAll(String name) {
+        List<String> values = null;
+        int len = raw.length();
+        int start = 0;
+        while (start < len) {
+            int end = raw.indexOf('&', start);
+            if (end < 0) {
+                end = len;
+            }
+            int eq = raw.indexOf('=', start);
+            if (eq >= 0 && eq < end && keyMatches(start, eq, name)) {
+                if (values == null) {
+                    values = new ArrayList<>(2);
+                }
+                values.add(decode(raw, eq + 1, end));
+            }
+            start = end + 1;
+        }
+        return values == null ? List.of() : Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Indicates whether the query string is empty.
+     *
+     * @return true if there are no parameters to look up
+     */
+    public boolean isEmpty() {
+        return raw.isEmpty();
+    }
+
+    /**
+     * Decodes the whole query string into a map, keeping the first value of repeated keys.
+     * Only meant for callers that really need every parameter.
+     *
+     * @return a new map of decoded names to values
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> params = new HashMap<>();
+        int len = raw.length();
+        int start = 0;
+        while (start < len) {
+            int end = raw.indexOf('&', start);
+            if (end < 0) {
+                end = len;
+            }
+            int eq = raw.indexOf('=', start);
+            if (eq >= 0 && eq < end) {
+                params.putIfAbsent(decode(raw, start, eq), decode(raw, eq + 1, end));
+            }
+            start = end + 1;
+        }
+        return params;
+    }
+
+    /**
+     * Gets the undecoded query string.
+     *
+     * @return the raw query text
+     */
+    public String raw() {
+        return raw;
+    }
+
+    private boolean keyMatches(int from, int to, String name) {
+        if (needsDecoding(raw, from, to)) {
+            return name.equals(decode(raw, from, to));
+        }
+        return to - from == name.length() && raw.regionMatches(from, name, 0, name.length());
+    }
+
+    private static boolean needsDecoding(String s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String decode(String s, int from, int to) {
+        String slice = s.substring(from, to);
+        if (!needsDecoding(s, from, to)) {
+            return slice;
+        }
+        try {
+            return URLDecoder.decode(slice, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // Escape inválido: se devuelve el valor sin decodificar
+            return slice;
+        }
+    }
+}
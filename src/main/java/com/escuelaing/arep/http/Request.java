@@ -1,70 +1,74 @@
 package com.escuelaing.arep.http;
 
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Wrapper class for HTTP request data.
  * Provides access to query parameters and request information.
+ * <p>
+ * The header map handed in by the parser is used as-is (no defensive copy) and the
+ * query string is kept raw behind a {@link QueryParams} view: only the parameters that are
+ * actually requested get decoded.
+ * </p>
  * 
  * @author Diego Cardenas
  * @version 1.0
  */
 public class Request {
     
-    private static final Logger LOGGER = Logger.getLogger(Request.class.getName());
-    
     private final String method;
     private final String path;
-    private final Map<String, String> queryParams;
+    private final String queryString;
     private final Map<String, String> headers;
+    private final InputStream body;
+    private QueryParams query;
+    private Map<String, String> queryParams;
+    private List<Part> parts;
     
     /**
      * Constructs a Request object from HTTP request components.
      * 
      * @param method the HTTP method (GET, POST, etc.)
      * @param path the request path including query string
-     * @param headers the HTTP headers map
+     * @param headers the HTTP headers map, with lower-case names; it is not copied
      */
     public Request(String method, String path, Map<String, String> headers) {
+        this(method, path, headers, null);
+    }
+
+    /**
+     * Constructs a Request object with a body.
+     *
+     * @param method  the HTTP method (GET, POST, etc.)
+     * @param path    the request path including query string
+     * @param headers the HTTP headers map, with lower-case names; it is not copied
+     * @param body    the request body, limited to its declared length, or null if there is none
+     */
+    public Request(String method, String path, Map<String, String> headers, InputStream body) {
         this.method = method;
-        this.headers = headers != null ? new HashMap<>(headers) : new HashMap<>();
-        this.queryParams = new HashMap<>();
+        this.headers = headers != null ? headers : Map.of();
+        this.body = body != null ? body : InputStream.nullInputStream();
         
-        if (path.contains("?")) {
-            String[] pathParts = path.split("\\?", 2);
-            this.path = pathParts[0];
-            parseQueryParameters(pathParts[1]);
+        int q = path.indexOf('?');
+        if (q >= 0) {
+            this.path = path.substring(0, q);
+            this.queryString = path.substring(q + 1);
         } else {
             this.path = path;
+            this.queryString = null;
         }
     }
     
-    /**
-     * Parses query parameters from the query string.
-     * 
-     * @param queryString the URL query string (after the '?' character)
-     */
-    private void parseQueryParameters(String queryString) {
-        if (queryString != null && !queryString.isEmpty()) {
-            String[] params = queryString.split("&");
-            for (String param : params) {
-                String[] keyValue = param.split("=", 2);
-                if (keyValue.length == 2) {
-                    try {
-                        String key = URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8);
-                        String value = URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8);
-                        queryParams.put(key, value);
-                    } catch (Exception e) {
-                        LOGGER.log(Level.WARNING, "Error decoding query parameter: {0}", e.getMessage());
-                    }
-                }
-            }
+    private QueryParams query() {
+        if (query == null) {
+            query = queryString == null ? QueryParams.EMPTY : new QueryParams(queryString);
         }
+        return query;
     }
     
     /**
@@ -74,16 +78,48 @@ public class Request {
      * @return the parameter value, or empty string if not found
      */
     public String getValues(String name) {
-        return queryParams.getOrDefault(name, "");
+        String value = query().get(name);
+        return value != null ? value : "";
     }
     
     /**
-     * Gets all query parameters as a map.
+     * Gets the value of a query parameter by name, distinguishing absent parameters.
+     *
+     * @param name the parameter name
+     * @return the parameter value, or null if not present
+     */
+    public String getQueryParam(String name) {
+        return queryString == null ? null : query().get(name);
+    }
+
+    /**
+     * Gets all query parameters as a read-only map.
      * 
      * @return a map of parameter names to values
      */
     public Map<String, String> getQueryParams() {
-        return new HashMap<>(queryParams);
+        if (queryParams == null) {
+            queryParams = Collections.unmodifiableMap(query().toMap());
+        }
+        return queryParams;
+    }
+
+    /**
+     * Gets the lazy view over the query string, for multi-valued lookups.
+     *
+     * @return the query parameter view, never null
+     */
+    public QueryParams getQuery() {
+        return query();
+    }
+
+    /**
+     * Gets the raw (undecoded) query string.
+     *
+     * @return the text after '?', or null if the request had no query string
+     */
+    public String getQueryString() {
+        return queryString;
     }
     
     /**
@@ -111,15 +147,67 @@ public class Request {
      * @return the header value, or null if not found
      */
     public String getHeader(String name) {
-        return headers.get(name.toLowerCase());
+        return headers.get(name.toLowerCase(Locale.ROOT));
     }
     
     /**
-     * Gets all headers as a map.
+     * Gets all headers as a read-only map backed by the parsed headers.
      * 
      * @return a map of header names to values
      */
     public Map<String, String> getHeaders() {
-        return new HashMap<>(headers);
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Gets the request body. On HTTP/1.1 it is read from the connection, so it is only
+     * available while the request is handled synchronously.
+     *
+     * @return the body stream, empty if the request has no body
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Gets the parts of a {@code multipart/form-data} body, parsing it on first call. Parts
+     * above the memory threshold are spooled to temporary files, deleted by the server once the
+     * request has been handled.
+     *
+     * @return the parts in body order, empty if the body is not {@code multipart/form-data}
+     * @throws IOException if the body is malformed ({@link MultipartParser.MultipartException}) or cannot be read
+     */
+    public List<Part> getParts() throws IOException {
+        if (parts == null) {
+            String boundary = MultipartParser.boundary(getHeader("content-type"));
+            parts = boundary == null ? List.of()
+                    : Collections.unmodifiableList(MultipartParser.shared().parse(body, boundary));
+        }
+        return parts;
+    }
+
+    /**
+     * Gets the first part with the given field name.
+     *
+     * @param name the form field name
+     * @return the part, or null if absent
+     * @throws IOException if the body cannot be parsed
+     */
+    public Part getPart(String name) throws IOException {
+        for (Part part : getParts()) {
+            if (part.getName().equals(name)) {
+                return part;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deletes the temporary files of the parsed parts, if any.
+     */
+    public void deleteParts() {
+        if (parts != null) {
+            parts.forEach(Part::delete);
+        }
     }
 }
@@ -1,11 +1,16 @@
 package com.escuelaing.arep.http;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * Wrapper class for HTTP response data.
  * Provides methods to configure response headers and status.
+ * <p>
+ * The header map is only allocated when a handler actually sets a header, so the
+ * common case (status and content type only) costs a single small object.
+ * </p>
  * 
  * @author Diego Cardenas
  * @version 1.0
@@ -14,13 +19,14 @@ public class Response {
     
     private int statusCode = 200;
     private String contentType = "text/plain";
-    private final Map<String, String> headers;
+    private Map<String, String> headers;
+    private byte[] body;
+    private int bodyLength;
     
     /**
      * Constructs a new Response object with default values.
      */
     public Response() {
-        this.headers = new HashMap<>();
     }
     
     /**
@@ -53,9 +59,55 @@ public class Response {
      * @return this Response object for method chaining
      */
     public Response header(String name, String value) {
+        if (headers == null) {
+            headers = new LinkedHashMap<>(4);
+        }
         headers.put(name, value);
         return this;
     }
+
+    /**
+     * Sets the response body. The buffer is not copied: only the first {@code length} bytes
+     * are sent, so a reusable buffer (such as a per-thread JSON buffer) can be passed as long
+     * as it is not modified until the response has been written.
+     *
+     * @param content the buffer holding the body
+     * @param length  the number of body bytes in {@code content}
+     * @return this Response object for method chaining
+     */
+    public Response body(byte[] content, int length) {
+        this.body = content;
+        this.bodyLength = length;
+        return this;
+    }
+
+    /**
+     * Sets the response body.
+     *
+     * @param content the body bytes
+     * @return this Response object for method chaining
+     */
+    public Response body(byte[] content) {
+        return body(content, content.length);
+    }
+
+    /**
+     * Gets the body buffer; only the first {@link #getBodyLength()} bytes are valid.
+     *
+     * @return the body buffer, or an empty array if no body was set
+     */
+    public byte[] getBody() {
+        return body == null ? new byte[0] : body;
+    }
+
+    /**
+     * Gets the body length.
+     *
+     * @return the number of body bytes
+     */
+    public int getBodyLength() {
+        return bodyLength;
+    }
     
     /**
      * Gets the current status code.
@@ -76,11 +128,20 @@ public class Response {
     }
     
     /**
-     * Gets all response headers.
+     * Indicates whether any custom header was set.
+     *
+     * @return true if {@link #header(String, String)} was called at least once
+     */
+    public boolean hasHeaders() {
+        return headers != null;
+    }
+
+    /**
+     * Gets all response headers as a read-only view.
      * 
      * @return a map of header names to values
      */
     public Map<String, String> getHeaders() {
-        return new HashMap<>(headers);
+        return headers == null ? Map.of() : Collections.unmodifiableMap(headers);
     }
 }
@@ -0,0 +1,183 @@
+package com.escuelaing.arep.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HPACK indexing table: the 61-entry static table followed by a size-bounded dynamic table
+ * (RFC 7541, section 2.3). Index 1 is the first static entry; index 62 is the newest
+ * dynamic entry.
+ * <p>
+ * The dynamic table is a ring buffer of name/value pairs; an entry's size is its name and
+ * value lengths plus 32 octets, and the oldest entries are evicted to respect the maximum.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+final class HeaderTable {
+
+    static final String[][] STATIC = {
+            {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"},
+            {":path", "/index.html"}, {":scheme", "http"}, {":scheme", "https"}, {":status", "200"},
+            {":status", "204"}, {":status", "206"}, {":status", "304"}, {":status", "400"},
+            {":status", "404"}, {":status", "500"}, {"accept-charset", ""}, {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""}, {"access-control-allow-origin", ""},
+            {"age", ""}, {"allow", ""}, {"authorization", ""}, {"cache-control", ""},
+            {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""}, {"content-length", ""},
+            {"content-location", ""}, {"content-range", ""}, {"content-type", ""}, {"cookie", ""},
+            {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""},
+            {"from", ""}, {"host", ""}, {"if-match", ""}, {"if-modified-since", ""},
+            {"if-none-match", ""}, {"if-range", ""}, {"if-unmodified-since", ""}, {"last-modified", ""},
+            {"link", ""}, {"location", ""}, {"max-forwards", ""}, {"proxy-authenticate", ""},
+            {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+            {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+            {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""},
+            {"www-authenticate", ""}
+    };
+
+    // Índices estáticos por nombre (primera aparición) y por par nombre/valor, para el codificador
+    static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+    static final Map<String, Integer> STATIC_PAIRS = new HashMap<>();
+
+    static {
+        for (int i = STATIC.length - 1; i >= 0; i--) {
+            STATIC_NAMES.put(STATIC[i][0], i + 1);
+            if (!STATIC[i][1].isEmpty()) {
+                STATIC_PAIRS.put(STATIC[i][0] + '\0' + STATIC[i][1], i + 1);
+            }
+        }
+    }
+
+    private String[] names = new String[16];
+    private String[] values = new String[16];
+    // Posición de la entrada más nueva; las anteriores siguen hacia adelante en el anillo
+    private int head;
+    private int count;
+    private int size;
+    private int maxSize;
+
+    HeaderTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the name of the entry at an HPACK index.
+     *
+     * @param index the 1-based index over static and dynamic entries
+     * @return the header name
+     * @throws HpackException if the index is out of range
+     */
+    String name(int index) throws HpackException {
+        if (index >= 1 && index <= STATIC.length) {
+            return STATIC[index - 1][0];
+        }
+        return names[slot(index)];
+    }
+
+    /**
+     * Gets the value of the entry at an HPACK index.
+     *
+     * @param index the 1-based index over static and dynamic entries
+     * @return the header value
+     * @throws HpackException if the index is out of range
+     */
+    String value(int index) throws HpackException {
+        if (index >= 1 && index <= STATIC.length) {
+            return STATIC[index - 1][1];
+        }
+        return values[slot(index)];
+    }
+
+    /**
+     * Finds a dynamic entry.
+     *
+     * @param name  the header name
+     * @param value the header value, or null to match the name only
+     * @return the HPACK index, or 0 if there is no match
+     */
+    int findDynamic(String name, String value) {
+        for (int i = 0; i < count; i++) {
+            int s = (head + i) % names.length;
+            if (names[s].equals(name) && (value == null || values[s].equals(value))) {
+                return STATIC.length + 1 + i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Inserts a new entry, evicting old ones; an entry larger than the table empties it.
+     *
+     * @param name  the header name
+     * @param value the header value
+     */
+    void add(String name, String value) {
+        int entrySize = entrySize(name, value);
+        evict(maxSize - entrySize);
+        if (entrySize > maxSize) {
+            return;
+        }
+        if (count == names.length) {
+            grow();
+        }
+        head = (head - 1 + names.length) % names.length;
+        names[head] = name;
+        values[head] = value;
+        count++;
+        size += entrySize;
+    }
+
+    /**
+     * Changes the maximum size, evicting entries that no longer fit.
+     *
+     * @param newMaxSize the new maximum in octets
+     */
+    void setMaxSize(int newMaxSize) {
+        maxSize = newMaxSize;
+        evict(newMaxSize);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int length() {
+        return count;
+    }
+
+    static int entrySize(String name, String value) {
+        // Las cadenas se tratan como octetos ISO-8859-1: un char por octeto
+        return name.length() + value.length() + 32;
+    }
+
+    private int slot(int index) throws HpackException {
+        int i = index - STATIC.length - 1;
+        if (i < 0 || i >= count) {
+            throw new HpackException("Índice HPACK fuera de rango: " + index);
+        }
+        return (head + i) % names.length;
+    }
+
+    private void evict(int target) {
+        while (size > Math.max(0, target) && count > 0) {
+            int oldest = (head + count - 1) % names.length;
+            size -= entrySize(names[oldest], values[oldest]);
+            names[oldest] = null;
+            values[oldest] = null;
+            count--;
+        }
+    }
+
+    private void grow() {
+        String[] newNames = new String[names.length * 2];
+        String[] newValues = new String[values.length * 2];
+        for (int i = 0; i < count; i++) {
+            newNames[i] = names[(head + i) % names.length];
+            newValues[i] = values[(head + i) % values.length];
+        }
+        names = newNames;
+        values = newValues;
+        head = 0;
+    }
+}
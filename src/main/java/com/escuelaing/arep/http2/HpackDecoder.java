@@ -0,0 +1,148 @@
+package com.escuelaing.arep.http2;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes HPACK header blocks (RFC 7541).
+ * <p>
+ * One decoder exists per connection and it must see every header block in the order the
+ * blocks arrive, since literal fields with incremental indexing update its dynamic table.
+ * Strings are returned as ISO-8859-1 text, one char per octet.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class HpackDecoder {
+
+    /**
+     * Receives each decoded header field in order.
+     */
+    @FunctionalInterface
+    public interface HeaderSink {
+        void header(String name, String value) throws HpackException;
+    }
+
+    private final HeaderTable table;
+    // Límite anunciado en SETTINGS_HEADER_TABLE_SIZE; el codificador remoto no puede superarlo
+    private final int maxTableSize;
+    private byte[] src;
+    private int pos;
+    private int end;
+
+    /**
+     * Creates a decoder.
+     *
+     * @param maxTableSize the dynamic table size this endpoint advertised
+     */
+    public HpackDecoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        this.table = new HeaderTable(maxTableSize);
+    }
+
+    /**
+     * Decodes a complete header block.
+     *
+     * @param block  the buffer holding the block
+     * @param offset start of the block
+     * @param length length of the block
+     * @param sink   receives every header field
+     * @throws HpackException if the block is malformed
+     */
+    public void decode(byte[] block, int offset, int length, HeaderSink sink) throws HpackException {
+        src = block;
+        pos = offset;
+        end = offset + length;
+        boolean fieldSeen = false;
+        try {
+            while (pos < end) {
+                int b = src[pos] & 0xFF;
+                if ((b & 0x80) != 0) {
+                    // Campo indexado
+                    int index = readInt(7);
+                    if (index == 0) {
+                        throw new HpackException("Índice HPACK 0");
+                    }
+                    sink.header(table.name(index), table.value(index));
+                    fieldSeen = true;
+                } else if ((b & 0x40) != 0) {
+                    // Literal con indexación incremental
+                    String[] field = readLiteral(6);
+                    table.add(field[0], field[1]);
+                    sink.header(field[0], field[1]);
+                    fieldSeen = true;
+                } else if ((b & 0x20) != 0) {
+                    // Actualización de tamaño: solo al inicio del bloque
+                    if (fieldSeen) {
+                        throw new HpackException("Actualización de tamaño de tabla fuera de lugar");
+                    }
+                    int newSize = readInt(5);
+                    if (newSize > maxTableSize) {
+                        throw new HpackException("Tamaño de tabla HPACK excede el anunciado: " + newSize);
+                    }
+                    table.setMaxSize(newSize);
+                } else {
+                    // Literal sin indexar (0000) o nunca indexado (0001)
+                    String[] field = readLiteral(4);
+                    sink.header(field[0], field[1]);
+                    fieldSeen = true;
+                }
+            }
+        } finally {
+            src = null;
+        }
+    }
+
+    int dynamicTableSize() {
+        return table.size();
+    }
+
+    private String[] readLiteral(int prefixBits) throws HpackException {
+        int index = readInt(prefixBits);
+        String name = index == 0 ? readString() : table.name(index);
+        return new String[]{name, readString()};
+    }
+
+    private String readString() throws HpackException {
+        if (pos >= end) {
+            throw new HpackException("Bloque HPACK truncado");
+        }
+        boolean huffman = (src[pos] & 0x80) != 0;
+        int length = readInt(7);
+        if (length > end - pos) {
+            throw new HpackException("Cadena HPACK truncada");
+        }
+        String s;
+        if (huffman) {
+            byte[] decoded = Huffman.decode(src, pos, length);
+            s = new String(decoded, StandardCharsets.ISO_8859_1);
+        } else {
+            s = new String(src, pos, length, StandardCharsets.ISO_8859_1);
+        }
+        pos += length;
+        return s;
+    }
+
+    private int readInt(int prefixBits) throws HpackException {
+        int mask = (1 << prefixBits) - 1;
+        int value = src[pos++] & mask;
+        if (value < mask) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (pos >= end) {
+                throw new HpackException("Entero HPACK truncado");
+            }
+            int b = src[pos++] & 0xFF;
+            value += (b & 0x7F) << shift;
+            if (value < 0 || shift > 21) {
+                throw new HpackException("Entero HPACK demasiado grande");
+            }
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.escuelaing.arep.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Encodes HPACK header blocks (RFC 7541).
+ * <p>
+ * Fields already in the static or dynamic table are sent as a single index. Other fields
+ * are sent as literals with incremental indexing, so headers that repeat on every response
+ * of a connection (content type, CORS headers) cost one or two bytes from the second
+ * response on. Values that change per response, such as {@code content-length}, are sent
+ * without indexing so they do not churn the table. Strings are Huffman-coded when shorter.
+ * </p>
+ * <p>
+ * One encoder exists per connection; blocks must be written to the wire in the order they
+ * are encoded.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class HpackEncoder {
+
+    private static final Set<String> NEVER_INDEXED = Set.of(
+            "content-length", "date", "etag", "last-modified", "retry-after", "set-cookie", "age", "location");
+
+    private final HeaderTable table;
+    private final int maxTableSize;
+    private int pendingSizeUpdate = -1;
+
+    /**
+     * Creates an encoder.
+     *
+     * @param maxTableSize the largest dynamic table this encoder will use (4096 by default)
+     */
+    public HpackEncoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        this.table = new HeaderTable(maxTableSize);
+    }
+
+    /**
+     * Applies the peer's {@code SETTINGS_HEADER_TABLE_SIZE}; the change is signalled at the
+     * start of the next header block.
+     *
+     * @param peerMaxSize the maximum table size the peer's decoder accepts
+     */
+    public void setPeerMaxTableSize(int peerMaxSize) {
+        int newSize = Math.min(peerMaxSize, maxTableSize);
+        table.setMaxSize(newSize);
+        pendingSizeUpdate = pendingSizeUpdate < 0 ? newSize : Math.min(pendingSizeUpdate, newSize);
+    }
+
+    /**
+     * Starts a header block, emitting any pending dynamic table size update.
+     *
+     * @param out the block buffer
+     */
+    public void beginBlock(ByteArrayOutputStream out) {
+        if (pendingSizeUpdate >= 0) {
+            writeInt(out, 0x20, 5, pendingSizeUpdate);
+            pendingSizeUpdate = -1;
+        }
+    }
+
+    /**
+     * Encodes one header field.
+     *
+     * @param name  the lower-case header name
+     * @param value the value (non ISO-8859-1 characters are sent as UTF-8 octets)
+     * @param out   the block buffer
+     */
+    public void encode(String name, String value, ByteArrayOutputStream out) {
+        value = toOctets(value);
+        Integer full = HeaderTable.STATIC_PAIRS.get(name + '\0' + value);
+        int index = full != null ? full : table.findDynamic(name, value);
+        if (index > 0) {
+            writeInt(out, 0x80, 7, index);
+            return;
+        }
+        Integer staticName = HeaderTable.STATIC_NAMES.get(name);
+        int nameIndex = staticName != null ? staticName : table.findDynamic(name, null);
+        if (NEVER_INDEXED.contains(name)) {
+            writeInt(out, 0x00, 4, nameIndex);
+        } else {
+            writeInt(out, 0x40, 6, nameIndex);
+            table.add(name, value);
+        }
+        if (nameIndex == 0) {
+            writeString(out, name);
+        }
+        writeString(out, value);
+    }
+
+    int dynamicTableSize() {
+        return table.size();
+    }
+
+    private static String toOctets(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            }
+        }
+        return value;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] raw = s.getBytes(StandardCharsets.ISO_8859_1);
+        int huffLength = Huffman.encodedLength(raw);
+        if (huffLength < raw.length) {
+            writeInt(out, 0x80, 7, huffLength);
+            Huffman.encode(raw, out);
+        } else {
+            writeInt(out, 0x00, 7, raw.length);
+            out.write(raw, 0, raw.length);
+        }
+    }
+
+    static void writeInt(ByteArrayOutputStream out, int flags, int prefixBits, int value) {
+        int mask = (1 << prefixBits) - 1;
+        if (value < mask) {
+            out.write(flags | value);
+            return;
+        }
+        out.write(flags | mask);
+        value -= mask;
+        while (value >= 0x80) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,17 @@
+package com.escuelaing.arep.http2;
+
+import java.io.IOException;
+
+/**
+ * Signals a malformed HPACK header block; the connection must be closed with
+ * {@code COMPRESSION_ERROR}.
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public class HpackException extends IOException {
+
+    public HpackException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,901 @@
+package com.escuelaing.arep.http2;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.framework.BufferPool;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Server side of one HTTP/2 cleartext (h2c) connection (RFC 7540).
+ * <p>
+ * The calling thread reads frames: it reassembles header blocks, decodes them with the
+ * connection's {@link HpackDecoder} and answers SETTINGS, PING and WINDOW_UPDATE inline.
+ * Each complete request is handed to the same handler the HTTP/1.1 path uses, on its own
+ * virtual thread, so slow handlers do not hold back the other streams of the connection.
+ * Frames from different streams are serialized by a write lock, under which the
+ * {@link HpackEncoder} is also used so header blocks reach the wire in encoding order.
+ * </p>
+ * <p>
+ * Outgoing DATA respects both the connection and the stream send windows; a stream with no
+ * window waits until the peer sends WINDOW_UPDATE. Incoming DATA is acknowledged right away,
+ * so the peer's windows are replenished as fast as frames are read. Request bodies are
+ * buffered from DATA frames and handed to the handler as the {@link Request} body once the
+ * stream ends; a body over {@code maxBodyBytes} is dropped and the stream answered with 413.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class Http2Connection {
+
+    private static final Logger LOGGER = Logger.getLogger(Http2Connection.class.getName());
+
+    /** The client connection preface (RFC 7540, section 3.5). */
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    /** Request line that starts a prior-knowledge connection. */
+    public static final String PREFACE_REQUEST_LINE = "PRI * HTTP/2.0";
+
+    static final int DATA = 0x0;
+    static final int HEADERS = 0x1;
+    static final int PRIORITY = 0x2;
+    static final int RST_STREAM = 0x3;
+    static final int SETTINGS = 0x4;
+    static final int PUSH_PROMISE = 0x5;
+    static final int PING = 0x6;
+    static final int GOAWAY = 0x7;
+    static final int WINDOW_UPDATE = 0x8;
+    static final int CONTINUATION = 0x9;
+
+    static final int FLAG_END_STREAM = 0x1;
+    static final int FLAG_ACK = 0x1;
+    static final int FLAG_END_HEADERS = 0x4;
+    static final int FLAG_PADDED = 0x8;
+    static final int FLAG_PRIORITY = 0x20;
+
+    static final int NO_ERROR = 0x0;
+    static final int PROTOCOL_ERROR = 0x1;
+    static final int INTERNAL_ERROR = 0x2;
+    static final int FLOW_CONTROL_ERROR = 0x3;
+    static final int STREAM_CLOSED = 0x5;
+    static final int FRAME_SIZE_ERROR = 0x6;
+    static final int REFUSED_STREAM = 0x7;
+    static final int CANCEL = 0x8;
+    static final int COMPRESSION_ERROR = 0x9;
+
+    static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    static final int SETTINGS_ENABLE_PUSH = 0x2;
+    static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    private static final int DEFAULT_WINDOW = 65_535;
+    private static final int MAX_WINDOW = Integer.MAX_VALUE;
+    private static final int DEFAULT_FRAME_SIZE = 16_384;
+    private static final int TABLE_SIZE = 4096;
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] SWITCHING_PROTOCOLS = ("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Connection: Upgrade\r\nUpgrade: h2c\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    // Cabeceras propias de HTTP/1.1 que no pueden viajar en HTTP/2
+    private static final Set<String> CONNECTION_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade");
+
+    /**
+     * Connection-level protocol error; the connection is closed with GOAWAY.
+     */
+    static final class Http2Exception extends IOException {
+        final int errorCode;
+
+        Http2Exception(int errorCode, String message) {
+            super(message);
+            this.errorCode = errorCode;
+        }
+    }
+
+    private static final class Stream {
+        final int id;
+        final Map<String, String> headers = new HashMap<>();
+        String method;
+        String path;
+        String authority;
+        long sendWindow;
+        boolean tooLarge;
+        boolean malformed;
+        // Cuerpo recibido en frames DATA, acotado por maxBodyBytes
+        ByteArrayOutputStream body;
+        boolean bodyTooLarge;
+        volatile boolean dispatched;
+        volatile boolean reset;
+
+        Stream(int id, long sendWindow) {
+            this.id = id;
+            this.sendWindow = sendWindow;
+        }
+    }
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final Function<Request, Response> handler;
+    private final Map<String, String> defaultHeaders;
+    private final int maxConcurrentStreams;
+    private final int maxHeaderListSize;
+    private final int maxBodyBytes;
+    private final int idleTimeoutMillis;
+
+    private final HpackDecoder decoder = new HpackDecoder(TABLE_SIZE);
+    private final HpackEncoder encoder = new HpackEncoder(TABLE_SIZE);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(256);
+    private final byte[] frameHeader = new byte[9];
+    private final byte[] readHeader = new byte[9];
+    private final BufferPool.Buffer readPooled = BufferPool.shared().acquire(DEFAULT_FRAME_SIZE);
+    private final byte[] readBuffer = readPooled.array();
+    private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream(256);
+    private final Map<Integer, Stream> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final ExecutorService streamExecutor;
+
+    // Control de flujo de envío; protegido por el monitor de flowLock
+    private final Object flowLock = new Object();
+    private long connectionSendWindow = DEFAULT_WINDOW;
+    private int peerInitialWindow = DEFAULT_WINDOW;
+    private volatile int peerMaxFrameSize = DEFAULT_FRAME_SIZE;
+
+    private int lastStreamId;
+    private int continuationStream;
+    private int continuationFlags;
+    private volatile boolean closed;
+
+    /**
+     * Creates a connection.
+     *
+     * @param socket               the client socket; it is closed when the connection ends
+     * @param in                   the input stream, positioned right after the bytes already consumed
+     * @param out                  the socket output stream
+     * @param handler              produces the response for each request (same dispatcher as HTTP/1.1)
+     * @param defaultHeaders       headers added to every response, with lower-case names
+     * @param maxConcurrentStreams advertised SETTINGS_MAX_CONCURRENT_STREAMS
+     * @param maxHeaderListSize    maximum decoded size of a request's headers (431 beyond it)
+     * @param maxBodyBytes         maximum size of a request body (413 beyond it)
+     * @param idleTimeoutMillis    how long an idle connection (no open streams) is kept
+     */
+    public Http2Connection(Socket socket, InputStream in, OutputStream out, Function<Request, Response> handler,
+                           Map<String, String> defaultHeaders, int maxConcurrentStreams, int maxHeaderListSize,
+                           int maxBodyBytes, int idleTimeoutMillis) {
+        this.socket = socket;
+        this.in = in;
+        this.out = new BufferedOutputStream(out, DEFAULT_FRAME_SIZE + 9);
+        this.handler = handler;
+        this.defaultHeaders = defaultHeaders;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.maxHeaderListSize = maxHeaderListSize;
+        this.maxBodyBytes = maxBodyBytes;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.streamExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("h2-stream-", 0).factory());
+    }
+
+    /**
+     * Indicates whether an HTTP/1.1 request asks to upgrade to h2c: {@code Upgrade: h2c}, an
+     * {@code HTTP2-Settings} header and no request body.
+     *
+     * @param headers the request headers, with lower-case names
+     * @return true if the upgrade can be accepted
+     */
+    public static boolean isUpgradeRequest(Map<String, String> headers) {
+        String upgrade = headers.get("upgrade");
+        if (upgrade == null || !headers.containsKey("http2-settings")) {
+            return false;
+        }
+        String length = headers.get("content-length");
+        return upgrade.trim().equalsIgnoreCase("h2c") && !headers.containsKey("transfer-encoding")
+                && (length == null || length.trim().equals("0"));
+    }
+
+    /**
+     * Serves a prior-knowledge connection whose request line {@code PRI * HTTP/2.0} was
+     * already read; the rest of the preface is verified first. Closes the socket on return.
+     */
+    public void servePriorKnowledge() {
+        try {
+            expect(PREFACE, PREFACE_REQUEST_LINE.length() + 2);
+            writeSettings();
+            readLoop();
+        } catch (IOException e) {
+            handleReadFailure(e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Accepts an {@code Upgrade: h2c} request: sends 101, answers the upgraded request on
+     * stream 1 and then serves the connection. Closes the socket on return.
+     *
+     * @param request       the HTTP/1.1 request that carried the upgrade
+     * @param http2Settings the base64url {@code HTTP2-Settings} header value
+     */
+    public void serveUpgrade(Request request, String http2Settings) {
+        try {
+            byte[] settings = Base64.getUrlDecoder().decode(http2Settings.trim());
+            if (settings.length % 6 != 0) {
+                throw new Http2Exception(PROTOCOL_ERROR, "HTTP2-Settings inválido");
+            }
+            out.write(SWITCHING_PROTOCOLS);
+            applySettings(settings, 0, settings.length);
+            writeSettings();
+            Stream stream = new Stream(1, peerInitialWindow);
+            lastStreamId = 1;
+            streams.put(1, stream);
+            activeStreams.incrementAndGet();
+            stream.dispatched = true;
+            streamExecutor.execute(() -> respond(stream, request));
+            expect(PREFACE, 0);
+            readLoop();
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "HTTP2-Settings no es base64url válido");
+        } catch (IOException e) {
+            handleReadFailure(e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private void readLoop() throws IOException {
+        socket.setSoTimeout(idleTimeoutMillis);
+        while (!closed) {
+            int first;
+            try {
+                first = in.read();
+            } catch (SocketTimeoutException e) {
+                if (activeStreams.get() > 0) {
+                    // Hay respuestas en curso: la conexión no está ociosa
+                    continue;
+                }
+                goAway(NO_ERROR);
+                return;
+            }
+            if (first < 0) {
+                return;
+            }
+            // Una vez iniciado el frame, un timeout ya no es ociosidad sino un cliente que no termina de enviar
+            readHeader[0] = (byte) first;
+            readFully(readHeader, 1, 8);
+            int length = ((readHeader[0] & 0xFF) << 16) | ((readHeader[1] & 0xFF) << 8) | (readHeader[2] & 0xFF);
+            int type = readHeader[3] & 0xFF;
+            int flags = readHeader[4] & 0xFF;
+            int streamId = readInt(readHeader, 5) & 0x7FFFFFFF;
+            if (length > DEFAULT_FRAME_SIZE) {
+                throw new Http2Exception(FRAME_SIZE_ERROR, "Frame de " + length + " bytes");
+            }
+            readFully(readBuffer, 0, length);
+            if (continuationStream != 0 && (type != CONTINUATION || streamId != continuationStream)) {
+                throw new Http2Exception(PROTOCOL_ERROR, "Se esperaba CONTINUATION");
+            }
+            switch (type) {
+                case DATA -> onData(flags, streamId, length);
+                case HEADERS -> onHeaders(flags, streamId, length);
+                case CONTINUATION -> onContinuation(flags, streamId, length);
+                case SETTINGS -> onSettings(flags, streamId, length);
+                case PING -> onPing(flags, streamId, length);
+                case WINDOW_UPDATE -> onWindowUpdate(streamId, length);
+                case RST_STREAM -> onRstStream(streamId, length);
+                case PRIORITY -> {
+                    if (length != 5) {
+                        throw new Http2Exception(FRAME_SIZE_ERROR, "PRIORITY de tamaño inválido");
+                    }
+                }
+                case GOAWAY -> {
+                    // El cliente no abrirá más streams; se terminan los que están en curso
+                    return;
+                }
+                case PUSH_PROMISE -> throw new Http2Exception(PROTOCOL_ERROR, "PUSH_PROMISE de un cliente");
+                default -> {
+                    // Tipos desconocidos se ignoran (RFC 7540, 4.1)
+                }
+            }
+        }
+    }
+
+    private void onHeaders(int flags, int streamId, int length) throws IOException {
+        if (streamId == 0 || (streamId & 1) == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "HEADERS en stream inválido " + streamId);
+        }
+        int offset = 0;
+        int end = length;
+        if ((flags & FLAG_PADDED) != 0) {
+            if (length < 1) {
+                throw new Http2Exception(FRAME_SIZE_ERROR, "HEADERS sin longitud de relleno");
+            }
+            end -= readBuffer[0] & 0xFF;
+            offset = 1;
+        }
+        if ((flags & FLAG_PRIORITY) != 0) {
+            offset += 5;
+        }
+        if (end < offset) {
+            throw new Http2Exception(PROTOCOL_ERROR, "Relleno excede el frame HEADERS");
+        }
+        headerBlock.reset();
+        headerBlock.write(readBuffer, offset, end - offset);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            onHeaderBlock(streamId, (flags & FLAG_END_STREAM) != 0);
+        } else {
+            continuationStream = streamId;
+            continuationFlags = flags;
+        }
+    }
+
+    private void onContinuation(int flags, int streamId, int length) throws IOException {
+        if (streamId == 0 || streamId != continuationStream) {
+            throw new Http2Exception(PROTOCOL_ERROR, "CONTINUATION inesperado");
+        }
+        if (headerBlock.size() + length > maxHeaderListSize * 2L + DEFAULT_FRAME_SIZE) {
+            throw new Http2Exception(PROTOCOL_ERROR, "Bloque de cabeceras demasiado grande");
+        }
+        headerBlock.write(readBuffer, 0, length);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            continuationStream = 0;
+            onHeaderBlock(streamId, (continuationFlags & FLAG_END_STREAM) != 0);
+        }
+    }
+
+    private void onHeaderBlock(int streamId, boolean endStream) throws IOException {
+        Stream existing = streams.get(streamId);
+        byte[] block = headerBlock.toByteArray();
+        if (existing != null || streamId <= lastStreamId) {
+            // Trailers de un stream abierto (o de uno ya cerrado): se decodifican para mantener la tabla y se ignoran
+            decodeBlock(block, (name, value) -> { });
+            if (existing == null) {
+                throw new Http2Exception(STREAM_CLOSED, "HEADERS en stream cerrado " + streamId);
+            }
+            if (endStream && !existing.dispatched) {
+                dispatch(existing);
+            }
+            return;
+        }
+        lastStreamId = streamId;
+        Stream stream = new Stream(streamId, peerInitialWindow());
+        int[] listSize = {0};
+        decodeBlock(block, (name, value) -> {
+            listSize[0] += HeaderTable.entrySize(name, value);
+            if (listSize[0] > maxHeaderListSize) {
+                stream.tooLarge = true;
+                return;
+            }
+            if (name.startsWith(":")) {
+                switch (name) {
+                    case ":method" -> stream.method = value;
+                    case ":path" -> stream.path = value;
+                    case ":authority" -> stream.authority = value;
+                    case ":scheme" -> { }
+                    default -> stream.malformed = true;
+                }
+            } else if (!name.equals(name.toLowerCase()) || CONNECTION_HEADERS.contains(name)) {
+                stream.malformed = true;
+            } else {
+                String sep = name.equals("cookie") ? "; " : ", ";
+                stream.headers.merge(name, value, (a, b) -> a + sep + b);
+            }
+        });
+        if (stream.method == null || stream.path == null) {
+            stream.malformed = true;
+        }
+        if (stream.malformed) {
+            writeRstStream(streamId, PROTOCOL_ERROR);
+            return;
+        }
+        if (activeStreams.get() >= maxConcurrentStreams) {
+            writeRstStream(streamId, REFUSED_STREAM);
+            return;
+        }
+        streams.put(streamId, stream);
+        activeStreams.incrementAndGet();
+        if (endStream) {
+            dispatch(stream);
+        }
+    }
+
+    private void decodeBlock(byte[] block, HpackDecoder.HeaderSink sink) throws Http2Exception {
+        try {
+            decoder.decode(block, 0, block.length, sink);
+        } catch (HpackException e) {
+            throw new Http2Exception(COMPRESSION_ERROR, e.getMessage());
+        }
+    }
+
+    private void onData(int flags, int streamId, int length) throws IOException {
+        if (streamId == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "DATA en el stream 0");
+        }
+        if ((flags & FLAG_PADDED) != 0 && (length < 1 || (readBuffer[0] & 0xFF) >= length)) {
+            throw new Http2Exception(PROTOCOL_ERROR, "Relleno excede el frame DATA");
+        }
+        Stream stream = streams.get(streamId);
+        boolean endStream = (flags & FLAG_END_STREAM) != 0;
+        if (length > 0) {
+            // Se repone la ventana de inmediato: lo retenido está acotado por maxBodyBytes
+            writeWindowUpdate(0, length);
+            if (stream != null && !endStream) {
+                writeWindowUpdate(streamId, length);
+            }
+        }
+        if (stream == null) {
+            if (streamId > lastStreamId) {
+                throw new Http2Exception(PROTOCOL_ERROR, "DATA en stream inactivo " + streamId);
+            }
+            return;
+        }
+        if (!stream.dispatched) {
+            bufferBody(stream, flags, length);
+            if (endStream) {
+                dispatch(stream);
+            }
+        }
+    }
+
+    private void bufferBody(Stream stream, int flags, int length) {
+        int offset = 0;
+        int end = length;
+        if ((flags & FLAG_PADDED) != 0) {
+            offset = 1;
+            end -= readBuffer[0] & 0xFF;
+        }
+        if (end <= offset || stream.bodyTooLarge) {
+            return;
+        }
+        if (stream.body == null) {
+            stream.body = new ByteArrayOutputStream(Math.min(maxBodyBytes, 8192));
+        }
+        if (stream.body.size() + (end - offset) > maxBodyBytes) {
+            stream.bodyTooLarge = true;
+            stream.body = null;
+            return;
+        }
+        stream.body.write(readBuffer, offset, end - offset);
+    }
+
+    private void onSettings(int flags, int streamId, int length) throws IOException {
+        if (streamId != 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "SETTINGS en un stream");
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            if (length != 0) {
+                throw new Http2Exception(FRAME_SIZE_ERROR, "SETTINGS ACK con contenido");
+            }
+            return;
+        }
+        if (length % 6 != 0) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "SETTINGS de tamaño inválido");
+        }
+        applySettings(readBuffer, 0, length);
+        writeFrame(SETTINGS, FLAG_ACK, 0, EMPTY, 0, 0, true);
+    }
+
+    private void applySettings(byte[] buf, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i += 6) {
+            int id = ((buf[i] & 0xFF) << 8) | (buf[i + 1] & 0xFF);
+            long value = readInt(buf, i + 2) & 0xFFFFFFFFL;
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE -> {
+                    writeLock.lock();
+                    try {
+                        encoder.setPeerMaxTableSize((int) Math.min(value, Integer.MAX_VALUE));
+                    } finally {
+                        writeLock.unlock();
+                    }
+                }
+                case SETTINGS_ENABLE_PUSH -> {
+                    if (value > 1) {
+                        throw new Http2Exception(PROTOCOL_ERROR, "ENABLE_PUSH inválido");
+                    }
+                }
+                case SETTINGS_INITIAL_WINDOW_SIZE -> {
+                    if (value > MAX_WINDOW) {
+                        throw new Http2Exception(FLOW_CONTROL_ERROR, "INITIAL_WINDOW_SIZE inválido");
+                    }
+                    synchronized (flowLock) {
+                        long delta = value - peerInitialWindow;
+                        for (Stream s : streams.values()) {
+                            s.sendWindow += delta;
+                        }
+                        peerInitialWindow = (int) value;
+                        flowLock.notifyAll();
+                    }
+                }
+                case SETTINGS_MAX_FRAME_SIZE -> {
+                    if (value < DEFAULT_FRAME_SIZE || value > 0xFFFFFF) {
+                        throw new Http2Exception(PROTOCOL_ERROR, "MAX_FRAME_SIZE inválido");
+                    }
+                    peerMaxFrameSize = (int) value;
+                }
+                default -> {
+                    // MAX_CONCURRENT_STREAMS y MAX_HEADER_LIST_SIZE limitan al servidor solo si hiciera push
+                }
+            }
+        }
+    }
+
+    private void onPing(int flags, int streamId, int length) throws IOException {
+        if (length != 8) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "PING de tamaño inválido");
+        }
+        if (streamId != 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "PING en un stream");
+        }
+        if ((flags & FLAG_ACK) == 0) {
+            writeFrame(PING, FLAG_ACK, 0, Arrays.copyOf(readBuffer, 8), 0, 8, true);
+        }
+    }
+
+    private void onWindowUpdate(int streamId, int length) throws IOException {
+        if (length != 4) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "WINDOW_UPDATE de tamaño inválido");
+        }
+        int increment = readInt(readBuffer, 0) & 0x7FFFFFFF;
+        if (increment == 0) {
+            if (streamId == 0) {
+                throw new Http2Exception(PROTOCOL_ERROR, "WINDOW_UPDATE de 0");
+            }
+            resetStream(streamId, PROTOCOL_ERROR);
+            return;
+        }
+        synchronized (flowLock) {
+            if (streamId == 0) {
+                connectionSendWindow += increment;
+                if (connectionSendWindow > MAX_WINDOW) {
+                    throw new Http2Exception(FLOW_CONTROL_ERROR, "Ventana de conexión desbordada");
+                }
+            } else {
+                Stream stream = streams.get(streamId);
+                if (stream == null) {
+                    return;
+                }
+                stream.sendWindow += increment;
+                if (stream.sendWindow > MAX_WINDOW) {
+                    stream.reset = true;
+                }
+            }
+            flowLock.notifyAll();
+        }
+        Stream stream = streamId != 0 ? streams.get(streamId) : null;
+        if (stream != null && stream.reset) {
+            resetStream(streamId, FLOW_CONTROL_ERROR);
+        }
+    }
+
+    private void onRstStream(int streamId, int length) throws IOException {
+        if (length != 4) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "RST_STREAM de tamaño inválido");
+        }
+        if (streamId == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, "RST_STREAM en el stream 0");
+        }
+        Stream stream = streams.get(streamId);
+        if (stream != null) {
+            synchronized (flowLock) {
+                stream.reset = true;
+                flowLock.notifyAll();
+            }
+            if (!stream.dispatched) {
+                closeStream(stream);
+            }
+        }
+    }
+
+    private void dispatch(Stream stream) {
+        stream.dispatched = true;
+        if (stream.tooLarge) {
+            byte[] body = "Request Header Fields Too Large".getBytes(StandardCharsets.UTF_8);
+            Response response = new Response().status(431).type("text/plain; charset=UTF-8").body(body);
+            streamExecutor.execute(() -> writeResponse(stream, response));
+            return;
+        }
+        if (stream.bodyTooLarge) {
+            byte[] body = "Payload Too Large".getBytes(StandardCharsets.UTF_8);
+            Response response = new Response().status(413).type("text/plain; charset=UTF-8").body(body);
+            streamExecutor.execute(() -> writeResponse(stream, response));
+            return;
+        }
+        if (stream.authority != null) {
+            stream.headers.putIfAbsent("host", stream.authority);
+        }
+        Request request = new Request(stream.method, toUtf8(stream.path), stream.headers,
+                stream.body != null ? new ByteArrayInputStream(stream.body.toByteArray()) : null);
+        streamExecutor.execute(() -> respond(stream, request));
+    }
+
+    private void respond(Stream stream, Request request) {
+        Response response;
+        try {
+            response = handler.apply(request);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error atendiendo stream {0}: {1}", new Object[]{stream.id, e.getMessage()});
+            byte[] body = "Internal Server Error".getBytes(StandardCharsets.UTF_8);
+            response = new Response().status(500).type("text/plain; charset=UTF-8").body(body);
+        }
+        writeResponse(stream, response, "HEAD".equals(request.getMethod()));
+    }
+
+    private void writeResponse(Stream stream, Response response) {
+        writeResponse(stream, response, false);
+    }
+
+    /**
+     * Sends a response on its stream. For {@code HEAD} only the header block is sent, with the
+     * {@code content-length} of the omitted body, and it ends the stream.
+     */
+    private void writeResponse(Stream stream, Response response, boolean headOnly) {
+        try {
+            byte[] body = response.getBody();
+            int length = response.getBodyLength();
+            int sent = headOnly ? 0 : length;
+            writeLock.lock();
+            try {
+                if (stream.reset || closed) {
+                    return;
+                }
+                encodeBuffer.reset();
+                encoder.beginBlock(encodeBuffer);
+                encoder.encode(":status", Integer.toString(response.getStatusCode()), encodeBuffer);
+                encoder.encode("content-type", response.getContentType(), encodeBuffer);
+                encoder.encode("content-length", Integer.toString(length), encodeBuffer);
+                for (Map.Entry<String, String> h : defaultHeaders.entrySet()) {
+                    encoder.encode(h.getKey(), h.getValue(), encodeBuffer);
+                }
+                if (response.hasHeaders()) {
+                    for (Map.Entry<String, String> h : response.getHeaders().entrySet()) {
+                        String name = h.getKey().toLowerCase();
+                        if (!CONNECTION_HEADERS.contains(name)) {
+                            encoder.encode(name, h.getValue(), encodeBuffer);
+                        }
+                    }
+                }
+                writeHeaderBlock(stream.id, sent == 0);
+            } finally {
+                writeLock.unlock();
+            }
+            int offset = 0;
+            while (offset < sent) {
+                int chunk = acquireSendWindow(stream, sent - offset);
+                if (chunk == 0) {
+                    return;
+                }
+                boolean last = offset + chunk == sent;
+                writeFrame(DATA, last ? FLAG_END_STREAM : 0, stream.id, body, offset, chunk, true);
+                offset += chunk;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo escribir el stream {0}: {1}", new Object[]{stream.id, e.getMessage()});
+        } finally {
+            closeStream(stream);
+        }
+    }
+
+    /**
+     * Waits until the connection and stream windows allow sending, then reserves up to
+     * {@code wanted} bytes (capped at the peer's frame size).
+     *
+     * @return the reserved byte count, or 0 if the stream or connection is gone
+     */
+    private int acquireSendWindow(Stream stream, int wanted) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        synchronized (flowLock) {
+            while (true) {
+                if (closed || stream.reset) {
+                    return 0;
+                }
+                long available = Math.min(connectionSendWindow, stream.sendWindow);
+                if (available > 0) {
+                    int n = (int) Math.min(available, Math.min(wanted, peerMaxFrameSize));
+                    connectionSendWindow -= n;
+                    stream.sendWindow -= n;
+                    return n;
+                }
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (waitMillis <= 0) {
+                    // El cliente no abre la ventana: se cancela el stream en vez de retener el hilo
+                    stream.reset = true;
+                    writeRstStream(stream.id, CANCEL);
+                    return 0;
+                }
+                try {
+                    flowLock.wait(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private void writeHeaderBlock(int streamId, boolean endStream) throws IOException {
+        byte[] block = encodeBuffer.toByteArray();
+        int maxFrame = peerMaxFrameSize;
+        int first = Math.min(block.length, maxFrame);
+        int flags = (endStream ? FLAG_END_STREAM : 0) | (first == block.length ? FLAG_END_HEADERS : 0);
+        writeFrame(HEADERS, flags, streamId, block, 0, first, false);
+        for (int offset = first; offset < block.length; offset += maxFrame) {
+            int n = Math.min(maxFrame, block.length - offset);
+            writeFrame(CONTINUATION, offset + n == block.length ? FLAG_END_HEADERS : 0, streamId, block, offset, n, false);
+        }
+        out.flush();
+    }
+
+    private void writeSettings() throws IOException {
+        byte[] payload = new byte[12];
+        putSetting(payload, 0, SETTINGS_MAX_CONCURRENT_STREAMS, maxConcurrentStreams);
+        putSetting(payload, 6, SETTINGS_MAX_HEADER_LIST_SIZE, maxHeaderListSize);
+        writeFrame(SETTINGS, 0, 0, payload, 0, payload.length, true);
+    }
+
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        byte[] payload = new byte[4];
+        putInt(payload, 0, increment);
+        writeFrame(WINDOW_UPDATE, 0, streamId, payload, 0, 4, true);
+    }
+
+    private void writeRstStream(int streamId, int errorCode) throws IOException {
+        byte[] payload = new byte[4];
+        putInt(payload, 0, errorCode);
+        writeFrame(RST_STREAM, 0, streamId, payload, 0, 4, true);
+    }
+
+    private void resetStream(int streamId, int errorCode) throws IOException {
+        Stream stream = streams.get(streamId);
+        if (stream != null) {
+            synchronized (flowLock) {
+                stream.reset = true;
+                flowLock.notifyAll();
+            }
+        }
+        writeRstStream(streamId, errorCode);
+    }
+
+    private void goAway(int errorCode) {
+        byte[] payload = new byte[8];
+        putInt(payload, 0, lastStreamId);
+        putInt(payload, 4, errorCode);
+        try {
+            writeFrame(GOAWAY, 0, 0, payload, 0, 8, true);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo enviar GOAWAY: {0}", e.getMessage());
+        }
+    }
+
+    private void writeFrame(int type, int flags, int streamId, byte[] payload, int offset, int length,
+                            boolean flush) throws IOException {
+        writeLock.lock();
+        try {
+            frameHeader[0] = (byte) (length >>> 16);
+            frameHeader[1] = (byte) (length >>> 8);
+            frameHeader[2] = (byte) length;
+            frameHeader[3] = (byte) type;
+            frameHeader[4] = (byte) flags;
+            putInt(frameHeader, 5, streamId);
+            out.write(frameHeader, 0, 9);
+            out.write(payload, offset, length);
+            if (flush) {
+                out.flush();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void closeStream(Stream stream) {
+        if (streams.remove(stream.id) != null) {
+            activeStreams.decrementAndGet();
+        }
+    }
+
+    private int peerInitialWindow() {
+        synchronized (flowLock) {
+            return peerInitialWindow;
+        }
+    }
+
+    private void handleReadFailure(IOException e) {
+        if (e instanceof Http2Exception h2) {
+            LOGGER.log(Level.FINE, "Error de protocolo HTTP/2: {0}", h2.getMessage());
+            goAway(h2.errorCode);
+        } else if (!closed) {
+            LOGGER.log(Level.FINE, "Conexión HTTP/2 terminada: {0}", e.getMessage());
+        }
+    }
+
+    private void shutdown() {
+        // Se dejan terminar las respuestas en curso antes de cerrar el socket
+        streamExecutor.shutdown();
+        try {
+            streamExecutor.awaitTermination(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        synchronized (flowLock) {
+            flowLock.notifyAll();
+        }
+        readPooled.release();
+        try {
+            out.flush();
+        } catch (IOException ignored) {
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void expect(byte[] expected, int from) throws IOException {
+        byte[] actual = new byte[expected.length - from];
+        readFully(actual, 0, actual.length);
+        for (int i = 0; i < actual.length; i++) {
+            if (actual[i] != expected[from + i]) {
+                throw new Http2Exception(PROTOCOL_ERROR, "Prefacio HTTP/2 inválido");
+            }
+        }
+    }
+
+    private void readFully(byte[] buf, int offset, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buf, offset + read, length - read);
+            if (n < 0) {
+                throw new EOFException("Conexión cerrada por el cliente");
+            }
+            read += n;
+        }
+    }
+
+    private static String toUtf8(String octets) {
+        for (int i = 0; i < octets.length(); i++) {
+            if (octets.charAt(i) > 0x7F) {
+                return new String(octets.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+            }
+        }
+        return octets;
+    }
+
+    private static void putSetting(byte[] buf, int offset, int id, int value) {
+        buf[offset] = (byte) (id >>> 8);
+        buf[offset + 1] = (byte) id;
+        putInt(buf, offset + 2, value);
+    }
+
+    private static void putInt(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) (value >>> 24);
+        buf[offset + 1] = (byte) (value >>> 16);
+        buf[offset + 2] = (byte) (value >>> 8);
+        buf[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] buf, int offset) {
+        return ((buf[offset] & 0xFF) << 24) | ((buf[offset + 1] & 0xFF) << 16)
+                | ((buf[offset + 2] & 0xFF) << 8) | (buf[offset + 3] & 0xFF);
+    }
+}
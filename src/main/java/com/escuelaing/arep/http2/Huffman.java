@@ -0,0 +1,153 @@
+package com.escuelaing.arep.http2;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Static Huffman code of HPACK (RFC 7541, Appendix B).
+ * <p>
+ * The code is canonical, so only the bit length of each of the 257 symbols (256 octets plus
+ * EOS) is stored; the codes themselves are rebuilt at class load by assigning consecutive
+ * values in (length, symbol) order. Decoding walks a flat binary tree held in an int array.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+final class Huffman {
+
+    private static final int EOS = 256;
+
+    private static final byte[] LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30
+    };
+
+    private static final int[] CODES = new int[257];
+    // Árbol de decodificación: TREE[2*nodo + bit] es el hijo; valores negativos son hojas (-(símbolo + 1))
+    private static final int[] TREE = new int[2 * 512];
+
+    static {
+        int code = 0;
+        int prevLen = 0;
+        for (int len = 1; len <= 30; len++) {
+            for (int sym = 0; sym < LENGTHS.length; sym++) {
+                if (LENGTHS[sym] != len) {
+                    continue;
+                }
+                code <<= (len - prevLen);
+                prevLen = len;
+                CODES[sym] = code++;
+            }
+        }
+        int nodes = 1;
+        for (int sym = 0; sym < LENGTHS.length; sym++) {
+            int node = 0;
+            int len = LENGTHS[sym];
+            for (int i = len - 1; i > 0; i--) {
+                int slot = 2 * node + ((CODES[sym] >>> i) & 1);
+                if (TREE[slot] == 0) {
+                    TREE[slot] = nodes++;
+                }
+                node = TREE[slot];
+            }
+            TREE[2 * node + (CODES[sym] & 1)] = -(sym + 1);
+        }
+    }
+
+    private Huffman() {
+    }
+
+    /**
+     * Computes the encoded length of a string of octets.
+     *
+     * @param data the octets
+     * @return the Huffman-encoded length in bytes
+     */
+    static int encodedLength(byte[] data) {
+        long bits = 0;
+        for (byte b : data) {
+            bits += LENGTHS[b & 0xFF];
+        }
+        return (int) ((bits + 7) >>> 3);
+    }
+
+    /**
+     * Encodes octets, padding the last byte with the most significant bits of EOS (all ones).
+     *
+     * @param data the octets
+     * @param out  the destination
+     */
+    static void encode(byte[] data, ByteArrayOutputStream out) {
+        long acc = 0;
+        int bits = 0;
+        for (byte b : data) {
+            int sym = b & 0xFF;
+            acc = (acc << LENGTHS[sym]) | CODES[sym];
+            bits += LENGTHS[sym];
+            while (bits >= 8) {
+                bits -= 8;
+                out.write((int) (acc >>> bits));
+            }
+        }
+        if (bits > 0) {
+            out.write((int) ((acc << (8 - bits)) | (0xFF >>> bits)));
+        }
+    }
+
+    /**
+     * Decodes a Huffman-encoded string.
+     *
+     * @param src    the buffer
+     * @param offset start of the encoded string
+     * @param length encoded length in bytes
+     * @return the decoded octets
+     * @throws HpackException if the input contains EOS or invalid padding
+     */
+    static byte[] decode(byte[] src, int offset, int length) throws HpackException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length * 8 / 5 + 1);
+        int node = 0;
+        // Bits consumidos desde el último símbolo completo: el relleno debe ser < 8 bits, todos unos
+        int pending = 0;
+        boolean allOnes = true;
+        for (int i = offset; i < offset + length; i++) {
+            int b = src[i] & 0xFF;
+            for (int shift = 7; shift >= 0; shift--) {
+                int bit = (b >>> shift) & 1;
+                int next = TREE[2 * node + bit];
+                pending++;
+                allOnes &= bit == 1;
+                if (next < 0) {
+                    int sym = -next - 1;
+                    if (sym == EOS) {
+                        throw new HpackException("EOS en cadena Huffman");
+                    }
+                    out.write(sym);
+                    node = 0;
+                    pending = 0;
+                    allOnes = true;
+                } else {
+                    node = next;
+                }
+            }
+        }
+        if (pending > 7 || !allOnes) {
+            throw new HpackException("Relleno Huffman inválido");
+        }
+        return out.toByteArray();
+    }
+}
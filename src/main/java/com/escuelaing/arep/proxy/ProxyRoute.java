@@ -0,0 +1,123 @@
+package com.escuelaing.arep.proxy;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A path prefix forwarded to a group of upstreams, and the policy that picks one for each
+ * request.
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class ProxyRoute {
+
+    /**
+     * How a route spreads requests over its available upstreams.
+     */
+    public enum Balancer {
+        /** Each upstream in turn. */
+        ROUND_ROBIN,
+        /** The upstream with the fewest exchanges in flight; ties go round-robin. */
+        LEAST_CONNECTIONS;
+
+        /**
+         * Parses a balancer name such as {@code round-robin} or {@code least-connections}.
+         *
+         * @param name the name, case-insensitive; null or unknown gives {@link #ROUND_ROBIN}
+         * @return the balancer
+         */
+        public static Balancer of(String name) {
+            if (name != null && name.trim().replace('-', '_').equalsIgnoreCase(LEAST_CONNECTIONS.name())) {
+                return LEAST_CONNECTIONS;
+            }
+            return ROUND_ROBIN;
+        }
+    }
+
+    private final String prefix;
+    private final Upstream[] upstreams;
+    private final Balancer balancer;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Creates a route.
+     *
+     * @param prefix    the path prefix; requests for the prefix itself or anything below it match
+     * @param upstreams the upstreams, at most 64
+     * @param balancer  the balancing policy
+     */
+    public ProxyRoute(String prefix, List<Upstream> upstreams, Balancer balancer) {
+        if (upstreams.isEmpty() || upstreams.size() > 64) {
+            throw new IllegalArgumentException("Una ruta proxy necesita entre 1 y 64 upstreams: " + prefix);
+        }
+        this.prefix = prefix.endsWith("/") && prefix.length() > 1 ? prefix.substring(0, prefix.length() - 1) : prefix;
+        this.upstreams = upstreams.toArray(new Upstream[0]);
+        this.balancer = balancer;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public List<Upstream> getUpstreams() {
+        return List.of(upstreams);
+    }
+
+    public Balancer getBalancer() {
+        return balancer;
+    }
+
+    /**
+     * Indicates whether a request path falls under this route, on segment boundaries
+     * ({@code /svc} matches {@code /svc} and {@code /svc/a}, not {@code /svcx}).
+     *
+     * @param path the request path, without query string
+     * @return true if the route forwards it
+     */
+    public boolean matches(String path) {
+        return path.startsWith(prefix) && (path.length() == prefix.length() || prefix.equals("/")
+                || path.charAt(prefix.length()) == '/');
+    }
+
+    /**
+     * Picks the upstream for the next attempt. Ejected upstreams are skipped while any other is
+     * available; when none is, the one whose ejection ends first is tried anyway rather than
+     * failing without trying.
+     *
+     * @param tried bit {@code i} set for upstreams already tried for this request
+     * @return the index of the chosen upstream, or -1 if all have been tried
+     */
+    int choose(long tried) {
+        int n = upstreams.length;
+        long now = System.nanoTime();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        int best = -1;
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            if ((tried & (1L << i)) != 0 || !upstreams[i].isAvailable(now)) {
+                continue;
+            }
+            if (balancer == Balancer.ROUND_ROBIN) {
+                return i;
+            }
+            if (best < 0 || upstreams[i].activeCount() < upstreams[best].activeCount()) {
+                best = i;
+            }
+        }
+        if (best >= 0) {
+            return best;
+        }
+        for (int i = 0; i < n; i++) {
+            if ((tried & (1L << i)) == 0
+                    && (best < 0 || upstreams[i].ejectedUntil() - upstreams[best].ejectedUntil() < 0)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    Upstream upstream(int index) {
+        return upstreams[index];
+    }
+}
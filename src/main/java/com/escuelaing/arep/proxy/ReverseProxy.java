@@ -0,0 +1,476 @@
+package com.escuelaing.arep.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.config.ServerConfig;
+import com.escuelaing.arep.framework.BufferPool;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Forwards requests under configured path prefixes to upstream servers over pooled
+ * keep-alive HTTP/1.1 connections.
+ * <p>
+ * Routes are declared as {@code /prefix=host:port,host:port;...} ({@link ServerConfig#getProxyRoutes()})
+ * and matched by longest prefix. For each request the route's balancer picks an available
+ * {@link Upstream}; requests are retried on another upstream only when that cannot repeat work:
+ * the connection could not be opened, or the request is idempotent, has no body and failed
+ * before any response arrived. A read timeout is never retried and answers 504.
+ * </p>
+ * <p>
+ * Over HTTP/1.1 ({@link #forward(ProxyRoute, Request, String, boolean, OutputStream)}) request and
+ * response bodies are streamed through one pooled buffer, never held whole; responses without a
+ * known length are re-chunked to the client. Other callers
+ * ({@link #forward(ProxyRoute, Request, int)}, used for HTTP/2 streams) get a buffered
+ * {@link Response}.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class ReverseProxy {
+
+    private static final Logger LOGGER = Logger.getLogger(ReverseProxy.class.getName());
+    private static final int COPY_BUFFER_BYTES = 16 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    // Cabeceras de salto a salto (RFC 9110 §7.6.1): cada conexión lleva las suyas
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "proxy-connection",
+            "transfer-encoding", "te", "trailer", "upgrade", "proxy-authenticate", "proxy-authorization");
+    private static final Set<String> IDEMPOTENT = Set.of("GET", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE");
+
+    /**
+     * Signals that a request could not be forwarded before any response reached the client:
+     * 502 when no upstream answered usably, 504 when the upstream timed out, 400 when the client
+     * closed before sending its whole body.
+     */
+    public static final class ProxyException extends IOException {
+        private final int status;
+
+        public ProxyException(int status, String message, Throwable cause) {
+            super(message, cause);
+            this.status = status;
+        }
+
+        /**
+         * Gets the HTTP status to answer with.
+         *
+         * @return 400, 502 or 504
+         */
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    // Fallo leyendo el cuerpo del cliente: no es culpa del upstream
+    private static final class ClientBodyException extends IOException {
+        ClientBodyException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private final List<ProxyRoute> routes;
+    private final BufferPool pool;
+
+    /**
+     * Creates a proxy.
+     *
+     * @param routes the proxied routes
+     * @param pool   the pool copy buffers are borrowed from
+     */
+    public ReverseProxy(List<ProxyRoute> routes, BufferPool pool) {
+        List<ProxyRoute> sorted = new ArrayList<>(routes);
+        // El prefijo más largo gana
+        sorted.sort(Comparator.comparingInt((ProxyRoute r) -> r.getPrefix().length()).reversed());
+        this.routes = List.copyOf(sorted);
+        this.pool = pool;
+    }
+
+    /**
+     * Creates the proxy described by {@link ServerConfig}.
+     *
+     * @return the proxy, with no routes if none are configured
+     */
+    public static ReverseProxy fromConfig() {
+        Upstream.Settings settings = new Upstream.Settings(ServerConfig.getProxyConnectTimeoutMillis(),
+                ServerConfig.getProxyReadTimeoutMillis(), ServerConfig.getProxyIdleTimeoutMillis(),
+                ServerConfig.getProxyMaxIdlePerUpstream(), ServerConfig.getProxyMaxFails(),
+                ServerConfig.getProxyFailTimeoutMillis());
+        return new ReverseProxy(parseRoutes(ServerConfig.getProxyRoutes(),
+                ProxyRoute.Balancer.of(ServerConfig.getProxyBalancer()), settings), BufferPool.shared());
+    }
+
+    /**
+     * Parses a route specification such as {@code /backend=127.0.0.1:8081,127.0.0.1:8082;/auth=localhost:9000}.
+     * Malformed entries are logged and skipped.
+     *
+     * @param spec     the specification, may be null or blank
+     * @param balancer the balancer of every route
+     * @param settings the connection and health settings of every upstream
+     * @return the parsed routes
+     */
+    public static List<ProxyRoute> parseRoutes(String spec, ProxyRoute.Balancer balancer, Upstream.Settings settings) {
+        List<ProxyRoute> routes = new ArrayList<>();
+        if (spec == null || spec.isBlank()) {
+            return routes;
+        }
+        for (String entry : spec.split(";")) {
+            String[] kv = entry.trim().split("=", 2);
+            if (kv.length != 2 || !kv[0].trim().startsWith("/")) {
+                if (!entry.isBlank()) {
+                    LOGGER.log(Level.WARNING, "Ruta proxy inválida ignorada: {0}", entry);
+                }
+                continue;
+            }
+            try {
+                List<Upstream> upstreams = new ArrayList<>();
+                for (String address : kv[1].split(",")) {
+                    if (!address.isBlank()) {
+                        upstreams.add(Upstream.parse(address, settings));
+                    }
+                }
+                routes.add(new ProxyRoute(kv[0].trim(), upstreams, balancer));
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Ruta proxy inválida ignorada: {0} ({1})", new Object[]{entry, e.getMessage()});
+            }
+        }
+        return routes;
+    }
+
+    public List<ProxyRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Finds the route forwarding a path.
+     *
+     * @param path the request path, without query string
+     * @return the route with the longest matching prefix, or null if the path is not proxied
+     */
+    public ProxyRoute match(String path) {
+        for (ProxyRoute route : routes) {
+            if (route.matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forwards an HTTP/1.1 request and streams the upstream response to the client. If the
+     * exchange fails before the response head is written, a {@link ProxyException} is thrown so
+     * the caller can answer; after that, a failure just cuts the response short.
+     *
+     * @param route         the matching route
+     * @param request       the client request, whose body is streamed to the upstream
+     * @param clientAddress the client IP, sent in {@code X-Forwarded-For}
+     * @param secure        whether the client connection uses TLS, sent in {@code X-Forwarded-Proto}
+     * @param out           the client output stream
+     * @throws IOException if forwarding or writing to the client fails
+     */
+    public void forward(ProxyRoute route, Request request, String clientAddress, boolean secure, OutputStream out)
+            throws IOException {
+        Exchange exchange = exchange(route, request, clientAddress, secure);
+        UpstreamConnection conn = exchange.conn;
+        BufferPool.Buffer buffer = pool.acquire(COPY_BUFFER_BYTES);
+        try {
+            long length = conn.contentLength();
+            boolean bodyless = "HEAD".equals(request.getMethod()) || conn.status() == 204 || conn.status() == 304;
+            StringBuilder head = new StringBuilder(256).append("HTTP/1.1 ").append(conn.status()).append(' ')
+                    .append(conn.reason()).append("\r\n");
+            Set<String> hop = hopByHop(conn.header("connection"));
+            for (String[] h : conn.headers()) {
+                String name = h[0].toLowerCase(Locale.ROOT);
+                // Sin cuerpo (HEAD, 204, 304) se conserva el Content-Length que anunció el upstream
+                if (!hop.contains(name) && (bodyless || !name.equals("content-length"))) {
+                    head.append(h[0]).append(": ").append(h[1]).append("\r\n");
+                }
+            }
+            boolean chunked = !bodyless && length < 0;
+            if (!bodyless) {
+                head.append(chunked ? "Transfer-Encoding: chunked\r\n" : "Content-Length: " + length + "\r\n");
+            }
+            head.append("Connection: close\r\n\r\n");
+            out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+            byte[] buf = buffer.array();
+            InputStream body = conn.body();
+            while (true) {
+                int n;
+                try {
+                    n = body.read(buf, 0, Math.min(buf.length, COPY_BUFFER_BYTES));
+                } catch (IOException e) {
+                    exchange.upstream.failed(e.getMessage());
+                    throw e;
+                }
+                if (n < 0) {
+                    break;
+                }
+                if (chunked) {
+                    out.write(Integer.toHexString(n).getBytes(StandardCharsets.US_ASCII));
+                    out.write(CRLF);
+                    out.write(buf, 0, n);
+                    out.write(CRLF);
+                } else {
+                    out.write(buf, 0, n);
+                }
+            }
+            if (chunked) {
+                out.write(LAST_CHUNK);
+            }
+            out.flush();
+        } finally {
+            buffer.release();
+            exchange.upstream.release(conn);
+        }
+    }
+
+    /**
+     * Forwards a request and buffers the upstream response, for protocols that need a complete
+     * {@link Response} (HTTP/2 streams).
+     *
+     * @param route        the matching route
+     * @param request      the client request
+     * @param maxBodyBytes the largest response body accepted; a larger one answers 502
+     * @return the upstream response, without hop-by-hop headers
+     * @throws IOException if forwarding fails ({@link ProxyException} carries the status to answer)
+     */
+    public Response forward(ProxyRoute route, Request request, int maxBodyBytes) throws IOException {
+        Exchange exchange = exchange(route, request, null, false);
+        UpstreamConnection conn = exchange.conn;
+        try {
+            long length = conn.contentLength();
+            if (length > maxBodyBytes) {
+                throw new ProxyException(502, "Respuesta del upstream demasiado grande: " + length + " bytes", null);
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream(length > 0 ? (int) length : 1024);
+            byte[] chunk = new byte[8192];
+            int n;
+            try {
+                while ((n = conn.body().read(chunk)) >= 0) {
+                    if (body.size() + n > maxBodyBytes) {
+                        throw new ProxyException(502, "Respuesta del upstream demasiado grande", null);
+                    }
+                    body.write(chunk, 0, n);
+                }
+            } catch (SocketTimeoutException e) {
+                exchange.upstream.failed(e.getMessage());
+                throw new ProxyException(504, "Timeout leyendo la respuesta del upstream", e);
+            } catch (ProxyException e) {
+                throw e;
+            } catch (IOException e) {
+                exchange.upstream.failed(e.getMessage());
+                throw new ProxyException(502, "Respuesta del upstream truncada", e);
+            }
+            String contentType = conn.header("content-type");
+            Response response = new Response().status(conn.status())
+                    .type(contentType != null ? contentType : "application/octet-stream");
+            Set<String> hop = hopByHop(conn.header("connection"));
+            for (String[] h : conn.headers()) {
+                String name = h[0].toLowerCase(Locale.ROOT);
+                if (!hop.contains(name) && !name.equals("content-length") && !name.equals("content-type")) {
+                    response.header(h[0], h[1]);
+                }
+            }
+            return response.body(body.toByteArray());
+        } finally {
+            exchange.upstream.release(conn);
+        }
+    }
+
+    /**
+     * Closes the idle connections of every upstream.
+     */
+    public void close() {
+        for (ProxyRoute route : routes) {
+            for (Upstream upstream : route.getUpstreams()) {
+                upstream.closeIdle();
+            }
+        }
+    }
+
+    /**
+     * Gets the counters of every upstream.
+     *
+     * @return one entry per upstream, by route
+     */
+    public List<Upstream.Stats> stats() {
+        List<Upstream.Stats> stats = new ArrayList<>();
+        for (ProxyRoute route : routes) {
+            for (Upstream upstream : route.getUpstreams()) {
+                stats.add(upstream.stats());
+            }
+        }
+        return stats;
+    }
+
+    private record Exchange(Upstream upstream, UpstreamConnection conn) {
+    }
+
+    // Envía la petición y lee la cabecera de respuesta, reintentando solo cuando no puede duplicar trabajo
+    private Exchange exchange(ProxyRoute route, Request request, String clientAddress, boolean secure)
+            throws IOException {
+        long length = bodyLength(request);
+        boolean retryable = length == 0 && IDEMPOTENT.contains(request.getMethod());
+        long tried = 0;
+        IOException last = null;
+        while (true) {
+            int index = route.choose(tried);
+            if (index < 0) {
+                throw new ProxyException(502, "Ningún upstream respondió para " + route.getPrefix(), last);
+            }
+            Upstream upstream = route.upstream(index);
+            UpstreamConnection conn;
+            try {
+                conn = upstream.acquire();
+            } catch (IOException e) {
+                // Nada llegó al upstream: siempre se puede probar otro
+                upstream.failed(e.getMessage());
+                tried |= 1L << index;
+                last = e;
+                continue;
+            }
+            try {
+                conn.writeHead(requestHead(request, upstream, length, clientAddress, secure));
+                if (length > 0) {
+                    copy(request.getBody(), conn.output(), length);
+                }
+                conn.readResponse("HEAD".equals(request.getMethod()));
+            } catch (IOException e) {
+                upstream.release(conn);
+                if (e instanceof ClientBodyException) {
+                    // El upstream no tuvo la culpa: su salud no cambia
+                    if (e.getCause() instanceof EOFException) {
+                        throw new ProxyException(400, "El cliente cerró antes de enviar todo el cuerpo", e.getCause());
+                    }
+                    throw (IOException) e.getCause();
+                }
+                if (e instanceof SocketTimeoutException) {
+                    upstream.failed(e.getMessage());
+                    throw new ProxyException(504, "Timeout esperando al upstream " + upstream.address(), e);
+                }
+                last = e;
+                if (conn.isReused() && retryable) {
+                    // Conexión del pool cerrada por el upstream mientras esperaba: no cuenta como fallo
+                    continue;
+                }
+                upstream.failed(e.getMessage());
+                if (!retryable) {
+                    throw new ProxyException(502, "El upstream " + upstream.address() + " falló", e);
+                }
+                tried |= 1L << index;
+                continue;
+            }
+            int status = conn.status();
+            if (status == 502 || status == 503 || status == 504) {
+                upstream.failed("HTTP " + status);
+            } else {
+                upstream.succeeded();
+            }
+            return new Exchange(upstream, conn);
+        }
+    }
+
+    private static String requestHead(Request request, Upstream upstream, long length, String clientAddress,
+                                      boolean secure) {
+        StringBuilder head = new StringBuilder(512).append(request.getMethod()).append(' ').append(request.getPath());
+        if (request.getQueryString() != null) {
+            head.append('?').append(request.getQueryString());
+        }
+        head.append(" HTTP/1.1\r\nHost: ").append(upstream.address()).append("\r\n");
+        Map<String, String> headers = request.getHeaders();
+        Set<String> hop = hopByHop(headers.get("connection"));
+        String forwardedFor = null;
+        for (Map.Entry<String, String> h : headers.entrySet()) {
+            String name = h.getKey();
+            switch (name) {
+                case "host", "content-length", "expect", "http2-settings", "x-forwarded-host", "x-forwarded-proto" -> {
+                }
+                case "x-forwarded-for" -> forwardedFor = h.getValue();
+                default -> {
+                    if (!hop.contains(name) && !name.startsWith(":")) {
+                        head.append(name).append(": ").append(h.getValue()).append("\r\n");
+                    }
+                }
+            }
+        }
+        if (clientAddress != null) {
+            head.append("X-Forwarded-For: ").append(forwardedFor != null ? forwardedFor + ", " + clientAddress
+                    : clientAddress).append("\r\n");
+            head.append("X-Forwarded-Proto: ").append(secure ? "https" : "http").append("\r\n");
+        } else if (forwardedFor != null) {
+            head.append("X-Forwarded-For: ").append(forwardedFor).append("\r\n");
+        }
+        String host = headers.get("host");
+        if (host != null) {
+            head.append("X-Forwarded-Host: ").append(host).append("\r\n");
+        }
+        if (length > 0) {
+            head.append("Content-Length: ").append(length).append("\r\n");
+        }
+        return head.append("\r\n").toString();
+    }
+
+    private static long bodyLength(Request request) {
+        String contentLength = request.getHeader("content-length");
+        if (contentLength == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(contentLength.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Las cabeceras de salto a salto fijas más las que nombra la cabecera Connection
+    private static Set<String> hopByHop(String connection) {
+        if (connection == null || connection.isBlank()) {
+            return HOP_BY_HOP;
+        }
+        Set<String> hop = new HashSet<>(HOP_BY_HOP);
+        for (String token : connection.split(",")) {
+            hop.add(token.trim().toLowerCase(Locale.ROOT));
+        }
+        return hop;
+    }
+
+    // Copia exactamente length bytes: un cuerpo corto dejaría al upstream esperando hasta su timeout
+    private void copy(InputStream in, OutputStream out, long length) throws IOException {
+        BufferPool.Buffer buffer = pool.acquire(COPY_BUFFER_BYTES);
+        try {
+            byte[] buf = buffer.array();
+            long remaining = length;
+            while (remaining > 0) {
+                int n;
+                try {
+                    n = in.read(buf, 0, (int) Math.min(remaining, Math.min(buf.length, COPY_BUFFER_BYTES)));
+                } catch (IOException e) {
+                    throw new ClientBodyException(e);
+                }
+                if (n < 0) {
+                    throw new ClientBodyException(new EOFException("Faltan " + remaining + " bytes del cuerpo"));
+                }
+                out.write(buf, 0, n);
+                remaining -= n;
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+}
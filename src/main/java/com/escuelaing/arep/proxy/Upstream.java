@@ -0,0 +1,227 @@
+package com.escuelaing.arep.proxy;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One backend server of a proxied route: its pool of idle keep-alive connections, the number
+ * of exchanges in flight (for least-connections balancing) and its passive health.
+ * <p>
+ * Health is inferred from real traffic, without probes: after {@code maxFails} consecutive
+ * failures (connection errors, timeouts, 502/503/504 answers) the upstream is ejected for
+ * {@code failTimeoutMillis}. When the time is up it gets traffic again; one success clears the
+ * count, one more failure ejects it again.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class Upstream {
+
+    private static final Logger LOGGER = Logger.getLogger(Upstream.class.getName());
+
+    /**
+     * Point-in-time counters of an upstream.
+     *
+     * @param address   the {@code host:port}
+     * @param active    exchanges in flight
+     * @param idle      pooled idle connections
+     * @param requests  exchanges started
+     * @param failures  failed exchanges
+     * @param opened    connections opened (the rest reused a pooled one)
+     * @param available false while ejected
+     */
+    public record Stats(String address, int active, int idle, long requests, long failures, long opened,
+                        boolean available) {
+    }
+
+    private final String host;
+    private final int port;
+    private final Settings settings;
+    // LIFO: la conexión más reciente es la que menos probabilidad tiene de haber sido cerrada por el upstream
+    private final ConcurrentLinkedDeque<UpstreamConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+    // 0 mientras el upstream no haya sido expulsado nunca
+    private volatile long ejectedUntil;
+
+    /**
+     * Connection and health settings shared by the upstreams of a proxy.
+     *
+     * @param connectTimeoutMillis how long connecting may take
+     * @param readTimeoutMillis    how long each read from the upstream may block
+     * @param idleTimeoutMillis    pooled connections idle for longer are closed instead of reused
+     * @param maxIdle              idle connections kept per upstream
+     * @param maxFails             consecutive failures that eject the upstream
+     * @param failTimeoutMillis    how long an ejected upstream gets no traffic
+     */
+    public record Settings(int connectTimeoutMillis, int readTimeoutMillis, long idleTimeoutMillis, int maxIdle,
+                           int maxFails, long failTimeoutMillis) {
+    }
+
+    /**
+     * Creates an upstream.
+     *
+     * @param host     the host name or address
+     * @param port     the port
+     * @param settings the connection and health settings
+     */
+    public Upstream(String host, int port, Settings settings) {
+        this.host = host;
+        this.port = port;
+        this.settings = settings;
+    }
+
+    /**
+     * Parses a {@code host:port} address.
+     *
+     * @param address  the address
+     * @param settings the connection and health settings
+     * @return the upstream
+     * @throws IllegalArgumentException if the address has no valid port
+     */
+    public static Upstream parse(String address, Settings settings) {
+        String value = address.trim();
+        int colon = value.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Upstream sin puerto: " + address);
+        }
+        int port = Integer.parseInt(value.substring(colon + 1));
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("Puerto inválido: " + address);
+        }
+        String host = value.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        return new Upstream(host, port, settings);
+    }
+
+    /**
+     * Gets the authority sent as {@code Host} to this upstream.
+     *
+     * @return {@code host:port}
+     */
+    public String address() {
+        return (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + port;
+    }
+
+    /**
+     * Indicates whether the upstream takes traffic, i.e. it is not ejected.
+     *
+     * @param now the current {@link System#nanoTime()}
+     * @return true if it may be chosen
+     */
+    boolean isAvailable(long now) {
+        long until = ejectedUntil;
+        return until == 0 || now - until >= 0;
+    }
+
+    long ejectedUntil() {
+        return ejectedUntil;
+    }
+
+    int activeCount() {
+        return active.get();
+    }
+
+    /**
+     * Takes a connection for one exchange: the most recent idle one that is still usable, or a
+     * new one. Every successful call must be paired with {@link #release}.
+     *
+     * @return the connection
+     * @throws IOException if a new connection cannot be opened
+     */
+    UpstreamConnection acquire() throws IOException {
+        requests.incrementAndGet();
+        active.incrementAndGet();
+        long now = System.nanoTime();
+        UpstreamConnection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (now - conn.idleSince() < settings.idleTimeoutMillis() * 1_000_000L && conn.isUsable()) {
+                return conn;
+            }
+            conn.close();
+        }
+        try {
+            conn = UpstreamConnection.open(host, port, settings.connectTimeoutMillis(), settings.readTimeoutMillis());
+            opened.incrementAndGet();
+            return conn;
+        } catch (IOException e) {
+            active.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Ends an exchange, pooling the connection if it can serve another one.
+     *
+     * @param conn the connection taken with {@link #acquire()}
+     */
+    void release(UpstreamConnection conn) {
+        active.decrementAndGet();
+        if (conn.isReusable() && idleCount.incrementAndGet() <= settings.maxIdle()) {
+            conn.markIdle(System.nanoTime());
+            idle.offerFirst(conn);
+        } else {
+            if (conn.isReusable()) {
+                idleCount.decrementAndGet();
+            }
+            conn.close();
+        }
+    }
+
+    /**
+     * Records a successful exchange, clearing the failure count.
+     */
+    void succeeded() {
+        consecutiveFailures.set(0);
+    }
+
+    /**
+     * Records a failed exchange, ejecting the upstream when it reaches {@code maxFails}
+     * consecutive failures.
+     *
+     * @param reason what failed, for the log
+     */
+    void failed(String reason) {
+        failures.incrementAndGet();
+        if (consecutiveFailures.incrementAndGet() >= settings.maxFails()) {
+            ejectedUntil = System.nanoTime() + settings.failTimeoutMillis() * 1_000_000L;
+            LOGGER.log(Level.WARNING, "Upstream {0} fuera de servicio por {1} ms: {2}",
+                    new Object[]{address(), settings.failTimeoutMillis(), reason});
+            // Las conexiones ociosas de un upstream caído ya no sirven
+            closeIdle();
+        }
+    }
+
+    /**
+     * Closes the pooled idle connections.
+     */
+    void closeIdle() {
+        UpstreamConnection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            conn.close();
+        }
+    }
+
+    /**
+     * Gets a snapshot of this upstream's counters.
+     *
+     * @return the stats
+     */
+    public Stats stats() {
+        return new Stats(address(), active.get(), Math.max(0, idleCount.get()), requests.get(), failures.get(),
+                opened.get(), isAvailable(System.nanoTime()));
+    }
+}
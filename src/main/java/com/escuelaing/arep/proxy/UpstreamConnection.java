@@ -0,0 +1,336 @@
+package com.escuelaing.arep.proxy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A keep-alive HTTP/1.1 connection to an upstream, owned by one exchange at a time.
+ * <p>
+ * It writes a request head, reads the response head into an ordered header list (repeated
+ * headers such as {@code Set-Cookie} are kept) and exposes the response body framed by
+ * {@code Content-Length}, chunked encoding or connection close. The connection can go back to
+ * its {@link Upstream}'s pool only when the body has been read to its end and neither side
+ * asked to close.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+final class UpstreamConnection implements Closeable {
+
+    private static final int MAX_HEAD_BYTES = 16 * 1024;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private boolean reused;
+    private long idleSince;
+
+    private int status;
+    private String reason;
+    private final List<String[]> headers = new ArrayList<>();
+    private boolean keepAlive;
+    private BodyStream body;
+
+    private UpstreamConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+    }
+
+    /**
+     * Opens a new connection.
+     *
+     * @param host             the upstream host
+     * @param port             the upstream port
+     * @param connectTimeoutMs the connect timeout
+     * @param readTimeoutMs    the timeout of each read
+     * @return the connection
+     * @throws IOException if the connection cannot be established
+     */
+    static UpstreamConnection open(String host, int port, int connectTimeoutMs, int readTimeoutMs) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(readTimeoutMs);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+            return new UpstreamConnection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Indicates whether the connection already served an exchange, so the upstream may have
+     * closed it while it sat in the pool.
+     *
+     * @return true for pooled connections
+     */
+    boolean isReused() {
+        return reused;
+    }
+
+    long idleSince() {
+        return idleSince;
+    }
+
+    void markIdle(long now) {
+        idleSince = now;
+        reused = true;
+        body = null;
+    }
+
+    /**
+     * Indicates whether the connection looks usable without blocking: it is open and no stray
+     * bytes are waiting. An upstream that closed it while idle is only noticed on the next
+     * exchange, which the proxy then retries on a new connection when it is safe.
+     *
+     * @return true if the connection may be reused
+     */
+    boolean isUsable() {
+        try {
+            return !socket.isClosed() && !socket.isInputShutdown() && in.available() == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a request head; the body, if any, is written by the caller to {@link #output()}.
+     *
+     * @param head the request line and headers, ending with the blank line
+     * @throws IOException if writing fails
+     */
+    void writeHead(String head) throws IOException {
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    OutputStream output() {
+        return out;
+    }
+
+    /**
+     * Reads the response head, skipping interim {@code 1xx} answers.
+     *
+     * @param headRequest whether the request was {@code HEAD}, whose response has no body
+     * @throws IOException if the upstream closes the connection or sends a malformed head
+     */
+    void readResponse(boolean headRequest) throws IOException {
+        out.flush();
+        String statusLine;
+        do {
+            headers.clear();
+            statusLine = readLine();
+            if (statusLine == null) {
+                throw new EOFException("El upstream cerró la conexión sin responder");
+            }
+            if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+                throw new IOException("Línea de estado inválida: " + statusLine);
+            }
+            try {
+                status = Integer.parseInt(statusLine.substring(9, 12));
+            } catch (NumberFormatException e) {
+                throw new IOException("Línea de estado inválida: " + statusLine);
+            }
+            String line;
+            while ((line = readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.add(new String[]{line.substring(0, colon).trim(), line.substring(colon + 1).trim()});
+                }
+            }
+            if (line == null) {
+                throw new EOFException("Cabecera de respuesta truncada");
+            }
+        } while (status >= 100 && status < 200 && status != 101);
+        reason = statusLine.length() > 13 ? statusLine.substring(13) : "";
+
+        String connection = header("connection");
+        keepAlive = statusLine.startsWith("HTTP/1.1")
+                ? connection == null || !connection.toLowerCase().contains("close")
+                : connection != null && connection.toLowerCase().contains("keep-alive");
+        String transferEncoding = header("transfer-encoding");
+        String contentLength = header("content-length");
+        if (headRequest || status == 204 || status == 304 || status < 200) {
+            body = new BodyStream(0);
+        } else if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            body = new BodyStream(BodyStream.CHUNKED);
+        } else if (contentLength != null) {
+            try {
+                body = new BodyStream(Long.parseLong(contentLength.trim()));
+            } catch (NumberFormatException e) {
+                throw new IOException("Content-Length inválido: " + contentLength);
+            }
+        } else {
+            // Delimitado por el cierre: la conexión no se puede reutilizar
+            keepAlive = false;
+            body = new BodyStream(BodyStream.UNTIL_CLOSE);
+        }
+    }
+
+    int status() {
+        return status;
+    }
+
+    String reason() {
+        return reason;
+    }
+
+    List<String[]> headers() {
+        return headers;
+    }
+
+    String header(String name) {
+        for (String[] h : headers) {
+            if (h[0].equalsIgnoreCase(name)) {
+                return h[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the decoded response body.
+     *
+     * @return the body stream, ending at the end of the response
+     */
+    InputStream body() {
+        return body;
+    }
+
+    /**
+     * Gets the length of the response body when it is known in advance.
+     *
+     * @return the {@code Content-Length}, or -1 for chunked or close-delimited bodies
+     */
+    long contentLength() {
+        return body.chunked || body.untilClose ? -1 : body.remaining;
+    }
+
+    /**
+     * Indicates whether this connection can serve another exchange.
+     *
+     * @return true if the response has been fully read and the upstream keeps the connection open
+     */
+    boolean isReusable() {
+        return keepAlive && body != null && body.finished;
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                int len = line.length();
+                if (len > 0 && line.charAt(len - 1) == '\r') {
+                    line.setLength(len - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_HEAD_BYTES) {
+                throw new IOException("Cabecera de respuesta demasiado grande");
+            }
+            line.append((char) b);
+        }
+        return line.isEmpty() ? null : line.toString();
+    }
+
+    /**
+     * The response body: a fixed number of bytes, chunked (decoded here) or up to the close.
+     */
+    private final class BodyStream extends InputStream {
+        static final long CHUNKED = -1;
+        static final long UNTIL_CLOSE = -2;
+
+        private final boolean chunked;
+        private final boolean untilClose;
+        private long remaining;
+        private boolean finished;
+
+        BodyStream(long length) {
+            this.chunked = length == CHUNKED;
+            this.untilClose = length == UNTIL_CLOSE;
+            this.remaining = chunked ? 0 : length;
+            this.finished = length == 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (untilClose) {
+                int n = in.read(b, off, len);
+                finished = n < 0;
+                return n;
+            }
+            if (chunked && remaining == 0 && !nextChunk()) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Cuerpo de respuesta truncado");
+            }
+            remaining -= n;
+            if (remaining == 0 && !chunked) {
+                finished = true;
+            }
+            return n;
+        }
+
+        // Lee la línea de tamaño del siguiente chunk; el chunk final y sus trailers cierran el cuerpo
+        private boolean nextChunk() throws IOException {
+            String line = readLine();
+            if (line != null && line.isEmpty()) {
+                // CRLF que cierra el chunk anterior
+                line = readLine();
+            }
+            if (line == null) {
+                throw new EOFException("Cuerpo chunked truncado");
+            }
+            int semicolon = line.indexOf(';');
+            try {
+                remaining = Long.parseLong((semicolon >= 0 ? line.substring(0, semicolon) : line).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Tamaño de chunk inválido: " + line);
+            }
+            if (remaining == 0) {
+                String trailer;
+                while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                    // Los trailers no se reenvían
+                }
+                finished = true;
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.escuelaing.arep.utils;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.lang.annotation.Annotation;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.ArrayList;
@@ -39,6 +40,18 @@ public class ClassScanner {
     private static final Logger LOGGER = Logger.getLogger(ClassScanner.class.getName());
 
     public static List<Class<?>> findRestControllers(String packageName) {
+        return findAnnotatedClasses(packageName, RestController.class);
+    }
+
+    /**
+     * Finds the classes of a package (and its subpackages) carrying the given annotation, on
+     * the file system or inside a JAR.
+     *
+     * @param packageName the package to scan
+     * @param annotation  the class-level annotation to look for
+     * @return the annotated classes
+     */
+    public static List<Class<?>> findAnnotatedClasses(String packageName, Class<? extends Annotation> annotation) {
         List<Class<?>> controllers = new ArrayList<>();
         try {
             String path = packageName.replace('.', '/');
@@ -50,7 +63,7 @@ public class ClassScanner {
                 if ("file".equals(protocol)) {
                     File directory = new File(decode(resource.getFile()));
                     if (directory.exists()) {
-                        scanDirectory(directory, packageName, controllers);
+                        scanDirectory(directory, packageName, annotation, controllers);
                     }
                 } else if ("jar".equals(protocol)) {
                     // Escaneo de clases dentro de un JAR
@@ -72,7 +85,7 @@ public class ClassScanner {
                                 String className = name.replace('/', '.').substring(0, name.length() - 6);
                                 try {
                                     Class<?> clazz = Class.forName(className);
-                                    if (clazz.isAnnotationPresent(RestController.class)) {
+                                    if (clazz.isAnnotationPresent(annotation)) {
                                         controllers.add(clazz);
                                     }
                                 } catch (ClassNotFoundException e) {
@@ -89,17 +102,18 @@ public class ClassScanner {
         return controllers;
     }
     
-    private static void scanDirectory(File directory, String packageName, List<Class<?>> controllers) {
+    private static void scanDirectory(File directory, String packageName, Class<? extends Annotation> annotation,
+                                      List<Class<?>> controllers) {
         File[] files = directory.listFiles();
         if (files != null) {
             for (File file : files) {
                 if (file.isDirectory()) {
-                    scanDirectory(file, packageName + "." + file.getName(), controllers);
+                    scanDirectory(file, packageName + "." + file.getName(), annotation, controllers);
                 } else if (file.getName().endsWith(".class")) {
                     String className = packageName + "." + file.getName().substring(0, file.getName().length() - 6);
                     try {
                         Class<?> clazz = Class.forName(className);
-                        if (clazz.isAnnotationPresent(RestController.class)) {
+                        if (clazz.isAnnotationPresent(annotation)) {
                             controllers.add(clazz);
                         }
                     } catch (ClassNotFoundException e) {
@@ -0,0 +1,55 @@
+package com.escuelaing.arep.websocket;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Callbacks of a WebSocket endpoint. All of them run on the connection's reader thread, one
+ * at a time per session; a callback that blocks (for instance on a send that is waiting for
+ * a slow client) stops reading from that client, which pushes back on it through TCP.
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public interface WebSocketHandler {
+
+    /**
+     * Called once the handshake has completed.
+     *
+     * @param session the new session
+     * @throws Exception to close the session with 1011 (internal error)
+     */
+    default void onOpen(WebSocketSession session) throws Exception {
+    }
+
+    /**
+     * Called for every complete text message.
+     *
+     * @param session the session
+     * @param message the reassembled, UTF-8 validated message
+     * @throws Exception to close the session with 1011 (internal error)
+     */
+    default void onText(WebSocketSession session, String message) throws Exception {
+    }
+
+    /**
+     * Called for every complete binary message. The buffer is a read-only view of the pooled
+     * buffer the frames were read into: it is only valid during the call and must be copied
+     * if the handler keeps it.
+     *
+     * @param session the session
+     * @param message the reassembled message
+     * @throws Exception to close the session with 1011 (internal error)
+     */
+    default void onBinary(WebSocketSession session, ByteBuffer message) throws Exception {
+    }
+
+    /**
+     * Called once when the session ends, whoever closed it.
+     *
+     * @param session the session
+     * @param code    the close status code (1006 if the connection dropped without a close frame)
+     * @param reason  the close reason, possibly empty
+     */
+    default void onClose(WebSocketSession session, int code, String reason) {
+    }
+}
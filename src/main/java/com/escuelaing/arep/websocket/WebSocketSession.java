@@ -0,0 +1,634 @@
+package com.escuelaing.arep.websocket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.framework.BufferPool;
+
+/**
+ * Server side of one WebSocket connection (RFC 6455), after the HTTP/1.1 handshake.
+ * <p>
+ * The thread that calls {@link #serve()} reads frames: client frames must be masked and are
+ * unmasked in place inside a pooled buffer, fragments are appended to the same buffer until
+ * the message is complete, and control frames (ping, pong, close) are answered between
+ * fragments. Messages larger than {@code maxMessageBytes} close the session with 1009 and
+ * invalid UTF-8 in text messages with 1007. Binary messages reach the handler as a read-only
+ * view of the pooled buffer, without copying.
+ * </p>
+ * <p>
+ * Sends are queued and written by a virtual thread that batches whatever is pending into a
+ * single write. At most {@code maxPendingBytes} may wait in the queue: a sender that finds it
+ * full blocks until the client catches up, and a client that reads nothing for the idle
+ * timeout is disconnected. A silent connection is probed with a ping after the idle timeout
+ * and closed with 1001 if the next one expires too.
+ * </p>
+ *
+ * @author Diego Cardenas
+ * @since 2.0
+ */
+public final class WebSocketSession {
+
+    private static final Logger LOGGER = Logger.getLogger(WebSocketSession.class.getName());
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    static final int CONTINUATION = 0x0;
+    static final int TEXT = 0x1;
+    static final int BINARY = 0x2;
+    static final int CLOSE = 0x8;
+    static final int PING = 0x9;
+    static final int PONG = 0xA;
+
+    /** Normal closure. */
+    public static final int NORMAL_CLOSURE = 1000;
+    /** The endpoint is going away (server shutdown or idle connection). */
+    public static final int GOING_AWAY = 1001;
+    /** The peer violated the protocol. */
+    public static final int PROTOCOL_ERROR = 1002;
+    /** A text message was not valid UTF-8. */
+    public static final int INVALID_PAYLOAD = 1007;
+    /** A message exceeded the size limit. */
+    public static final int MESSAGE_TOO_BIG = 1009;
+    /** The handler failed. */
+    public static final int INTERNAL_ERROR = 1011;
+    static final int NO_STATUS = 1005;
+    static final int ABNORMAL_CLOSURE = 1006;
+
+    private static final int MAX_CONTROL_PAYLOAD = 125;
+    private static final int BATCH_SIZE = 16 * 1024;
+    private static final ExecutorService WRITERS = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Protocol violation; the session is closed with the given status code.
+     */
+    static final class WebSocketException extends IOException {
+        final int closeCode;
+
+        WebSocketException(int closeCode, String message) {
+            super(message);
+            this.closeCode = closeCode;
+        }
+    }
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final String path;
+    private final WebSocketHandler handler;
+    private final int maxMessageBytes;
+    private final long maxPendingBytes;
+    private final int idleTimeoutMillis;
+    private final BufferPool pool = BufferPool.shared();
+
+    // Cabecera de trama y payload de control: nunca superan 14 y 125 bytes
+    private final byte[] head = new byte[14];
+    private final byte[] control = new byte[MAX_CONTROL_PAYLOAD];
+    private final byte[] mask = new byte[4];
+
+    // Cola de salida, protegida por sendLock
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private final Condition drained = sendLock.newCondition();
+    private final ArrayDeque<byte[]> outbound = new ArrayDeque<>();
+    private long pendingBytes;
+    private boolean writing;
+    private boolean closeSent;
+    private volatile boolean open = true;
+    private boolean closeNotified;
+
+    /**
+     * Creates a session over an upgraded connection.
+     *
+     * @param socket            the connection, or null when serving plain streams
+     * @param in                the input, positioned right after the handshake request
+     * @param out               the connection output stream
+     * @param path              the endpoint path
+     * @param handler           the endpoint callbacks
+     * @param maxMessageBytes   largest message accepted, after reassembly
+     * @param maxPendingBytes   bytes that may wait in the send queue before senders block
+     * @param idleTimeoutMillis silence allowed before a ping, and again before closing
+     */
+    public WebSocketSession(Socket socket, InputStream in, OutputStream out, String path, WebSocketHandler handler,
+                            int maxMessageBytes, long maxPendingBytes, int idleTimeoutMillis) {
+        this.socket = socket;
+        this.in = in;
+        this.out = out;
+        this.path = path;
+        this.handler = handler;
+        this.maxMessageBytes = Math.max(MAX_CONTROL_PAYLOAD, maxMessageBytes);
+        this.maxPendingBytes = Math.max(1, maxPendingBytes);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Indicates whether a request asks to upgrade to WebSocket.
+     *
+     * @param headers the request headers, with lower-case names
+     * @return true if it carries {@code Upgrade: websocket}
+     */
+    public static boolean isUpgradeRequest(Map<String, String> headers) {
+        String upgrade = headers.get("upgrade");
+        return upgrade != null && upgrade.trim().equalsIgnoreCase("websocket");
+    }
+
+    /**
+     * Builds the handshake response for a valid upgrade request.
+     *
+     * @param headers the request headers, with lower-case names
+     * @return the 101 response head, or null if the request is not a valid version 13 handshake
+     */
+    public static byte[] handshakeResponse(Map<String, String> headers) {
+        String key = headers.get("sec-websocket-key");
+        String version = headers.get("sec-websocket-version");
+        if (key == null || key.isBlank() || version == null || !version.trim().equals("13")) {
+            return null;
+        }
+        return ("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key.trim()) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Computes the {@code Sec-WebSocket-Accept} value for a client key.
+     *
+     * @param key the {@code Sec-WebSocket-Key} header
+     * @return the base64 SHA-1 of the key and the protocol GUID
+     */
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(
+                    sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 no disponible", e);
+        }
+    }
+
+    /**
+     * Gets the endpoint path this session was opened on.
+     *
+     * @return the path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Indicates whether the session can still send messages.
+     *
+     * @return false once a close frame was sent or the connection dropped
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Sends a text message, blocking while the send queue is full.
+     *
+     * @param message the message
+     * @throws IOException if the session is closed or the client stopped reading
+     */
+    public void sendText(String message) throws IOException {
+        byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+        enqueue(encodeFrame(TEXT, payload, 0, payload.length), false);
+    }
+
+    /**
+     * Sends a binary message, blocking while the send queue is full. The remaining bytes of
+     * the buffer are copied into the frame, so the caller may reuse it on return.
+     *
+     * @param message the message
+     * @throws IOException if the session is closed or the client stopped reading
+     */
+    public void sendBinary(ByteBuffer message) throws IOException {
+        ByteBuffer data = message.duplicate();
+        byte[] frame = frameHeader(BINARY, data.remaining());
+        int offset = frame.length - data.remaining();
+        data.get(frame, offset, data.remaining());
+        enqueue(frame, false);
+    }
+
+    /**
+     * Sends a ping; the client's pong is consumed by the session.
+     *
+     * @param payload up to 125 bytes echoed back by the client
+     * @throws IOException if the session is closed
+     */
+    public void ping(byte[] payload) throws IOException {
+        if (payload.length > MAX_CONTROL_PAYLOAD) {
+            throw new IllegalArgumentException("El payload de control supera 125 bytes");
+        }
+        enqueue(encodeFrame(PING, payload, 0, payload.length), false);
+    }
+
+    /**
+     * Starts the closing handshake. The connection is closed once the client answers or the
+     * idle timeout expires.
+     *
+     * @param code   the close status code
+     * @param reason the close reason (truncated to fit a control frame)
+     */
+    public void close(int code, String reason) {
+        sendClose(code, reason);
+    }
+
+    /**
+     * Reads frames until the connection closes, dispatching messages to the handler. Closes
+     * the connection on return.
+     */
+    public void serve() {
+        int closeCode = ABNORMAL_CLOSURE;
+        String closeReason = "";
+        try {
+            handler.onOpen(this);
+            readLoop();
+        } catch (WebSocketException e) {
+            LOGGER.log(Level.FINE, "WebSocket {0} cerrado por error de protocolo: {1}", new Object[]{path, e.getMessage()});
+            closeCode = e.closeCode;
+            closeReason = e.getMessage();
+            sendClose(e.closeCode, e.getMessage());
+        } catch (ClosedByPeer e) {
+            closeCode = e.code;
+            closeReason = e.reason;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Conexión WebSocket {0} perdida: {1}", new Object[]{path, e.getMessage()});
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error en el endpoint WebSocket {0}: {1}", new Object[]{path, e.getMessage()});
+            closeCode = INTERNAL_ERROR;
+            sendClose(INTERNAL_ERROR, "Internal Error");
+        } finally {
+            shutdown();
+            notifyClose(closeCode, closeReason);
+        }
+    }
+
+    /** Thrown by the read loop when the client's close frame arrives. */
+    private static final class ClosedByPeer extends IOException {
+        final int code;
+        final String reason;
+
+        ClosedByPeer(int code, String reason) {
+            super("Close " + code);
+            this.code = code;
+            this.reason = reason;
+        }
+    }
+
+    private void readLoop() throws Exception {
+        BufferPool.Buffer message = null;
+        int messageLength = 0;
+        int messageType = -1;
+        boolean awaitingPong = false;
+        try {
+            while (true) {
+                try {
+                    readFully(head, 0, 2);
+                } catch (SocketTimeoutException e) {
+                    if (awaitingPong || !open) {
+                        throw new WebSocketException(GOING_AWAY, "Idle timeout");
+                    }
+                    awaitingPong = true;
+                    ping(new byte[0]);
+                    continue;
+                }
+                awaitingPong = false;
+                boolean fin = (head[0] & 0x80) != 0;
+                if ((head[0] & 0x70) != 0) {
+                    throw new WebSocketException(PROTOCOL_ERROR, "Reserved bits set");
+                }
+                int opcode = head[0] & 0x0F;
+                if ((head[1] & 0x80) == 0) {
+                    throw new WebSocketException(PROTOCOL_ERROR, "Unmasked client frame");
+                }
+                long length = head[1] & 0x7F;
+                if (length == 126) {
+                    readFully(head, 2, 2);
+                    length = ((head[2] & 0xFF) << 8) | (head[3] & 0xFF);
+                } else if (length == 127) {
+                    readFully(head, 2, 8);
+                    length = 0;
+                    for (int i = 2; i < 10; i++) {
+                        length = (length << 8) | (head[i] & 0xFF);
+                    }
+                    if (length < 0) {
+                        throw new WebSocketException(PROTOCOL_ERROR, "Invalid length");
+                    }
+                }
+                readFully(mask, 0, 4);
+
+                if (opcode >= CLOSE) {
+                    if (!fin || length > MAX_CONTROL_PAYLOAD) {
+                        throw new WebSocketException(PROTOCOL_ERROR, "Invalid control frame");
+                    }
+                    int n = (int) length;
+                    readFully(control, 0, n);
+                    unmask(control, 0, n);
+                    handleControl(opcode, n);
+                    continue;
+                }
+                if (opcode != CONTINUATION && opcode != TEXT && opcode != BINARY) {
+                    throw new WebSocketException(PROTOCOL_ERROR, "Unknown opcode " + opcode);
+                }
+                if (opcode == CONTINUATION ? messageType < 0 : messageType >= 0) {
+                    throw new WebSocketException(PROTOCOL_ERROR, "Unexpected fragment");
+                }
+                if (messageLength + length > maxMessageBytes) {
+                    throw new WebSocketException(MESSAGE_TOO_BIG, "Message exceeds " + maxMessageBytes + " bytes");
+                }
+                int n = (int) length;
+                if (opcode != CONTINUATION) {
+                    messageType = opcode;
+                    message = pool.acquire(Math.max(n, BufferPool.MIN_CLASS_SIZE));
+                } else if (messageLength + n > message.capacity()) {
+                    // El mensaje fragmentado crece: se pasa a un buffer del doble de tamaño
+                    BufferPool.Buffer bigger = pool.acquire(
+                            (int) Math.min(maxMessageBytes, Math.max(messageLength + n, 2L * message.capacity())));
+                    System.arraycopy(message.array(), 0, bigger.array(), 0, messageLength);
+                    message.release();
+                    message = bigger;
+                }
+                readFully(message.array(), messageLength, n);
+                unmask(message.array(), messageLength, n);
+                messageLength += n;
+                if (fin) {
+                    deliver(messageType, message.array(), messageLength);
+                    message.release();
+                    message = null;
+                    messageLength = 0;
+                    messageType = -1;
+                }
+            }
+        } finally {
+            if (message != null) {
+                message.release();
+            }
+        }
+    }
+
+    private void handleControl(int opcode, int length) throws IOException {
+        switch (opcode) {
+            case PING -> enqueue(encodeFrame(PONG, control, 0, length), false);
+            case PONG -> {
+                // Respuesta a nuestro ping de inactividad: basta con haber leído algo
+            }
+            case CLOSE -> {
+                if (length == 1) {
+                    throw new WebSocketException(PROTOCOL_ERROR, "Invalid close payload");
+                }
+                int code = length >= 2 ? ((control[0] & 0xFF) << 8) | (control[1] & 0xFF) : NO_STATUS;
+                String reason = length > 2 ? decodeUtf8(control, 2, length - 2) : "";
+                if (length >= 2 && !isValidCloseCode(code)) {
+                    throw new WebSocketException(PROTOCOL_ERROR, "Invalid close code " + code);
+                }
+                sendClose(length >= 2 ? code : NORMAL_CLOSURE, "");
+                throw new ClosedByPeer(code, reason);
+            }
+            default -> throw new WebSocketException(PROTOCOL_ERROR, "Unknown control opcode " + opcode);
+        }
+    }
+
+    private void deliver(int type, byte[] data, int length) throws Exception {
+        if (type == TEXT) {
+            handler.onText(this, decodeUtf8(data, 0, length));
+        } else {
+            handler.onBinary(this, ByteBuffer.wrap(data, 0, length).asReadOnlyBuffer());
+        }
+    }
+
+    private static String decodeUtf8(byte[] data, int offset, int length) throws WebSocketException {
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(data, offset, length)).toString();
+        } catch (CharacterCodingException e) {
+            throw new WebSocketException(INVALID_PAYLOAD, "Invalid UTF-8");
+        }
+    }
+
+    private static boolean isValidCloseCode(int code) {
+        return (code >= 1000 && code <= 1003) || (code >= 1007 && code <= 1011) || (code >= 3000 && code <= 4999);
+    }
+
+    private void unmask(byte[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            data[offset + i] ^= mask[i & 3];
+        }
+    }
+
+    private void readFully(byte[] buf, int offset, int length) throws IOException {
+        if (socket != null) {
+            socket.setSoTimeout(idleTimeoutMillis);
+        }
+        int n = in.readNBytes(buf, offset, length);
+        if (n < length) {
+            throw new EOFException("Connection closed");
+        }
+    }
+
+    static byte[] encodeFrame(int opcode, byte[] payload, int offset, int length) {
+        byte[] frame = frameHeader(opcode, length);
+        System.arraycopy(payload, offset, frame, frame.length - length, length);
+        return frame;
+    }
+
+    /**
+     * Allocates a server frame (FIN set, unmasked) with its header filled in and room for the
+     * payload at the end.
+     */
+    private static byte[] frameHeader(int opcode, int length) {
+        int headerLength = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        byte[] frame = new byte[headerLength + length];
+        frame[0] = (byte) (0x80 | opcode);
+        if (length < 126) {
+            frame[1] = (byte) length;
+        } else if (length <= 0xFFFF) {
+            frame[1] = 126;
+            frame[2] = (byte) (length >>> 8);
+            frame[3] = (byte) length;
+        } else {
+            frame[1] = 127;
+            for (int i = 0; i < 8; i++) {
+                frame[9 - i] = (byte) ((long) length >>> (8 * i));
+            }
+        }
+        return frame;
+    }
+
+    private void sendClose(int code, String reason) {
+        byte[] text = reason == null ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+        int reasonLength = Math.min(text.length, MAX_CONTROL_PAYLOAD - 2);
+        byte[] payload = new byte[2 + reasonLength];
+        payload[0] = (byte) (code >>> 8);
+        payload[1] = (byte) code;
+        System.arraycopy(text, 0, payload, 2, reasonLength);
+        try {
+            enqueue(encodeFrame(CLOSE, payload, 0, payload.length), true);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo enviar el cierre WebSocket: {0}", e.getMessage());
+        }
+    }
+
+    private void enqueue(byte[] frame, boolean close) throws IOException {
+        sendLock.lock();
+        try {
+            if (closeSent) {
+                if (close) {
+                    return;
+                }
+                throw new IOException("WebSocket closed");
+            }
+            // Contrapresión: el emisor espera mientras el cliente no consuma lo pendiente
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+            while (!close && pendingBytes > 0 && pendingBytes + frame.length > maxPendingBytes) {
+                if (waitNanos <= 0) {
+                    abort();
+                    throw new IOException("Client is not reading");
+                }
+                waitNanos = drained.awaitNanos(waitNanos);
+                if (closeSent) {
+                    throw new IOException("WebSocket closed");
+                }
+            }
+            if (close) {
+                closeSent = true;
+                open = false;
+            }
+            outbound.add(frame);
+            pendingBytes += frame.length;
+            if (!writing) {
+                writing = true;
+                WRITERS.execute(this::drain);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending", e);
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private void drain() {
+        List<byte[]> batch = new ArrayList<>();
+        BufferPool.Buffer buffer = pool.acquire(BATCH_SIZE);
+        try {
+            while (true) {
+                sendLock.lock();
+                try {
+                    if (outbound.isEmpty()) {
+                        writing = false;
+                        drained.signalAll();
+                        return;
+                    }
+                    batch.addAll(outbound);
+                    outbound.clear();
+                } finally {
+                    sendLock.unlock();
+                }
+                long written = 0;
+                byte[] buf = buffer.array();
+                int pos = 0;
+                for (byte[] frame : batch) {
+                    if (pos + frame.length > buf.length) {
+                        out.write(buf, 0, pos);
+                        pos = 0;
+                    }
+                    if (frame.length > buf.length) {
+                        out.write(frame);
+                    } else {
+                        System.arraycopy(frame, 0, buf, pos, frame.length);
+                        pos += frame.length;
+                    }
+                    written += frame.length;
+                }
+                if (pos > 0) {
+                    out.write(buf, 0, pos);
+                }
+                out.flush();
+                batch.clear();
+                sendLock.lock();
+                try {
+                    pendingBytes -= written;
+                    drained.signalAll();
+                } finally {
+                    sendLock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error escribiendo en WebSocket {0}: {1}", new Object[]{path, e.getMessage()});
+            abort();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Waits briefly for queued frames (normally the close frame) to be written, then closes
+     * the connection.
+     */
+    private void shutdown() {
+        sendLock.lock();
+        try {
+            long waitNanos = TimeUnit.SECONDS.toNanos(1);
+            while (writing && waitNanos > 0) {
+                waitNanos = drained.awaitNanos(waitNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sendLock.unlock();
+        }
+        abort();
+    }
+
+    private void abort() {
+        sendLock.lock();
+        try {
+            open = false;
+            closeSent = true;
+            outbound.clear();
+            pendingBytes = 0;
+            writing = false;
+            drained.signalAll();
+        } finally {
+            sendLock.unlock();
+        }
+        try {
+            if (socket != null) {
+                socket.close();
+            } else {
+                out.close();
+                in.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private synchronized void notifyClose(int code, String reason) {
+        if (!closeNotified) {
+            closeNotified = true;
+            try {
+                handler.onClose(this, code, reason);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Error en onClose de {0}: {1}", new Object[]{path, e.getMessage()});
+            }
+        }
+    }
+}
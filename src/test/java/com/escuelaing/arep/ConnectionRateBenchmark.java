@@ -0,0 +1,128 @@
+package com.escuelaing.arep;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.escuelaing.arep.config.ServerConfig;
+
+/**
+ * Benchmark manual (no se ejecuta con {@code mvn test}) que mide conexiones por segundo
+ * contra {@code GET /hola} variando el número de acceptors con SO_REUSEPORT.
+ * <p>
+ * Uso: {@code java -cp target/classes:target/test-classes com.escuelaing.arep.ConnectionRateBenchmark [acceptors] [clientes] [segundos] [workers]}
+ * por ejemplo {@code 1,2,4 64 5 0}.
+ * </p>
+ */
+public class ConnectionRateBenchmark {
+
+    private static final byte[] REQUEST = "GET /hola HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        String[] acceptorCounts = (args.length > 0 ? args[0] : "1,2,4").split(",");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String workers = args.length > 3 ? args[3] : "0";
+
+        Logger root = Logger.getLogger("");
+        root.setLevel(Level.WARNING);
+        for (Handler h : root.getHandlers()) {
+            h.setLevel(Level.WARNING);
+        }
+
+        System.out.printf("clientes=%d duración=%ds workers/acceptor=%s%n", clients, seconds, workers);
+        for (String count : acceptorCounts) {
+            System.setProperty("server.acceptors", count.trim());
+            System.setProperty("server.workers", workers);
+            double rate = run(clients, seconds);
+            System.out.printf("acceptors=%-3s %,12.0f conexiones/s%n", count.trim(), rate);
+        }
+    }
+
+    private static double run(int clients, int seconds) throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        ServerConfig.setPort(port);
+        setRunning(true);
+        Thread server = new Thread(() -> {
+            try {
+                new HttpServer().start();
+            } catch (IOException ignored) {
+            }
+        }, "bench-server");
+        server.setDaemon(true);
+        server.start();
+        waitForPort(port);
+
+        LongAdder completed = new LongAdder();
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread t = new Thread(() -> {
+                byte[] buf = new byte[4096];
+                while (true) {
+                    long now = System.nanoTime();
+                    if (now >= end) {
+                        return;
+                    }
+                    try (Socket s = new Socket("localhost", port)) {
+                        OutputStream os = s.getOutputStream();
+                        os.write(REQUEST);
+                        os.flush();
+                        InputStream is = s.getInputStream();
+                        while (is.read(buf) >= 0) {
+                            // Leer hasta que el servidor cierre (Connection: close)
+                        }
+                        if (now >= warmupEnd) {
+                            completed.increment();
+                        }
+                    } catch (IOException ignored) {
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        setRunning(false);
+        try (Socket s = new Socket("localhost", port)) {
+            s.getOutputStream().write(REQUEST);
+        } catch (IOException ignored) {
+        }
+        server.join(TimeUnit.SECONDS.toMillis(5));
+        return completed.sum() / (double) seconds;
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try (Socket ignored = new Socket("localhost", port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("El servidor no inició en el puerto " + port);
+    }
+
+    private static void setRunning(boolean value) throws ReflectiveOperationException {
+        Field running = HttpServer.class.getDeclaredField("running");
+        running.setAccessible(true);
+        running.setBoolean(null, value);
+    }
+}
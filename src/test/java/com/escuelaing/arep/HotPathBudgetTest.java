@@ -0,0 +1,324 @@
+package com.escuelaing.arep;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.framework.BufferPool;
+import com.escuelaing.arep.framework.StaticFileCache;
+import com.escuelaing.arep.http.HttpHeadReader;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+/**
+ * Presupuestos de asignación y latencia del camino caliente, contra la línea base versionada en
+ * {@code src/test/resources/hot-path-budgets.properties}.
+ * <p>
+ * Cada escenario atiende peticiones en proceso (sin red) sobre un socket falso, en el hilo del
+ * test: los bytes asignados por petición se miden alrededor de {@code handleRequest} con
+ * {@code ThreadMXBean.getThreadAllocatedBytes} y se comparan siempre con su presupuesto. El logging
+ * se sube a WARNING mientras corre, para no medir el log INFO de cada petición.
+ * </p>
+ * <p>
+ * La mediana de cada fase (parse, dispatch, write) depende de la máquina, así que solo se verifica
+ * a pedido con {@code -Dhotpath.timings=true}. Para actualizar la línea base a propósito (bytes y
+ * tiempos):
+ * </p>
+ * <pre>
+ * mvn test -Dtest=HotPathBudgetTest -Dhotpath.updateBaseline=true
+ * </pre>
+ */
+@DisplayName("Presupuestos de asignación y latencia por petición")
+class HotPathBudgetTest {
+
+    private static final Path BASELINE = Path.of("src/test/resources/hot-path-budgets.properties");
+    private static final boolean UPDATE = Boolean.getBoolean("hotpath.updateBaseline");
+    private static final boolean TIMINGS = Boolean.getBoolean("hotpath.timings");
+    private static final int WARMUP = 5_000;
+    private static final int ITERATIONS = 2_000;
+    private static final String[] PHASES = {"parse", "dispatch", "write"};
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static HttpServer server;
+    private static StaticFileCache staticFiles;
+    private static Method handleRequest;
+    private static Method dispatch;
+    private static Method writeResponse;
+    private static final Properties budgets = new Properties();
+    private static final Map<String, Long> measured = new TreeMap<>();
+    private static final Map<Handler, Level> handlerLevels = new HashMap<>();
+    private static Level rootLevel;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        Assumptions.assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "La JVM no mide asignación por hilo");
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        // Igual que ConnectionRateBenchmark: sin el log INFO de cada petición en la medición ni en stderr
+        Logger root = Logger.getLogger("");
+        rootLevel = root.getLevel();
+        root.setLevel(Level.WARNING);
+        for (Handler h : root.getHandlers()) {
+            handlerLevels.put(h, h.getLevel());
+            h.setLevel(Level.WARNING);
+        }
+        server = new HttpServer();
+        invoke(accessible("loadControllers"));
+        staticFiles = (StaticFileCache) invoke(accessible("createStaticFiles"));
+        Field field = HttpServer.class.getDeclaredField("staticFiles");
+        field.setAccessible(true);
+        field.set(server, staticFiles);
+        handleRequest = accessible("handleRequest", Socket.class);
+        dispatch = accessible("dispatch", Request.class, String.class);
+        writeResponse = accessible("writeResponse", OutputStream.class, Response.class);
+        if (Files.exists(BASELINE)) {
+            try (InputStream in = Files.newInputStream(BASELINE)) {
+                budgets.load(in);
+            }
+        }
+    }
+
+    @AfterAll
+    static void stopServer() throws IOException {
+        if (staticFiles != null) {
+            staticFiles.close();
+        }
+        if (UPDATE && !measured.isEmpty()) {
+            writeBaseline();
+        }
+        if (rootLevel != null) {
+            Logger.getLogger("").setLevel(rootLevel);
+            handlerLevels.forEach(Handler::setLevel);
+            handlerLevels.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("Un archivo estático en caché debe respetar su presupuesto")
+    void staticHit_should_stayWithinBudget() throws Exception {
+        assertWithinBudget("static-hit", "GET /styles.css HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\n\r\n", 200);
+    }
+
+    @Test
+    @DisplayName("Un GET anotado con parámetros debe respetar su presupuesto")
+    void annotatedGetWithParams_should_stayWithinBudget() throws Exception {
+        assertWithinBudget("get-params", "GET /api/hello?name=Ana HTTP/1.1\r\nHost: localhost\r\nAccept: application/json\r\n\r\n", 200);
+    }
+
+    @Test
+    @DisplayName("Un 404 debe respetar su presupuesto")
+    void notFound_should_stayWithinBudget() throws Exception {
+        assertWithinBudget("not-found", "GET /no/existe HTTP/1.1\r\nHost: localhost\r\n\r\n", 404);
+    }
+
+    private static void assertWithinBudget(String scenario, String request, int expectedStatus) throws Exception {
+        // Arrange
+        FakeSocket socket = new FakeSocket(request.getBytes(StandardCharsets.US_ASCII));
+        boolean phased = TIMINGS || UPDATE;
+        for (int i = 0; i < WARMUP; i++) {
+            serve(socket);
+            if (phased) {
+                servePhases(socket, new long[PHASES.length]);
+            }
+        }
+
+        // Act
+        long threadId = Thread.currentThread().threadId();
+        long allocated = 0;
+        long[][] phases = new long[PHASES.length][ITERATIONS];
+        long[] sample = new long[PHASES.length];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long before = THREADS.getThreadAllocatedBytes(threadId);
+            serve(socket);
+            allocated += THREADS.getThreadAllocatedBytes(threadId) - before;
+            if (phased) {
+                servePhases(socket, sample);
+                for (int p = 0; p < PHASES.length; p++) {
+                    phases[p][i] = sample[p];
+                }
+            }
+        }
+
+        // Assert
+        assertEquals(expectedStatus, socket.out.status(), scenario + ": estado inesperado");
+        Map<String, Long> results = new TreeMap<>();
+        results.put(scenario + ".bytes", allocated / ITERATIONS);
+        for (int p = 0; phased && p < PHASES.length; p++) {
+            results.put(scenario + "." + PHASES[p] + ".micros", median(phases[p]) / 1000);
+        }
+        if (UPDATE) {
+            measured.putAll(results);
+            return;
+        }
+        StringBuilder exceeded = new StringBuilder();
+        for (Map.Entry<String, Long> result : results.entrySet()) {
+            String budget = budgets.getProperty(result.getKey());
+            assertTrue(budget != null, "Falta el presupuesto " + result.getKey() + " en " + BASELINE);
+            if (result.getValue() > Long.parseLong(budget.trim())) {
+                exceeded.append(String.format("%n  %s = %d (presupuesto %s)", result.getKey(), result.getValue(), budget.trim()));
+            }
+        }
+        if (!exceeded.isEmpty()) {
+            fail("Presupuesto excedido en " + scenario + exceeded
+                    + "\nSi el aumento es intencional, regenerar con -Dhotpath.updateBaseline=true");
+        }
+    }
+
+    // La petición completa por el mismo camino que una conexión real
+    private static void serve(FakeSocket socket) throws Exception {
+        socket.reset();
+        invoke(handleRequest, socket);
+    }
+
+    // Las mismas etapas por separado, para medir cuánto tarda cada una
+    private static void servePhases(FakeSocket socket, long[] nanos) throws Exception {
+        socket.reset();
+        long start = System.nanoTime();
+        HttpHeadReader in = new HttpHeadReader(socket.getInputStream(), socket, BufferPool.shared(), 16 * 1024, 0, 0, 0);
+        Response response;
+        try {
+            String[] requestLine = in.readRequestLine().split(" ");
+            Map<String, String> headers = new HashMap<>();
+            in.readHeaders(headers);
+            Request request = new Request(requestLine[0], requestLine[1], headers, null);
+            long parsed = System.nanoTime();
+            response = (Response) invoke(dispatch, request, "127.0.0.1");
+            long dispatched = System.nanoTime();
+            invoke(writeResponse, socket.out, response);
+            long written = System.nanoTime();
+            nanos[0] = parsed - start;
+            nanos[1] = dispatched - parsed;
+            nanos[2] = written - dispatched;
+        } finally {
+            in.release();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    // Nuevos presupuestos: 20 % de margen en bytes y 5x (mínimo 200 µs) en tiempos, que varían más entre máquinas
+    private static void writeBaseline() throws IOException {
+        Files.createDirectories(BASELINE.getParent());
+        try (Writer out = Files.newBufferedWriter(BASELINE, StandardCharsets.UTF_8)) {
+            out.write("# Presupuestos por escenario del camino caliente, verificados por HotPathBudgetTest.\n");
+            out.write("# <escenario>.bytes: bytes asignados por petición en handleRequest (media).\n");
+            out.write("# <escenario>.<fase>.micros: mediana de la fase (parse, dispatch, write) en microsegundos,\n");
+            out.write("#   verificada solo con -Dhotpath.timings=true.\n");
+            out.write("# Regenerar a propósito: mvn test -Dtest=HotPathBudgetTest -Dhotpath.updateBaseline=true\n");
+            for (Map.Entry<String, Long> result : measured.entrySet()) {
+                long value = result.getKey().endsWith(".bytes")
+                        ? (long) Math.ceil(result.getValue() * 1.2) : Math.max(200, result.getValue() * 5);
+                out.write(result.getKey() + "=" + value + "\n");
+            }
+        }
+    }
+
+    private static Method accessible(String name, Class<?>... types) throws NoSuchMethodException {
+        Method method = HttpServer.class.getDeclaredMethod(name, types);
+        method.setAccessible(true);
+        return method;
+    }
+
+    private static Object invoke(Method method, Object... args) throws Exception {
+        try {
+            return method.invoke(server, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    // Socket sin red: la petición se relee desde un buffer y la respuesta se descarta guardando el estado
+    private static final class FakeSocket extends Socket {
+        private final ByteArrayInputStream in;
+        private final StatusSink out = new StatusSink();
+
+        FakeSocket(byte[] request) {
+            this.in = new ByteArrayInputStream(request);
+        }
+
+        void reset() {
+            in.reset();
+            out.reset();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public InetAddress getInetAddress() {
+            return InetAddress.getLoopbackAddress();
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) {
+        }
+    }
+
+    private static final class StatusSink extends OutputStream {
+        private final byte[] statusLine = new byte[12];
+        private int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        int status() {
+            // "HTTP/1.1 200"
+            return Integer.parseInt(new String(statusLine, 9, 3, StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void write(int b) {
+            if (count < statusLine.length) {
+                statusLine[count] = (byte) b;
+            }
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            int copied = Math.max(0, Math.min(len, statusLine.length - count));
+            System.arraycopy(b, off, statusLine, count, copied);
+            count += len;
+        }
+    }
+}
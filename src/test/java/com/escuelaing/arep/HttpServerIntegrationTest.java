@@ -1,18 +1,25 @@
 package com.escuelaing.arep;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.DisplayName;
@@ -73,6 +80,427 @@ class HttpServerIntegrationTest {
         }
     }
 
+    @Test
+    @DisplayName("Un HttpClient HTTP/2 debe multiplexar varias peticiones por h2c")
+    void http2Client_should_multiplexRequests_overH2c() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(3))
+                .build();
+
+        try {
+            // Act: la primera petición hace el upgrade; las siguientes comparten la conexión
+            HttpResponse<String> first = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hola")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+            for (String path : List.of("/greeting?name=Ana", "/api/hello", "/", "/styles.css", "/missing.txt")) {
+                pending.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            List<HttpResponse<String>> responses = new ArrayList<>();
+            for (CompletableFuture<HttpResponse<String>> f : pending) {
+                responses.add(f.get(5, TimeUnit.SECONDS));
+            }
+
+            // Assert
+            assertEquals(HttpClient.Version.HTTP_2, first.version());
+            assertEquals("Greetings from MicroSpringBoot!", first.body().trim());
+            for (HttpResponse<String> r : responses) {
+                assertEquals(HttpClient.Version.HTTP_2, r.version());
+            }
+            assertEquals("Hola Ana", responses.get(0).body().trim());
+            assertTrue(responses.get(1).headers().firstValue("content-type").orElse("").contains("json"));
+            assertTrue(responses.get(2).body().toLowerCase().contains("<!doctype html"));
+            assertEquals(200, responses.get(3).statusCode());
+            assertEquals(404, responses.get(4).statusCode());
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Los streams HTTP/2 deben pasar por el rate limiter de la ruta")
+    void http2Streams_should_beRateLimited_overH2c() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        System.setProperty("rateLimit.routes", "/count=1:2");
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(3))
+                .build();
+
+        try {
+            // Act: tras el upgrade, todas las peticiones a /count van por la misma conexión HTTP/2
+            HttpResponse<String> upgrade = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/hola")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                pending.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/count")).build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            List<HttpResponse<String>> limited = new ArrayList<>();
+            for (CompletableFuture<HttpResponse<String>> f : pending) {
+                HttpResponse<String> r = f.get(5, TimeUnit.SECONDS);
+                assertEquals(HttpClient.Version.HTTP_2, r.version());
+                if (r.statusCode() == 429) {
+                    limited.add(r);
+                }
+            }
+
+            // Assert
+            assertEquals(HttpClient.Version.HTTP_2, upgrade.version());
+            assertTrue(limited.size() >= 6, "Solo el burst de 2 debe pasar, rechazadas: " + limited.size());
+            assertTrue(limited.get(0).headers().firstValue("retry-after").isPresent());
+        } finally {
+            System.clearProperty("rateLimit.routes");
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Los archivos estáticos deben llevar ETag y responder 304 si no cambiaron")
+    void staticFile_should_return304_when_etagMatches() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://localhost:" + port + "/styles.css");
+
+        try {
+            // Act
+            HttpResponse<String> first = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            String etag = first.headers().firstValue("etag").orElseThrow();
+            HttpResponse<String> second = client.send(HttpRequest.newBuilder(uri).header("If-None-Match", etag).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<byte[]> gzip = client.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+
+            // Assert
+            assertEquals(200, first.statusCode());
+            assertEquals(304, second.statusCode());
+            assertTrue(second.body().isEmpty());
+            assertEquals("gzip", gzip.headers().firstValue("content-encoding").orElse(""));
+            assertTrue(gzip.body().length < first.body().length());
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Los filtros @Filter deben envolver solo las rutas que coinciden con su patrón")
+    void filters_should_wrapMatchingRoutes_only() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + port;
+
+        try {
+            // Act
+            HttpResponse<String> echoed = client.send(HttpRequest.newBuilder(URI.create(base + "/api/hello"))
+                    .header("X-Request-Id", "abc-123").build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> generated = client.send(HttpRequest.newBuilder(URI.create(base + "/api/hello")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> unfiltered = client.send(HttpRequest.newBuilder(URI.create(base + "/hola")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(200, echoed.statusCode());
+            assertEquals("abc-123", echoed.headers().firstValue("x-request-id").orElse(""));
+            assertFalse(generated.headers().firstValue("x-request-id").orElse("").isEmpty());
+            assertTrue(unfiltered.headers().firstValue("x-request-id").isEmpty());
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("POST multipart a /api/upload debe enlazar las partes y volcar a disco las grandes")
+    void upload_should_bindParts_and_spoolLargeFiles() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String body = "--b0und\r\nContent-Disposition: form-data; name=\"title\"\r\n\r\nfoto\r\n"
+                + "--b0und\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n" + "x".repeat(100_000) + "\r\n--b0und--\r\n";
+
+        try {
+            // Act
+            HttpResponse<String> uploaded = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/upload"))
+                    .header("Content-Type", "multipart/form-data; boundary=b0und")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> truncated = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/upload"))
+                    .header("Content-Type", "multipart/form-data; boundary=b0und")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.substring(0, 200))).build(), HttpResponse.BodyHandlers.ofString());
+            // Sin longitud conocida, HttpClient envía el cuerpo con Transfer-Encoding: chunked
+            HttpResponse<String> chunked = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/upload"))
+                    .header("Content-Type", "multipart/form-data; boundary=b0und")
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(
+                            () -> new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(200, uploaded.statusCode());
+            assertTrue(uploaded.body().contains("\"title\":\"foto\""));
+            assertTrue(uploaded.body().contains("\"filename\":\"a.bin\""));
+            assertTrue(uploaded.body().contains("\"size\":100000"));
+            assertTrue(uploaded.body().contains("\"spooled\":true"));
+            assertEquals(400, truncated.statusCode());
+            assertEquals(411, chunked.statusCode());
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Los prefijos configurados en proxy.routes deben reenviarse al upstream")
+    void proxyRoute_should_forwardToUpstream() throws Exception {
+        // Arrange
+        com.sun.net.httpserver.HttpServer upstream = com.sun.net.httpserver.HttpServer.create(
+                new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/backend", exchange -> {
+            byte[] body = (exchange.getRequestMethod() + " " + exchange.getRequestURI() + " from "
+                    + exchange.getRequestHeaders().getFirst("X-Forwarded-For")).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("X-Upstream", "stub");
+            exchange.sendResponseHeaders(201, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        upstream.start();
+        System.setProperty("proxy.routes", "/backend=127.0.0.1:" + upstream.getAddress().getPort());
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        try {
+            // Act
+            HttpResponse<String> proxied = client.send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/backend/items?id=7")).build(), HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(201, proxied.statusCode());
+            assertEquals("GET /backend/items?id=7 from 127.0.0.1", proxied.body());
+            assertEquals("stub", proxied.headers().firstValue("x-upstream").orElse(""));
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+            System.clearProperty("proxy.routes");
+            upstream.stop(0);
+        }
+    }
+
+    @Test
+    @DisplayName("index.html debe referenciar app.js por su nombre con huella, servido como inmutable")
+    void fingerprintedAsset_should_beServedImmutable() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + port;
+
+        try {
+            // Act
+            String html = httpGet(base + "/");
+            java.util.regex.Matcher script = java.util.regex.Pattern.compile("src=\"(app\\.[0-9a-f]{8}\\.js)\"").matcher(html);
+            assertTrue(script.find(), "index.html debe usar el nombre con huella de app.js");
+            HttpResponse<String> asset = client.send(HttpRequest.newBuilder(URI.create(base + "/" + script.group(1))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> plain = client.send(HttpRequest.newBuilder(URI.create(base + "/app.js")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(200, asset.statusCode());
+            assertEquals("public, max-age=31536000, immutable", asset.headers().firstValue("cache-control").orElse(""));
+            assertEquals(plain.body(), asset.body());
+            assertTrue(plain.headers().firstValue("cache-control").isEmpty());
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("OPTIONS debe responder el preflight CORS y HEAD las cabeceras de GET sin cuerpo")
+    void options_should_answerPreflight_and_head_should_omitBody() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + port;
+
+        try {
+            // Act
+            HttpResponse<String> preflight = client.send(HttpRequest.newBuilder(URI.create(base + "/api/hello"))
+                    .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
+                    .header("Origin", "http://example.com").header("Access-Control-Request-Method", "POST").build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> get = client.send(HttpRequest.newBuilder(URI.create(base + "/styles.css")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> head = client.send(HttpRequest.newBuilder(URI.create(base + "/styles.css"))
+                    .HEAD().build(), HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(204, preflight.statusCode());
+            assertEquals("GET, HEAD, POST, OPTIONS",
+                    preflight.headers().firstValue("access-control-allow-methods").orElse(""));
+            assertEquals("3600", preflight.headers().firstValue("access-control-max-age").orElse(""));
+            assertEquals("*", preflight.headers().firstValue("access-control-allow-origin").orElse(""));
+            assertEquals(200, head.statusCode());
+            assertEquals(get.headers().firstValue("etag"), head.headers().firstValue("etag"));
+            assertEquals(get.headers().firstValue("content-length"), head.headers().firstValue("content-length"));
+            assertTrue(head.body().isEmpty());
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("POST /api/batch debe responder varias rutas en una sola petición, por HTTP/1.1 y HTTP/2")
+    void batch_should_combineRouteResponses() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        String body = "[{\"path\":\"/hola\"},{\"path\":\"/greeting\",\"params\":{\"name\":\"Ana\"}},"
+                + "{\"path\":\"/styles.css\"}]";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).header("Content-Type", "application/json").build();
+
+        try {
+            // Act
+            HttpResponse<String> http1 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()
+                    .send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> http2 = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build()
+                    .send(request, HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            for (HttpResponse<String> response : List.of(http1, http2)) {
+                assertEquals(200, response.statusCode());
+                assertTrue(response.body().contains("\"body\":\"Greetings from MicroSpringBoot!\""), response.body());
+                assertTrue(response.body().contains("\"body\":\"Hola Ana\""), response.body());
+                assertTrue(response.body().contains("{\"path\":\"/styles.css\",\"status\":404"), response.body());
+            }
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Las rutas asíncronas deben responder al completarse y 504 al exceder su timeout")
+    void asyncRoute_should_return504_when_timeoutExpires() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + port + "/test/async?delay=";
+
+        try {
+            // Act
+            CompletableFuture<HttpResponse<String>> slow = client.sendAsync(
+                    HttpRequest.newBuilder(URI.create(base + "5000")).build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> fast = client.send(HttpRequest.newBuilder(URI.create(base + "50")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> timedOut = slow.get(5, TimeUnit.SECONDS);
+
+            // Assert
+            assertEquals(200, fast.statusCode());
+            assertEquals("async ok", fast.body());
+            assertEquals(504, timedOut.statusCode());
+        } finally {
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Un handler asíncrono que excede su timeout debe seguir ocupando su bulkhead")
+    void asyncRoute_should_holdBulkheadPermit_untilHandlerCompletes() throws Exception {
+        // Arrange
+        int port = pickFreePort();
+        ServerConfig.setPort(port);
+        System.setProperty("bulkhead.routes", "/test/async=1:0");
+        setRunning(true);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> future = executor.submit(HttpServerIntegrationTest::runServer);
+        waitForServer(port);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + port + "/test/async?delay=";
+
+        try {
+            // Act: el primer handler sigue corriendo después de su 504
+            HttpResponse<String> timedOut = client.send(HttpRequest.newBuilder(URI.create(base + "1500")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> shed = client.send(HttpRequest.newBuilder(URI.create(base + "0")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Thread.sleep(2000);
+            HttpResponse<String> admitted = client.send(HttpRequest.newBuilder(URI.create(base + "0")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            // Assert
+            assertEquals(504, timedOut.statusCode());
+            assertEquals(503, shed.statusCode());
+            assertEquals(200, admitted.statusCode());
+        } finally {
+            System.clearProperty("bulkhead.routes");
+            stopServer(future, port);
+            executor.shutdownNow();
+        }
+    }
+
     // Helpers
     private static void runServer() {
         try {
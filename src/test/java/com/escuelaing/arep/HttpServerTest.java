@@ -1,13 +1,19 @@
 package com.escuelaing.arep;
 
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import com.escuelaing.arep.framework.JsonWriter;
+import com.escuelaing.arep.http.Response;
+
 class HttpServerTest {
 
     @ParameterizedTest(name = "mime({0}) -> {1}")
@@ -59,4 +65,20 @@ class HttpServerTest {
             default -> assertEquals("Unknown", msg);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("withBody debe dar a la respuesta sus propios bytes JSON")
+    void withBody_should_keepJsonBody_when_threadSerializesAgain() throws Exception {
+        // Arrange
+        Method method = HttpServer.class.getDeclaredMethod("withBody", Response.class, Object.class);
+        method.setAccessible(true);
+
+        // Act
+        Response response = (Response) method.invoke(null, new Response(), Map.of("count", 1));
+        JsonWriter.toJson(Map.of("other", "x".repeat(64)));
+
+        // Assert
+        assertEquals("{\"count\":1}",
+                new String(response.getBody(), 0, response.getBodyLength(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,186 @@
+package com.escuelaing.arep.capture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrafficCaptureTest {
+
+    @Test
+    @DisplayName("record should append sampled requests across sessions, omit large bodies and skip over the byte budget")
+    void record_should_appendRequests_and_respectBudget(@TempDir Path dir) throws IOException {
+        // Arrange
+        Path log = dir.resolve("traffic.log");
+        byte[] post = ascii("POST /api/echo HTTP/1.1\r\nContent-Length: 4\r\n\r\n");
+        byte[] upload = ascii("POST /api/upload HTTP/1.1\r\nContent-Length: 20\r\n\r\n");
+        byte[] huge = ascii("GET /" + "x".repeat(300) + " HTTP/1.1\r\n\r\n");
+        InputStream uploadBody = new ByteArrayInputStream(new byte[20]);
+
+        // Act
+        TrafficCapture first = new TrafficCapture(log, 1, 256, 8, 1 << 20, 16);
+        InputStream echoed = first.record(post, 4, new ByteArrayInputStream(ascii("hola")), false);
+        InputStream passed = first.record(upload, 20, uploadBody, true);
+        InputStream skipped = first.record(huge, 0, null, false);
+        first.close();
+        TrafficCapture second = new TrafficCapture(log, 1, 256, 8, 1 << 20, 16);
+        second.record(ascii("GET / HTTP/1.1\r\n\r\n"), 0, null, false);
+        second.close();
+        List<TrafficLog.Entry> entries = readAll(log);
+
+        // Assert
+        assertArrayEquals(ascii("hola"), echoed.readAllBytes());
+        assertEquals(uploadBody, passed);
+        assertNull(skipped);
+        assertEquals(new TrafficCapture.Stats(2, 1, 0), first.stats());
+        assertEquals(3, entries.size());
+        assertArrayEquals(post, entries.get(0).head());
+        assertArrayEquals(ascii("hola"), entries.get(0).body());
+        assertFalse(entries.get(0).bodyOmitted());
+        assertTrue(entries.get(1).bodyOmitted());
+        assertEquals(TrafficLog.FLAG_TLS, entries.get(1).flags() & TrafficLog.FLAG_TLS);
+        assertEquals(20, entries.get(1).bodyLength());
+        assertEquals(0, entries.get(1).body().length);
+        assertTrue(entries.get(2).sessionStartMicros() >= entries.get(0).sessionStartMicros());
+        assertFalse(TrafficCapture.disabled().sample());
+    }
+
+    @Test
+    @DisplayName("record should redact credential headers before they reach the log")
+    void record_should_redactCredentials(@TempDir Path dir) throws IOException {
+        // Arrange
+        Path log = dir.resolve("secrets.log");
+        byte[] head = ascii("GET /api/me HTTP/1.1\r\nHost: localhost\r\nAuthorization: Bearer s3cret-token\r\n"
+                + "cookie: sid=abc123; theme=dark\r\nPROXY-AUTHORIZATION:Basic dXNlcjpwYXNz\r\nAccept: */*\r\n\r\n");
+
+        // Act
+        TrafficCapture capture = new TrafficCapture(log, 1, 1 << 20, 8, 1 << 20, 16);
+        capture.record(head, 0, null, true);
+        capture.close();
+        String bytes = new String(Files.readAllBytes(log), StandardCharsets.ISO_8859_1);
+        List<TrafficLog.Entry> entries = readAll(log);
+
+        // Assert
+        assertFalse(bytes.contains("s3cret-token"));
+        assertFalse(bytes.contains("sid=abc123"));
+        assertFalse(bytes.contains("dXNlcjpwYXNz"));
+        assertEquals("GET /api/me HTTP/1.1\r\nHost: localhost\r\nAuthorization: [redacted]\r\n"
+                        + "cookie: [redacted]\r\nPROXY-AUTHORIZATION: [redacted]\r\nAccept: */*\r\n\r\n",
+                new String(entries.get(0).head(), StandardCharsets.ISO_8859_1));
+        byte[] plain = ascii("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertSame(plain, TrafficCapture.redact(plain));
+    }
+
+    @Test
+    @DisplayName("close should return promptly when the writer died on a write error with the queue full")
+    void close_should_notBlock_when_writerDiedWithFullQueue() throws Exception {
+        // Arrange
+        Path deviceFull = Path.of("/dev/full");
+        Assumptions.assumeTrue(Files.isWritable(deviceFull), "Se necesita /dev/full para forzar el error de escritura");
+        TrafficCapture capture = new TrafficCapture(deviceFull, 1, 1 << 20, 8, 1 << 20, 1);
+        byte[] get = ascii("GET / HTTP/1.1\r\n\r\n");
+        capture.record(get, 0, null, false);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (capture.sample() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        capture.record(get, 0, null, false);
+        capture.record(get, 0, null, false);
+
+        // Act
+        long start = System.nanoTime();
+        capture.close();
+        long elapsed = System.nanoTime() - start;
+
+        // Assert
+        assertFalse(capture.sample());
+        assertEquals(1, capture.stats().dropped());
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(1), "close tardó " + elapsed / 1_000_000 + " ms");
+    }
+
+    @Test
+    @DisplayName("replay should send the captured bytes, pad omitted bodies and report latency percentiles")
+    void replay_should_sendCapturedBytes_and_reportPercentiles(@TempDir Path dir) throws IOException, InterruptedException {
+        try (ServerSocket server = new ServerSocket(0)) {
+            // Arrange
+            Path log = dir.resolve("replay.log");
+            try (TrafficLog.Writer writer = new TrafficLog.Writer(log, 1_000_000)) {
+                writer.append(0, 0, ascii("POST /ok HTTP/1.1\r\nContent-Length: 4\r\n\r\n"), 4, ascii("hola"), 4);
+                writer.append(1000, TrafficLog.FLAG_BODY_OMITTED,
+                        ascii("POST /fail HTTP/1.1\r\nContent-Length: 3\r\n\r\n"), 3, new byte[0], 0);
+            }
+            List<String> received = new CopyOnWriteArrayList<>();
+            Thread.ofVirtual().start(() -> answer(server, 2, received));
+
+            // Act
+            TrafficReplay.Report report = TrafficReplay.replay(log, "127.0.0.1", server.getLocalPort(), 0, 1);
+
+            // Assert
+            assertEquals(List.of("POST /ok HTTP/1.1\r\nContent-Length: 4\r\n\r\nhola",
+                    "POST /fail HTTP/1.1\r\nContent-Length: 3\r\n\r\n\0\0\0"), received);
+            assertEquals(2, report.requests());
+            assertEquals(0, report.failures());
+            assertEquals(1, report.serverErrors());
+            assertEquals(2, report.latencies().length);
+            assertTrue(report.percentile(50) <= report.percentile(100));
+            assertEquals(report.latencies()[1], report.percentile(99));
+        }
+    }
+
+    // Responde 200 a /ok y 503 al resto, guardando lo recibido hasta el final del cuerpo declarado
+    private static void answer(ServerSocket server, int count, List<String> received) {
+        for (int i = 0; i < count; i++) {
+            try (Socket socket = server.accept()) {
+                InputStream in = socket.getInputStream();
+                ByteArrayOutputStream request = new ByteArrayOutputStream();
+                while (!request.toString(StandardCharsets.ISO_8859_1).endsWith("\r\n\r\n")) {
+                    request.write(in.read());
+                }
+                String head = request.toString(StandardCharsets.ISO_8859_1);
+                int length = Integer.parseInt(head.replaceAll("(?s).*Content-Length: (\\d+).*", "$1"));
+                request.write(in.readNBytes(length));
+                received.add(request.toString(StandardCharsets.ISO_8859_1));
+                String status = head.startsWith("POST /ok") ? "200 OK" : "503 Service Unavailable";
+                socket.getOutputStream().write(ascii("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\n\r\n"));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private static List<TrafficLog.Entry> readAll(Path log) throws IOException {
+        List<TrafficLog.Entry> entries = new ArrayList<>();
+        try (TrafficLog.Reader reader = new TrafficLog.Reader(log)) {
+            TrafficLog.Entry entry;
+            while ((entry = reader.next()) != null) {
+                entries.add(entry);
+            }
+        }
+        assertTrue(Files.size(log) > 0);
+        return entries;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
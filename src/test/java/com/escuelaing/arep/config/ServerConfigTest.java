@@ -1,10 +1,16 @@
 package com.escuelaing.arep.config;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 @DisplayName("ServerConfig unit tests")
 class ServerConfigTest {
@@ -30,6 +36,25 @@ class ServerConfigTest {
         assertEquals(newPort, result, "El puerto configurado debe coincidir");
     }
 
+    @Test
+    @DisplayName("properties file values should be used when no property or env var is set")
+    void loadProperties_should_supplySocketSettings(@TempDir Path dir) throws IOException {
+        // Arrange
+        Path file = dir.resolve("server.properties");
+        Files.writeString(file, "server.backlog=321\nserver.tcpNoDelay=false\nserver.maxHeaderBytes=4096\n");
+
+        // Act
+        ServerConfig.loadProperties(file);
+        SocketSettings settings = SocketSettings.fromConfig();
+        ServerConfig.clearProperties();
+
+        // Assert
+        assertEquals(321, settings.backlog());
+        assertFalse(settings.tcpNoDelay());
+        assertEquals(4096, settings.maxHeaderBytes());
+        assertEquals(128, SocketSettings.fromConfig().backlog());
+    }
+
     // Dummy assert to reference restorePort indirectly and keep static analyzers calm
     @Test
     void afterEach_is_defined() {
@@ -0,0 +1,106 @@
+package com.escuelaing.arep.config;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TlsSettingsTest {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @Test
+    @DisplayName("the HTTPS listener should negotiate TLS 1.3 with ALPN and resume returning clients")
+    void newServerSocket_should_negotiateTls13AndAlpn_and_resumeSessions(@TempDir Path dir) throws Exception {
+        // Arrange
+        Path keystore = selfSignedKeystore(dir);
+        TlsSettings settings = new TlsSettings(keystore, PASSWORD, PASSWORD, "PKCS12", 0,
+                List.of("TLSv1.3", "TLSv1.2"), List.of("h2", "http/1.1"), 100, 3600);
+        ExecutorService acceptor = Executors.newSingleThreadExecutor();
+        try (SSLServerSocket server = settings.newServerSocket(settings.createContext())) {
+            server.bind(new InetSocketAddress("localhost", 0));
+            acceptor.submit(() -> {
+                for (int i = 0; i < 2; i++) {
+                    try (SSLSocket socket = (SSLSocket) server.accept()) {
+                        InputStream in = socket.getInputStream();
+                        in.read();
+                        OutputStream out = socket.getOutputStream();
+                        out.write(socket.getApplicationProtocol().getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    }
+                }
+                return null;
+            });
+            SSLContext client = clientContext(keystore);
+
+            // Act
+            SSLSession first = handshake(client, server.getLocalPort());
+            Thread.sleep(20); // una sesión nueva tendría otra hora de creación
+            SSLSession second = handshake(client, server.getLocalPort());
+
+            // Assert
+            assertEquals("TLSv1.3", first.getProtocol());
+            assertEquals(first.getCreationTime(), second.getCreationTime(), "La segunda conexión debe reanudar la sesión");
+        } finally {
+            acceptor.shutdownNow();
+            acceptor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static SSLSession handshake(SSLContext context, int port) throws Exception {
+        try (SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket("localhost", port)) {
+            SSLParameters params = socket.getSSLParameters();
+            params.setApplicationProtocols(new String[]{"h2", "http/1.1"});
+            socket.setSSLParameters(params);
+            socket.getOutputStream().write('x');
+            socket.getOutputStream().flush();
+            byte[] alpn = socket.getInputStream().readAllBytes();
+            assertEquals("h2", new String(alpn, StandardCharsets.US_ASCII));
+            return socket.getSession();
+        }
+    }
+
+    private static SSLContext clientContext(Path keystore) throws Exception {
+        KeyStore trusted = KeyStore.getInstance("PKCS12");
+        try (InputStream is = Files.newInputStream(keystore)) {
+            trusted.load(is, PASSWORD);
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trusted);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    private static Path selfSignedKeystore(Path dir) throws Exception {
+        Path keystore = dir.resolve("server.p12");
+        Path keytool = Path.of(System.getProperty("java.home"), "bin", "keytool");
+        Process process = new ProcessBuilder(keytool.toString(), "-genkeypair", "-alias", "server",
+                "-keyalg", "EC", "-groupname", "secp256r1", "-dname", "CN=localhost", "-ext", "SAN=dns:localhost",
+                "-validity", "1", "-storetype", "PKCS12", "-keystore", keystore.toString(),
+                "-storepass", new String(PASSWORD))
+                .redirectErrorStream(true).start();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        assertEquals(0, process.waitFor(), "keytool debe generar el keystore");
+        return keystore;
+    }
+}
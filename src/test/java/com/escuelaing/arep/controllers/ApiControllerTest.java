@@ -0,0 +1,40 @@
+package com.escuelaing.arep.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.framework.JsonWriter;
+
+class ApiControllerTest {
+
+    @Test
+    @DisplayName("hello should escape the user supplied name when serialized")
+    void hello_should_escapeName_when_serializedAsJson() {
+        // Arrange
+        ApiController ctrl = new ApiController();
+
+        // Act
+        String json = JsonWriter.toJson(ctrl.hello("\", \"status\": \"hacked"));
+
+        // Assert
+        assertTrue(json.startsWith("{\"message\":\"Hello, \\\", \\\"status\\\": \\\"hacked!\""));
+        assertTrue(json.endsWith(",\"status\":\"success\"}"));
+        assertTrue(json.matches(".*\"timestamp\":\"\\d+\".*"));
+    }
+
+    @Test
+    @DisplayName("quote should return a quote with author and success status")
+    void quote_should_returnQuoteWithAuthor() {
+        // Arrange
+        ApiController ctrl = new ApiController();
+
+        // Act
+        ApiController.QuoteOfTheDay quote = ctrl.quote();
+
+        // Assert
+        assertTrue(!quote.content().isEmpty() && !quote.author().isEmpty());
+        assertEquals("success", quote.status());
+    }
+}
@@ -0,0 +1,25 @@
+package com.escuelaing.arep.controllers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import com.escuelaing.arep.annotations.GetMapping;
+import com.escuelaing.arep.annotations.RequestParam;
+import com.escuelaing.arep.annotations.RestController;
+import com.escuelaing.arep.annotations.Timeout;
+
+/**
+ * Asynchronous routes used by the integration tests; registered because ClassScanner also
+ * scans the test classes.
+ */
+@RestController
+public class AsyncTestController {
+
+    @GetMapping("/test/async")
+    @Timeout(200)
+    public CompletionStage<String> delayed(@RequestParam(value = "delay", defaultValue = "0") String delay) {
+        return CompletableFuture.supplyAsync(() -> "async ok",
+                CompletableFuture.delayedExecutor(Long.parseLong(delay), TimeUnit.MILLISECONDS));
+    }
+}
@@ -1,10 +1,20 @@
 package com.escuelaing.arep.controllers;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import com.escuelaing.arep.framework.Counters;
+
 class GreetingControllerTest {
 
     @Test
@@ -36,4 +46,51 @@ class GreetingControllerTest {
         int v2 = Integer.parseInt(r2.split(": ")[1]);
         assertTrue(v2 > v1);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("count events should never go backwards under concurrent calls and end at the final count")
+    void count_should_publishMonotonicValues_when_calledConcurrently() throws Exception {
+        // Arrange
+        System.setProperty("server.sse.maxPending", "100000");
+        try {
+            Counters counters = new Counters();
+            GreetingController ctrl = new GreetingController(counters);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            ctrl.countEvents().subscribe(stream, () -> { });
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+
+            // Act
+            for (int i = 0; i < 2000; i++) {
+                pool.execute(ctrl::count);
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+            // Los eventos se escriben en otro hilo: se espera al último
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            List<Long> published = published(stream);
+            while (!published.contains(2000L) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                published = published(stream);
+            }
+
+            // Assert
+            assertEquals(2000L, counters.counter("greeting.count").sum());
+            assertEquals(Long.valueOf(2000), published.get(published.size() - 1));
+            for (int i = 1; i < published.size(); i++) {
+                assertTrue(published.get(i) > published.get(i - 1), "El contador retrocedió: " + published);
+            }
+        } finally {
+            System.clearProperty("server.sse.maxPending");
+        }
+    }
+
+    private static List<Long> published(ByteArrayOutputStream stream) {
+        List<Long> values = new ArrayList<>();
+        for (String line : stream.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (line.startsWith("data: ")) {
+                values.add(Long.parseLong(line.substring(6)));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,123 @@
+package com.escuelaing.arep.framework;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+class BatchDispatcherTest {
+
+    @Test
+    @DisplayName("sub-requests should run in parallel and keep their order, status and JSON body")
+    void handle_should_combineSubResponses_inRequestOrder() throws Exception {
+        // Arrange
+        BatchDispatcher batch = new BatchDispatcher(request -> {
+            if (request.getPath().equals("/slow")) {
+                sleep(300);
+                return new Response().type("text/plain").body("done".getBytes(StandardCharsets.UTF_8));
+            }
+            String name = request.getQueryParam("name");
+            return new Response().type("application/json")
+                    .body(("{\"hello\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8));
+        }, 10, 2000);
+        String body = "{\"requests\":[{\"path\":\"/slow\"},{\"method\":\"post\",\"path\":\"/hi\",\"params\":{\"name\":\"Ana María\"}}]}";
+        Request request = new Request("POST", "/api/batch", Map.of(),
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        // Act
+        long start = System.nanoTime();
+        Response response = batch.handle(request, "127.0.0.1");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert
+        assertEquals(200, response.getStatusCode());
+        Map<?, ?> json = (Map<?, ?>) JsonReader.parse(new String(response.getBody(), 0, response.getBodyLength(),
+                StandardCharsets.UTF_8));
+        List<?> responses = (List<?>) json.get("responses");
+        assertEquals(Map.of("path", "/slow", "status", 200L, "contentType", "text/plain", "body", "done"),
+                responses.get(0));
+        Map<?, ?> second = (Map<?, ?>) responses.get(1);
+        assertEquals("/hi?name=Ana+Mar%C3%ADa", second.get("path"));
+        assertEquals(Map.of("hello", "Ana María"), second.get("body"));
+        assertTrue(elapsedMillis < 1000, "Las sub-peticiones deben ejecutarse en paralelo");
+    }
+
+    @Test
+    @DisplayName("sub-requests still running at the deadline should be reported as 504")
+    void execute_should_report504_when_deadlineExpires() {
+        // Arrange
+        BatchDispatcher batch = new BatchDispatcher(request -> {
+            sleep(request.getPath().equals("/hang") ? 10_000 : 0);
+            return new Response().body(new byte[0]);
+        }, 10, 200);
+
+        // Act
+        Response response = batch.execute(List.of(new BatchDispatcher.Item("GET", "/hang"),
+                new BatchDispatcher.Item("GET", "/ok")), Map.of(), "127.0.0.1");
+
+        // Assert
+        String text = new String(response.getBody(), 0, response.getBodyLength(), StandardCharsets.UTF_8);
+        assertEquals("{\"responses\":[{\"path\":\"/hang\",\"status\":504},"
+                + "{\"path\":\"/ok\",\"status\":200,\"contentType\":\"text/plain\"}]}", text);
+    }
+
+    @Test
+    @DisplayName("sub-requests over the client's route limit should be reported as 429 without being dispatched")
+    void execute_should_report429_when_routeLimitExceeded() {
+        // Arrange
+        AtomicInteger dispatched = new AtomicInteger();
+        RateLimiter limiter = new RateLimiter(null, Map.of("/limited", new RateLimiter.Limit(1, 2)), 100, 60_000);
+        BatchDispatcher batch = new BatchDispatcher(request -> {
+            dispatched.incrementAndGet();
+            return new Response().body(new byte[0]);
+        }, 10, 2000, limiter::tryAcquire);
+        BatchDispatcher.Item limited = new BatchDispatcher.Item("GET", "/limited?n=1");
+
+        // Act
+        Response response = batch.execute(List.of(limited, limited, limited, new BatchDispatcher.Item("GET", "/free")),
+                Map.of(), "10.0.0.7");
+        Response otherClient = batch.execute(List.of(limited), Map.of(), "10.0.0.8");
+
+        // Assert
+        String text = new String(response.getBody(), 0, response.getBodyLength(), StandardCharsets.UTF_8);
+        assertEquals("{\"responses\":[{\"path\":\"/limited?n=1\",\"status\":200,\"contentType\":\"text/plain\"},"
+                + "{\"path\":\"/limited?n=1\",\"status\":200,\"contentType\":\"text/plain\"},"
+                + "{\"path\":\"/limited?n=1\",\"status\":429},"
+                + "{\"path\":\"/free\",\"status\":200,\"contentType\":\"text/plain\"}]}", text);
+        assertTrue(new String(otherClient.getBody(), 0, otherClient.getBodyLength(), StandardCharsets.UTF_8)
+                .contains("\"status\":200"));
+        assertEquals(4, dispatched.get());
+    }
+
+    @Test
+    @DisplayName("invalid batches should be rejected")
+    void parse_should_reject_invalidBatches() {
+        // Arrange
+        BatchDispatcher batch = new BatchDispatcher(request -> new Response(), 2, 1000);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> batch.parse("[]"));
+        assertThrows(IllegalArgumentException.class, () -> batch.parse("[{\"path\":\"/a\"},{\"path\":\"/b\"},{\"path\":\"/c\"}]"));
+        assertThrows(IllegalArgumentException.class, () -> batch.parse("[{\"path\":\"relative\"}]"));
+        assertThrows(IllegalArgumentException.class, () -> batch.parse("[{\"path\":\"/a\",\"method\":\"DELETE\"}]"));
+        assertThrows(IllegalArgumentException.class, () -> batch.parse("[{\"path\":\"/a\""));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
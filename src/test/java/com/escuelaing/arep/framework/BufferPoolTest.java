@@ -0,0 +1,88 @@
+package com.escuelaing.arep.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BufferPoolTest {
+
+    @Test
+    @DisplayName("acquire should round up to the size class and reuse the released array")
+    void acquire_should_reuseReleasedBuffer_fromThreadCache() {
+        // Arrange
+        BufferPool pool = new BufferPool(4, 4);
+        BufferPool.Buffer first = pool.acquire(3000);
+        byte[] array = first.array();
+        first.release();
+
+        // Act
+        BufferPool.Buffer second = pool.acquire(4096);
+        BufferPool.Stats stats = pool.stats();
+
+        // Assert
+        assertEquals(4096, array.length);
+        assertSame(array, second.array());
+        assertEquals(1, stats.allocations());
+        assertEquals(1, stats.threadCacheHits());
+        assertEquals(1, stats.outstanding());
+    }
+
+    @Test
+    @DisplayName("buffers released on virtual threads should go through the shared stacks")
+    void release_should_useSharedStacks_when_threadIsVirtual() throws Exception {
+        // Arrange
+        BufferPool pool = new BufferPool(4, 4);
+        BufferPool.Buffer[] holder = new BufferPool.Buffer[1];
+        Thread.ofVirtual().start(() -> pool.acquire(1024).release()).join();
+
+        // Act
+        Thread.ofVirtual().start(() -> holder[0] = pool.acquire(1000)).join();
+        BufferPool.Stats stats = pool.stats();
+
+        // Assert
+        assertEquals(1, stats.allocations());
+        assertEquals(1, stats.sharedHits());
+        assertEquals(1.0 / 2, stats.hitRatio());
+        holder[0].release();
+    }
+
+    @Test
+    @DisplayName("oversized requests and double releases should be handled")
+    void release_should_rejectDoubleRelease_and_skipOversized() {
+        // Arrange
+        BufferPool pool = new BufferPool(4, 4);
+        BufferPool.Buffer big = pool.acquire(BufferPool.MAX_CLASS_SIZE + 1);
+        BufferPool.Buffer small = pool.acquire(10);
+
+        // Act
+        big.release();
+        small.release();
+
+        // Assert
+        assertEquals(1, pool.stats().unpooled());
+        assertThrows(IllegalStateException.class, small::release);
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(1, 1).release(pool.acquire(10)));
+    }
+
+    @Test
+    @DisplayName("a buffer collected without release should be reported as leaked")
+    void stats_should_countLeak_when_bufferIsNeverReleased() throws Exception {
+        // Arrange
+        BufferPool pool = new BufferPool(4, 4);
+        pool.acquire(2048);
+
+        // Act
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (pool.stats().leaked() == 0 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        // Assert
+        assertEquals(1, pool.stats().leaked());
+        assertTrue(pool.stats().outstanding() == 0);
+    }
+}
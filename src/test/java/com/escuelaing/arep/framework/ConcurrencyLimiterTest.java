@@ -0,0 +1,88 @@
+package com.escuelaing.arep.framework;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    @DisplayName("tryAcquire should shed requests beyond the limit when there is no queue")
+    void tryAcquire_should_reject_when_limitReachedWithoutQueue() {
+        // Arrange
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiter.Limit(2, 0, 0, false));
+
+        // Act & Assert
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1L, limiter.getRejected());
+        limiter.release(MILLI);
+        assertTrue(limiter.tryAcquire(), "El permiso liberado debe poder reutilizarse");
+    }
+
+    @Test
+    @DisplayName("queued requests should get the permit released by another request")
+    void tryAcquire_should_waitInQueue_until_permitReleased() throws Exception {
+        // Arrange
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiter.Limit(1, 1, 5_000, false));
+        assertTrue(limiter.tryAcquire());
+
+        // Act
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(limiter::tryAcquire);
+        while (limiter.getQueued() == 0) {
+            Thread.onSpinWait();
+        }
+        boolean overflow = limiter.tryAcquire();
+        limiter.release(MILLI);
+
+        // Assert
+        assertFalse(overflow, "La cola está llena");
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    @DisplayName("the adaptive limit should shrink when latency rises above the baseline")
+    void release_should_lowerAdaptiveLimit_when_latencyGrows() {
+        // Arrange
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiter.Limit(20, 0, 0, true));
+        for (int i = 0; i < 40; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(MILLI);
+        }
+        assertEquals(20, limiter.getLimit());
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            if (limiter.tryAcquire()) {
+                limiter.release(20 * MILLI);
+            }
+        }
+
+        // Assert
+        assertTrue(limiter.getLimit() < 20, "limit=" + limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("parseRouteLimits should read path=max:queue entries and skip malformed ones")
+    void parseRouteLimits_should_parseEntries() {
+        // Act
+        Map<String, ConcurrencyLimiter.Limit> limits =
+                ConcurrencyLimiter.parseRouteLimits("/api/report=4:8;/count=2;bogus;/x=0", 250, true);
+
+        // Assert
+        assertEquals(2, limits.size());
+        assertEquals(new ConcurrencyLimiter.Limit(4, 8, 250, true), limits.get("/api/report"));
+        assertEquals(0, limits.get("/count").queue());
+    }
+}
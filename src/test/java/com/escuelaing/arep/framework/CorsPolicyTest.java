@@ -0,0 +1,59 @@
+package com.escuelaing.arep.framework;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.http.Response;
+
+class CorsPolicyTest {
+
+    @Test
+    @DisplayName("preflight answers should be serialized once per methods and allowed origin")
+    void preflight_should_reuseSerializedBytes() {
+        // Arrange
+        CorsPolicy policy = new CorsPolicy(List.of("*"), "Content-Type", 600);
+
+        // Act
+        byte[] first = policy.preflight("GET, HEAD, OPTIONS", "http://a.example");
+        byte[] second = policy.preflight("GET, HEAD, OPTIONS", "http://b.example");
+
+        // Assert
+        assertSame(first, second);
+        String text = new String(first, StandardCharsets.ISO_8859_1);
+        assertTrue(text.startsWith("HTTP/1.1 204 No Content\r\n"));
+        assertTrue(text.contains("Access-Control-Allow-Origin: *\r\n"));
+        assertTrue(text.contains("Access-Control-Max-Age: 600\r\n"));
+        assertTrue(text.endsWith("Content-Length: 0\r\nConnection: close\r\n\r\n"));
+    }
+
+    @Test
+    @DisplayName("restricted origins should be echoed when allowed and left out otherwise")
+    void restrictedPolicy_should_echoAllowedOrigin_only() {
+        // Arrange
+        CorsPolicy policy = new CorsPolicy(List.of("https://app.example"), "Content-Type", 600);
+        Response allowed = new Response().header("Vary", "Accept-Encoding");
+        Response denied = new Response();
+
+        // Act
+        policy.apply("https://app.example", allowed);
+        policy.apply("https://evil.example", denied);
+        Map<String, String> preflight = policy.preflightHeaders("POST, OPTIONS", "https://evil.example");
+
+        // Assert
+        assertEquals(Map.of(), policy.defaultHeaders());
+        assertEquals("https://app.example", allowed.getHeaders().get(CorsPolicy.ALLOW_ORIGIN));
+        assertEquals("Accept-Encoding, Origin", allowed.getHeaders().get("Vary"));
+        assertNull(denied.getHeaders().get(CorsPolicy.ALLOW_ORIGIN));
+        assertFalse(preflight.containsKey("Access-Control-Allow-Methods"));
+        assertEquals("POST, OPTIONS", preflight.get("Allow"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.escuelaing.arep.framework;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CountersTest {
+
+    @Test
+    @DisplayName("concurrent increments should sum exactly")
+    void incrementAndGet_should_countExactly_when_calledConcurrently() throws Exception {
+        // Arrange
+        Counters counters = new Counters();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        // Act
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counters.incrementAndGet("hits");
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals(80_000L, counters.get("hits"));
+        assertEquals(0L, counters.get("missing"));
+    }
+
+    @Test
+    @DisplayName("persisted snapshots should be reloaded by a new registry")
+    void persistTo_should_restoreValues_when_reopened(@TempDir Path dir) throws Exception {
+        // Arrange
+        Path file = dir.resolve("counters.properties");
+        Counters first = new Counters();
+        first.persistTo(file, 60_000);
+        first.counter("greeting.count").add(41);
+
+        // Act
+        first.close();
+        Counters second = new Counters();
+        second.persistTo(file, 60_000);
+        long value = second.incrementAndGet("greeting.count");
+        second.close();
+
+        // Assert
+        assertTrue(Files.exists(file));
+        assertEquals(42L, value);
+    }
+}
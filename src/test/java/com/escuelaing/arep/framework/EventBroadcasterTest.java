@@ -0,0 +1,92 @@
+package com.escuelaing.arep.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class EventBroadcasterTest {
+
+    @Test
+    @DisplayName("publish should fan the same encoded event out to every subscriber")
+    void publish_should_writeEventToAllSubscribers() throws Exception {
+        // Arrange
+        EventBroadcaster broadcaster = new EventBroadcaster(16, 0);
+        ByteArrayOutputStream a = new ByteArrayOutputStream();
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        broadcaster.subscribe(a, () -> { });
+        broadcaster.subscribe(b, () -> { });
+
+        // Act
+        broadcaster.publish("count", "1\n2");
+
+        // Assert
+        String expected = "id: 1\nevent: count\ndata: 1\ndata: 2\n\n";
+        awaitContent(a, expected);
+        awaitContent(b, expected);
+        broadcaster.close();
+    }
+
+    @Test
+    @DisplayName("new subscribers should receive the latest event first")
+    void subscribe_should_replayLastEvent() throws Exception {
+        // Arrange
+        EventBroadcaster broadcaster = new EventBroadcaster(16, 0);
+        broadcaster.publish(Map.of("v", 1));
+        broadcaster.publish(Map.of("v", 2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        broadcaster.subscribe(out, () -> { });
+
+        // Assert
+        awaitContent(out, "id: 2\ndata: {\"v\":2}\n\n");
+        broadcaster.close();
+    }
+
+    @Test
+    @DisplayName("a subscriber whose write fails should be dropped and its connection closed")
+    void publish_should_dropSubscriber_when_writeFails() throws Exception {
+        // Arrange
+        EventBroadcaster broadcaster = new EventBroadcaster(16, 0);
+        AtomicBoolean closed = new AtomicBoolean();
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        broadcaster.subscribe(broken, () -> closed.set(true));
+
+        // Act
+        broadcaster.publish("x");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (broadcaster.subscriberCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Assert
+        assertEquals(0, broadcaster.subscriberCount());
+        assertTrue(closed.get());
+    }
+
+    private static void awaitContent(ByteArrayOutputStream out, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!out.toString(StandardCharsets.UTF_8).equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    }
+}
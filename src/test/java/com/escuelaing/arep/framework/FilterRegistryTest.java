@@ -0,0 +1,39 @@
+package com.escuelaing.arep.framework;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class FilterRegistryTest {
+
+    @Test
+    @DisplayName("chains should keep the matching filters by order and share the empty chain")
+    void chainFor_should_orderMatchingFilters() {
+        // Arrange
+        FilterRegistry registry = new FilterRegistry();
+        RouteFilter auth = new RouteFilter() {
+        };
+        RouteFilter timing = new RouteFilter() {
+        };
+        RouteFilter hello = new RouteFilter() {
+        };
+        registry.register(auth, 10, "/api/*");
+        registry.register(timing, 0, "*");
+        registry.register(hello, 5, "/api/hello", "/hola");
+
+        // Act
+        RouteFilter[] api = registry.chainFor("/api/hello");
+        RouteFilter[] hola = registry.chainFor("/hola");
+
+        // Assert
+        assertArrayEquals(new RouteFilter[]{timing, hello, auth}, api);
+        assertArrayEquals(new RouteFilter[]{timing, hello}, hola);
+        assertSame(FilterRegistry.NO_FILTERS, new FilterRegistry().chainFor("/hola"));
+        assertTrue(FilterRegistry.matches("/api/*", "/api/metrics/buffers"));
+        assertFalse(FilterRegistry.matches("/api/*", "/apiary"));
+        assertFalse(FilterRegistry.matches("/api/hello", "/api/hello/x"));
+    }
+}
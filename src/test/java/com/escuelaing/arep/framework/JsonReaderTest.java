@@ -0,0 +1,38 @@
+package com.escuelaing.arep.framework;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class JsonReaderTest {
+
+    @Test
+    @DisplayName("parse should read what JsonWriter writes")
+    void parse_should_roundTripJsonWriterOutput() {
+        // Arrange
+        Map<String, Object> value = Map.of("text", "línea\n\"citada\" \u0001", "list", List.of(1L, 2.5, true),
+                "nested", Map.of("empty", List.of()));
+
+        // Act
+        Object parsed = JsonReader.parse(JsonWriter.toJson(value));
+
+        // Assert
+        assertEquals(value, parsed);
+        assertEquals(Arrays.asList(null, -3L, 1.0e3), JsonReader.parse(" [null, -3, 1e3] "));
+    }
+
+    @Test
+    @DisplayName("parse should reject malformed or too deeply nested documents")
+    void parse_should_rejectMalformedJson() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> JsonReader.parse("{\"a\":1,}"));
+        assertThrows(IllegalArgumentException.class, () -> JsonReader.parse("[1] 2"));
+        assertThrows(IllegalArgumentException.class, () -> JsonReader.parse("\"sin cerrar"));
+        assertThrows(IllegalArgumentException.class, () -> JsonReader.parse("[".repeat(100) + "]".repeat(100)));
+    }
+}
@@ -0,0 +1,62 @@
+package com.escuelaing.arep.framework;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class JsonWriterTest {
+
+    record Item(String name, long qty, boolean active, List<String> tags) {
+    }
+
+    @Test
+    @DisplayName("strings should be escaped and encoded as UTF-8")
+    void value_should_escapeSpecialCharacters() {
+        // Arrange
+        JsonWriter writer = JsonWriter.forCurrentThread();
+
+        // Act
+        writer.value("a\"b\\c\n\u0001ñ😀");
+        String json = new String(writer.buffer(), 0, writer.size(), StandardCharsets.UTF_8);
+
+        // Assert
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001ñ😀\"", json);
+    }
+
+    @Test
+    @DisplayName("streaming API should place commas between members")
+    void streamingApi_should_writeWellFormedObject() {
+        // Arrange
+        JsonWriter writer = JsonWriter.forCurrentThread();
+
+        // Act
+        writer.beginObject()
+                .name("n").value(-42)
+                .name("d").value(1.5)
+                .name("arr").beginArray().value(true).nullValue().endArray()
+                .endObject();
+
+        // Assert
+        assertEquals("{\"n\":-42,\"d\":1.5,\"arr\":[true,null]}", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("writeValue should serialize records, maps and collections")
+    void toJson_should_serializeRecordsAndMaps() {
+        // Arrange
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("item", new Item("x<y", 3, true, List.of("a", "b")));
+        map.put("none", null);
+
+        // Act
+        String json = JsonWriter.toJson(map);
+
+        // Assert
+        assertEquals("{\"item\":{\"name\":\"x<y\",\"qty\":3,\"active\":true,\"tags\":[\"a\",\"b\"]},\"none\":null}", json);
+    }
+}
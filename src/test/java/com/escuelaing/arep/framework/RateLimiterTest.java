@@ -0,0 +1,80 @@
+package com.escuelaing.arep.framework;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    @DisplayName("tryAcquire should allow the burst and then ask to wait")
+    void tryAcquire_should_rejectAfterBurst_when_clientExceedsRate() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Limit(1, 3), Map.of(), 100, 60_000);
+        long now = 10 * SECOND;
+
+        // Act & Assert
+        assertEquals(0L, limiter.tryAcquire("1.1.1.1", "/hola", now));
+        assertEquals(0L, limiter.tryAcquire("1.1.1.1", "/hola", now));
+        assertEquals(0L, limiter.tryAcquire("1.1.1.1", "/hola", now));
+        long wait = limiter.tryAcquire("1.1.1.1", "/hola", now);
+        assertEquals(SECOND, wait);
+        assertEquals(0L, limiter.tryAcquire("2.2.2.2", "/hola", now), "Otros clientes no se ven afectados");
+        assertEquals(0L, limiter.tryAcquire("1.1.1.1", "/hola", now + SECOND));
+    }
+
+    @Test
+    @DisplayName("route limits should apply only to their path")
+    void tryAcquire_should_limitConfiguredRouteOnly() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(null, RateLimiter.parseRouteLimits("/count=1:1;bogus"), 100, 60_000);
+        long now = SECOND;
+
+        // Act & Assert
+        assertTrue(limiter.isEnabled());
+        assertEquals(0L, limiter.tryAcquire("c", "/count", now));
+        assertTrue(limiter.tryAcquire("c", "/count", now) > 0);
+        assertEquals(0L, limiter.tryAcquire("c", "/hola", now));
+    }
+
+    @Test
+    @DisplayName("idle buckets should be evicted when the table is full")
+    void tryAcquire_should_evictIdleBuckets_when_tableFull() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Limit(10, 1), Map.of(), 2, 1_000);
+        limiter.tryAcquire("a", "/", 0);
+        limiter.tryAcquire("b", "/", 0);
+
+        // Act
+        long wait = limiter.tryAcquire("c", "/", 5 * SECOND);
+
+        // Assert
+        assertEquals(0L, wait);
+        assertEquals(1, limiter.trackedKeys());
+        assertFalse(new RateLimiter(null, null, 1, 1).isEnabled());
+    }
+
+    @Test
+    @DisplayName("new clients should be rejected while the table is full of active buckets")
+    void tryAcquire_should_failClosed_when_tableFullOfActiveBuckets() {
+        // Arrange
+        RateLimiter limiter = new RateLimiter(new RateLimiter.Limit(1, 1), Map.of(), 2, 10_000);
+        limiter.tryAcquire("a", "/", 0);
+        limiter.tryAcquire("b", "/", 0);
+
+        // Act
+        long rejected = limiter.tryAcquire("c", "/", SECOND / 2);
+        long afterIdle = limiter.tryAcquire("c", "/", 11 * SECOND);
+
+        // Assert
+        assertEquals(SECOND, rejected);
+        assertEquals(0L, afterIdle);
+        assertEquals(1, limiter.trackedKeys());
+    }
+}
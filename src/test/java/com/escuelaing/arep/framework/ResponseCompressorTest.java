@@ -0,0 +1,97 @@
+package com.escuelaing.arep.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.http.Response;
+
+class ResponseCompressorTest {
+
+    private static final byte[] JSON = "{\"items\":[1,2,3,4,5,6,7,8,9,10]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    @DisplayName("eligible bodies should round-trip through gzip and deflate with reused deflaters")
+    void compress_should_produceValidGzipAndDeflate() throws IOException {
+        // Arrange
+        ResponseCompressor compressor = new ResponseCompressor(true, 1024, 6, List.of("application/json"));
+
+        // Act
+        Response gzip = compressor.compress("gzip, deflate", json());
+        Response again = compressor.compress("gzip", json());
+        Response deflate = compressor.compress("deflate", json());
+
+        // Assert
+        assertEquals("gzip", gzip.getHeaders().get("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.getHeaders().get("Vary"));
+        assertArrayEquals(JSON, new GZIPInputStream(body(gzip)).readAllBytes());
+        assertArrayEquals(JSON, new GZIPInputStream(body(again)).readAllBytes());
+        assertEquals("deflate", deflate.getHeaders().get("Content-Encoding"));
+        assertArrayEquals(JSON, new InflaterInputStream(body(deflate)).readAllBytes());
+        ResponseCompressor.Stats stats = compressor.stats();
+        assertEquals(3, stats.compressed());
+        assertEquals(3L * JSON.length, stats.bytesIn());
+        assertTrue(stats.bytesSaved() > 0);
+        assertTrue(stats.ratio() < 0.5);
+    }
+
+    @Test
+    @DisplayName("small, ineligible or refused bodies should be sent as-is")
+    void compress_should_skipIneligibleResponses() {
+        // Arrange
+        ResponseCompressor compressor = new ResponseCompressor(true, 1024, 6, List.of("application/json"));
+        Response small = new Response().type("application/json").body("{}".getBytes(StandardCharsets.UTF_8));
+        Response image = new Response().type("image/png").body(JSON);
+
+        // Act
+        compressor.compress("gzip", small);
+        compressor.compress("gzip", image);
+        Response refused = compressor.compress("gzip;q=0, br", json());
+
+        // Assert
+        assertNull(small.getHeaders().get("Content-Encoding"));
+        assertNull(image.getHeaders().get("Content-Encoding"));
+        assertNull(refused.getHeaders().get("Content-Encoding"));
+        assertEquals("Accept-Encoding", refused.getHeaders().get("Vary"));
+        assertEquals(JSON.length, refused.getBodyLength());
+        assertEquals(0, compressor.stats().compressed());
+    }
+
+    @Test
+    @DisplayName("bodies that would not shrink should be abandoned and counted as incompressible")
+    void compress_should_giveUpOnIncompressibleBodies() {
+        // Arrange
+        ResponseCompressor compressor = new ResponseCompressor(true, 1024, 6, List.of("text/"));
+        byte[] noise = new byte[4096];
+        new Random(7).nextBytes(noise);
+        Response response = new Response().type("text/plain").body(noise);
+
+        // Act
+        compressor.compress("gzip", response);
+
+        // Assert
+        assertFalse(response.getHeaders().containsKey("Content-Encoding"));
+        assertArrayEquals(noise, response.getBody());
+        assertEquals(1, compressor.stats().incompressible());
+    }
+
+    private static Response json() {
+        return new Response().type("application/json; charset=UTF-8").body(JSON);
+    }
+
+    private static ByteArrayInputStream body(Response response) {
+        return new ByteArrayInputStream(response.getBody(), 0, response.getBodyLength());
+    }
+}
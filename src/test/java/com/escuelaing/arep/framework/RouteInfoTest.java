@@ -1,15 +1,25 @@
 package com.escuelaing.arep.framework;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import com.escuelaing.arep.annotations.GetMapping;
 import com.escuelaing.arep.annotations.RequestParam;
+import com.escuelaing.arep.annotations.Timeout;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
 
 class RouteInfoTest {
 
@@ -19,6 +29,26 @@ class RouteInfoTest {
             return "E:" + msg;
         }
 
+        @GetMapping("/raw")
+        public String raw(Request req, Response resp, @RequestParam("msg") String msg) {
+            resp.status(201).header("X-Path", req.getPath());
+            return msg;
+        }
+
+        @GetMapping("/record")
+        public Pair record() {
+            return new Pair("a\"b", 2);
+        }
+
+        record Pair(String name, int value) {
+        }
+
+        @GetMapping("/async")
+        @Timeout(250)
+        public CompletableFuture<String> async() {
+            return CompletableFuture.completedFuture("later");
+        }
+
         @GetMapping("/noparams")
         public String noParams() {
             return "OK";
@@ -71,4 +101,157 @@ class RouteInfoTest {
         // Assert
         assertEquals("OK", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("invoke should inject Request and Response parameters")
+    void invoke_should_injectRequestAndResponse_when_declared() throws Exception {
+        // Arrange
+        DummyController ctrl = new DummyController();
+        Method m = DummyController.class.getDeclaredMethod("raw", Request.class, Response.class, String.class);
+        RouteInfo ri = new RouteInfo("/raw", m, ctrl);
+        Request req = new Request("GET", "/raw?msg=hey", Map.of());
+        Response resp = new Response();
+
+        // Act
+        Object result = ri.invoke(req, resp);
+
+        // Assert
+        assertEquals("hey", result);
+        assertEquals(201, resp.getStatusCode());
+        assertEquals("/raw", resp.getHeaders().get("X-Path"));
+    }
+
+    @Test
+    @DisplayName("invoke should serialize non-String results as JSON")
+    void invoke_should_serializeRecordAsJson_when_handlerReturnsRecord() throws Exception {
+        // Arrange
+        DummyController ctrl = new DummyController();
+        Method m = DummyController.class.getDeclaredMethod("record");
+        RouteInfo ri = new RouteInfo("/record", m, ctrl);
+
+        // Act
+        String result = ri.invoke(Map.of());
+
+        // Assert
+        assertEquals("{\"name\":\"a\\\"b\",\"value\":2}", result);
+    }
+
+    @Test
+    @DisplayName("RouteInfo should detect CompletionStage handlers and their @Timeout")
+    void constructor_should_markAsyncWithTimeout_when_handlerReturnsFuture() throws Exception {
+        // Arrange
+        DummyController ctrl = new DummyController();
+        Method async = DummyController.class.getDeclaredMethod("async");
+        Method sync = DummyController.class.getDeclaredMethod("noParams");
+
+        // Act
+        RouteInfo asyncRoute = new RouteInfo("/async", async, ctrl);
+        RouteInfo syncRoute = new RouteInfo("/noparams", sync, ctrl);
+
+        // Assert
+        assertTrue(asyncRoute.isAsync());
+        assertEquals(250L, asyncRoute.getTimeoutMillis());
+        assertFalse(syncRoute.isAsync());
+        assertEquals(0L, syncRoute.getTimeoutMillis());
+    }
+
+    @Test
+    @DisplayName("filters should run in order around the handler and may answer in its place")
+    void invoke_should_runFilterChain_and_stopOnEarlyResult() throws Exception {
+        // Arrange
+        DummyController ctrl = new DummyController();
+        Method m = DummyController.class.getDeclaredMethod("noParams");
+        List<String> calls = new ArrayList<>();
+        RouteFilter outer = recording("outer", calls, null);
+        RouteFilter inner = recording("inner", calls, null);
+        RouteFilter guard = recording("guard", calls, "denied");
+        RouteInfo open = new RouteInfo("/noparams", m, ctrl, null, new RouteFilter[]{outer, inner});
+        RouteInfo guarded = new RouteInfo("/noparams", m, ctrl, null, new RouteFilter[]{outer, guard, inner});
+
+        // Act
+        Object result = open.invoke(new Request("GET", "/noparams", Map.of()), new Response());
+        List<String> openCalls = new ArrayList<>(calls);
+        calls.clear();
+        Object denied = guarded.invoke(new Request("GET", "/noparams", Map.of()), new Response());
+
+        // Assert
+        assertEquals("OK", result);
+        assertEquals(List.of("outer", "inner", "/inner", "/outer"), openCalls);
+        assertEquals("denied", denied);
+        assertEquals(List.of("outer", "guard", "/guard", "/outer"), calls);
+    }
+
+    @Test
+    @DisplayName("a filter whose before throws should not get its after, while the filters before it should")
+    void invoke_should_skipAfterOfFailingFilter_when_itsBeforeThrows() throws Exception {
+        // Arrange
+        DummyController ctrl = new DummyController();
+        Method m = DummyController.class.getDeclaredMethod("noParams");
+        List<String> calls = new ArrayList<>();
+        RouteFilter failing = new RouteFilter() {
+            @Override
+            public Object before(Request request, Response response) {
+                calls.add("failing");
+                throw new IllegalStateException("boom");
+            }
+
+            @Override
+            public void after(Request request, Response response) {
+                calls.add("/failing");
+            }
+        };
+        RouteInfo route = new RouteInfo("/noparams", m, ctrl, null,
+                new RouteFilter[]{recording("outer", calls, null), failing, recording("inner", calls, null)});
+
+        // Act
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> route.invoke(new Request("GET", "/noparams", Map.of()), new Response()));
+
+        // Assert
+        assertEquals("boom", error.getMessage());
+        assertEquals(List.of("outer", "failing", "/outer"), calls);
+    }
+
+    @Test
+    @DisplayName("after filters of an asynchronous handler should wait for its stage")
+    void invoke_should_deferAfterFilters_when_handlerIsAsync() throws Exception {
+        // Arrange
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        Object ctrl = new Object() {
+            @SuppressWarnings("unused")
+            public CompletableFuture<String> later() {
+                return pending;
+            }
+        };
+        List<String> calls = new ArrayList<>();
+        RouteInfo route = new RouteInfo("/later", ctrl.getClass().getMethod("later"), ctrl, null,
+                new RouteFilter[]{recording("timer", calls, null)});
+
+        // Act
+        CompletionStage<?> stage = (CompletionStage<?>) route.invoke(new Request("GET", "/later", Map.of()), new Response());
+        List<String> beforeCompletion = new ArrayList<>(calls);
+        pending.complete("done");
+
+        // Assert
+        assertEquals(List.of("timer"), beforeCompletion);
+        assertEquals("done", stage.toCompletableFuture().join());
+        assertEquals(List.of("timer", "/timer"), calls);
+        assertEquals(0, new RouteInfo("/noparams", DummyController.class.getDeclaredMethod("noParams"),
+                new DummyController()).getFilters().length);
+    }
+
+    private static RouteFilter recording(String name, List<String> calls, Object answer) {
+        return new RouteFilter() {
+            @Override
+            public Object before(Request request, Response response) {
+                calls.add(name);
+                return answer;
+            }
+
+            @Override
+            public void after(Request request, Response response) {
+                calls.add("/" + name);
+            }
+        };
+    }
+}
@@ -0,0 +1,221 @@
+package com.escuelaing.arep.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StaticFileCacheTest {
+
+    @Test
+    @DisplayName("classpath files should be cached with ETag and a gzip variant")
+    void get_should_cacheClasspathFile_withDerivedData() throws IOException {
+        // Arrange
+        StaticFileCache cache = StaticFileCache.forClasspath("/static", getClass().getClassLoader(), p -> "text/html");
+
+        // Act
+        StaticFileCache.Entry first = cache.get("index.html");
+        StaticFileCache.Entry second = cache.get("index.html");
+
+        // Assert
+        assertSame(first, second);
+        assertTrue(first.etag().startsWith("\"") && first.etag().endsWith("\""));
+        assertNotNull(first.gzip());
+        assertEquals(new String(first.content(), StandardCharsets.UTF_8), gunzip(first.gzip()));
+        assertNull(cache.get("missing.html"));
+    }
+
+    @Test
+    @DisplayName("unknown paths should be answered from the manifest without asking the class loader")
+    void get_should_skipClassLoader_when_pathNotInManifest() throws IOException {
+        // Arrange
+        AtomicInteger lookups = new AtomicInteger();
+        ClassLoader counting = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            public InputStream getResourceAsStream(String name) {
+                lookups.incrementAndGet();
+                return super.getResourceAsStream(name);
+            }
+        };
+        StaticFileCache cache = StaticFileCache.forClasspath("static", counting, p -> "text/plain");
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            assertNull(cache.get("wp-admin.php"));
+        }
+        StaticFileCache.Entry index = cache.get("index.html");
+
+        // Assert
+        assertNotNull(index);
+        assertEquals(1, lookups.get());
+        assertTrue(cache.getManifest().contains("styles.css"));
+    }
+
+    @Test
+    @DisplayName("files too large to cache should skip gzip and take their ETag from size and modification time")
+    void get_should_serveLargeFileUncompressed_withMetadataEtag(@TempDir Path dir) throws IOException {
+        // Arrange
+        Path file = dir.resolve("big.txt");
+        Files.write(file, "a".repeat(StaticFileCache.MAX_CACHED_SIZE).getBytes(StandardCharsets.UTF_8));
+        StaticFileCache cache = StaticFileCache.forDirectory(dir, p -> "text/plain");
+        String expected = '"' + Long.toHexString(StaticFileCache.MAX_CACHED_SIZE) + '-'
+                + Long.toHexString(Files.getLastModifiedTime(file).toMillis()) + '"';
+
+        // Act
+        StaticFileCache.Entry first = cache.get("big.txt");
+        StaticFileCache.Entry second = cache.get("big.txt");
+
+        // Assert
+        assertNull(first.gzip());
+        assertEquals(expected, first.etag());
+        assertEquals(first.etag(), second.etag());
+        assertEquals(first.fingerprint(), second.fingerprint());
+        assertEquals(8, first.fingerprint().length());
+        assertEquals(StaticFileCache.MAX_CACHED_SIZE, first.content().length);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("a modified file should be reloaded in the background with a new ETag")
+    void watcher_should_refreshEntry_when_fileChanges(@TempDir Path dir) throws Exception {
+        // Arrange
+        Path file = dir.resolve("app.css");
+        Files.writeString(file, "body { color: red; }");
+        try (StaticFileCache cache = StaticFileCache.forDirectory(dir, p -> "text/css")) {
+            cache.startWatching();
+            StaticFileCache.Entry before = cache.get("app.css");
+
+            // Act
+            Files.writeString(file, "body { color: blue; }");
+            StaticFileCache.Entry after = awaitChange(cache, "app.css", before);
+
+            // Assert
+            assertEquals("body { color: blue; }", new String(after.content(), StandardCharsets.UTF_8));
+            assertNotEquals(before.etag(), after.etag());
+        }
+    }
+
+    @Test
+    @DisplayName("deleted files and files in new directories should be tracked")
+    void watcher_should_trackDeletesAndNewDirectories(@TempDir Path dir) throws Exception {
+        // Arrange
+        Path file = dir.resolve("old.txt");
+        Files.writeString(file, "old");
+        try (StaticFileCache cache = StaticFileCache.forDirectory(dir, p -> "text/plain")) {
+            cache.startWatching();
+            cache.get("old.txt");
+            Files.createDirectories(dir.resolve("nested"));
+            Thread.sleep(200);
+            Files.writeString(dir.resolve("nested/new.txt"), "v1");
+            StaticFileCache.Entry nested = awaitPresent(cache, "nested/new.txt");
+
+            // Act
+            Files.delete(file);
+            Files.writeString(dir.resolve("nested/new.txt"), "v2");
+            StaticFileCache.Entry updated = awaitChange(cache, "nested/new.txt", nested);
+
+            // Assert
+            assertNull(cache.get("old.txt"));
+            assertEquals("v2", new String(updated.content(), StandardCharsets.UTF_8));
+            assertNull(cache.get("../outside.txt"));
+        }
+    }
+
+    @Test
+    @DisplayName("pages should reference local assets by fingerprinted names that resolve to current content")
+    void fingerprintAssets_should_rewritePageReferences(@TempDir Path dir) throws IOException {
+        // Arrange
+        Files.createDirectories(dir.resolve("css"));
+        Files.writeString(dir.resolve("css/site.css"), "body { margin: 0; }");
+        Files.writeString(dir.resolve("app.js"), "console.log('hi');");
+        Files.writeString(dir.resolve("index.html"), "<link href=\"css/site.css\"><script src='/app.js?v=1'></script>"
+                + "<script src=\"https://cdn.example/x.js\"></script><a href=\"other.html\">x</a>");
+        StaticFileCache cache = StaticFileCache.forDirectory(dir, StaticFileCacheTest::mimeType);
+
+        // Act
+        cache.fingerprintAssets();
+        StaticFileCache.Entry css = cache.get("css/site.css");
+        StaticFileCache.Entry js = cache.get("app.js");
+        String page = new String(cache.get("index.html").content(), StandardCharsets.UTF_8);
+
+        // Assert
+        String cssName = "css/site." + css.fingerprint() + ".css";
+        assertEquals("<link href=\"" + cssName + "\"><script src='/app." + js.fingerprint() + ".js?v=1'></script>"
+                + "<script src=\"https://cdn.example/x.js\"></script><a href=\"other.html\">x</a>", page);
+        assertSame(css, cache.getFingerprinted(cssName));
+        assertEquals("app.00000000.js", StaticFileCache.fingerprintedPath("app.js", "00000000"));
+        assertNull(cache.getFingerprinted("app.00000000.js"));
+    }
+
+    @Test
+    @DisplayName("a modified asset should rebuild cached pages with its new fingerprint")
+    void watcher_should_rebuildPages_when_fingerprintedAssetChanges(@TempDir Path dir) throws Exception {
+        // Arrange
+        Files.writeString(dir.resolve("app.js"), "let v = 1;");
+        Files.writeString(dir.resolve("index.html"), "<script src=\"app.js\"></script>");
+        try (StaticFileCache cache = StaticFileCache.forDirectory(dir, StaticFileCacheTest::mimeType)) {
+            cache.fingerprintAssets();
+            cache.startWatching();
+            StaticFileCache.Entry before = cache.get("index.html");
+
+            // Act
+            Files.writeString(dir.resolve("app.js"), "let v = 2;");
+            StaticFileCache.Entry after = awaitChange(cache, "index.html", before);
+
+            // Assert
+            String fingerprint = cache.get("app.js").fingerprint();
+            assertEquals("<script src=\"app." + fingerprint + ".js\"></script>",
+                    new String(after.content(), StandardCharsets.UTF_8));
+            assertNotNull(cache.getFingerprinted("app." + fingerprint + ".js"));
+        }
+    }
+
+    private static StaticFileCache.Entry awaitChange(StaticFileCache cache, String path, StaticFileCache.Entry before)
+            throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            StaticFileCache.Entry current = cache.get(path);
+            if (current != null && !current.etag().equals(before.etag())) {
+                return current;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("El archivo no se recargó: " + path);
+    }
+
+    private static StaticFileCache.Entry awaitPresent(StaticFileCache cache, String path) throws Exception {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            StaticFileCache.Entry current = cache.get(path);
+            if (current != null) {
+                return current;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("El archivo no apareció: " + path);
+    }
+
+    private static String gunzip(byte[] gz) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gz))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String mimeType(String path) {
+        return path.endsWith(".html") ? "text/html" : path.endsWith(".css") ? "text/css" : "application/javascript";
+    }
+}
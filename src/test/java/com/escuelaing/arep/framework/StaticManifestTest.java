@@ -0,0 +1,50 @@
+package com.escuelaing.arep.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StaticManifestTest {
+
+    @Test
+    @DisplayName("normalize should resolve dot segments and reject paths leaving the web root")
+    void normalize_should_resolveSegments_and_rejectTraversal() {
+        // Act & Assert
+        assertEquals("index.html", StaticManifest.normalize("/index.html"));
+        assertEquals("css/app.css", StaticManifest.normalize("//css/./img/../app.css"));
+        assertEquals("", StaticManifest.normalize("/"));
+        assertNull(StaticManifest.normalize("/../etc/passwd"));
+        assertNull(StaticManifest.normalize("/css/../../secret"));
+        assertNull(StaticManifest.normalize("/..\\windows"));
+        assertEquals("..../x", StaticManifest.normalize("/....//x"));
+    }
+
+    @Test
+    @DisplayName("lookups should find every listed path and nothing else, also after updates")
+    void contains_should_matchListedPaths_acrossUpdates() {
+        // Arrange
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            paths.add("assets/" + i + "/file.js");
+        }
+        StaticManifest manifest = StaticManifest.of(paths);
+
+        // Act
+        StaticManifest updated = manifest.with("new.css").withoutTree("assets/7");
+
+        // Assert
+        assertEquals(500, manifest.size());
+        assertTrue(paths.stream().allMatch(manifest::contains));
+        assertFalse(manifest.contains("assets/500/file.js"));
+        assertTrue(updated.contains("new.css"));
+        assertFalse(updated.contains("assets/7/file.js"));
+        assertTrue(updated.contains("assets/70/file.js"));
+        assertEquals(500, updated.size());
+    }
+}
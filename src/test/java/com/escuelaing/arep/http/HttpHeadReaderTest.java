@@ -0,0 +1,202 @@
+package com.escuelaing.arep.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.framework.BufferPool;
+
+class HttpHeadReaderTest {
+
+    @Test
+    @DisplayName("readRequestLine/readHeaders should parse head and keep body bytes")
+    void readHeaders_should_parseHeadAndKeepBody() throws IOException {
+        // Arrange
+        byte[] raw = "GET /hola HTTP/1.1\r\nHost: localhost\r\nX-Name:  Ana \r\n\r\nBODY".getBytes(StandardCharsets.US_ASCII);
+        HttpHeadReader reader = new HttpHeadReader(new ByteArrayInputStream(raw), null, 1024, 0, 0, 0);
+        Map<String, String> headers = new HashMap<>();
+
+        // Act
+        String line = reader.readRequestLine();
+        reader.readHeaders(headers);
+        String body = new String(reader.bodyStream().readAllBytes(), StandardCharsets.US_ASCII);
+
+        // Assert
+        assertEquals("GET /hola HTTP/1.1", line);
+        assertEquals("localhost", headers.get("host"));
+        assertEquals("Ana", headers.get("x-name"));
+        assertEquals("BODY", body);
+    }
+
+    @Test
+    @DisplayName("detach should return the pooled buffer and keep the unread bytes")
+    void detach_should_releaseBuffer_and_keepBufferedBytes() throws IOException {
+        // Arrange
+        byte[] raw = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\nFRAMES".getBytes(StandardCharsets.US_ASCII);
+        BufferPool pool = new BufferPool(4, 4);
+        HttpHeadReader reader = new HttpHeadReader(new ByteArrayInputStream(raw), null, pool, 1024, 0, 0, 0);
+        reader.readRequestLine();
+
+        // Act
+        InputStream rest = reader.detach();
+        reader.release();
+
+        // Assert
+        assertEquals("\r\nSM\r\n\r\nFRAMES", new String(rest.readAllBytes(), StandardCharsets.US_ASCII));
+        assertEquals(0, pool.stats().outstanding());
+        assertEquals(1, pool.stats().releases());
+    }
+
+    @Test
+    @DisplayName("a body stream taken before detach should still read the buffered bytes after release")
+    void bodyStream_should_survive_detachAndRelease() throws IOException {
+        // Arrange
+        byte[] raw = "POST /async HTTP/1.1\r\nContent-Length: 9\r\n\r\nhola mundo".getBytes(StandardCharsets.US_ASCII);
+        BufferPool pool = new BufferPool(4, 4);
+        HttpHeadReader reader = new HttpHeadReader(new ByteArrayInputStream(raw), null, pool, 1024, 0, 0, 0);
+        reader.readRequestLine();
+        reader.readHeaders(new HashMap<>());
+        InputStream body = reader.bodyStream(9);
+
+        // Act
+        reader.detach();
+        reader.release();
+        pool.acquire(1024).array()[0] = 'X';
+
+        // Assert
+        assertEquals("hola mund", new String(body.readAllBytes(), StandardCharsets.US_ASCII));
+        assertEquals(1, pool.stats().releases());
+    }
+
+    @Test
+    @DisplayName("heads larger than the limit should be rejected")
+    void readHeaders_should_throw_when_headTooLarge() throws IOException {
+        // Arrange
+        String big = "GET / HTTP/1.1\r\nX-Big: " + "a".repeat(200) + "\r\n\r\n";
+        HttpHeadReader reader = new HttpHeadReader(new ByteArrayInputStream(big.getBytes(StandardCharsets.US_ASCII)),
+                null, 64, 0, 0, 0);
+
+        // Act
+        reader.readRequestLine();
+
+        // Assert
+        assertThrows(HttpHeadReader.HeadTooLargeException.class, () -> reader.readHeaders(new HashMap<>()));
+    }
+
+    @Test
+    @DisplayName("a client trickling header bytes should be cut off by the header deadline")
+    void readHeaders_should_timeout_when_clientTrickles() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+             Socket client = new Socket("localhost", server.getLocalPort());
+             Socket accepted = server.accept()) {
+            // Arrange
+            Thread trickler = new Thread(() -> {
+                try {
+                    OutputStream os = client.getOutputStream();
+                    os.write("GET / HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII));
+                    for (int i = 0; i < 50; i++) {
+                        os.write('x');
+                        os.flush();
+                        Thread.sleep(50);
+                    }
+                } catch (IOException | InterruptedException ignored) {
+                }
+            });
+            trickler.setDaemon(true);
+            trickler.start();
+            HttpHeadReader reader = new HttpHeadReader(accepted.getInputStream(), accepted, 8192, 1000, 300, 1000);
+            long start = System.nanoTime();
+
+            // Act & Assert
+            reader.readRequestLine();
+            assertThrows(SocketTimeoutException.class, () -> reader.readHeaders(new HashMap<>()));
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+            assertTrue(elapsedMs < 1500, "Debe cortarse en tiempo acotado, tomó " + elapsedMs + " ms");
+        }
+    }
+
+    @Test
+    @DisplayName("a header timeout of 0 should disable the deadline instead of failing split heads")
+    void readHeaders_should_acceptSplitHead_when_headerTimeoutDisabled() throws Exception {
+        try (ServerSocket server = new ServerSocket(0);
+             Socket client = new Socket("localhost", server.getLocalPort());
+             Socket accepted = server.accept()) {
+            // Arrange
+            OutputStream os = client.getOutputStream();
+            os.write("GET / HTTP/1.1\r\n".getBytes(StandardCharsets.US_ASCII));
+            os.flush();
+            HttpHeadReader reader = new HttpHeadReader(accepted.getInputStream(), accepted, 8192, 1000, 0, 1000);
+            Map<String, String> headers = new HashMap<>();
+
+            // Act
+            String line = reader.readRequestLine();
+            Thread.sleep(50);
+            os.write("Host: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            os.flush();
+            reader.readHeaders(headers);
+
+            // Assert
+            assertEquals("GET / HTTP/1.1", line);
+            assertEquals("localhost", headers.get("host"));
+        }
+    }
+
+    @Test
+    @DisplayName("header names should be lower-cased independently of the default locale")
+    void readHeaders_should_lowerCaseNames_when_localeIsTurkish() throws IOException {
+        Locale original = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            // Arrange
+            byte[] raw = "GET / HTTP/1.1\r\nAUTHORIZATION: Bearer t\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+            HttpHeadReader reader = new HttpHeadReader(new ByteArrayInputStream(raw), null, 1024, 0, 0, 0);
+            Map<String, String> headers = new HashMap<>();
+
+            // Act
+            reader.readRequestLine();
+            reader.readHeaders(headers);
+
+            // Assert
+            assertEquals("Bearer t", headers.get("authorization"));
+            assertEquals("Bearer t", new Request("GET", "/", headers).getHeader("Authorization"));
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    @DisplayName("conflicting Content-Length headers should be rejected, repeated equal ones accepted")
+    void readHeaders_should_reject_conflictingContentLength() throws IOException {
+        // Arrange
+        byte[] conflicting = "POST / HTTP/1.1\r\nContent-Length: 5\r\ncontent-length: 50\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] repeated = "POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 5\r\n\r\n"
+                .getBytes(StandardCharsets.US_ASCII);
+        HttpHeadReader smuggled = new HttpHeadReader(new ByteArrayInputStream(conflicting), null, 1024, 0, 0, 0);
+        HttpHeadReader duplicated = new HttpHeadReader(new ByteArrayInputStream(repeated), null, 1024, 0, 0, 0);
+        Map<String, String> headers = new HashMap<>();
+
+        // Act
+        smuggled.readRequestLine();
+        duplicated.readRequestLine();
+        duplicated.readHeaders(headers);
+
+        // Assert
+        assertThrows(HttpHeadReader.MalformedHeadException.class, () -> smuggled.readHeaders(new HashMap<>()));
+        assertEquals("5", headers.get("content-length"));
+    }
+}
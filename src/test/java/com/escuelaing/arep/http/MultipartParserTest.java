@@ -0,0 +1,96 @@
+package com.escuelaing.arep.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.framework.BufferPool;
+
+class MultipartParserTest {
+
+    private static final String BODY = "preámbulo ignorado\r\n"
+            + "--XyZ\r\nContent-Disposition: form-data; name=\"title\"\r\n\r\nhola\r\n--Xy\r\n"
+            + "--XyZ\r\nContent-Disposition: form-data; name=\"file\"; filename=\"notas \\\"1\\\".txt\"\r\n"
+            + "Content-Type: text/plain\r\n\r\n" + "0123456789".repeat(10) + "\r\n--XyZ--\r\nepílogo";
+
+    @Test
+    @DisplayName("parse should find boundaries split across reads and spool parts above the threshold")
+    void parse_should_splitAcrossReads_and_spoolLargeParts() throws IOException {
+        // Arrange
+        Path dir = Files.createTempDirectory("multipart-test");
+        MultipartParser parser = new MultipartParser(new BufferPool(4, 4), 1 << 20, 1 << 20, 10, 50, dir);
+
+        // Act
+        List<Part> parts = parser.parse(trickle(BODY), MultipartParser.boundary("multipart/form-data; boundary=\"XyZ\""));
+
+        // Assert
+        assertEquals(2, parts.size());
+        assertEquals("title", parts.get(0).getName());
+        assertEquals("hola\r\n--Xy", parts.get(0).getString());
+        assertTrue(parts.get(0).isInMemory());
+        Part file = parts.get(1);
+        assertEquals("notas \"1\".txt", file.getFilename());
+        assertEquals("text/plain", file.getContentType());
+        assertEquals(100, file.getSize());
+        assertFalse(file.isInMemory());
+        assertEquals("0123456789".repeat(10), file.getString());
+        file.delete();
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("stream should reject oversized parts with 413 and malformed bodies with 400, deleting spooled files")
+    void stream_should_enforceLimits_and_rejectMalformedBodies() throws IOException {
+        // Arrange
+        Path dir = Files.createTempDirectory("multipart-test");
+        MultipartParser small = new MultipartParser(new BufferPool(4, 4), 1 << 20, 64, 10, 8, dir);
+        MultipartParser fewParts = new MultipartParser(new BufferPool(4, 4), 1 << 20, 1 << 20, 1, 8, dir);
+        List<String> names = new ArrayList<>();
+
+        // Act
+        MultipartParser.MultipartException tooLarge = assertThrows(MultipartParser.MultipartException.class,
+                () -> small.parse(trickle(BODY), "XyZ"));
+        MultipartParser.MultipartException tooMany = assertThrows(MultipartParser.MultipartException.class,
+                () -> fewParts.stream(trickle(BODY), "XyZ", (headers, content) -> names.add(headers.name())));
+        MultipartParser.MultipartException truncated = assertThrows(MultipartParser.MultipartException.class,
+                () -> small.parse(trickle(BODY.substring(0, 120)), "XyZ"));
+        MultipartParser.MultipartException headerless = assertThrows(MultipartParser.MultipartException.class,
+                () -> small.parse(trickle("--XyZ\r\n\r\nvalue\r\n--XyZ--\r\n"), "XyZ"));
+
+        // Assert
+        assertEquals(413, tooLarge.getStatus());
+        assertEquals(413, tooMany.getStatus());
+        assertEquals(List.of("title"), names);
+        assertEquals(400, truncated.getStatus());
+        assertEquals(400, headerless.getStatus());
+        assertNull(MultipartParser.boundary("application/json"));
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    // Entrega el cuerpo de a pocos bytes, como lo haría un socket lento
+    private static InputStream trickle(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.escuelaing.arep.http;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class QueryParamsTest {
+
+    @Test
+    @DisplayName("get should decode only values with escapes and return null when missing")
+    void get_should_decodeLazily_when_paramRequested() {
+        // Arrange
+        QueryParams qp = new QueryParams("name=Ana&msg=Hola+Mundo%21&empty=");
+
+        // Act & Assert
+        assertEquals("Ana", qp.get("name"));
+        assertEquals("Hola Mundo!", qp.get("msg"));
+        assertEquals("", qp.get("empty"));
+        assertNull(qp.get("nope"));
+    }
+
+    @Test
+    @DisplayName("get should match encoded keys and getAll should return repeated values")
+    void getAll_should_returnEveryValue_when_keyRepeated() {
+        // Arrange
+        QueryParams qp = new QueryParams("tag=a&first%20name=Luis&tag=b%2Bc&flag");
+
+        // Act
+        List<String> tags = qp.getAll("tag");
+
+        // Assert
+        assertEquals(List.of("a", "b+c"), tags);
+        assertEquals("a", qp.get("tag"));
+        assertEquals("Luis", qp.get("first name"));
+        assertTrue(qp.getAll("flag").isEmpty());
+    }
+
+    @Test
+    @DisplayName("invalid escapes should fall back to the raw value")
+    void get_should_returnRawValue_when_escapeInvalid() {
+        // Arrange
+        QueryParams qp = new QueryParams("bad=%zz");
+
+        // Act & Assert
+        assertEquals("%zz", qp.get("bad"));
+        assertEquals("%zz", qp.toMap().get("bad"));
+    }
+
+    @Test
+    @DisplayName("plain values should be returned without decoding")
+    void get_should_returnSlice_when_noEscapes() {
+        // Arrange
+        String raw = "only=value";
+        QueryParams qp = new QueryParams(raw);
+
+        // Act & Assert
+        assertEquals("value", qp.get("only"));
+        assertSame(raw, qp.raw());
+    }
+}
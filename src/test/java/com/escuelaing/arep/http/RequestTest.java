@@ -4,6 +4,8 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -38,4 +40,31 @@ class RequestTest {
         // Assert
         assertEquals("", req.getValues("nope"));
     }
+
+    @Test
+    @DisplayName("Request should expose parser headers without copying them")
+    void getHeaders_should_reflectParserMap_when_headersAdded() {
+        // Arrange
+        Map<String, String> headers = new HashMap<>();
+        Request req = new Request("GET", "/path", headers);
+
+        // Act
+        headers.put("x-late", "1");
+
+        // Assert
+        assertEquals("1", req.getHeaders().get("x-late"));
+        assertThrows(UnsupportedOperationException.class, () -> req.getHeaders().put("x", "y"));
+    }
+
+    @Test
+    @DisplayName("getQueryParam should return null for absent params and keep raw query string")
+    void getQueryParam_should_returnNull_when_paramMissing() {
+        // Arrange & Act
+        Request req = new Request("GET", "/path?a=1", null);
+
+        // Assert
+        assertEquals("a=1", req.getQueryString());
+        assertEquals("1", req.getQueryParam("a"));
+        assertNull(req.getQueryParam("b"));
+    }
 }
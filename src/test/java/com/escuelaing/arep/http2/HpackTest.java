@@ -0,0 +1,124 @@
+package com.escuelaing.arep.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HpackTest {
+
+    @Test
+    @DisplayName("Huffman debe codificar y decodificar el ejemplo de RFC 7541")
+    void huffman_should_matchRfcExample() throws Exception {
+        // Arrange
+        byte[] text = "www.example.com".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] expected = HexFormat.of().parseHex("f1e3c2e5f23a6ba0ab90f4ff");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        Huffman.encode(text, out);
+        byte[] decoded = Huffman.decode(expected, 0, expected.length);
+
+        // Assert
+        assertArrayEquals(expected, out.toByteArray());
+        assertEquals(expected.length, Huffman.encodedLength(text));
+        assertArrayEquals(text, decoded);
+    }
+
+    @Test
+    @DisplayName("Huffman debe rechazar relleno que no es prefijo de EOS")
+    void huffman_should_rejectInvalidPadding() {
+        // Arrange: 'a' (00011) seguido de relleno con ceros
+        byte[] invalid = {0x18};
+
+        // Act & Assert
+        assertThrows(HpackException.class, () -> Huffman.decode(invalid, 0, invalid.length));
+    }
+
+    @Test
+    @DisplayName("El decodificador debe seguir la secuencia de peticiones C.4 de RFC 7541")
+    void decoder_should_decodeRfcRequestSequence() throws Exception {
+        // Arrange
+        HpackDecoder decoder = new HpackDecoder(4096);
+        HexFormat hex = HexFormat.of();
+
+        // Act
+        List<String> first = decode(decoder, hex.parseHex("828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+        int sizeAfterFirst = decoder.dynamicTableSize();
+        List<String> second = decode(decoder, hex.parseHex("828684be5886a8eb10649cbf"));
+        List<String> third = decode(decoder, hex.parseHex("828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"));
+
+        // Assert
+        assertEquals(List.of(":method=GET", ":scheme=http", ":path=/", ":authority=www.example.com"), first);
+        assertEquals(57, sizeAfterFirst);
+        assertEquals(":authority=www.example.com", second.get(3));
+        assertEquals("cache-control=no-cache", second.get(4));
+        assertEquals(List.of(":method=GET", ":scheme=https", ":path=/index.html",
+                ":authority=www.example.com", "custom-key=custom-value"), third);
+        assertEquals(164, decoder.dynamicTableSize());
+    }
+
+    @Test
+    @DisplayName("Lo que codifica el encoder debe decodificarse igual y reutilizar la tabla dinámica")
+    void encoder_should_roundTripAndIndexRepeatedHeaders() throws Exception {
+        // Arrange
+        HpackEncoder encoder = new HpackEncoder(4096);
+        HpackDecoder decoder = new HpackDecoder(4096);
+
+        // Act
+        byte[] first = encodeResponse(encoder, "123");
+        byte[] second = encodeResponse(encoder, "4567");
+        List<String> decodedFirst = decode(decoder, first);
+        List<String> decodedSecond = decode(decoder, second);
+
+        // Assert
+        assertEquals(List.of(":status=200", "content-type=application/json; charset=UTF-8",
+                "content-length=123", "access-control-allow-origin=*"), decodedFirst);
+        assertEquals("content-length=4567", decodedSecond.get(2));
+        assertTrue(second.length < first.length / 2, "La segunda respuesta debe usar índices: " + second.length);
+        assertEquals(encoder.dynamicTableSize(), decoder.dynamicTableSize());
+    }
+
+    @Test
+    @DisplayName("Un cambio de tamaño de tabla del par debe señalizarse al inicio del siguiente bloque")
+    void encoder_should_emitSizeUpdate_when_peerShrinksTable() throws Exception {
+        // Arrange
+        HpackEncoder encoder = new HpackEncoder(4096);
+        HpackDecoder decoder = new HpackDecoder(4096);
+        decode(decoder, encodeResponse(encoder, "1"));
+
+        // Act
+        encoder.setPeerMaxTableSize(0);
+        byte[] block = encodeResponse(encoder, "2");
+        List<String> decoded = decode(decoder, block);
+
+        // Assert
+        assertEquals(0x20, block[0] & 0xE0);
+        assertEquals("content-length=2", decoded.get(2));
+        assertEquals(0, decoder.dynamicTableSize());
+    }
+
+    private static byte[] encodeResponse(HpackEncoder encoder, String length) {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        encoder.beginBlock(block);
+        encoder.encode(":status", "200", block);
+        encoder.encode("content-type", "application/json; charset=UTF-8", block);
+        encoder.encode("content-length", length, block);
+        encoder.encode("access-control-allow-origin", "*", block);
+        return block.toByteArray();
+    }
+
+    private static List<String> decode(HpackDecoder decoder, byte[] block) throws HpackException {
+        List<String> fields = new ArrayList<>();
+        decoder.decode(block, 0, block.length, (name, value) -> fields.add(name + "=" + value));
+        return fields;
+    }
+}
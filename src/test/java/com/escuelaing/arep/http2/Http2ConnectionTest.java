@@ -0,0 +1,247 @@
+package com.escuelaing.arep.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+class Http2ConnectionTest {
+
+    private ServerSocket listener;
+    private Socket client;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (listener != null) {
+            listener.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Dos streams en la misma conexión deben responderse por separado")
+    void connection_should_multiplexStreams() throws Exception {
+        // Arrange
+        Frames frames = open(req -> new Response().body(("echo " + req.getPath()).getBytes(StandardCharsets.UTF_8)));
+        frames.settings(new byte[0]);
+
+        // Act
+        frames.request(1, "/uno");
+        frames.request(3, "/dos?x=1");
+        Map<Integer, String> bodies = frames.readBodies(2);
+
+        // Assert
+        assertEquals("echo /uno", bodies.get(1));
+        assertEquals("echo /dos", bodies.get(3));
+        assertEquals("200", frames.statuses.get(1));
+    }
+
+    @Test
+    @DisplayName("DATA no debe exceder la ventana del stream hasta recibir WINDOW_UPDATE")
+    void connection_should_respectStreamWindow() throws Exception {
+        // Arrange
+        byte[] big = new byte[25];
+        java.util.Arrays.fill(big, (byte) 'a');
+        Frames frames = open(req -> new Response().body(big));
+        frames.settings(new byte[]{0, 4, 0, 0, 0, 10});
+
+        // Act
+        frames.request(1, "/grande");
+        int firstChunk = frames.readDataLength();
+        frames.windowUpdate(1, 100);
+        Map<Integer, String> rest = frames.readBodies(1);
+
+        // Assert
+        assertEquals(10, firstChunk);
+        assertEquals(15, rest.get(1).length());
+    }
+
+    @Test
+    @DisplayName("El cuerpo de los frames DATA debe llegar al handler y acotarse con 413")
+    void connection_should_bufferRequestBody() throws Exception {
+        // Arrange
+        Frames frames = open(req -> {
+            try {
+                return new Response().body(req.getBody().readAllBytes());
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        });
+        frames.settings(new byte[0]);
+
+        // Act
+        frames.post(1, "/eco", "hola".getBytes(StandardCharsets.UTF_8));
+        frames.post(3, "/eco", new byte[1024 * 1024 + 1]);
+        Map<Integer, String> bodies = frames.readBodies(2);
+
+        // Assert
+        assertEquals("hola", bodies.get(1));
+        assertEquals("413", frames.statuses.get(3));
+    }
+
+    @Test
+    @DisplayName("Un PING debe responderse con ACK y el mismo contenido")
+    void connection_should_acknowledgePing() throws Exception {
+        // Arrange
+        Frames frames = open(req -> new Response());
+        frames.settings(new byte[0]);
+        byte[] payload = {1, 2, 3, 4, 5, 6, 7, 8};
+
+        // Act
+        frames.write(Http2Connection.PING, 0, 0, payload);
+        byte[] ack = frames.readUntil(Http2Connection.PING);
+
+        // Assert
+        assertEquals(8, ack.length);
+        assertEquals(8, ack[7]);
+    }
+
+    private Frames open(Function<Request, Response> handler) throws IOException {
+        listener = new ServerSocket(0);
+        client = new Socket("localhost", listener.getLocalPort());
+        Socket server = listener.accept();
+        OutputStream out = client.getOutputStream();
+        out.write(Http2Connection.PREFACE);
+        out.flush();
+        InputStream in = server.getInputStream();
+        // El servidor HTTP ya habría leído la línea "PRI * HTTP/2.0"
+        in.readNBytes(Http2Connection.PREFACE_REQUEST_LINE.length() + 2);
+        Http2Connection connection = new Http2Connection(server, in, server.getOutputStream(), handler,
+                Map.of(), 100, 8192, 1024 * 1024, 5000);
+        Thread.ofVirtual().start(connection::servePriorKnowledge);
+        client.setSoTimeout(5000);
+        return new Frames(new DataInputStream(client.getInputStream()), out);
+    }
+
+    /**
+     * Minimal HTTP/2 client side used by the tests.
+     */
+    private static final class Frames {
+        final DataInputStream in;
+        final OutputStream out;
+        final HpackEncoder encoder = new HpackEncoder(4096);
+        final HpackDecoder decoder = new HpackDecoder(4096);
+        final Map<Integer, String> statuses = new HashMap<>();
+        int lastType;
+        int lastFlags;
+        int lastStream;
+
+        Frames(DataInputStream in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        void settings(byte[] payload) throws IOException {
+            write(Http2Connection.SETTINGS, 0, 0, payload);
+        }
+
+        void request(int streamId, String path) throws IOException {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            encoder.beginBlock(block);
+            encoder.encode(":method", "GET", block);
+            encoder.encode(":scheme", "http", block);
+            encoder.encode(":authority", "localhost", block);
+            encoder.encode(":path", path, block);
+            write(Http2Connection.HEADERS, Http2Connection.FLAG_END_HEADERS | Http2Connection.FLAG_END_STREAM,
+                    streamId, block.toByteArray());
+        }
+
+        void post(int streamId, String path, byte[] body) throws IOException {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            encoder.beginBlock(block);
+            encoder.encode(":method", "POST", block);
+            encoder.encode(":scheme", "http", block);
+            encoder.encode(":authority", "localhost", block);
+            encoder.encode(":path", path, block);
+            write(Http2Connection.HEADERS, Http2Connection.FLAG_END_HEADERS, streamId, block.toByteArray());
+            // Frames del tamaño máximo por defecto (16 KiB)
+            for (int offset = 0; offset < body.length; offset += 16384) {
+                int end = Math.min(body.length, offset + 16384);
+                write(Http2Connection.DATA, end == body.length ? Http2Connection.FLAG_END_STREAM : 0, streamId,
+                        java.util.Arrays.copyOfRange(body, offset, end));
+            }
+        }
+
+        void windowUpdate(int streamId, int increment) throws IOException {
+            write(Http2Connection.WINDOW_UPDATE, 0, streamId, new byte[]{
+                    (byte) (increment >>> 24), (byte) (increment >>> 16), (byte) (increment >>> 8), (byte) increment});
+        }
+
+        void write(int type, int flags, int streamId, byte[] payload) throws IOException {
+            out.write(new byte[]{(byte) (payload.length >>> 16), (byte) (payload.length >>> 8), (byte) payload.length,
+                    (byte) type, (byte) flags,
+                    (byte) (streamId >>> 24), (byte) (streamId >>> 16), (byte) (streamId >>> 8), (byte) streamId});
+            out.write(payload);
+            out.flush();
+        }
+
+        byte[] read() throws IOException {
+            int length = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            lastType = in.readUnsignedByte();
+            lastFlags = in.readUnsignedByte();
+            lastStream = in.readInt() & 0x7FFFFFFF;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (lastType == Http2Connection.HEADERS) {
+                int stream = lastStream;
+                decoder.decode(payload, 0, payload.length, (name, value) -> {
+                    if (name.equals(":status")) {
+                        statuses.put(stream, value);
+                    }
+                });
+            }
+            return payload;
+        }
+
+        byte[] readUntil(int type) throws IOException {
+            while (true) {
+                byte[] payload = read();
+                if (lastType == type && (type != Http2Connection.SETTINGS || lastFlags == 0)) {
+                    return payload;
+                }
+            }
+        }
+
+        int readDataLength() throws IOException {
+            return readUntil(Http2Connection.DATA).length;
+        }
+
+        Map<Integer, String> readBodies(int streams) throws IOException {
+            Map<Integer, ByteArrayOutputStream> bodies = new HashMap<>();
+            int finished = 0;
+            while (finished < streams) {
+                byte[] payload = read();
+                if (lastType == Http2Connection.DATA) {
+                    bodies.computeIfAbsent(lastStream, k -> new ByteArrayOutputStream()).writeBytes(payload);
+                }
+                if ((lastType == Http2Connection.DATA || lastType == Http2Connection.HEADERS)
+                        && (lastFlags & Http2Connection.FLAG_END_STREAM) != 0) {
+                    bodies.computeIfAbsent(lastStream, k -> new ByteArrayOutputStream());
+                    finished++;
+                }
+                assertTrue(lastType != Http2Connection.GOAWAY, "No se esperaba GOAWAY");
+            }
+            Map<Integer, String> result = new HashMap<>();
+            bodies.forEach((k, v) -> result.put(k, v.toString(StandardCharsets.UTF_8)));
+            return result;
+        }
+    }
+}
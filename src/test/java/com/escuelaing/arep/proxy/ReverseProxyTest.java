@@ -0,0 +1,240 @@
+package com.escuelaing.arep.proxy;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.escuelaing.arep.framework.BufferPool;
+import com.escuelaing.arep.http.Request;
+import com.escuelaing.arep.http.Response;
+
+class ReverseProxyTest {
+
+    private static final Upstream.Settings SETTINGS = new Upstream.Settings(1000, 2000, 10_000, 4, 2, 60_000);
+
+    @Test
+    @DisplayName("forward should stream bodies both ways, re-chunk unknown lengths and reuse the upstream connection")
+    void forward_should_streamBodies_and_reuseConnections() throws IOException {
+        try (StubUpstream stub = new StubUpstream()) {
+            // Arrange
+            ReverseProxy proxy = proxyTo("/svc=" + stub.address());
+            ProxyRoute route = proxy.match("/svc/echo");
+            Map<String, String> headers = new HashMap<>();
+            headers.put("host", "front.example");
+            headers.put("content-length", "4");
+            headers.put("connection", "close");
+            ByteArrayOutputStream first = new ByteArrayOutputStream();
+            ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+            // Act
+            proxy.forward(route, new Request("POST", "/svc/echo?x=1", headers,
+                    new ByteArrayInputStream("hola".getBytes(StandardCharsets.UTF_8))), "10.0.0.7", false, first);
+            proxy.forward(route, new Request("GET", "/svc/chunked", Map.of()), "10.0.0.7", false, second);
+
+            // Assert
+            String echoed = first.toString(StandardCharsets.ISO_8859_1);
+            assertTrue(echoed.startsWith("HTTP/1.1 200 OK\r\n"));
+            assertTrue(echoed.contains("Content-Length: 4\r\n"));
+            assertTrue(echoed.endsWith("\r\n\r\nhola"));
+            String request = stub.heads.get(0);
+            assertTrue(request.startsWith("POST /svc/echo?x=1 HTTP/1.1\r\n"));
+            assertTrue(request.contains("Host: " + stub.address() + "\r\n"));
+            assertTrue(request.contains("X-Forwarded-For: 10.0.0.7\r\n"));
+            assertTrue(request.contains("X-Forwarded-Host: front.example\r\n"));
+            assertFalse(request.contains("connection:"));
+            String chunked = second.toString(StandardCharsets.ISO_8859_1);
+            assertTrue(chunked.contains("Transfer-Encoding: chunked\r\n"));
+            assertTrue(chunked.endsWith("\r\n\r\n3\r\nabc\r\n2\r\nde\r\n0\r\n\r\n"));
+            assertEquals(1, stub.connections.get());
+            assertEquals(1, proxy.stats().get(0).idle());
+        }
+    }
+
+    @Test
+    @DisplayName("forward should retry a refused upstream on another and eject it after repeated failures")
+    void forward_should_failOver_and_ejectFailingUpstream() throws IOException {
+        try (StubUpstream stub = new StubUpstream(); ServerSocket closed = new ServerSocket(0)) {
+            // Arrange
+            String dead = "127.0.0.1:" + closed.getLocalPort();
+            closed.close();
+            ReverseProxy proxy = proxyTo("/svc=" + dead + "," + stub.address());
+            ProxyRoute route = proxy.match("/svc");
+            ReverseProxy deadOnly = proxyTo("/svc=" + dead);
+
+            // Act
+            for (int i = 0; i < 4; i++) {
+                Response response = proxy.forward(route, new Request("GET", "/svc/echo", Map.of()), 1024);
+                assertEquals(200, response.getStatusCode());
+            }
+            ReverseProxy.ProxyException unreachable = assertThrows(ReverseProxy.ProxyException.class,
+                    () -> deadOnly.forward(deadOnly.match("/svc"), new Request("GET", "/svc", Map.of()), 1024));
+
+            // Assert
+            List<Upstream.Stats> stats = proxy.stats();
+            assertFalse(stats.get(0).available());
+            assertEquals(2, stats.get(0).failures());
+            assertTrue(stats.get(1).available());
+            assertEquals(4, stats.get(1).requests());
+            assertEquals(502, unreachable.getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("forward should answer 400 without ejecting the upstream when the client body ends early")
+    void forward_should_rejectTruncatedClientBody_and_keepUpstreamHealthy() throws IOException {
+        try (StubUpstream stub = new StubUpstream()) {
+            // Arrange
+            ReverseProxy proxy = proxyTo("/svc=" + stub.address());
+            ProxyRoute route = proxy.match("/svc/echo");
+            Map<String, String> headers = Map.of("content-length", "100");
+            List<Integer> statuses = new CopyOnWriteArrayList<>();
+
+            // Act
+            for (int i = 0; i < 3; i++) {
+                Request truncated = new Request("POST", "/svc/echo", headers, new ByteArrayInputStream(new byte[10]));
+                statuses.add(assertThrows(ReverseProxy.ProxyException.class,
+                        () -> proxy.forward(route, truncated, "10.0.0.7", false, new ByteArrayOutputStream())).getStatus());
+            }
+            Response after = proxy.forward(route, new Request("GET", "/svc/echo", Map.of()), 1024);
+
+            // Assert
+            assertEquals(List.of(400, 400, 400), statuses);
+            assertEquals(200, after.getStatusCode());
+            Upstream.Stats stats = proxy.stats().get(0);
+            assertTrue(stats.available());
+            assertEquals(0, stats.failures());
+        }
+    }
+
+    @Test
+    @DisplayName("choose should pick the least busy upstream and match prefixes on segment boundaries")
+    void choose_should_preferLeastConnections_and_matchSegments() throws IOException {
+        try (StubUpstream stub = new StubUpstream()) {
+            // Arrange
+            List<ProxyRoute> routes = ReverseProxy.parseRoutes("/api=" + stub.address() + "," + stub.address()
+                    + "; /api/v2=127.0.0.1:3;bad", ProxyRoute.Balancer.LEAST_CONNECTIONS, SETTINGS);
+            ReverseProxy proxy = new ReverseProxy(routes, new BufferPool(4, 4));
+            ProxyRoute api = proxy.match("/api/users");
+            UpstreamConnection busy = api.upstream(0).acquire();
+
+            // Act
+            int first = api.choose(0);
+            int second = api.choose(0);
+            int onlyBusyLeft = api.choose(1L << 1);
+            api.upstream(0).release(busy);
+
+            // Assert
+            assertEquals(2, proxy.getRoutes().size());
+            assertEquals("/api/v2", proxy.match("/api/v2/items").getPrefix());
+            assertNull(proxy.match("/apix"));
+            assertEquals(1, first);
+            assertEquals(1, second);
+            assertEquals(0, onlyBusyLeft);
+            assertEquals(-1, api.choose(0b11));
+        }
+    }
+
+    private static ReverseProxy proxyTo(String spec) {
+        return new ReverseProxy(ReverseProxy.parseRoutes(spec, ProxyRoute.Balancer.ROUND_ROBIN, SETTINGS),
+                new BufferPool(4, 4));
+    }
+
+    // Upstream HTTP/1.1 mínimo con keep-alive: /echo devuelve el cuerpo, /chunked responde en chunks
+    private static final class StubUpstream implements AutoCloseable {
+        final ServerSocket server = new ServerSocket(0);
+        final AtomicInteger connections = new AtomicInteger();
+        final Map<Socket, Boolean> open = new ConcurrentHashMap<>();
+        final List<String> heads = new CopyOnWriteArrayList<>();
+
+        StubUpstream() throws IOException {
+            Thread.ofVirtual().start(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        connections.incrementAndGet();
+                        open.put(socket, true);
+                        Thread.ofVirtual().start(() -> serve(socket));
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        String address() {
+            return "127.0.0.1:" + server.getLocalPort();
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                while (true) {
+                    StringBuilder head = new StringBuilder();
+                    int length = 0;
+                    String line;
+                    while ((line = readLine(in)) != null && !line.isEmpty()) {
+                        head.append(line).append("\r\n");
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            length = Integer.parseInt(line.substring(15).trim());
+                        }
+                    }
+                    if (line == null) {
+                        return;
+                    }
+                    heads.add(head.toString());
+                    byte[] body = in.readNBytes(length);
+                    String response = head.toString().startsWith("GET /svc/chunked")
+                            ? "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nTransfer-Encoding: chunked\r\n\r\n"
+                                    + "3\r\nabc\r\n2\r\nde\r\n0\r\n\r\n"
+                            : "HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nKeep-Alive: timeout=5\r\nContent-Length: "
+                                    + body.length + "\r\n\r\n" + new String(body, StandardCharsets.ISO_8859_1);
+                    out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                }
+            } catch (IOException ignored) {
+            } finally {
+                open.remove(socket);
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) >= 0 && b != '\n') {
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return b < 0 && line.isEmpty() ? null : line.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            for (Socket socket : open.keySet()) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.escuelaing.arep.websocket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class WebSocketSessionTest {
+
+    private static final byte[] MASK = {0x37, (byte) 0xfa, 0x21, 0x3d};
+
+    @Test
+    @DisplayName("handshakeResponse should compute the RFC 6455 accept key")
+    void handshakeResponse_should_acceptValidKey_and_rejectOtherVersions() {
+        // Arrange
+        Map<String, String> headers = Map.of("upgrade", "websocket",
+                "sec-websocket-key", "dGhlIHNhbXBsZSBub25jZQ==", "sec-websocket-version", "13");
+
+        // Act
+        String response = new String(WebSocketSession.handshakeResponse(headers), StandardCharsets.US_ASCII);
+
+        // Assert
+        assertTrue(WebSocketSession.isUpgradeRequest(headers));
+        assertTrue(response.contains("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n"));
+        assertNull(WebSocketSession.handshakeResponse(Map.of("sec-websocket-key", "x", "sec-websocket-version", "8")));
+    }
+
+    @Test
+    @DisplayName("serve should reassemble fragments, answer pings and echo the close")
+    void serve_should_echoFragmentedMessage_and_answerPingAndClose() {
+        // Arrange
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+        client.writeBytes(maskedFrame(0x01, "Hel"));          // TEXT sin FIN
+        client.writeBytes(maskedFrame(0x89, "hi"));           // PING intercalado
+        client.writeBytes(maskedFrame(0x80, "lo"));           // CONTINUATION con FIN
+        client.writeBytes(maskedFrame(0x88, new byte[]{0x03, (byte) 0xE8}));
+        ByteArrayOutputStream server = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+        WebSocketHandler echo = new WebSocketHandler() {
+            @Override
+            public void onText(WebSocketSession session, String message) throws Exception {
+                events.add(message);
+                session.sendText(message);
+            }
+
+            @Override
+            public void onClose(WebSocketSession session, int code, String reason) {
+                events.add("close " + code);
+            }
+        };
+        WebSocketSession session = new WebSocketSession(null, new ByteArrayInputStream(client.toByteArray()), server,
+                "/ws/echo", echo, 1024, 1024, 1000);
+
+        // Act
+        session.serve();
+
+        // Assert
+        assertEquals(List.of("Hello", "close 1000"), events);
+        byte[] expected = concat(
+                WebSocketSession.encodeFrame(WebSocketSession.PONG, "hi".getBytes(StandardCharsets.UTF_8), 0, 2),
+                WebSocketSession.encodeFrame(WebSocketSession.TEXT, "Hello".getBytes(StandardCharsets.UTF_8), 0, 5),
+                WebSocketSession.encodeFrame(WebSocketSession.CLOSE, new byte[]{0x03, (byte) 0xE8}, 0, 2));
+        assertArrayEquals(expected, server.toByteArray());
+    }
+
+    @Test
+    @DisplayName("serve should close with 1009 when a message exceeds the limit")
+    void serve_should_closeWith1009_when_messageTooBig() {
+        // Arrange
+        byte[] payload = new byte[300];
+        ByteArrayOutputStream server = new ByteArrayOutputStream();
+        List<Integer> codes = new ArrayList<>();
+        WebSocketHandler handler = new WebSocketHandler() {
+            @Override
+            public void onClose(WebSocketSession session, int code, String reason) {
+                codes.add(code);
+            }
+        };
+        WebSocketSession session = new WebSocketSession(null, new ByteArrayInputStream(maskedFrame(0x82, payload)),
+                server, "/ws/echo", handler, 200, 1024, 1000);
+
+        // Act
+        session.serve();
+
+        // Assert
+        assertEquals(List.of(WebSocketSession.MESSAGE_TOO_BIG), codes);
+        byte[] written = server.toByteArray();
+        assertEquals(0x88, written[0] & 0xFF);
+        assertEquals(WebSocketSession.MESSAGE_TOO_BIG, ((written[2] & 0xFF) << 8) | (written[3] & 0xFF));
+    }
+
+    private static byte[] maskedFrame(int firstByte, String text) {
+        return maskedFrame(firstByte, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] maskedFrame(int firstByte, byte[] payload) {
+        int lengthBytes = payload.length < 126 ? 0 : 2;
+        byte[] frame = new byte[2 + lengthBytes + 4 + payload.length];
+        frame[0] = (byte) firstByte;
+        if (lengthBytes == 0) {
+            frame[1] = (byte) (0x80 | payload.length);
+        } else {
+            frame[1] = (byte) (0x80 | 126);
+            frame[2] = (byte) (payload.length >>> 8);
+            frame[3] = (byte) payload.length;
+        }
+        int pos = 2 + lengthBytes;
+        System.arraycopy(MASK, 0, frame, pos, 4);
+        pos += 4;
+        for (int i = 0; i < payload.length; i++) {
+            frame[pos + i] = (byte) (payload[i] ^ MASK[i & 3]);
+        }
+        return frame;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        byte[] all = new byte[0];
+        for (byte[] part : parts) {
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + part.length);
+            System.arraycopy(part, 0, all, offset, part.length);
+        }
+        return all;
+    }
+}